@@ -0,0 +1,127 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ * 
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ * 
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import org.python.core.Py;
+import org.python.core.PyObject;
+
+/**
+ * The elementwise operation behind a BinaryUfunc, with the hooks its
+ * reductions and accumulations are driven through.
+ */
+class BinaryFunction {
+    String docString() {
+        return "binary_function(a, b [, r])\n";
+    }
+
+    static final PyMultiarray one = PyMultiarray.array(Py.One, '1');
+    static final PyMultiarray zero = PyMultiarray.array(Py.Zero, '1');
+
+    PyMultiarray identity() {
+        return null;
+    }
+
+    // The typecode reduce and accumulate produce from an array of type.
+    char resultType(final char type) {
+        return type;
+    }
+
+    // True if reducing yields the index of an element rather than a value.
+    boolean indexReduce() {
+        return false;
+    }
+
+    // The typecode of the vector accumulator combine works on, or '\0' if
+    // this function cannot combine whole rows at once.
+    char accumulatorType(final char type) {
+        return '\0';
+    }
+
+    // True if reducing a single element gives back that element unchanged,
+    // so the first row of a reduction can be copied into the accumulator.
+    boolean copiesFirst() {
+        return true;
+    }
+
+    // rData[sr + i] = f(rData[sr + i], aData[sa + i * dsa]) for i < n, where
+    // rData is a contiguous array of accumulatorType(type).
+    void combine(final Object aData, final int sa, final int dsa, final Object rData, final int sr, final int n,
+            final char type) {
+        throw Py.ValueError("combine not implemented");
+    }
+
+    PyObject call(final PyObject oa, final PyObject ob) {
+        throw Py.ValueError("call not implemented");
+    }
+
+    // Those wishing three argument calls to be efficient should override this.
+    PyObject call(final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
+        PyMultiarray.copyAToB(PyMultiarray.asarray(this.call(a, b)), result);
+        return result;
+    }
+
+    // f(a, b) for two elements of an object array. This default goes
+    // through call; functions with a Python operator should override it.
+    PyObject callObject(final PyObject a, final PyObject b) {
+        final PyMultiarray r = PyMultiarray.asarray(this.call(a, b), 'O');
+        return ((PyObject[]) r.data)[r.start];
+    }
+
+    // Those wishing reduce and accumulate to be fast should to override this.
+    void accumulate(final Object aData, final int aStart, final int aDim, final int aStride,
+            final Object rData, final int rStart, final int rDim, final int rStride, final char _typecode) {
+        if (_typecode == 'O') {
+            // Object arrays are walked directly; no 0-d arrays per element.
+            if (aDim == 0) { return; }
+            final PyObject[] aDataO = (PyObject[]) aData, rDataO = (PyObject[]) rData;
+            PyObject last = rDataO[rStart] = aDataO[aStart];
+            for (int i = 1, sa = aStart + aStride, sr = rStart + rStride; i < aDim; i++, sa += aStride, sr += rStride) {
+                rDataO[sr] = last = this.callObject(last, aDataO[sa]);
+            }
+            return;
+        }
+        final PyMultiarray array = new PyMultiarray(
+                aData,
+                _typecode,
+                aStart,
+                new int[] { aDim },
+                new int[] { aStride });
+        final PyMultiarray result = new PyMultiarray(
+                rData,
+                _typecode,
+                rStart,
+                new int[] { rDim },
+                new int[] { rStride });
+        if (aDim == 0) { return; }
+        PyObject r = array.get(0);
+        result.set(0, r);
+        final int jStride = (rStride == 0) ? 0 : 1;
+        for (int i = 1, j = rStride; i < aDim; i++, j += jStride) {
+            r = this.call(r, array.get(i));
+            result.set(j, r);
+        }
+    }
+
+    // Reduce aDim elements of aData into rData[rStart]. By default this is
+    // the last value of accumulate; override where reducing can do better.
+    void reduce(final Object aData, final int aStart, final int aDim, final int aStride,
+            final Object rData, final int rStart, final char _typecode) {
+        this.accumulate(aData, aStart, aDim, aStride, rData, rStart, 1, 0, _typecode);
+    }
+
+    // Like reduce, but rData is of accumulatorType(_typecode), so partial
+    // results keep its precision. Functions whose accumulator is wider than
+    // their result should override this.
+    void reduceAccumulator(final Object aData, final int aStart, final int aDim, final int aStride,
+            final Object rData, final int rStart, final char _typecode) {
+        this.reduce(aData, aStart, aDim, aStride, rData, rStart, _typecode);
+    }
+}
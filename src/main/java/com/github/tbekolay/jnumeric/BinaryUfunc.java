@@ -10,12 +10,14 @@
 
 package com.github.tbekolay.jnumeric;
 
-import java.lang.reflect.Array;
+import java.util.Arrays;
 
 import org.python.core.Py;
 import org.python.core.PyComplex;
+import org.python.core.PyInteger;
 import org.python.core.PyObject;
 import org.python.core.PyString;
+import org.python.core.PyTuple;
 
 /**
  * Universal functions that take two PyMultiarrays as input.
@@ -139,6 +141,26 @@ public class BinaryUfunc extends KeywordFunction {
      */
     static final public BinaryFunction argMin = new ArgMin();
 
+    /**
+     * Like argMax, but ignoring NaNs.
+     */
+    static final public BinaryFunction nanArgMax = new ArgMax(true);
+
+    /**
+     * Like argMin, but ignoring NaNs.
+     */
+    static final public BinaryFunction nanArgMin = new ArgMin(true);
+
+    /**
+     * Adds two arrays, reducing floating point data with Kahan summation.
+     */
+    static final BinaryFunction kahanAdd = new Add(Summation.KAHAN);
+
+    /**
+     * Adds two arrays, reducing floating point data sequentially.
+     */
+    static final BinaryFunction sequentialAdd = new Add(Summation.SEQUENTIAL);
+
     String docString() {
         return "This object has the following methods:\n"
              + "   reduce(a [,axis])\n"
@@ -233,9 +255,7 @@ public class BinaryUfunc extends KeywordFunction {
      * @return The reduced array, with size == indices.length
      */
     public PyObject reduceat(final PyObject po, final int[] indices, int axis) {
-        // This could probably be made faster by doing it directly,
-        // but I don't think I care.
-        PyMultiarray a = PyMultiarray.ascontiguous(po);
+        final PyMultiarray a = PyMultiarray.asarray(po);
         axis = (axis < 0) ? axis + a.dimensions.length : axis;
         if (axis < 0 || axis >= a.dimensions.length) {
             throw Py.ValueError("axis out of legal range");
@@ -249,15 +269,80 @@ public class BinaryUfunc extends KeywordFunction {
         }
         final int[] shape = a.dimensions.clone();
         shape[axis] = indices.length;
-        final PyMultiarray result = PyMultiarray.zeros(shape, a._typecode);
-        a = PyMultiarray.rotateAxes(a, -axis);
-        final PyMultiarray r = PyMultiarray.rotateAxes(result, -axis);
-        for (int i = 0; i < indices.length; i++) {
-            r.set(i, this.reduce(a.getslice(eIndices[i], eIndices[i + 1], 1)));
-        }
+        final PyMultiarray result = PyMultiarray.zeros(shape, this.function.resultType(a._typecode));
+        Reduction.segments(this.function, a, axis, eIndices, result);
+        this.fillEmpty(result, axis, eIndices);
         return result;
     }
 
+    /**
+     * Reduce the rows of values (along axis 0) that share a group id.
+     * Item g of the result is the reduction of every row i with
+     * <code>ids[i] == g</code>, taken in order; groups with no rows get
+     * the identity.
+     * 
+     * @param po Input PyMultiArray
+     * @param ids Non-negative int group ids, one per row of po
+     * @param nGroups Number of groups, or -1 for one more than the largest id
+     * @return The reduced array, with nGroups rows
+     */
+    public PyObject groupReduce(final PyObject po, final PyObject ids, int nGroups) {
+        PyMultiarray a = PyMultiarray.asarray(po);
+        if (a.dimensions.length == 0) { throw Py.ValueError("values must be at least one dimensional"); }
+        final PyMultiarray g = PyMultiarray.ascontiguous(ids, 'i');
+        final int n = a.dimensions[0];
+        if (g.dimensions.length != 1 || g.dimensions[0] != n) { throw Py
+                .ValueError("group_ids must be one dimensional and as long as values"); }
+        final int[] gData = (int[]) g.data;
+        int max = -1;
+        for (int i = 0; i < n; i++) {
+            final int id = gData[g.start + i];
+            if (id < 0) { throw Py.ValueError("group ids must be non-negative"); }
+            max = Math.max(max, id);
+        }
+        if (nGroups < 0) {
+            nGroups = max + 1;
+        } else if (max >= nGroups) { throw Py.ValueError("group id out of range"); }
+        // A stable counting sort brings each group's rows together.
+        final int[] bounds = new int[nGroups + 1];
+        for (int i = 0; i < n; i++) {
+            bounds[gData[g.start + i] + 1]++;
+        }
+        for (int k = 0; k < nGroups; k++) {
+            bounds[k + 1] += bounds[k];
+        }
+        a = PyMultiarray.ascontiguous(a);
+        final int row = (n == 0) ? 0 : a.strides[0];
+        final PyMultiarray sorted = PyMultiarray.zeros(a.dimensions, a._typecode);
+        final int[] next = Arrays.copyOf(bounds, nGroups);
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(a.data, a.start + i * row, sorted.data, next[gData[g.start + i]]++ * row, row);
+        }
+        final int[] shape = a.dimensions.clone();
+        shape[0] = nGroups;
+        final PyMultiarray result = PyMultiarray.zeros(shape, this.function.resultType(a._typecode));
+        if (n > 0) {
+            Reduction.segments(this.function, sorted, 0, bounds, result);
+        }
+        BufferPool.release(sorted);
+        this.fillEmpty(result, 0, bounds);
+        return PyMultiarray.returnValue(result);
+    }
+
+    // Set the items of result along axis for empty segments to the identity.
+    private void fillEmpty(final PyMultiarray result, final int axis, final int[] bounds) {
+        PyMultiarray r = null;
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            if (bounds[i] < bounds[i + 1]) {
+                continue;
+            }
+            if (r == null) {
+                r = PyMultiarray.rotateAxes(result, -axis);
+            }
+            r.set(i, this.function.identity());
+        }
+    }
+
     /**
      * Overloaded function for if no axis is passed. Defaults to 0.
      * @param po Input PyMultiArray
@@ -279,45 +364,132 @@ public class BinaryUfunc extends KeywordFunction {
      * @param axis Axis along which to reduce (default: 0)
      * @return Result of reducing the ufunc
      */
-    public PyObject reduce(final PyObject po, int axis) {
+    public PyObject reduce(final PyObject po, final int axis) {
+        return this.reduce(po, Py.newInteger(axis), false, Py.None);
+    }
+
+    /**
+     * Reduce over any set of axes in a single pass over the data.
+     * 
+     * @param po Input PyMultiArray
+     * @param axis An axis, a sequence of axes, or None for every axis
+     * @param keepdims If true, reduced axes are kept with length one
+     * @param out Array the result is stored in, or None for a new array
+     * @return The reduced array (out, if given)
+     */
+    public PyObject reduce(final PyObject po, final PyObject axis, final boolean keepdims, final PyObject out) {
         PyMultiarray a = PyMultiarray.asarray(po);
-        if (axis < 0) {
-            axis += a.dimensions.length;
+        final boolean[] reduced = BinaryUfunc.axes(axis, a.dimensions.length);
+        final int[] shape = BinaryUfunc.reducedShape(a.dimensions, reduced, keepdims);
+        final char type = this.function.resultType(a._typecode);
+        PyMultiarray result = null;
+        if (out != Py.None) {
+            if (!(out instanceof PyMultiarray)) { throw Py.ValueError("out must be an array"); }
+            result = (PyMultiarray) out;
+            if (!Arrays.equals(result.dimensions, shape)) { throw Py
+                    .ValueError("out has the wrong shape for the reduction"); }
+            // out may be written straight into, so it must not share the
+            // data still being read.
+            a = PyMultiarray.unaliased(a, result);
         }
-        if (axis < 0 || axis >= a.dimensions.length) { throw Py
-                .ValueError("axis out of legal range"); }
-        a = PyMultiarray.rotateAxes(PyMultiarray.asarray(po), -axis);
-        if (a.dimensions[0] == 0) { return PyMultiarray.asarray(
-                this.function.identity(),
-                a._typecode); }
-        // Get the array b;
-        final int[] shape = new int[a.dimensions.length - 1];
-        for (int i = 0; i < a.dimensions.length - 1; i++) {
-            shape[i] = a.dimensions[i + 1];
+        final PyMultiarray b = (result != null && result._typecode == type && result.isContiguous) ? result
+                : PyMultiarray.zeros(shape, type);
+        if (BinaryUfunc.isEmpty(a.dimensions, reduced)) {
+            b.__setitem__(Py.Ellipsis, this.function.identity());
+        } else {
+            Reduction.reduce(this.function, a, reduced, b);
         }
-        PyMultiarray b = PyMultiarray.zeros(
-                shape,
-                BinaryFunction.returnsInt ? 'i' : a._typecode);
-        // Loop over other axes and reduce...
-        a = PyMultiarray.reshape(a, new int[] { a.dimensions[0], -1 });
-        b = PyMultiarray.reshape(b, new int[] { 1, -1 });
-        final int s0 = a.strides[0], d0 = a.dimensions[0];
-        final int s1 = a.strides[a.dimensions.length - 1], d1 = a.dimensions[a.dimensions.length - 1];
-        for (int i = 0; i < d1; i++) {
-            this.function.accumulate(
-                    a.data,
-                    a.start + i * s1,
-                    d0,
-                    s0,
-                    b.data,
-                    i * s1,
-                    1,
-                    0,
-                    a._typecode);
+        if (result == null) { return PyMultiarray.returnValue(b); }
+        if (b != result) {
+            PyMultiarray.copyAToB(b, result);
+            BufferPool.release(b);
+        }
+        return result;
+    }
+
+    /**
+     * Reduce with several ufuncs in a single pass over the data.
+     * 
+     * @param ufuncs The ufuncs to reduce with
+     * @param po Input PyMultiArray
+     * @param axis An axis, a sequence of axes, or None for every axis
+     * @return A tuple of the reduced arrays, one per ufunc
+     */
+    static PyTuple reduce(final BinaryUfunc[] ufuncs, final PyObject po, final PyObject axis) {
+        final PyMultiarray a = PyMultiarray.asarray(po);
+        final boolean[] reduced = BinaryUfunc.axes(axis, a.dimensions.length);
+        final int[] shape = BinaryUfunc.reducedShape(a.dimensions, reduced, false);
+        final boolean empty = BinaryUfunc.isEmpty(a.dimensions, reduced);
+        final BinaryFunction[] fs = new BinaryFunction[ufuncs.length];
+        final PyMultiarray[] results = new PyMultiarray[ufuncs.length];
+        for (int k = 0; k < ufuncs.length; k++) {
+            fs[k] = ufuncs[k].function;
+            results[k] = PyMultiarray.zeros(shape, fs[k].resultType(a._typecode));
+            if (empty) {
+                results[k].__setitem__(Py.Ellipsis, fs[k].identity());
+            }
+        }
+        if (!empty) {
+            Reduction.reduce(fs, a, reduced, results);
+        }
+        final PyObject[] values = new PyObject[ufuncs.length];
+        for (int k = 0; k < ufuncs.length; k++) {
+            values[k] = PyMultiarray.returnValue(results[k]);
+        }
+        return new PyTuple(values);
+    }
+
+    /**
+     * The shape left after reducing the flagged axes.
+     */
+    private static int[] reducedShape(final int[] dims, final boolean[] reduced, final boolean keepdims) {
+        int nKept = 0;
+        for (final boolean r : reduced) {
+            if (!r) {
+                nKept++;
+            }
+        }
+        final int[] shape = new int[keepdims ? reduced.length : nKept];
+        for (int i = 0, j = 0; i < reduced.length; i++) {
+            if (!reduced[i]) {
+                shape[j++] = dims[i];
+            } else if (keepdims) {
+                shape[j++] = 1;
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * True if one of the flagged axes has length zero.
+     */
+    private static boolean isEmpty(final int[] dims, final boolean[] reduced) {
+        for (int i = 0; i < reduced.length; i++) {
+            if (reduced[i] && dims[i] == 0) { return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Flags the axes named by an int, a sequence of ints, or None (all).
+     */
+    static boolean[] axes(final PyObject axis, final int nd) {
+        final boolean[] reduced = new boolean[nd];
+        if (axis == Py.None) {
+            Arrays.fill(reduced, true);
+            return reduced;
+        }
+        final int[] axes = (axis instanceof PyInteger) ? new int[] { Py.py2int(axis) }
+                : PyMultiarray.objectToInts(axis, false);
+        for (int ax : axes) {
+            if (ax < 0) {
+                ax += nd;
+            }
+            if (ax < 0 || ax >= nd) { throw Py.ValueError("axis out of legal range"); }
+            if (reduced[ax]) { throw Py.ValueError("duplicate value in axis"); }
+            reduced[ax] = true;
         }
-        b = PyMultiarray.rotateAxes(PyMultiarray.reshape(b, shape), axis);
-        return PyMultiarray.returnValue(b); // This will need to be swapped in
-                                            // accumulate
+        return reduced;
     }
 
     /**
@@ -339,41 +511,76 @@ public class BinaryUfunc extends KeywordFunction {
      * @return The intermediate results of reducing po
      */
     public PyObject accumulate(final PyObject po, int axis) {
-        PyMultiarray a = PyMultiarray.asarray(po);
+        final PyMultiarray a = PyMultiarray.asarray(po);
+        final int nd = a.dimensions.length;
         if (axis < 0) {
-            axis += a.dimensions.length;
+            axis += nd;
         }
-        if (axis < 0 || axis >= a.dimensions.length) { throw Py
+        if (axis < 0 || axis >= nd) { throw Py
                 .ValueError("axis out of legal range"); }
-        a = PyMultiarray.rotateAxes(PyMultiarray.asarray(po), -axis);
-        if (a.dimensions[0] == 0) { return PyMultiarray.asarray(
+        if (a.dimensions[axis] == 0) { return PyMultiarray.asarray(
                 this.function.identity(),
                 a._typecode); }
-        // Get the array b;
-        final int[] shape = a.dimensions.clone();
-        PyMultiarray b = PyMultiarray.zeros(
-                shape,
-                BinaryFunction.returnsInt ? 'i' : a._typecode);
-        // Loop over other axes and reduce...
-        a = PyMultiarray.reshape(a, new int[] { a.dimensions[0], -1 });
-        b = PyMultiarray.reshape(b, new int[] { 1, -1 });
-        final int s0 = a.strides[0], d0 = a.dimensions[0];
-        final int s1 = a.strides[a.dimensions.length - 1], d1 = a.dimensions[a.dimensions.length - 1];
-        for (int i = 0; i < d1; i++) {
-            this.function.accumulate(
-                    a.data,
-                    a.start + i * s1,
-                    d0,
-                    s0,
-                    b.data,
-                    i * s1,
-                    d0,
-                    s0,
-                    a._typecode);
+        final char type = a._typecode;
+        final PyMultiarray b = PyMultiarray.zeros(a.dimensions, this.function.resultType(type));
+        final int n = a.dimensions[axis], sa = a.strides[axis], sb = b.strides[axis];
+        // The dimensions before and after the axis.
+        final int[] od = Arrays.copyOf(a.dimensions, axis), oas = Arrays.copyOf(a.strides, axis);
+        final int[] obs = Arrays.copyOf(b.strides, axis);
+        final int[][] inner = Reduction.coalesce(
+                Arrays.copyOfRange(a.dimensions, axis + 1, nd),
+                Arrays.copyOfRange(a.strides, axis + 1, nd),
+                nd - axis - 1);
+        int m = 1;
+        for (final int d : od) {
+            m *= d;
+        }
+        final BinaryFunction f = this.function;
+        if (inner[0].length == 1 && f.accumulatorType(type) == b._typecode && f.copiesFirst()) {
+            // Whole rows at a time: each row of the result is the previous
+            // one combined with the next row of a.
+            final int width = inner[0][0], sIn = inner[1][0], e = PyMultiarray.typeToNElements(type);
+            Parallel.forRange(type, m, (long) m * n * width, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    final Reduction.Walk wa = new Reduction.Walk(od, oas, a.start, lo);
+                    final Reduction.Walk wb = new Reduction.Walk(od, obs, 0, lo);
+                    for (int o = lo; o < hi; o++, wa.next(), wb.next()) {
+                        for (int k = 0, p = wa.offset, q = wb.offset; k < width; k++, p += sIn, q += e) {
+                            System.arraycopy(a.data, p, b.data, q, e);
+                        }
+                        for (int i = 1; i < n; i++) {
+                            final int q = wb.offset + i * sb;
+                            System.arraycopy(b.data, q - sb, b.data, q, width * e);
+                            f.combine(a.data, wa.offset + i * sa, sIn, b.data, q, width, type);
+                        }
+                    }
+                }
+            });
+            return PyMultiarray.returnValue(b);
+        }
+        // Otherwise one run along the axis per element of the other axes.
+        final int[] rd = new int[nd - 1], ras = new int[nd - 1], rbs = new int[nd - 1];
+        for (int i = 0, k = 0; i < nd; i++) {
+            if (i != axis) {
+                rd[k] = a.dimensions[i];
+                ras[k] = a.strides[i];
+                rbs[k++] = b.strides[i];
+            }
         }
-        b = PyMultiarray.rotateAxes(PyMultiarray.reshape(b, shape), axis);
-        return PyMultiarray.returnValue(b); // This will need to be swapped in
-                                            // accumulate
+        int lines = 1;
+        for (final int d : rd) {
+            lines *= d;
+        }
+        Parallel.forRange(type, lines, (long) lines * n, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                final Reduction.Walk wa = new Reduction.Walk(rd, ras, a.start, lo);
+                final Reduction.Walk wb = new Reduction.Walk(rd, rbs, 0, lo);
+                for (int o = lo; o < hi; o++, wa.next(), wb.next()) {
+                    f.accumulate(a.data, wa.offset, n, sa, b.data, wb.offset, n, sb, type);
+                }
+            }
+        });
+        return PyMultiarray.returnValue(b);
     }
 
     /**
@@ -407,59 +614,45 @@ public class BinaryUfunc extends KeywordFunction {
     }
 }
 
-class BinaryFunction {
-    String docString() {
-        return "binary_function(a, b [, r])\n";
-    }
-
-    static final PyMultiarray one = PyMultiarray.array(Py.One, '1');
-    static final PyMultiarray zero = PyMultiarray.array(Py.Zero, '1');
-    // Change -- add returnType() and _returnType (= '\0');
-    static final boolean returnsInt = false;
+final class Add extends BinaryFunction {
+    // One of the Summation methods, used when reducing floating point data.
+    private final int summation;
 
-    PyMultiarray identity() {
-        return null;
+    Add() {
+        this(Summation.PAIRWISE);
     }
 
-    PyObject call(final PyObject oa, final PyObject ob) {
-        throw Py.ValueError("call not implemented");
+    Add(final int summation) {
+        this.summation = summation;
     }
 
-    // Those wishing three argument calls to be efficient should override this.
-    PyObject call(final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
-        PyMultiarray.copyAToB(PyMultiarray.asarray(this.call(a, b)), result);
-        return result;
+    @Override String docString() {
+        return "add(a, b [,r]) returns a+b and stores the result in r if supplied.\n";
     }
 
-    // Those wishing reduce and accumulate to be fast should to override this.
-    void accumulate(final Object aData, final int aStart, final int aDim, final int aStride,
-            final Object rData, final int rStart, final int rDim, final int rStride, final char _typecode) {
-        final PyMultiarray array = new PyMultiarray(
-                aData,
-                _typecode,
-                aStart,
-                new int[] { aDim },
-                new int[] { aStride });
-        final PyMultiarray result = new PyMultiarray(
-                rData,
-                _typecode,
-                rStart,
-                new int[] { rDim },
-                new int[] { rStride });
-        if (aDim == 0) { return; }
-        PyObject r = array.get(0);
-        result.set(0, r);
-        final int jStride = (rStride == 0) ? 0 : 1;
-        for (int i = 1, j = rStride; i < aDim; i++, j += jStride) {
-            r = this.call(r, array.get(i));
-            result.set(j, r);
+    @Override final void reduce(final Object aData, final int sa, final int dim, final int dsa, final Object rData, final int sr, final char type) {
+        if (this.summation == Summation.SEQUENTIAL) {
+            this.accumulate(aData, sa, dim, dsa, rData, sr, 1, 0, type);
+            return;
+        }
+        switch (type) {
+        case 'f':
+            ((float[]) rData)[sr] = (float) Summation.sum((float[]) aData, sa, dsa, dim, this.summation);
+            break;
+        case 'd':
+            ((double[]) rData)[sr] = Summation.sum((double[]) aData, sa, dsa, dim, this.summation);
+            break;
+        case 'F':
+            ((float[]) rData)[sr] = (float) Summation.sum((float[]) aData, sa, dsa, dim, this.summation);
+            ((float[]) rData)[sr + 1] = (float) Summation.sum((float[]) aData, sa + 1, dsa, dim, this.summation);
+            break;
+        case 'D':
+            ((double[]) rData)[sr] = Summation.sum((double[]) aData, sa, dsa, dim, this.summation);
+            ((double[]) rData)[sr + 1] = Summation.sum((double[]) aData, sa + 1, dsa, dim, this.summation);
+            break;
+        default:
+            this.accumulate(aData, sa, dim, dsa, rData, sr, 1, 0, type);
         }
-    }
-}
-
-final class Add extends BinaryFunction {
-    @Override String docString() {
-        return "add(a, b [,r]) returns a+b and stores the result in r if supplied.\n";
     }
 
     @Override final PyMultiarray identity() {
@@ -545,6 +738,107 @@ final class Add extends BinaryFunction {
         }
     }
 
+    @Override final void reduceAccumulator(final Object aData, final int sa, final int dim, final int dsa,
+            final Object rData, final int sr, final char type) {
+        switch (type) {
+        case 'f':
+            ((double[]) rData)[sr] = Summation.sum((float[]) aData, sa, dsa, dim, this.summation);
+            break;
+        case 'F':
+            ((double[]) rData)[sr] = Summation.sum((float[]) aData, sa, dsa, dim, this.summation);
+            ((double[]) rData)[sr + 1] = Summation.sum((float[]) aData, sa + 1, dsa, dim, this.summation);
+            break;
+        default:
+            this.reduce(aData, sa, dim, dsa, rData, sr, type);
+        }
+    }
+
+    @Override final char accumulatorType(final char type) {
+        switch (type) {
+        case 'f':
+        case 'd':
+        case 'F':
+        case 'D':
+            // Rows are cascaded pairwise, which only stands in for PAIRWISE.
+            if (this.summation != Summation.PAIRWISE) { return '\0'; }
+            return (type == 'f') ? 'd' : (type == 'F') ? 'D' : type;
+        case 'O':
+            return '\0';
+        default:
+            return type;
+        }
+    }
+
+    @Override final void combine(final Object aData, int sa, final int dsa, final Object rData, int sr, final int n, final char type) {
+        final int maxSr = sr + n * PyMultiarray.typeToNElements(type);
+        switch (type) {
+        case '1':
+            final byte[] rData1 = (byte[]) rData,
+            aData1 = (byte[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rData1[sr] += aData1[sa];
+            }
+            break;
+        case 's':
+            final short[] rDatas = (short[]) rData,
+            aDatas = (short[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatas[sr] += aDatas[sa];
+            }
+            break;
+        case 'i':
+            final int[] rDatai = (int[]) rData,
+            aDatai = (int[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] += aDatai[sa];
+            }
+            break;
+        case 'l':
+            final long[] rDatal = (long[]) rData,
+            aDatal = (long[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatal[sr] += aDatal[sa];
+            }
+            break;
+        case 'f':
+            final double[] rDataf = (double[]) rData;
+            final float[] aDataf = (float[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDataf[sr] += aDataf[sa];
+            }
+            break;
+        case 'd':
+            final double[] rDatad = (double[]) rData,
+            aDatad = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatad[sr] += aDatad[sa];
+            }
+            break;
+        case 'F':
+            final double[] rDataF = (double[]) rData;
+            final float[] aDataF = (float[]) aData;
+            for (; sr != maxSr; sa += dsa, sr += 2) {
+                rDataF[sr] += aDataF[sa];
+                rDataF[sr + 1] += aDataF[sa + 1];
+            }
+            break;
+        case 'D':
+            final double[] rDataD = (double[]) rData,
+            aDataD = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr += 2) {
+                rDataD[sr] += aDataD[sa];
+                rDataD[sr + 1] += aDataD[sa + 1];
+            }
+            break;
+        default:
+            throw Py.ValueError("typecd must be in [zcbhilfdFD]");
+        }
+    }
+
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return a._add(b);
+    }
+
     @Override final PyObject call(final PyObject o1, final PyObject o2) {
         return o1.__add__(o2);
     }
@@ -642,6 +936,10 @@ final class Subtract extends BinaryFunction {
         }
     }
 
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return a._sub(b);
+    }
+
     @Override final PyObject call(final PyObject po1, final PyObject po2) {
         return po1.__sub__(po2);
     }
@@ -739,6 +1037,82 @@ final class Multiply extends BinaryFunction {
         }
     }
 
+    @Override final char accumulatorType(final char type) {
+        return (type == 'O') ? '\0' : type;
+    }
+
+    @Override final void combine(final Object aData, int sa, final int dsa, final Object rData, int sr, final int n, final char type) {
+        final int maxSr = sr + n * PyMultiarray.typeToNElements(type);
+        switch (type) {
+        case '1':
+            final byte[] rData1 = (byte[]) rData,
+            aData1 = (byte[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rData1[sr] *= aData1[sa];
+            }
+            break;
+        case 's':
+            final short[] rDatas = (short[]) rData,
+            aDatas = (short[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatas[sr] *= aDatas[sa];
+            }
+            break;
+        case 'i':
+            final int[] rDatai = (int[]) rData,
+            aDatai = (int[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] *= aDatai[sa];
+            }
+            break;
+        case 'l':
+            final long[] rDatal = (long[]) rData,
+            aDatal = (long[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatal[sr] *= aDatal[sa];
+            }
+            break;
+        case 'f':
+            final float[] rDataf = (float[]) rData,
+            aDataf = (float[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDataf[sr] *= aDataf[sa];
+            }
+            break;
+        case 'd':
+            final double[] rDatad = (double[]) rData,
+            aDatad = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatad[sr] *= aDatad[sa];
+            }
+            break;
+        case 'F':
+            final float[] rDataF = (float[]) rData,
+            aDataF = (float[]) aData;
+            for (; sr != maxSr; sa += dsa, sr += 2) {
+                final float re = rDataF[sr] * aDataF[sa] - rDataF[sr + 1] * aDataF[sa + 1];
+                rDataF[sr + 1] = rDataF[sr] * aDataF[sa + 1] + rDataF[sr + 1] * aDataF[sa];
+                rDataF[sr] = re;
+            }
+            break;
+        case 'D':
+            final double[] rDataD = (double[]) rData,
+            aDataD = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr += 2) {
+                final double re = rDataD[sr] * aDataD[sa] - rDataD[sr + 1] * aDataD[sa + 1];
+                rDataD[sr + 1] = rDataD[sr] * aDataD[sa + 1] + rDataD[sr + 1] * aDataD[sa];
+                rDataD[sr] = re;
+            }
+            break;
+        default:
+            throw Py.ValueError("typecd must be in [zcbhilfdFD]");
+        }
+    }
+
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return a._mul(b);
+    }
+
     @Override final PyObject call(final PyObject po1, final PyObject po2) {
         return po1.__mul__(po2);
     }
@@ -845,6 +1219,10 @@ final class Divide extends BinaryFunction {
         }
     }
 
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return a._div(b);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return po1.__div__(po2);
     }
@@ -949,6 +1327,10 @@ final class Remainder extends BinaryFunction {
         }
     }
 
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return a._mod(b);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return po1.__mod__(po2);
     }
@@ -1024,8 +1406,8 @@ final class Power extends BinaryFunction {
                 // from PyMultiarray.
                 final PyComplex Z = (PyComplex) new PyComplex(lastfr, lastfi)
                         .__pow__(new PyComplex(aDataF[sa], aDataF[sa + 1]));
-                rDataF[sr] = (lastfi = (float) Z.real);
-                rDataF[sr + 1] = (lastfr = (float) Z.imag);
+                rDataF[sr] = (lastfr = (float) Z.real);
+                rDataF[sr + 1] = (lastfi = (float) Z.imag);
             }
             break;
         case 'D':
@@ -1038,8 +1420,8 @@ final class Power extends BinaryFunction {
                 // from PyMultiarray.
                 final PyComplex Z = (PyComplex) new PyComplex(lastdr, lastdi)
                         .__pow__(new PyComplex(aDataD[sa], aDataD[sa + 1]));
-                rDataD[sr] = (lastdi = Z.real);
-                rDataD[sr + 1] = (lastdr = Z.imag);
+                rDataD[sr] = (lastdr = Z.real);
+                rDataD[sr + 1] = (lastdi = Z.imag);
             }
             break;
         case 'O':
@@ -1050,6 +1432,10 @@ final class Power extends BinaryFunction {
         }
     }
 
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return a._pow(b);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return po1.__pow__(po2);
     }
@@ -1124,59 +1510,117 @@ final class Maximum extends BinaryFunction {
         }
     }
 
-    @Override final public PyObject call(final PyObject po1, final PyObject po2) {
-        return PyMultiarray.asarray(po1).__max(PyMultiarray.asarray(po2));
-    }
-
-    @Override final PyObject call(final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
-        return a.__max(b, result);
-    }
-}
-
-final class Minimum extends BinaryFunction {
-    @Override final PyMultiarray identity() {
-        throw Py.ValueError("zero size array to ufunc without identity");
+    @Override final char accumulatorType(final char type) {
+        return (type == 'O' || type == 'F' || type == 'D') ? '\0' : type;
     }
 
-    @Override final void accumulate(final Object aData, int sa, final int dim, final int dsa, final Object rData, int sr, final int rDim, final int dsr, final char type) {
-        final int maxSa = sa + dim * dsa;
+    @Override final void combine(final Object aData, int sa, final int dsa, final Object rData, int sr, final int n, final char type) {
+        final int maxSr = sr + n;
         switch (type) {
         case '1':
             final byte[] rData1 = (byte[]) rData,
             aData1 = (byte[]) aData;
-            byte last1 = aData1[sa];
-            for (; sa != maxSa; sa += dsa, sr += dsr) {
-                rData1[sr] = last1 = ((last1 < aData1[sa]) ? last1 : aData1[sa]);
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rData1[sr] = ((rData1[sr] > aData1[sa]) ? rData1[sr] : aData1[sa]);
             }
             break;
         case 's':
             final short[] rDatas = (short[]) rData,
             aDatas = (short[]) aData;
-            short lasts = aDatas[sa];
-            for (; sa != maxSa; sa += dsa, sr += dsr) {
-                rDatas[sr] = lasts = ((lasts < aDatas[sa]) ? lasts : aDatas[sa]);
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatas[sr] = ((rDatas[sr] > aDatas[sa]) ? rDatas[sr] : aDatas[sa]);
             }
             break;
         case 'i':
             final int[] rDatai = (int[]) rData,
             aDatai = (int[]) aData;
-            int lasti = aDatai[sa];
-            for (; sa != maxSa; sa += dsa, sr += dsr) {
-                rDatai[sr] = lasti = ((lasti < aDatai[sa]) ? lasti : aDatai[sa]);
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = ((rDatai[sr] > aDatai[sa]) ? rDatai[sr] : aDatai[sa]);
             }
             break;
         case 'l':
             final long[] rDatal = (long[]) rData,
             aDatal = (long[]) aData;
-            long lastl = aDatal[sa];
-            for (; sa != maxSa; sa += dsa, sr += dsr) {
-                rDatal[sr] = lastl = ((lastl < aDatal[sa]) ? lastl : aDatal[sa]);
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatal[sr] = ((rDatal[sr] > aDatal[sa]) ? rDatal[sr] : aDatal[sa]);
             }
             break;
         case 'f':
             final float[] rDataf = (float[]) rData,
             aDataf = (float[]) aData;
-            float lastf = aDataf[sa];
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDataf[sr] = ((rDataf[sr] > aDataf[sa]) ? rDataf[sr] : aDataf[sa]);
+            }
+            break;
+        case 'd':
+            final double[] rDatad = (double[]) rData,
+            aDatad = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatad[sr] = ((rDatad[sr] > aDatad[sa]) ? rDatad[sr] : aDatad[sa]);
+            }
+            break;
+        default:
+            throw Py.ValueError("typecd must be in [zcbhilfd]");
+        }
+    }
+
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return PyMultiarray.myMax(a, b);
+    }
+
+    @Override final public PyObject call(final PyObject po1, final PyObject po2) {
+        return PyMultiarray.asarray(po1).__max(PyMultiarray.asarray(po2));
+    }
+
+    @Override final PyObject call(final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
+        return a.__max(b, result);
+    }
+}
+
+final class Minimum extends BinaryFunction {
+    @Override final PyMultiarray identity() {
+        throw Py.ValueError("zero size array to ufunc without identity");
+    }
+
+    @Override final void accumulate(final Object aData, int sa, final int dim, final int dsa, final Object rData, int sr, final int rDim, final int dsr, final char type) {
+        final int maxSa = sa + dim * dsa;
+        switch (type) {
+        case '1':
+            final byte[] rData1 = (byte[]) rData,
+            aData1 = (byte[]) aData;
+            byte last1 = aData1[sa];
+            for (; sa != maxSa; sa += dsa, sr += dsr) {
+                rData1[sr] = last1 = ((last1 < aData1[sa]) ? last1 : aData1[sa]);
+            }
+            break;
+        case 's':
+            final short[] rDatas = (short[]) rData,
+            aDatas = (short[]) aData;
+            short lasts = aDatas[sa];
+            for (; sa != maxSa; sa += dsa, sr += dsr) {
+                rDatas[sr] = lasts = ((lasts < aDatas[sa]) ? lasts : aDatas[sa]);
+            }
+            break;
+        case 'i':
+            final int[] rDatai = (int[]) rData,
+            aDatai = (int[]) aData;
+            int lasti = aDatai[sa];
+            for (; sa != maxSa; sa += dsa, sr += dsr) {
+                rDatai[sr] = lasti = ((lasti < aDatai[sa]) ? lasti : aDatai[sa]);
+            }
+            break;
+        case 'l':
+            final long[] rDatal = (long[]) rData,
+            aDatal = (long[]) aData;
+            long lastl = aDatal[sa];
+            for (; sa != maxSa; sa += dsa, sr += dsr) {
+                rDatal[sr] = lastl = ((lastl < aDatal[sa]) ? lastl : aDatal[sa]);
+            }
+            break;
+        case 'f':
+            final float[] rDataf = (float[]) rData,
+            aDataf = (float[]) aData;
+            float lastf = aDataf[sa];
             for (; sa != maxSa; sa += dsa, sr += dsr) {
                 rDataf[sr] = lastf = ((lastf < aDataf[sa]) ? lastf : aDataf[sa]);
             }
@@ -1197,6 +1641,64 @@ final class Minimum extends BinaryFunction {
         }
     }
 
+    @Override final char accumulatorType(final char type) {
+        return (type == 'O' || type == 'F' || type == 'D') ? '\0' : type;
+    }
+
+    @Override final void combine(final Object aData, int sa, final int dsa, final Object rData, int sr, final int n, final char type) {
+        final int maxSr = sr + n;
+        switch (type) {
+        case '1':
+            final byte[] rData1 = (byte[]) rData,
+            aData1 = (byte[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rData1[sr] = ((rData1[sr] < aData1[sa]) ? rData1[sr] : aData1[sa]);
+            }
+            break;
+        case 's':
+            final short[] rDatas = (short[]) rData,
+            aDatas = (short[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatas[sr] = ((rDatas[sr] < aDatas[sa]) ? rDatas[sr] : aDatas[sa]);
+            }
+            break;
+        case 'i':
+            final int[] rDatai = (int[]) rData,
+            aDatai = (int[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = ((rDatai[sr] < aDatai[sa]) ? rDatai[sr] : aDatai[sa]);
+            }
+            break;
+        case 'l':
+            final long[] rDatal = (long[]) rData,
+            aDatal = (long[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatal[sr] = ((rDatal[sr] < aDatal[sa]) ? rDatal[sr] : aDatal[sa]);
+            }
+            break;
+        case 'f':
+            final float[] rDataf = (float[]) rData,
+            aDataf = (float[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDataf[sr] = ((rDataf[sr] < aDataf[sa]) ? rDataf[sr] : aDataf[sa]);
+            }
+            break;
+        case 'd':
+            final double[] rDatad = (double[]) rData,
+            aDatad = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatad[sr] = ((rDatad[sr] < aDatad[sa]) ? rDatad[sr] : aDatad[sa]);
+            }
+            break;
+        default:
+            throw Py.ValueError("typecd must be in [zcbhilfd]");
+        }
+    }
+
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return PyMultiarray.myMin(a, b);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return PyMultiarray.asarray(po1).__min(PyMultiarray.asarray(po2));
     }
@@ -1209,8 +1711,6 @@ final class Minimum extends BinaryFunction {
 // I don't think equal, notEqual, etc need fast reductions (accumulate) since
 // they don't make much sense.
 final class Equal extends BinaryFunction {
-    boolean returnsInt = true;
-
     @Override final PyMultiarray identity() {
         return BinaryFunction.one;
     }
@@ -1221,8 +1721,6 @@ final class Equal extends BinaryFunction {
 }
 
 final class NotEqual extends BinaryFunction {
-    boolean returnsInt = true;
-
     @Override final PyMultiarray identity() {
         return BinaryFunction.one;
     }
@@ -1233,8 +1731,6 @@ final class NotEqual extends BinaryFunction {
 }
 
 final class Less extends BinaryFunction {
-    boolean returnsInt = true;
-
     @Override final PyMultiarray identity() {
         return BinaryFunction.one;
     }
@@ -1245,8 +1741,6 @@ final class Less extends BinaryFunction {
 }
 
 final class LessEqual extends BinaryFunction {
-    boolean returnsInt = true;
-
     @Override final PyMultiarray identity() {
         return BinaryFunction.one;
     }
@@ -1257,8 +1751,6 @@ final class LessEqual extends BinaryFunction {
 }
 
 final class Greater extends BinaryFunction {
-    boolean returnsInt = true;
-
     @Override final PyMultiarray identity() {
         return BinaryFunction.one;
     }
@@ -1269,8 +1761,6 @@ final class Greater extends BinaryFunction {
 }
 
 final class GreaterEqual extends BinaryFunction {
-    boolean returnsInt = true;
-
     @Override final PyMultiarray identity() {
         return BinaryFunction.one;
     }
@@ -1329,6 +1819,10 @@ final class BitwiseAnd extends BinaryFunction {
         }
     }
 
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return a.__and__(b);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return PyMultiarray.asarray(po1).__and__(PyMultiarray.asarray(po2));
     }
@@ -1386,6 +1880,10 @@ final class BitwiseOr extends BinaryFunction {
         }
     }
 
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return a.__or__(b);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return PyMultiarray.asarray(po1).__or__(PyMultiarray.asarray(po2));
     }
@@ -1443,6 +1941,10 @@ final class BitwiseXor extends BinaryFunction {
         }
     }
 
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return a.__xor__(b);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return PyMultiarray.asarray(po1).__xor__(PyMultiarray.asarray(po2));
     }
@@ -1453,8 +1955,6 @@ final class BitwiseXor extends BinaryFunction {
 }
 
 final class LogicalAnd extends BinaryFunction {
-    boolean returnsInt = true;
-
     @Override final PyMultiarray identity() {
         return BinaryFunction.one;
     }
@@ -1522,6 +2022,81 @@ final class LogicalAnd extends BinaryFunction {
         }
     }
 
+    @Override final char resultType(final char type) {
+        return (type == 'O') ? 'O' : 'i';
+    }
+
+    @Override final char accumulatorType(final char type) {
+        return (type == 'O') ? '\0' : 'i';
+    }
+
+    @Override final boolean copiesFirst() {
+        return false;
+    }
+
+    @Override final void combine(final Object aData, int sa, final int dsa, final Object rData, int sr, final int n, final char type) {
+        final int maxSr = sr + n;
+        final int[] rDatai = (int[]) rData;
+        switch (type) {
+        case '1':
+            final byte[] aData1 = (byte[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) & (aData1[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 's':
+            final short[] aDatas = (short[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) & (aDatas[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'i':
+            final int[] aDatai = (int[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) & (aDatai[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'l':
+            final long[] aDatal = (long[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) & (aDatal[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'f':
+            final float[] aDataf = (float[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) & (aDataf[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'd':
+            final double[] aDatad = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) & (aDatad[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'F':
+            final float[] aDataF = (float[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) & (aDataF[sa] != 0 || aDataF[sa + 1] != 0)) ? 1
+                        : 0);
+            }
+            break;
+        case 'D':
+            final double[] aDataD = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) & (aDataD[sa] != 0 || aDataD[sa + 1] != 0)) ? 1
+                        : 0);
+            }
+            break;
+        default:
+            throw Py.ValueError("typecd must be in [zcbhilfdFD]");
+        }
+    }
+
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return Py.newInteger((a.__nonzero__() && b.__nonzero__()) ? 1 : 0);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return PyMultiarray.asarray(po1).__land(PyMultiarray.asarray(po2));
     }
@@ -1532,8 +2107,6 @@ final class LogicalAnd extends BinaryFunction {
 }
 
 final class LogicalOr extends BinaryFunction {
-    boolean returnsInt = true;
-
     @Override final PyMultiarray identity() {
         return BinaryFunction.zero;
     }
@@ -1601,6 +2174,81 @@ final class LogicalOr extends BinaryFunction {
         }
     }
 
+    @Override final char resultType(final char type) {
+        return (type == 'O') ? 'O' : 'i';
+    }
+
+    @Override final char accumulatorType(final char type) {
+        return (type == 'O') ? '\0' : 'i';
+    }
+
+    @Override final boolean copiesFirst() {
+        return false;
+    }
+
+    @Override final void combine(final Object aData, int sa, final int dsa, final Object rData, int sr, final int n, final char type) {
+        final int maxSr = sr + n;
+        final int[] rDatai = (int[]) rData;
+        switch (type) {
+        case '1':
+            final byte[] aData1 = (byte[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) | (aData1[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 's':
+            final short[] aDatas = (short[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) | (aDatas[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'i':
+            final int[] aDatai = (int[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) | (aDatai[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'l':
+            final long[] aDatal = (long[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) | (aDatal[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'f':
+            final float[] aDataf = (float[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) | (aDataf[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'd':
+            final double[] aDatad = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) | (aDatad[sa] != 0)) ? 1 : 0);
+            }
+            break;
+        case 'F':
+            final float[] aDataF = (float[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) | (aDataF[sa] != 0 || aDataF[sa + 1] != 0)) ? 1
+                        : 0);
+            }
+            break;
+        case 'D':
+            final double[] aDataD = (double[]) aData;
+            for (; sr != maxSr; sa += dsa, sr++) {
+                rDatai[sr] = (((rDatai[sr] != 0) | (aDataD[sa] != 0 || aDataD[sa + 1] != 0)) ? 1
+                        : 0);
+            }
+            break;
+        default:
+            throw Py.ValueError("typecd must be in [zcbhilfdFD]");
+        }
+    }
+
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return Py.newInteger((a.__nonzero__() || b.__nonzero__()) ? 1 : 0);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return PyMultiarray.asarray(po1).__lor(PyMultiarray.asarray(po2));
     }
@@ -1611,15 +2259,17 @@ final class LogicalOr extends BinaryFunction {
 }
 
 final class LogicalXor extends BinaryFunction {
-    boolean returnsInt = true;
-
     @Override final PyMultiarray identity() {
-        return BinaryFunction.one;
+        return BinaryFunction.zero;
+    }
+
+    @Override final char resultType(final char type) {
+        return (type == 'O') ? 'O' : 'i';
     }
 
     @Override final void accumulate(final Object aData, int sa, final int dim, final int dsa, final Object rData, int sr, final int rDim, final int dsr, final char type) {
         final int maxSa = sa + dim * dsa;
-        int last = 1;
+        int last = 0;
         final int[] rDatai = (int[]) rData;
         switch (type) {
         case '1':
@@ -1680,6 +2330,10 @@ final class LogicalXor extends BinaryFunction {
         }
     }
 
+    @Override final PyObject callObject(final PyObject a, final PyObject b) {
+        return Py.newInteger((a.__nonzero__() ^ b.__nonzero__()) ? 1 : 0);
+    }
+
     @Override final public PyObject call(final PyObject po1, final PyObject po2) {
         return PyMultiarray.asarray(po1).__lxor(PyMultiarray.asarray(po2));
     }
@@ -1690,93 +2344,327 @@ final class LogicalXor extends BinaryFunction {
 }
 
 final class ArgMax extends BinaryFunction {
-    boolean returnsInt = true;
+    /**
+     * If set, NaNs are passed over (nanargmax) instead of counting as the
+     * largest value (argmax).
+     */
+    private final boolean skipNaN;
+
+    ArgMax() {
+        this(false);
+    }
+
+    ArgMax(final boolean skipNaN) {
+        this.skipNaN = skipNaN;
+    }
 
     @Override final PyMultiarray identity() {
         return BinaryFunction.zero;
     }
 
-    @Override final void accumulate(final Object aData, int aStart, final int aDim, final int aStride,
-            final Object rData, int rStart, final int rDim, final int rStride, final char _typecode) {
+    @Override final char resultType(final char type) {
+        return 'i';
+    }
+
+    @Override final boolean indexReduce() {
+        return true;
+    }
+
+    @Override final void accumulate(final Object aData, final int aStart, final int aDim, final int aStride,
+            final Object rData, final int rStart, final int rDim, final int rStride, final char type) {
+        if (aDim == 0) { return; }
+        this.scan(aData, aStart, aDim, aStride, (int[]) rData, rStart, rStride, type);
+    }
+
+    @Override final void reduce(final Object aData, final int aStart, final int aDim, final int aStride,
+            final Object rData, final int rStart, final char type) {
         if (aDim == 0) { return; }
-        int lastIndex = 0;
-        switch (_typecode) {
+        ((int[]) rData)[rStart] = this.scan(aData, aStart, aDim, aStride, null, 0, 0, type);
+    }
+
+    /**
+     * Index of the first largest of <code>dim</code> elements. If
+     * <code>running</code> is given, the index so far is also stored there
+     * after every element. An all-NaN run gives -1 when NaNs are skipped.
+     */
+    private int scan(final Object aData, int sa, final int dim, final int dsa, final int[] running, int sr,
+            final int dsr, final char type) {
+        int best = 0;
+        switch (type) {
         case '1':
+            final byte[] aData1 = (byte[]) aData;
+            byte max1 = aData1[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aData1[sa] > max1) {
+                    max1 = aData1[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            break;
         case 's':
+            final short[] aDatas = (short[]) aData;
+            short maxs = aDatas[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aDatas[sa] > maxs) {
+                    maxs = aDatas[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            break;
         case 'i':
+            final int[] aDatai = (int[]) aData;
+            int maxi = aDatai[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aDatai[sa] > maxi) {
+                    maxi = aDatai[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            break;
         case 'l':
+            final long[] aDatal = (long[]) aData;
+            long maxl = aDatal[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aDatal[sa] > maxl) {
+                    maxl = aDatal[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            break;
         case 'f':
+            final float[] aDataf = (float[]) aData;
+            float maxf = aDataf[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                final float x = aDataf[sa];
+                // The first NaN wins, unless NaNs are skipped, in which case
+                // any number beats a NaN.
+                if (x > maxf || (this.skipNaN ? (maxf != maxf && x == x) : (x != x && maxf == maxf))) {
+                    maxf = x;
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            if (this.skipNaN && maxf != maxf) {
+                best = -1;
+            }
+            break;
         case 'd':
-            double lastd = ((Number) Array.get(aData, aStart)).doubleValue(),
-            tempd;
-            for (int i = 0; i < aDim; i++, aStart += aStride, rStart += rStride) {
-                if ((tempd = ((Number) Array.get(aData, aStart)).doubleValue()) > lastd) {
-                    lastIndex = i;
-                    lastd = tempd;
+            final double[] aDatad = (double[]) aData;
+            double maxd = aDatad[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                final double x = aDatad[sa];
+                if (x > maxd || (this.skipNaN ? (maxd != maxd && x == x) : (x != x && maxd == maxd))) {
+                    maxd = x;
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
                 }
-                Array.setInt(rData, rStart, lastIndex);
+            }
+            if (this.skipNaN && maxd != maxd) {
+                best = -1;
             }
             break;
         case 'O':
-            PyObject lastO = (PyObject) Array.get(aData, aStart),
-            tempO;
-            for (int i = 0; i < aDim; i++, aStart += aStride, rStart += rStride) {
-                if ((tempO = ((PyObject) Array.get(aData, aStart)))
-                        .__cmp__(lastO) > 0) {
-                    lastIndex = i;
-                    lastO = tempO;
+            final PyObject[] aDataO = (PyObject[]) aData;
+            PyObject maxO = aDataO[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aDataO[sa].__cmp__(maxO) > 0) {
+                    maxO = aDataO[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
                 }
-                Array.setInt(rData, rStart, lastIndex);
             }
             break;
         default:
-            throw Py.ValueError("typecode must be in [zcbhilfd]");
+            throw Py.ValueError("typecode must be in [zcbhilfdO]");
         }
+        return best;
     }
 }
 
 final class ArgMin extends BinaryFunction {
-    boolean returnsInt = true;
+    /**
+     * If set, NaNs are passed over (nanargmin) instead of counting as the
+     * smallest value (argmin).
+     */
+    private final boolean skipNaN;
+
+    ArgMin() {
+        this(false);
+    }
+
+    ArgMin(final boolean skipNaN) {
+        this.skipNaN = skipNaN;
+    }
 
     @Override final PyMultiarray identity() {
         return BinaryFunction.zero;
     }
 
-    @Override final void accumulate(final Object aData, int aStart, final int aDim, final int aStride,
-            final Object rData, int rStart, final int rDim, final int rStride, final char _typecode) {
+    @Override final char resultType(final char type) {
+        return 'i';
+    }
+
+    @Override final boolean indexReduce() {
+        return true;
+    }
+
+    @Override final void accumulate(final Object aData, final int aStart, final int aDim, final int aStride,
+            final Object rData, final int rStart, final int rDim, final int rStride, final char type) {
+        if (aDim == 0) { return; }
+        this.scan(aData, aStart, aDim, aStride, (int[]) rData, rStart, rStride, type);
+    }
+
+    @Override final void reduce(final Object aData, final int aStart, final int aDim, final int aStride,
+            final Object rData, final int rStart, final char type) {
         if (aDim == 0) { return; }
-        int lastIndex = 0;
-        switch (_typecode) {
+        ((int[]) rData)[rStart] = this.scan(aData, aStart, aDim, aStride, null, 0, 0, type);
+    }
+
+    /**
+     * Index of the first smallest of <code>dim</code> elements. If
+     * <code>running</code> is given, the index so far is also stored there
+     * after every element. An all-NaN run gives -1 when NaNs are skipped.
+     */
+    private int scan(final Object aData, int sa, final int dim, final int dsa, final int[] running, int sr,
+            final int dsr, final char type) {
+        int best = 0;
+        switch (type) {
         case '1':
+            final byte[] aData1 = (byte[]) aData;
+            byte min1 = aData1[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aData1[sa] < min1) {
+                    min1 = aData1[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            break;
         case 's':
+            final short[] aDatas = (short[]) aData;
+            short mins = aDatas[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aDatas[sa] < mins) {
+                    mins = aDatas[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            break;
         case 'i':
+            final int[] aDatai = (int[]) aData;
+            int mini = aDatai[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aDatai[sa] < mini) {
+                    mini = aDatai[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            break;
         case 'l':
+            final long[] aDatal = (long[]) aData;
+            long minl = aDatal[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aDatal[sa] < minl) {
+                    minl = aDatal[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            break;
         case 'f':
+            final float[] aDataf = (float[]) aData;
+            float minf = aDataf[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                final float x = aDataf[sa];
+                // The first NaN wins, unless NaNs are skipped, in which case
+                // any number beats a NaN.
+                if (x < minf || (this.skipNaN ? (minf != minf && x == x) : (x != x && minf == minf))) {
+                    minf = x;
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
+                }
+            }
+            if (this.skipNaN && minf != minf) {
+                best = -1;
+            }
+            break;
         case 'd':
-            double lastd = ((Number) Array.get(aData, aStart)).doubleValue(),
-            tempd;
-            for (int i = 0; i < aDim; i++, aStart += aStride, rStart += rStride) {
-                if ((tempd = ((Number) Array.get(aData, aStart)).doubleValue()) < lastd) {
-                    lastIndex = i;
-                    lastd = tempd;
+            final double[] aDatad = (double[]) aData;
+            double mind = aDatad[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                final double x = aDatad[sa];
+                if (x < mind || (this.skipNaN ? (mind != mind && x == x) : (x != x && mind == mind))) {
+                    mind = x;
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
                 }
-                Array.setInt(rData, rStart, lastIndex);
+            }
+            if (this.skipNaN && mind != mind) {
+                best = -1;
             }
             break;
         case 'O':
-            PyObject lastO = (PyObject) Array.get(aData, aStart),
-            tempO;
-            for (int i = 0; i < aDim; i++, aStart += aStride, rStart += rStride) {
-                if ((tempO = ((PyObject) Array.get(aData, aStart)))
-                        .__cmp__(lastO) < 0) {
-                    lastIndex = i;
-                    lastO = tempO;
+            final PyObject[] aDataO = (PyObject[]) aData;
+            PyObject minO = aDataO[sa];
+            for (int i = 0; i < dim; i++, sa += dsa) {
+                if (aDataO[sa].__cmp__(minO) < 0) {
+                    minO = aDataO[sa];
+                    best = i;
+                }
+                if (running != null) {
+                    running[sr] = best;
+                    sr += dsr;
                 }
-                Array.setInt(rData, rStart, lastIndex);
             }
             break;
         default:
-            throw Py.ValueError("typecode must be in [zcbhilfd]");
+            throw Py.ValueError("typecode must be in [zcbhilfdO]");
         }
+        return best;
     }
 }
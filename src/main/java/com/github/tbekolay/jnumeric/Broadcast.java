@@ -0,0 +1,503 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import org.python.core.Py;
+
+/**
+ * Walks several arrays broadcast against one shape, a line at a time.
+ *
+ * The strides of every operand are worked out once, with a stride of zero
+ * along the axes it is stretched over. Axes of length one are dropped, and
+ * neighbouring axes that form a single run in every operand are merged,
+ * so that operands which are contiguous (or scalars) are walked as one
+ * long line. Work is handed out as lines of elements in C order, each
+ * given as the offset of its first element in every operand.
+ */
+final class Broadcast {
+
+    /**
+     * The body of a loop over part of a line: <code>n</code> elements,
+     * starting at <code>at[k]</code> in operand k and at item
+     * <code>index</code> of the shape, in C order.
+     */
+    static abstract class Line {
+        abstract void run(int[] at, int index, int n);
+    }
+
+    /**
+     * Number of items in the shape.
+     */
+    final int size;
+    /**
+     * Distance between neighbouring elements of a line in each operand.
+     */
+    final int[] step;
+    /**
+     * Number of items in each line.
+     */
+    final int length;
+
+    private final int[] dims, starts;
+    private final int[][] strides;
+
+    /**
+     * Walk operands over shape, which each must broadcast to.
+     */
+    Broadcast(final int[] shape, final PyMultiarray... operands) {
+        final int nd = shape.length, k = operands.length;
+        final int[][] full = new int[k][nd];
+        for (int j = 0; j < k; j++) {
+            final PyMultiarray a = operands[j];
+            final int excess = nd - a.dimensions.length;
+            if (excess < 0) { throw Py.ValueError("array dimensions must agree"); }
+            for (int d = excess; d < nd; d++) {
+                final int x = a.dimensions[d - excess];
+                if (x != 1 && x != shape[d]) { throw Py.ValueError("array dimensions must agree"); }
+                full[j][d] = (x == 1) ? 0 : a.strides[d - excess];
+            }
+        }
+        // Drop unit axes and merge neighbours that are one run in every
+        // operand.
+        final int[] cd = new int[Math.max(nd, 1)];
+        final int[][] cs = new int[k][Math.max(nd, 1)];
+        int m = 0;
+        for (int d = 0; d < nd; d++) {
+            if (shape[d] == 1) {
+                continue;
+            }
+            boolean merge = m > 0;
+            for (int j = 0; j < k && merge; j++) {
+                merge = cs[j][m - 1] == full[j][d] * shape[d];
+            }
+            if (merge) {
+                cd[m - 1] *= shape[d];
+            } else {
+                cd[m++] = shape[d];
+            }
+            for (int j = 0; j < k; j++) {
+                cs[j][m - 1] = full[j][d];
+            }
+        }
+        if (m == 0) {
+            cd[m++] = 1;
+        }
+        this.dims = new int[m];
+        System.arraycopy(cd, 0, this.dims, 0, m);
+        this.strides = new int[k][m];
+        this.starts = new int[k];
+        this.step = new int[k];
+        for (int j = 0; j < k; j++) {
+            System.arraycopy(cs[j], 0, this.strides[j], 0, m);
+            this.starts[j] = operands[j].start;
+            this.step[j] = this.strides[j][m - 1];
+        }
+        this.size = PyMultiarray.shapeToNItems(shape);
+        this.length = this.dims[m - 1];
+    }
+
+    /**
+     * Operand k, which is a, seen with the merged shape and its strides
+     * along it.
+     */
+    PyMultiarray view(final int k, final PyMultiarray a) {
+        return new PyMultiarray(a.data, a._typecode, this.starts[k], this.dims.clone(), this.strides[k].clone());
+    }
+
+    /**
+     * The shape a and b broadcast to, or null if they do not.
+     */
+    static int[] shape(final int[] a, final int[] b) {
+        final int nd = Math.max(a.length, b.length);
+        final int[] shape = new int[nd];
+        for (int i = 0; i < nd; i++) {
+            final int x = (i < nd - a.length) ? 1 : a[i - nd + a.length];
+            final int y = (i < nd - b.length) ? 1 : b[i - nd + b.length];
+            if (x != y && x != 1 && y != 1) { return null; }
+            shape[i] = (x == 1) ? y : x;
+        }
+        return shape;
+    }
+
+    /**
+     * The shape all of operands broadcast to.
+     */
+    static int[] shape(final PyMultiarray... operands) {
+        int[] shape = new int[0];
+        for (final PyMultiarray a : operands) {
+            shape = Broadcast.shape(shape, a.dimensions);
+            if (shape == null) { throw Py.ValueError("array dimensions must agree"); }
+        }
+        return shape;
+    }
+
+    /**
+     * Run body over every item, split across threads if there are enough
+     * of them; <code>cost</code> is the work per item.
+     */
+    void forEach(final int cost, final Line body) {
+        Parallel.forRange(this.size, (long) this.size * cost, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                Broadcast.this.run(lo, hi, body);
+            }
+        });
+    }
+
+    /**
+     * Run body over items <code>[lo, hi)</code>.
+     */
+    void run(final int lo, final int hi, final Line body) {
+        if (lo >= hi) { return; }
+        final int k = this.starts.length, m = this.dims.length, length = this.dims[m - 1];
+        final int[] outer = new int[m - 1];
+        System.arraycopy(this.dims, 0, outer, 0, m - 1);
+        final Reduction.Walk[] w = new Reduction.Walk[k];
+        for (int j = 0; j < k; j++) {
+            final int[] s = new int[m - 1];
+            System.arraycopy(this.strides[j], 0, s, 0, m - 1);
+            w[j] = new Reduction.Walk(outer, s, this.starts[j], lo / length);
+        }
+        final int[] at = new int[k];
+        int column = lo % length;
+        for (int i = lo; i < hi; column = 0) {
+            final int n = Math.min(length - column, hi - i);
+            for (int j = 0; j < k; j++) {
+                at[j] = w[j].offset + column * this.step[j];
+                w[j].next();
+            }
+            body.run(at, i, n);
+            i += n;
+        }
+    }
+
+    /**
+     * Read n elements of src, step apart from at and each e wide, into x.
+     */
+    static void load(final Object src, int at, final int step, final int n, final int e, final double[] x) {
+        if (src instanceof double[]) {
+            final double[] d = (double[]) src;
+            for (int i = 0; i < n * e; i += e, at += step) {
+                x[i] = d[at];
+                if (e == 2) {
+                    x[i + 1] = d[at + 1];
+                }
+            }
+        } else if (src instanceof float[]) {
+            final float[] d = (float[]) src;
+            for (int i = 0; i < n * e; i += e, at += step) {
+                x[i] = d[at];
+                if (e == 2) {
+                    x[i + 1] = d[at + 1];
+                }
+            }
+        } else if (src instanceof int[]) {
+            final int[] d = (int[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                x[i] = d[at];
+            }
+        } else if (src instanceof long[]) {
+            final long[] d = (long[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                x[i] = d[at];
+            }
+        } else if (src instanceof short[]) {
+            final short[] d = (short[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                x[i] = d[at];
+            }
+        } else {
+            final byte[] d = (byte[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                x[i] = d[at];
+            }
+        }
+    }
+
+    /**
+     * Write n results in x, each e wide, to dst, whose elements are ed wide,
+     * step apart from at. Real results stored in a complex array get a zero
+     * imaginary part.
+     */
+    static void store(final double[] x, final int n, final int e, final Object dst, final int ed, int at,
+            final int step) {
+        if (dst instanceof double[]) {
+            final double[] d = (double[]) dst;
+            for (int i = 0; i < n * e; i += e, at += step) {
+                d[at] = x[i];
+                if (ed == 2) {
+                    d[at + 1] = (e == 2) ? x[i + 1] : 0;
+                }
+            }
+        } else if (dst instanceof float[]) {
+            final float[] d = (float[]) dst;
+            for (int i = 0; i < n * e; i += e, at += step) {
+                d[at] = (float) x[i];
+                if (ed == 2) {
+                    d[at + 1] = (e == 2) ? (float) x[i + 1] : 0;
+                }
+            }
+        } else if (dst instanceof int[]) {
+            final int[] d = (int[]) dst;
+            for (int i = 0; i < n; i++, at += step) {
+                d[at] = (int) x[i];
+            }
+        } else if (dst instanceof long[]) {
+            final long[] d = (long[]) dst;
+            for (int i = 0; i < n; i++, at += step) {
+                d[at] = (long) x[i];
+            }
+        } else if (dst instanceof short[]) {
+            final short[] d = (short[]) dst;
+            for (int i = 0; i < n; i++, at += step) {
+                d[at] = (short) x[i];
+            }
+        } else {
+            final byte[] d = (byte[]) dst;
+            for (int i = 0; i < n; i++, at += step) {
+                d[at] = (byte) x[i];
+            }
+        }
+    }
+
+    /**
+     * Copy n elements of src, of type st, step apart from at, to dst, of
+     * type dt, dstep apart from to, converting each straight from one type
+     * to the other. Neither may be an object type. A complex element
+     * copied to a real array gives its real part, and a real element
+     * copied to a complex array gets a zero imaginary part.
+     */
+    static void copy(final Object src, final char st, final int at, final int step, final Object dst, final char dt,
+            final int to, final int dstep, final int n) {
+        Broadcast.cast(src, at, step, dst, to, dstep, n);
+        if (dt == 'F' || dt == 'D') {
+            if (st == 'F' || st == 'D') {
+                Broadcast.cast(src, at + 1, step, dst, to + 1, dstep, n);
+            } else if (dt == 'F') {
+                final float[] d = (float[]) dst;
+                for (int i = 0, j = to + 1; i < n; i++, j += dstep) {
+                    d[j] = 0;
+                }
+            } else {
+                final double[] d = (double[]) dst;
+                for (int i = 0, j = to + 1; i < n; i++, j += dstep) {
+                    d[j] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy n real elements of src, step apart from at, to dst, dstep apart
+     * from to, converting each from the type of src to that of dst as a
+     * Java cast would.
+     */
+    static void cast(final Object src, int at, final int step, final Object dst, int to, final int dstep, final int n) {
+        if (dst instanceof double[]) {
+            final double[] d = (double[]) dst;
+            if (src instanceof double[]) {
+                final double[] s = (double[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof float[]) {
+                final float[] s = (float[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof long[]) {
+                final long[] s = (long[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof int[]) {
+                final int[] s = (int[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof short[]) {
+                final short[] s = (short[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else {
+                final byte[] s = (byte[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            }
+        } else if (dst instanceof float[]) {
+            final float[] d = (float[]) dst;
+            if (src instanceof double[]) {
+                final double[] s = (double[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (float) s[at];
+                }
+            } else if (src instanceof float[]) {
+                final float[] s = (float[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof long[]) {
+                final long[] s = (long[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof int[]) {
+                final int[] s = (int[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof short[]) {
+                final short[] s = (short[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else {
+                final byte[] s = (byte[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            }
+        } else if (dst instanceof long[]) {
+            final long[] d = (long[]) dst;
+            if (src instanceof double[]) {
+                final double[] s = (double[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (long) s[at];
+                }
+            } else if (src instanceof float[]) {
+                final float[] s = (float[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (long) s[at];
+                }
+            } else if (src instanceof long[]) {
+                final long[] s = (long[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof int[]) {
+                final int[] s = (int[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof short[]) {
+                final short[] s = (short[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else {
+                final byte[] s = (byte[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            }
+        } else if (dst instanceof int[]) {
+            final int[] d = (int[]) dst;
+            if (src instanceof double[]) {
+                final double[] s = (double[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (int) s[at];
+                }
+            } else if (src instanceof float[]) {
+                final float[] s = (float[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (int) s[at];
+                }
+            } else if (src instanceof long[]) {
+                final long[] s = (long[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (int) s[at];
+                }
+            } else if (src instanceof int[]) {
+                final int[] s = (int[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else if (src instanceof short[]) {
+                final short[] s = (short[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else {
+                final byte[] s = (byte[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            }
+        } else if (dst instanceof short[]) {
+            final short[] d = (short[]) dst;
+            if (src instanceof double[]) {
+                final double[] s = (double[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (short) s[at];
+                }
+            } else if (src instanceof float[]) {
+                final float[] s = (float[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (short) s[at];
+                }
+            } else if (src instanceof long[]) {
+                final long[] s = (long[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (short) s[at];
+                }
+            } else if (src instanceof int[]) {
+                final int[] s = (int[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (short) s[at];
+                }
+            } else if (src instanceof short[]) {
+                final short[] s = (short[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            } else {
+                final byte[] s = (byte[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            }
+        } else if (dst instanceof byte[]) {
+            final byte[] d = (byte[]) dst;
+            if (src instanceof double[]) {
+                final double[] s = (double[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (byte) s[at];
+                }
+            } else if (src instanceof float[]) {
+                final float[] s = (float[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (byte) s[at];
+                }
+            } else if (src instanceof long[]) {
+                final long[] s = (long[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (byte) s[at];
+                }
+            } else if (src instanceof int[]) {
+                final int[] s = (int[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (byte) s[at];
+                }
+            } else if (src instanceof short[]) {
+                final short[] s = (short[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = (byte) s[at];
+                }
+            } else {
+                final byte[] s = (byte[]) src;
+                for (int i = 0; i < n; i++, at += step, to += dstep) {
+                    d[to] = s[at];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.python.core.Py;
+
+/**
+ * An opt-in, per-thread pool of the Java arrays that hold array data.
+ *
+ * Outside a scope every array gets freshly allocated data, as usual.
+ * Between {@link #enter()} and the matching {@link #exit()}, the data of
+ * arrays the library knows to be dead (the temporaries of inner products,
+ * correlations, reductions and the like), and of arrays handed to
+ * {@link #release(PyMultiarray)}, is kept and handed out again to new
+ * arrays of the same element type and length on the same thread. Data
+ * that is about to be completely overwritten is handed out as it is;
+ * anything else is cleared first. The pool is dropped when the outermost
+ * scope exits.
+ *
+ * <pre>
+ * BufferPool.enter()
+ * try:
+ *     for step in range(n):
+ *         x = f(x)
+ *         ...
+ *         BufferPool.release(temporary)
+ * finally:
+ *     BufferPool.exit()
+ * </pre>
+ */
+public final class BufferPool {
+
+    /**
+     * Most buffers kept for any one element type and length.
+     */
+    static int depth = 4;
+
+    private static final ThreadLocal<BufferPool> current = new ThreadLocal<BufferPool>();
+
+    private final HashMap<Long, ArrayDeque<Object>> free = new HashMap<Long, ArrayDeque<Object>>();
+    private int scopes;
+
+    private BufferPool() {}
+
+    /**
+     * Open a pooling scope on this thread; scopes nest.
+     */
+    public static void enter() {
+        BufferPool pool = BufferPool.current.get();
+        if (pool == null) {
+            pool = new BufferPool();
+            BufferPool.current.set(pool);
+        }
+        pool.scopes++;
+    }
+
+    /**
+     * Close the innermost pooling scope on this thread, dropping the pool
+     * with the outermost one.
+     */
+    public static void exit() {
+        final BufferPool pool = BufferPool.current.get();
+        if (pool == null) { throw Py.ValueError("no buffer pool scope to exit"); }
+        if (--pool.scopes == 0) {
+            BufferPool.current.remove();
+        }
+    }
+
+    /**
+     * Give the data of a back to the pool, if a pooling scope is open and a
+     * owns all of its data. Neither a nor any array sharing its data may be
+     * used afterwards.
+     */
+    public static void release(final PyMultiarray a) {
+        final BufferPool pool = BufferPool.current.get();
+        if (pool == null || a._typecode == 'O' || a.start != 0 || !a.isContiguous) { return; }
+        final int length = PyMultiarray.typeToNElements(a._typecode) * PyMultiarray.shapeToNItems(a.dimensions);
+        if (length == 0 || Array.getLength(a.data) != length) { return; }
+        final Long key = BufferPool.key(a.data, length);
+        ArrayDeque<Object> buffers = pool.free.get(key);
+        if (buffers == null) {
+            buffers = new ArrayDeque<Object>();
+            pool.free.put(key, buffers);
+        }
+        if (buffers.size() < BufferPool.depth && !BufferPool.holds(buffers, a.data)) {
+            buffers.push(a.data);
+        }
+    }
+
+    /**
+     * A buffer of length elements for an array of type, which is not an
+     * object type: a pooled one if there is one, cleared only if zero is
+     * true, or else a new one.
+     */
+    static Object take(final char type, final int length, final boolean zero) {
+        final BufferPool pool = BufferPool.current.get();
+        if (pool != null && length > 0) {
+            final ArrayDeque<Object> buffers = pool.free.get(BufferPool.key(type, length));
+            if (buffers != null && !buffers.isEmpty()) {
+                final Object data = buffers.pop();
+                if (zero) {
+                    BufferPool.clear(data);
+                }
+                return data;
+            }
+        }
+        switch (type) {
+        case '1':
+            return new byte[length];
+        case 's':
+            return new short[length];
+        case 'i':
+            return new int[length];
+        case 'l':
+            return new long[length];
+        case 'f':
+        case 'F':
+            return new float[length];
+        case 'd':
+        case 'D':
+            return new double[length];
+        default:
+            throw Py.ValueError("typecode must be in [1silfFdDO]");
+        }
+    }
+
+    private static boolean holds(final ArrayDeque<Object> buffers, final Object data) {
+        for (final Object b : buffers) {
+            if (b == data) { return true; }
+        }
+        return false;
+    }
+
+    private static Long key(final char type, final int length) {
+        return Long.valueOf(((long) length << 3) | "1silfd".indexOf(Character.toLowerCase(type)));
+    }
+
+    private static Long key(final Object data, final int length) {
+        final char type = (data instanceof byte[]) ? '1' : (data instanceof short[]) ? 's'
+                : (data instanceof int[]) ? 'i' : (data instanceof long[]) ? 'l' : (data instanceof float[]) ? 'f'
+                        : 'd';
+        return BufferPool.key(type, length);
+    }
+
+    private static void clear(final Object data) {
+        if (data instanceof double[]) {
+            Arrays.fill((double[]) data, 0);
+        } else if (data instanceof float[]) {
+            Arrays.fill((float[]) data, 0);
+        } else if (data instanceof int[]) {
+            Arrays.fill((int[]) data, 0);
+        } else if (data instanceof long[]) {
+            Arrays.fill((long[]) data, 0);
+        } else if (data instanceof short[]) {
+            Arrays.fill((short[]) data, (short) 0);
+        } else {
+            Arrays.fill((byte[]) data, (byte) 0);
+        }
+    }
+}
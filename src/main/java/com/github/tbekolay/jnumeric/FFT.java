@@ -29,7 +29,8 @@ public class FFT extends PyObject {
     }
 
     static PyMultiarray _fft(final PyObject o, final boolean inverse) {
-        PyMultiarray a = PyMultiarray.asarray(o, 'D');
+        final PyMultiarray input = PyMultiarray.asarray(o, 'D');
+        PyMultiarray a = input;
         if (PyMultiarray.shapeOf(a).length != 1) { throw Py
                 .ValueError("FFT only available for 1D arrays"); }
         final int N = a.__len__();
@@ -51,6 +52,9 @@ public class FFT extends PyObject {
         // overwrite.
         a = PyMultiarray.transpose(PyMultiarray.reshape(a, factors), perms);
         a = PyMultiarray.array(PyMultiarray.reshape(a, new int[] { N }));
+        if (input != o) {
+            BufferPool.release(input);
+        }
         // Grab data out of array and operate on it directly
         final double[] data = (double[]) a.data;
         // Core of FFT algorithm
@@ -0,0 +1,296 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import org.python.core.Py;
+import org.python.core.PyInteger;
+import org.python.core.PyLong;
+import org.python.core.PyObject;
+import org.python.core.PyTuple;
+
+/**
+ * Counting kernels behind bincount, histogram and digitize.
+ *
+ * Values are read from the typed storage of an array a block at a time,
+ * turned into bin numbers for the whole block, and then counted. Large
+ * inputs are split into one slice per thread, each counted into its own
+ * local bins, and the local bins are added together at the end, so
+ * threads never share a counter.
+ */
+final class Histogram {
+
+    /**
+     * Elements binned at a time.
+     */
+    private static final int BLOCK = 1024;
+
+    private static final BinaryUfunc[] minmax = { Umath.minimum, Umath.maximum };
+
+    private Histogram() {}
+
+    /**
+     * Maps a block of values to bin numbers, or -1 for values that fall in
+     * no bin.
+     */
+    private static abstract class Binner {
+        abstract void bins(double[] values, int n, int[] at);
+    }
+
+    /**
+     * Count the occurrences of each non-negative integer in a 1-d array,
+     * or sum the weights given for each.
+     *
+     * @param ox 1-d array of non-negative integers
+     * @param oWeights Array of weights as long as x, or None
+     * @param minlength Minimum number of bins
+     * @return The int counts, or double sums of weights, of each value
+     */
+    static PyObject bincount(final PyObject ox, final PyObject oWeights, final int minlength) {
+        final PyMultiarray x = PyMultiarray.asarray(ox);
+        if (x.dimensions.length != 1) { throw Py.ValueError("bincount requires a 1-d array"); }
+        if ("1sil".indexOf(x._typecode) < 0) { throw Py.TypeError("bincount requires an integer array"); }
+        if (minlength < 0) { throw Py.ValueError("minlength must be non-negative"); }
+        final PyMultiarray w = (oWeights == Py.None) ? null : PyMultiarray.asarray(oWeights);
+        if (w != null && (w.dimensions.length != 1 || w.dimensions[0] != x.dimensions[0])) { throw Py
+                .ValueError("weights must be a 1-d array as long as x"); }
+        int length = minlength;
+        if (x.dimensions[0] > 0) {
+            final PyTuple range = BinaryUfunc.reduce(Histogram.minmax, x, Py.None);
+            if (Py.py2double(range.__getitem__(0)) < 0) { throw Py
+                    .ValueError("bincount requires non-negative values"); }
+            final double max = Py.py2double(range.__getitem__(1));
+            if (max >= Integer.MAX_VALUE) { throw Py.ValueError("bincount value too large"); }
+            length = Math.max(length, (int) max + 1);
+        }
+        final int nBins = length;
+        final Object counts = Histogram.count(x, w, nBins, new Binner() {
+            @Override void bins(final double[] values, final int n, final int[] at) {
+                for (int k = 0; k < n; k++) {
+                    at[k] = (int) values[k];
+                }
+            }
+        });
+        return new PyMultiarray(counts, (w == null) ? 'i' : 'd', 0, new int[] { nBins }, new int[] { 1 });
+    }
+
+    /**
+     * Count the elements of an array that fall in each bin.
+     *
+     * @param oa Input array, of any shape
+     * @param bins The number of equal bins, or a sequence of increasing edges
+     * @param range (min, max) covered by equal bins, or None for the range of a
+     * @return A tuple of the int counts and the double bin edges
+     */
+    static PyObject histogram(final PyObject oa, final PyObject bins, final PyObject range) {
+        final PyMultiarray a = Histogram.flat(oa);
+        final double[] edges;
+        final Binner binner;
+        if (bins instanceof PyInteger || bins instanceof PyLong) {
+            final int nb = Py.py2int(bins);
+            if (nb < 1) { throw Py.ValueError("bins must be positive"); }
+            double lo, hi;
+            if (range != Py.None) {
+                lo = Py.py2double(range.__getitem__(0));
+                hi = Py.py2double(range.__getitem__(1));
+                if (!(lo <= hi)) { throw Py.ValueError("max must be larger than min in range"); }
+            } else if (a.dimensions[0] == 0) {
+                lo = 0;
+                hi = 1;
+            } else {
+                final PyTuple r = BinaryUfunc.reduce(Histogram.minmax, a, Py.None);
+                lo = Py.py2double(r.__getitem__(0));
+                hi = Py.py2double(r.__getitem__(1));
+            }
+            if (Double.isNaN(lo) || Double.isInfinite(lo) || Double.isNaN(hi) || Double.isInfinite(hi)) { throw Py
+                    .ValueError("the range of the bins must be finite"); }
+            if (lo == hi) {
+                lo -= 0.5;
+                hi += 0.5;
+            }
+            edges = new double[nb + 1];
+            for (int i = 0; i < nb; i++) {
+                edges[i] = lo + i * (hi - lo) / nb;
+            }
+            edges[nb] = hi;
+            final double first = lo, last = hi, scale = nb / (hi - lo);
+            binner = new Binner() {
+                @Override void bins(final double[] values, final int n, final int[] at) {
+                    for (int k = 0; k < n; k++) {
+                        final double x = values[k];
+                        if (!(x >= first && x <= last)) {
+                            at[k] = -1;
+                            continue;
+                        }
+                        int b = (int) ((x - first) * scale);
+                        if (b >= nb) {
+                            b = nb - 1;
+                        }
+                        // Rounding may land one bin away from the edges.
+                        if (x < edges[b]) {
+                            b--;
+                        } else if (b + 1 < nb && x >= edges[b + 1]) {
+                            b++;
+                        }
+                        at[k] = b;
+                    }
+                }
+            };
+        } else {
+            final PyMultiarray e = Histogram.flat(bins);
+            final int ne = e.dimensions[0];
+            if (ne < 2) { throw Py.ValueError("bins must have at least two edges"); }
+            edges = new double[ne];
+            Moments.load(e.data, e._typecode, e.start, e.strides[0], ne, edges);
+            if (Histogram.monotonicity(edges) <= 0) { throw Py.ValueError("bins must increase monotonically"); }
+            final int nb = ne - 1;
+            binner = new Binner() {
+                @Override void bins(final double[] values, final int n, final int[] at) {
+                    for (int k = 0; k < n; k++) {
+                        final double x = values[k];
+                        if (!(x >= edges[0] && x <= edges[nb])) {
+                            at[k] = -1;
+                            continue;
+                        }
+                        // The last edge with edges[low] <= x; the last bin is closed.
+                        int low = 0, high = nb;
+                        while (high - low > 1) {
+                            final int mid = (low + high) >>> 1;
+                            if (edges[mid] <= x) {
+                                low = mid;
+                            } else {
+                                high = mid;
+                            }
+                        }
+                        at[k] = low;
+                    }
+                }
+            };
+        }
+        final int nBins = edges.length - 1;
+        final Object counts = Histogram.count(a, null, nBins, binner);
+        return new PyTuple(new PyMultiarray(counts, 'i', 0, new int[] { nBins }, new int[] { 1 }),
+                new PyMultiarray(edges, 'd', 0, new int[] { edges.length }, new int[] { 1 }));
+    }
+
+    /**
+     * The index of the bin each element of x falls in: i such that
+     * <code>bins[i-1] &lt;= x &lt; bins[i]</code> for increasing bins
+     * (<code>bins[i-1] &lt; x &lt;= bins[i]</code> if right is set), and the
+     * mirror image for decreasing bins.
+     *
+     * @param x Values, of any shape
+     * @param bins 1-d monotonic array of edges
+     * @param right Whether bins are closed on the right instead of the left
+     * @return int array of bin indices, the shape of x
+     */
+    static PyObject digitize(final PyObject x, final PyObject bins, final boolean right) {
+        final PyMultiarray b = PyMultiarray.asarray(bins);
+        if (b.dimensions.length != 1) { throw Py.ValueError("bins must be a 1-d array"); }
+        final int n = b.dimensions[0];
+        int mono = 1;
+        if (b._typecode != 'F' && b._typecode != 'D') {
+            final double[] edges = new double[n];
+            Moments.load(b.data, b._typecode, b.start, b.strides[0], n, edges);
+            mono = Histogram.monotonicity(edges);
+        }
+        if (mono == 0) { throw Py.ValueError("bins must be monotonically increasing or decreasing"); }
+        if (mono > 0) { return PyMultiarray.searchSorted(b, x, !right, Py.None); }
+        // Search the reversed bins, and count from the other end.
+        final PyMultiarray reversed = new PyMultiarray(b.data, b._typecode, b.start + (n - 1) * b.strides[0],
+                new int[] { n }, new int[] { -b.strides[0] });
+        final PyObject r = PyMultiarray.searchSorted(reversed, x, !right, Py.None);
+        if (!(r instanceof PyMultiarray)) { return Py.newInteger(n - Py.py2int(r)); }
+        final int[] data = (int[]) ((PyMultiarray) r).data;
+        for (int i = 0; i < data.length; i++) {
+            data[i] = n - data[i];
+        }
+        return r;
+    }
+
+    /**
+     * 1 if edges never decrease, -1 if they never increase (and are not
+     * all equal), 0 otherwise.
+     */
+    private static int monotonicity(final double[] edges) {
+        boolean up = true, down = true;
+        for (int i = 1; i < edges.length; i++) {
+            up &= edges[i] >= edges[i - 1];
+            down &= edges[i] <= edges[i - 1];
+        }
+        return up ? 1 : down ? -1 : 0;
+    }
+
+    /**
+     * The elements of o as a 1-d array, a copy only if o has more than one
+     * dimension and is not contiguous.
+     */
+    private static PyMultiarray flat(final PyObject o) {
+        final PyMultiarray a = PyMultiarray.asarray(o);
+        if (a._typecode == 'F' || a._typecode == 'D') { throw Py.ValueError("complex arrays are not supported"); }
+        if (a.dimensions.length == 1) { return a; }
+        return PyMultiarray.reshape(PyMultiarray.ascontiguous(a), new int[] { -1 });
+    }
+
+    /**
+     * Count the elements of 1-d x into nBins bins (an int[]), or sum the
+     * matching elements of w (a double[]). Object arrays are counted on the
+     * calling thread, since loading their elements runs Python code.
+     */
+    private static Object count(final PyMultiarray x, final PyMultiarray w, final int nBins, final Binner binner) {
+        final int n = x.dimensions[0], sx = x.strides[0], sw = (w == null) ? 0 : w.strides[0];
+        final boolean objects = x._typecode == 'O' || (w != null && w._typecode == 'O');
+        final int slices = !objects && Parallel.worthwhile(n) ? Math.max(1, Math.min(Parallel.parallelism(), n
+                / Math.max(1, 4 * nBins))) : 1;
+        final int size = (n + slices - 1) / slices;
+        final int[][] counts = new int[(w == null) ? slices : 0][];
+        final double[][] sums = new double[(w == null) ? 0 : slices][];
+        Parallel.forRange(slices, n, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                final double[] buf = new double[Histogram.BLOCK], wBuf = (w == null) ? null
+                        : new double[Histogram.BLOCK];
+                final int[] at = new int[Histogram.BLOCK];
+                for (int c = lo; c < hi; c++) {
+                    final int[] count = (w == null) ? (counts[c] = new int[nBins]) : null;
+                    final double[] sum = (w == null) ? null : (sums[c] = new double[nBins]);
+                    for (int i = c * size, end = Math.min(n, i + size); i < end; i += Histogram.BLOCK) {
+                        final int m = Math.min(Histogram.BLOCK, end - i);
+                        Moments.load(x.data, x._typecode, x.start + i * sx, sx, m, buf);
+                        binner.bins(buf, m, at);
+                        if (w == null) {
+                            for (int k = 0; k < m; k++) {
+                                if (at[k] >= 0) {
+                                    count[at[k]]++;
+                                }
+                            }
+                        } else {
+                            Moments.load(w.data, w._typecode, w.start + i * sw, sw, m, wBuf);
+                            for (int k = 0; k < m; k++) {
+                                if (at[k] >= 0) {
+                                    sum[at[k]] += wBuf[k];
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        for (int c = 1; c < slices; c++) {
+            for (int b = 0; b < nBins; b++) {
+                if (w == null) {
+                    counts[0][b] += counts[c][b];
+                } else {
+                    sums[0][b] += sums[c][b];
+                }
+            }
+        }
+        return (w == null) ? counts[0] : sums[0];
+    }
+}
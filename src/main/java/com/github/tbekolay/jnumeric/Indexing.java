@@ -0,0 +1,868 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import java.util.Arrays;
+
+import org.python.core.Py;
+import org.python.core.PyBoolean;
+import org.python.core.PyEllipsis;
+import org.python.core.PyInteger;
+import org.python.core.PyList;
+import org.python.core.PyNone;
+import org.python.core.PyObject;
+import org.python.core.PySlice;
+import org.python.core.PyTuple;
+
+/**
+ * Integer-array and mask indexing for <code>__getitem__</code> and
+ * <code>__setitem__</code>.
+ *
+ * An index is advanced if it, or an entry of an index tuple, is an array
+ * or a list. An integer array picks elements along one axis; several are
+ * broadcast together. A mask, given as booleans or as the array made by a
+ * comparison or logical ufunc, selects the elements where it is true over
+ * as many axes as it has dimensions. Other int arrays, including views and
+ * copies of such results, pick by position.
+ *
+ * The other entries of the index are applied first as a view. The
+ * advanced entries are then turned into the offset of every element they
+ * pick within that view (a mask is counted first, so its offsets are
+ * allocated exactly once), and a single typed pass copies the blocks at
+ * those offsets out of, or into, the array. As in numpy, the picked axes
+ * replace the indexed ones in place if the array and integer entries of
+ * the index are next to each other, and go first otherwise.
+ */
+final class Indexing {
+
+    /**
+     * Bounds modes: indices out of range raise an error, wrap around, or
+     * are clipped to the ends.
+     */
+    static final int RAISE = 0, WRAP = 1, CLIP = 2;
+
+    private Indexing() {}
+
+    /**
+     * One array entry of an index.
+     */
+    private static final class Entry {
+        PyMultiarray index;
+        boolean mask;
+        int axis;
+    }
+
+    /**
+     * Where the elements picked by an index lie in an array.
+     */
+    private static final class Plan {
+        /**
+         * The array after the basic entries of the index.
+         */
+        PyMultiarray view;
+        /**
+         * The shape of the selection.
+         */
+        int[] dims;
+        /**
+         * Offset in view.data of each block, and of each element of a block
+         * relative to its start.
+         */
+        int[] from, inner;
+        /**
+         * Whether each block is one contiguous run.
+         */
+        boolean run;
+    }
+
+    /**
+     * Whether index needs the advanced path.
+     */
+    static boolean isAdvanced(final PyObject index) {
+        if (!(index instanceof PyTuple)) { return Indexing.isArray(index); }
+        for (final PyObject entry : ((PyTuple) index).getArray()) {
+            if (Indexing.isArray(entry)) { return true; }
+        }
+        return false;
+    }
+
+    private static boolean isArray(final PyObject entry) {
+        return entry instanceof PyMultiarray || entry instanceof PyList;
+    }
+
+    /**
+     * The elements of a picked by index, as a new array.
+     */
+    static PyObject get(final PyMultiarray a, final PyObject index) {
+        return PyMultiarray.returnValue(Indexing.gather(Indexing.plan(a, index)));
+    }
+
+    /**
+     * Set the elements of a picked by index to value, broadcast to the
+     * shape of the selection. Where an element is picked more than once,
+     * the last value given for it wins.
+     */
+    static void set(final PyMultiarray a, final PyObject index, final PyObject value) {
+        Indexing.scatter(Indexing.plan(a, index), value);
+    }
+
+    /**
+     * Parse the name of a bounds mode.
+     */
+    static int mode(final String mode) {
+        if (mode.equals("raise")) { return Indexing.RAISE; }
+        if (mode.equals("wrap")) { return Indexing.WRAP; }
+        if (mode.equals("clip")) { return Indexing.CLIP; }
+        throw Py.ValueError("mode must be 'raise', 'wrap' or 'clip'");
+    }
+
+    /**
+     * Take elements from an array along an axis.
+     *
+     * @param oa The source array
+     * @param oIndices Indices along axis, of any shape
+     * @param axis The axis to take along
+     * @param mode RAISE, WRAP or CLIP, for indices out of range
+     * @return An array shaped like a, with the axis replaced by the shape of
+     *         the indices
+     */
+    static PyMultiarray take(final PyObject oa, final PyObject oIndices, int axis, final int mode) {
+        final PyMultiarray a = PyMultiarray.asarray(oa), indices = PyMultiarray.asarray(oIndices);
+        final int nd = a.dimensions.length;
+        if (axis < 0) {
+            axis += nd;
+        }
+        if (axis < 0 || axis >= nd) { throw Py.ValueError("illegal axis"); }
+        final int[] k = Indexing.fix(indices, a.dimensions[axis], mode, true);
+        if (k == null) { throw Py.IndexError("index out of range"); }
+        final int stride = a.strides[axis];
+        for (int j = 0; j < k.length; j++) {
+            k[j] *= stride;
+        }
+        final boolean[] picked = new boolean[nd];
+        picked[axis] = true;
+        return Indexing.gather(Indexing.layout(a, picked, axis, indices.dimensions, k));
+    }
+
+    /**
+     * The slices of a along axis at which condition is nonzero.
+     *
+     * @param oCondition 1-d array, no longer than the axis unless its extra
+     *        elements are zero
+     * @param oa The source array
+     * @param axis The axis to select along
+     * @return An array shaped like a, with the axis as long as the number of
+     *         nonzero elements of condition
+     */
+    static PyMultiarray compress(final PyObject oCondition, final PyObject oa, int axis) {
+        final PyMultiarray a = PyMultiarray.asarray(oa), condition = PyMultiarray.asarray(oCondition);
+        final int nd = a.dimensions.length;
+        if (axis < 0) {
+            axis += nd;
+        }
+        if (axis < 0 || axis >= nd) { throw Py.ValueError("illegal axis"); }
+        if (condition.dimensions.length != 1) { throw Py.ValueError("condition must be 1-d"); }
+        final int[] k = Selection.positions(condition);
+        if (k.length > 0 && k[k.length - 1] >= a.dimensions[axis]) { throw Py.IndexError("index out of range"); }
+        final int stride = a.strides[axis];
+        for (int j = 0; j < k.length; j++) {
+            k[j] *= stride;
+        }
+        final boolean[] picked = new boolean[nd];
+        picked[axis] = true;
+        return Indexing.gather(Indexing.layout(a, picked, axis, new int[] { k.length }, k));
+    }
+
+    /**
+     * Set the elements of a at flat indices to values, which are repeated
+     * if there are fewer of them than indices.
+     *
+     * @param a The target array
+     * @param oIndices Indices into a as if it were flat
+     * @param oValues Values to set, of any shape
+     * @param mode RAISE, WRAP or CLIP, for indices out of range
+     */
+    static void put(final PyMultiarray a, final PyObject oIndices, final PyObject oValues, final int mode) {
+        final int[] k = Indexing.fix(PyMultiarray.asarray(oIndices), PyMultiarray.shapeToNItems(a.dimensions), mode,
+                true);
+        if (k == null) { throw Py.IndexError("index out of range"); }
+        final PyMultiarray v = PyMultiarray.ascontiguous(oValues, a._typecode);
+        final int nv = PyMultiarray.shapeToNItems(v.dimensions), n = k.length;
+        if (n == 0) { return; }
+        if (nv == 0) { throw Py.ValueError("cannot put an empty array of values"); }
+        final int e = PyMultiarray.typeToNElements(a._typecode);
+        PyMultiarray values;
+        if (nv == n || nv == 1) {
+            values = new PyMultiarray(v.data, v._typecode, v.start, new int[] { nv }, new int[] { e });
+        } else {
+            // Repeat the values out to one per index.
+            values = PyMultiarray.zeros(new int[] { n }, a._typecode);
+            for (int j = 0; j < n; j += nv) {
+                System.arraycopy(v.data, v.start, values.data, j * e, Math.min(nv, n - j) * e);
+            }
+        }
+        final int nd = a.dimensions.length;
+        final boolean contiguous = a.isContiguous;
+        for (int j = 0; j < n; j++) {
+            if (contiguous) {
+                k[j] = a.start + k[j] * e;
+            } else {
+                int f = k[j], offset = a.start;
+                for (int d = nd - 1; d >= 0; d--) {
+                    offset += (f % a.dimensions[d]) * a.strides[d];
+                    f /= a.dimensions[d];
+                }
+                k[j] = offset;
+            }
+        }
+        final Plan p = new Plan();
+        p.view = a;
+        p.dims = new int[] { n };
+        p.from = k;
+        p.inner = new int[1];
+        Indexing.scatter(p, values);
+    }
+
+    /**
+     * Take, from each line of a along axis, the elements at the matching
+     * line of indices. indices has as many dimensions as a, and broadcasts
+     * against it on the other axes.
+     */
+    static PyMultiarray takeAlongAxis(final PyObject oa, final PyObject oIndices, final int axis) {
+        return Indexing.gather(Indexing.alongAxis(PyMultiarray.asarray(oa), oIndices, axis));
+    }
+
+    /**
+     * Set, in each line of a along axis, the elements at the matching line
+     * of indices to values, broadcast to the shape of indices.
+     */
+    static void putAlongAxis(final PyMultiarray a, final PyObject oIndices, final PyObject values, final int axis) {
+        Indexing.scatter(Indexing.alongAxis(a, oIndices, axis), values);
+    }
+
+    /**
+     * The plan for the elements of a picked by indices along axis.
+     */
+    private static Plan alongAxis(final PyMultiarray a, final PyObject oIndices, int axis) {
+        final PyMultiarray indices = PyMultiarray.asarray(oIndices);
+        final int nd = a.dimensions.length;
+        if (axis < 0) {
+            axis += nd;
+        }
+        if (axis < 0 || axis >= nd) { throw Py.ValueError("illegal axis"); }
+        if (indices.dimensions.length != nd) { throw Py
+                .ValueError("indices must have as many dimensions as the array"); }
+        final int[] k = Indexing.fix(indices, a.dimensions[axis], Indexing.RAISE, true);
+        if (k == null) { throw Py.IndexError("index out of range"); }
+        final int[] shape = new int[nd], aStrides = new int[nd], kStrides = new int[nd];
+        for (int d = nd - 1, step = 1; d >= 0; step *= indices.dimensions[d], d--) {
+            final int x = a.dimensions[d], y = indices.dimensions[d];
+            if (d != axis && x != y && x != 1 && y != 1) { throw Py
+                    .ValueError("indices do not broadcast against the array"); }
+            shape[d] = (d == axis || x == 1) ? y : x;
+            aStrides[d] = (d == axis || x == 1) ? 0 : a.strides[d];
+            kStrides[d] = (y == 1) ? 0 : step;
+        }
+        final Plan p = new Plan();
+        p.view = a;
+        p.dims = shape;
+        p.from = new int[PyMultiarray.shapeToNItems(shape)];
+        p.inner = new int[1];
+        if (p.from.length == 0) { return p; }
+        final int stride = a.strides[axis];
+        final Reduction.Walk wa = new Reduction.Walk(shape, aStrides, a.start, 0);
+        final Reduction.Walk wk = new Reduction.Walk(shape, kStrides, 0, 0);
+        for (int j = 0; j < p.from.length; j++, wa.next(), wk.next()) {
+            p.from[j] = wa.offset + k[wk.offset] * stride;
+        }
+        return p;
+    }
+
+    /**
+     * Pick, for each element of a, the matching element of the choice it
+     * names. The choices broadcast against a, and may not have more
+     * dimensions than it.
+     *
+     * @param oa Integer array of choice numbers
+     * @param oChoices Sequence of arrays to choose from
+     * @param mode RAISE, WRAP or CLIP, for choice numbers out of range
+     * @return An array of the common type of the choices
+     */
+    static PyMultiarray choose(final PyObject oa, final PyObject oChoices, final int mode) {
+        final PyMultiarray a = PyMultiarray.asarray(oa, 'i');
+        final int n = oChoices.__len__();
+        final PyMultiarray[] choices = new PyMultiarray[n];
+        char type = 'i';
+        int[] shape = a.dimensions;
+        for (int i = 0; i < n; i++) {
+            choices[i] = PyMultiarray.asarray(oChoices.__getitem__(i));
+            if (choices[i].dimensions.length > a.dimensions.length) { throw Py
+                    .ValueError("choice array has too many dimensions: " + choices[i].dimensions.length + " > "
+                            + a.dimensions.length); }
+            type = (i == 0) ? choices[i]._typecode : PyMultiarray.commonType(type, choices[i]._typecode);
+            shape = Broadcast.shape(shape, choices[i].dimensions);
+            if (shape == null) { throw Py.ValueError("array dimensions must agree."); }
+        }
+        final int[] k = Indexing.fix(Indexing.expand(a, shape), n, mode, false);
+        if (k == null) { throw Py.ValueError("invalid entry in choice array"); }
+        // Each choice is read either as one element, or contiguously in the
+        // shape of the result.
+        final int e = PyMultiarray.typeToNElements(type);
+        final Object[] data = new Object[n];
+        final int[] starts = new int[n], steps = new int[n];
+        for (int i = 0; i < n; i++) {
+            PyMultiarray c = PyMultiarray.asarray(choices[i], type);
+            if (PyMultiarray.shapeToNItems(c.dimensions) == 1) {
+                steps[i] = 0;
+            } else {
+                c = Indexing.expand(c, shape);
+                steps[i] = e;
+            }
+            data[i] = c.data;
+            starts[i] = c.start;
+        }
+        final PyMultiarray result = PyMultiarray.zeros(shape, type);
+        final Object dst = result.data;
+        Parallel.forRange(k.length, k.length, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                Indexing.select(data, starts, steps, k, e, dst, lo, hi);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Work out the view, shape and offsets of the elements of a picked by
+     * index.
+     */
+    private static Plan plan(final PyMultiarray a, final PyObject index) {
+        final PyObject[] items = (index instanceof PyTuple) ? ((PyTuple) index).getArray()
+                : new PyObject[] { index };
+        // Swap each array entry for full slices over the axes it indexes.
+        final Entry[] entries = new Entry[items.length];
+        int nBasic = 0, firstPicked = -1, lastPicked = -1, nPicked = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (Indexing.isArray(items[i])) {
+                final Entry entry = entries[i] = new Entry();
+                entry.mask = Indexing.isMask(items[i]);
+                if (entry.mask) {
+                    entry.index = PyMultiarray.ascontiguous(items[i], 'i');
+                } else {
+                    entry.index = PyMultiarray.asarray(items[i]);
+                }
+                nBasic += entry.mask ? entry.index.dimensions.length : 1;
+            } else {
+                nBasic++;
+            }
+            if (entries[i] != null || items[i] instanceof PyInteger) {
+                firstPicked = (firstPicked < 0) ? i : firstPicked;
+                lastPicked = i;
+                nPicked++;
+            }
+        }
+        final PyObject[] basic = new PyObject[nBasic];
+        int nConsuming = 0;
+        for (int i = 0, j = 0; i < items.length; i++) {
+            if (entries[i] == null) {
+                basic[j++] = items[i];
+                if (items[i] instanceof PyInteger || items[i] instanceof PySlice) {
+                    nConsuming++;
+                }
+                continue;
+            }
+            final int k = entries[i].mask ? entries[i].index.dimensions.length : 1;
+            for (int d = 0; d < k; d++) {
+                basic[j++] = new PySlice(null, null, null);
+                nConsuming++;
+            }
+        }
+        final PyMultiarray view = a.indicesToStructure(new PyTuple(basic));
+        // Find the view axis each array entry starts at.
+        final boolean[] picked = new boolean[view.dimensions.length];
+        boolean ellipsis = false;
+        for (int i = 0, axis = 0; i < items.length; i++) {
+            if (entries[i] != null) {
+                entries[i].axis = axis;
+                final int k = entries[i].mask ? entries[i].index.dimensions.length : 1;
+                for (int d = 0; d < k; d++) {
+                    picked[axis++] = true;
+                }
+            } else if (items[i] instanceof PyEllipsis && !ellipsis) {
+                axis += Math.max(0, a.dimensions.length - nConsuming);
+                ellipsis = true;
+            } else if (items[i] instanceof PyNone || items[i] instanceof PySlice) {
+                axis++;
+            }
+        }
+        // The shape the entries broadcast to, with masks as 1-d offsets.
+        final int[][] maskOffsets = new int[items.length][];
+        int[] shape = new int[0];
+        for (int i = 0; i < items.length; i++) {
+            final Entry entry = entries[i];
+            if (entry == null) {
+                continue;
+            }
+            int[] dims = entry.index.dimensions;
+            if (entry.mask) {
+                maskOffsets[i] = Indexing.maskOffsets(entry.index, view, entry.axis);
+                dims = new int[] { maskOffsets[i].length };
+            }
+            shape = Broadcast.shape(shape, dims);
+            if (shape == null) { throw Py.IndexError("shape mismatch: indexing arrays could not be broadcast together"); }
+        }
+        final int m = PyMultiarray.shapeToNItems(shape);
+        final int[] off = new int[m];
+        for (int i = 0; i < items.length; i++) {
+            final Entry entry = entries[i];
+            if (entry == null) {
+                continue;
+            }
+            if (m == 0) {
+                break;
+            }
+            final int[] dims = entry.mask ? new int[] { maskOffsets[i].length } : entry.index.dimensions;
+            final int[] strides = new int[shape.length];
+            for (int d = dims.length - 1, step = 1; d >= 0; step *= dims[d], d--) {
+                strides[shape.length - dims.length + d] = (dims[d] == 1) ? 0 : step;
+            }
+            int[] offsets = maskOffsets[i];
+            if (!entry.mask) {
+                offsets = Indexing.fix(entry.index, view.dimensions[entry.axis], Indexing.RAISE, true);
+                if (offsets == null) { throw Py.IndexError("index out of range"); }
+                final int stride = view.strides[entry.axis];
+                for (int j = 0; j < offsets.length; j++) {
+                    offsets[j] *= stride;
+                }
+            }
+            final Reduction.Walk w = new Reduction.Walk(shape, strides, 0, 0);
+            for (int j = 0; j < m; j++, w.next()) {
+                off[j] += offsets[w.offset];
+            }
+        }
+        // Axes before the picked ones stay in front if the picked entries
+        // of the index are next to each other.
+        int front = 0;
+        if (lastPicked - firstPicked + 1 == nPicked) {
+            while (front < picked.length && !picked[front]) {
+                front++;
+            }
+        }
+        return Indexing.layout(view, picked, front, shape, off);
+    }
+
+    /**
+     * The plan for picking, from view, the blocks at offsets off (laid out
+     * in shape) across the picked axes, with the first <code>front</code>
+     * axes of view before them and the other axes after.
+     */
+    private static Plan layout(final PyMultiarray view, final boolean[] picked, final int front, final int[] shape,
+            final int[] off) {
+        final Plan p = new Plan();
+        p.view = view;
+        final int m = off.length, nd = view.dimensions.length;
+        int nInner = 0;
+        for (int d = front; d < nd; d++) {
+            nInner += picked[d] ? 0 : 1;
+        }
+        final int[] outerDims = new int[front], outerStrides = new int[front];
+        final int[] innerDims = new int[nInner], innerStrides = new int[nInner];
+        for (int d = 0, k = 0; d < nd; d++) {
+            if (d < front) {
+                outerDims[d] = view.dimensions[d];
+                outerStrides[d] = view.strides[d];
+            } else if (!picked[d]) {
+                innerDims[k] = view.dimensions[d];
+                innerStrides[k++] = view.strides[d];
+            }
+        }
+        p.dims = new int[front + shape.length + nInner];
+        System.arraycopy(outerDims, 0, p.dims, 0, front);
+        System.arraycopy(shape, 0, p.dims, front, shape.length);
+        System.arraycopy(innerDims, 0, p.dims, front + shape.length, nInner);
+        final int outer = PyMultiarray.shapeToNItems(outerDims);
+        p.from = new int[outer * m];
+        if (p.from.length == 0) {
+            p.inner = new int[0];
+            return p;
+        }
+        final Reduction.Walk o = new Reduction.Walk(outerDims, outerStrides, view.start, 0);
+        for (int i = 0, b = 0; i < outer; i++, o.next()) {
+            for (int j = 0; j < m; j++) {
+                p.from[b++] = o.offset + off[j];
+            }
+        }
+        final int[][] c = Reduction.coalesce(innerDims, innerStrides, nInner);
+        p.inner = new int[PyMultiarray.shapeToNItems(innerDims)];
+        if (p.inner.length == 0) { return p; }
+        final Reduction.Walk w = new Reduction.Walk(c[0], c[1], 0, 0);
+        for (int k = 0; k < p.inner.length; k++, w.next()) {
+            p.inner[k] = w.offset;
+        }
+        p.run = c[0].length == 1 && c[1][0] == PyMultiarray.typeToNElements(view._typecode);
+        return p;
+    }
+
+    /**
+     * Whether an index entry is a list of booleans, at any depth, or the
+     * result of a comparison or logical operation.
+     */
+    private static boolean isMask(PyObject entry) {
+        if (entry instanceof PyMultiarray) { return ((PyMultiarray) entry).isMask; }
+        while (entry instanceof PyList) {
+            if (entry.__len__() == 0) { return false; }
+            entry = entry.__getitem__(0);
+        }
+        return entry instanceof PyBoolean;
+    }
+
+    /**
+     * Offsets into view of the true elements of a contiguous int mask over
+     * the axes of view from axis on, counted before they are filled in.
+     */
+    private static int[] maskOffsets(final PyMultiarray mask, final PyMultiarray view, final int axis) {
+        final int k = mask.dimensions.length;
+        final int[] strides = new int[k];
+        for (int d = 0; d < k; d++) {
+            if (mask.dimensions[d] != view.dimensions[axis + d]) { throw Py
+                    .IndexError("mask shape does not match the indexed array"); }
+            strides[d] = view.strides[axis + d];
+        }
+        final int[] m = (int[]) mask.data;
+        final int n = PyMultiarray.shapeToNItems(mask.dimensions);
+        if (n == 0) { return new int[0]; }
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (m[mask.start + i] != 0) {
+                count++;
+            }
+        }
+        final int[] offsets = new int[count];
+        final Reduction.Walk w = new Reduction.Walk(mask.dimensions, strides, 0, 0);
+        for (int i = 0, j = 0; i < n; i++, w.next()) {
+            if (m[mask.start + i] != 0) {
+                offsets[j++] = w.offset;
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * The indices in idx, in C order, as a new int[] of positions in
+     * <code>[0, n)</code>. Negative indices count from the end if negative
+     * is set. A first pass finds the smallest and largest index, so that
+     * only out-of-range indices cost a second pass, to wrap or clip them;
+     * null is returned for them in RAISE mode.
+     */
+    private static int[] fix(final PyMultiarray idx, final int n, final int mode, final boolean negative) {
+        if ("1sil".indexOf(idx._typecode) < 0 && PyMultiarray.shapeToNItems(idx.dimensions) > 0) { throw Py
+                .IndexError("arrays used as indices must be of integer type"); }
+        final int size = PyMultiarray.shapeToNItems(idx.dimensions);
+        final int[] k = new int[size];
+        if (idx._typecode == 'l') {
+            // Narrowed one by one, so that indices beyond the int range are
+            // handled by mode rather than wrapping into range.
+            final PyMultiarray c = PyMultiarray.ascontiguous(idx, 'l');
+            final long[] d = (long[]) c.data;
+            for (int j = 0; j < size; j++) {
+                final long x = d[c.start + j];
+                if (x == (int) x) {
+                    k[j] = (int) x;
+                } else if (mode == Indexing.RAISE) {
+                    return null;
+                } else if (n == 0) {
+                    throw Py.IndexError("cannot index an empty axis");
+                } else if (mode == Indexing.WRAP) {
+                    k[j] = (int) Math.floorMod(x, (long) n);
+                } else {
+                    k[j] = (x < 0) ? 0 : n - 1;
+                }
+            }
+        } else {
+            final PyMultiarray c = PyMultiarray.ascontiguous(idx, 'i');
+            System.arraycopy(c.data, c.start, k, 0, size);
+        }
+        int min = 0, max = -1;
+        if (size > 0) {
+            min = max = k[0];
+            for (final int x : k) {
+                min = Math.min(min, x);
+                max = Math.max(max, x);
+            }
+        }
+        if (min >= 0 && max < n) { return k; }
+        if (mode == Indexing.RAISE) {
+            if (!negative || min < -n || max >= n) { return null; }
+            for (int j = 0; j < size; j++) {
+                if (k[j] < 0) {
+                    k[j] += n;
+                }
+            }
+        } else if (n == 0) {
+            throw Py.IndexError("cannot index an empty axis");
+        } else if (mode == Indexing.WRAP) {
+            for (int j = 0; j < size; j++) {
+                k[j] %= n;
+                if (k[j] < 0) {
+                    k[j] += n;
+                }
+            }
+        } else {
+            for (int j = 0; j < size; j++) {
+                k[j] = Math.max(0, Math.min(n - 1, k[j]));
+            }
+        }
+        return k;
+    }
+
+    /**
+     * a broadcast to shape, as a contiguous array.
+     */
+    private static PyMultiarray expand(final PyMultiarray a, final int[] shape) {
+        if (a.isContiguous && Arrays.equals(a.dimensions, shape)) { return a; }
+        final int nd = shape.length, excess = nd - a.dimensions.length;
+        final int[] strides = new int[nd];
+        for (int d = excess; d < nd; d++) {
+            strides[d] = (a.dimensions[d - excess] == 1) ? 0 : a.strides[d - excess];
+        }
+        return PyMultiarray.ascontiguous(new PyMultiarray(a.data, a._typecode, a.start, shape.clone(), strides));
+    }
+
+    /**
+     * The elements picked by a plan, as a new array.
+     */
+    private static PyMultiarray gather(final Plan p) {
+        final PyMultiarray result = PyMultiarray.zeros(p.dims, p.view._typecode);
+        final Object src = p.view.data, dst = result.data;
+        final int e = PyMultiarray.typeToNElements(p.view._typecode);
+        final int blocks = p.from.length, size = p.inner.length;
+        Parallel.forRange(blocks, (long) blocks * size, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                if (p.run) {
+                    for (int b = lo; b < hi; b++) {
+                        System.arraycopy(src, p.from[b], dst, b * size * e, size * e);
+                    }
+                } else {
+                    Indexing.gather(src, p.from, p.inner, e, dst, lo, hi);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Set the elements picked by a plan to value, broadcast to the shape of
+     * the selection.
+     */
+    private static void scatter(final Plan p, final PyObject value) {
+        final PyMultiarray a = p.view;
+        PyMultiarray v = PyMultiarray.asarray(value, a._typecode);
+        if (v.data == a.data) {
+            v = PyMultiarray.array(v, a._typecode);
+        }
+        final int nd = p.dims.length, excess = nd - v.dimensions.length;
+        if (excess < 0) { throw Py.ValueError("object too deep for desired array"); }
+        final int[] strides = new int[nd];
+        for (int i = excess; i < nd; i++) {
+            final int d = v.dimensions[i - excess];
+            if (d != 1 && d != p.dims[i]) { throw Py.ValueError("array dimensions must agree"); }
+            strides[i] = (d == 1) ? 0 : v.strides[i - excess];
+        }
+        if (p.from.length == 0 || p.inner.length == 0) { return; }
+        final Reduction.Walk w = new Reduction.Walk(p.dims, strides, v.start, 0);
+        Indexing.scatter(v.data, w, a.data, p.from, p.inner, PyMultiarray.typeToNElements(a._typecode));
+    }
+
+    /**
+     * Copy blocks <code>[lo, hi)</code>, the elements at
+     * <code>from[b] + inner[k]</code> of src, each <code>e</code> wide, into
+     * dst in order.
+     */
+    private static void gather(final Object src, final int[] from, final int[] inner, final int e, final Object dst,
+            final int lo, final int hi) {
+        final int size = inner.length;
+        int o = lo * size * e;
+        if (src instanceof double[]) {
+            final double[] s = (double[]) src, d = (double[]) dst;
+            for (int b = lo; b < hi; b++) {
+                for (int k = 0; k < size; k++) {
+                    final int at = from[b] + inner[k];
+                    for (int c = 0; c < e; c++) {
+                        d[o++] = s[at + c];
+                    }
+                }
+            }
+        } else if (src instanceof float[]) {
+            final float[] s = (float[]) src, d = (float[]) dst;
+            for (int b = lo; b < hi; b++) {
+                for (int k = 0; k < size; k++) {
+                    final int at = from[b] + inner[k];
+                    for (int c = 0; c < e; c++) {
+                        d[o++] = s[at + c];
+                    }
+                }
+            }
+        } else if (src instanceof int[]) {
+            final int[] s = (int[]) src, d = (int[]) dst;
+            for (int b = lo; b < hi; b++) {
+                for (int k = 0; k < size; k++) {
+                    d[o++] = s[from[b] + inner[k]];
+                }
+            }
+        } else if (src instanceof long[]) {
+            final long[] s = (long[]) src, d = (long[]) dst;
+            for (int b = lo; b < hi; b++) {
+                for (int k = 0; k < size; k++) {
+                    d[o++] = s[from[b] + inner[k]];
+                }
+            }
+        } else if (src instanceof short[]) {
+            final short[] s = (short[]) src, d = (short[]) dst;
+            for (int b = lo; b < hi; b++) {
+                for (int k = 0; k < size; k++) {
+                    d[o++] = s[from[b] + inner[k]];
+                }
+            }
+        } else if (src instanceof byte[]) {
+            final byte[] s = (byte[]) src, d = (byte[]) dst;
+            for (int b = lo; b < hi; b++) {
+                for (int k = 0; k < size; k++) {
+                    d[o++] = s[from[b] + inner[k]];
+                }
+            }
+        } else {
+            final Object[] s = (Object[]) src, d = (Object[]) dst;
+            for (int b = lo; b < hi; b++) {
+                for (int k = 0; k < size; k++) {
+                    d[o++] = s[from[b] + inner[k]];
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the elements of src met by w, in order, to the elements at
+     * <code>from[b] + inner[k]</code> of dst, each <code>e</code> wide.
+     */
+    private static void scatter(final Object src, final Reduction.Walk w, final Object dst, final int[] from,
+            final int[] inner, final int e) {
+        final int size = inner.length;
+        if (dst instanceof double[]) {
+            final double[] s = (double[]) src, d = (double[]) dst;
+            for (final int f : from) {
+                for (int k = 0; k < size; k++, w.next()) {
+                    for (int c = 0; c < e; c++) {
+                        d[f + inner[k] + c] = s[w.offset + c];
+                    }
+                }
+            }
+        } else if (dst instanceof float[]) {
+            final float[] s = (float[]) src, d = (float[]) dst;
+            for (final int f : from) {
+                for (int k = 0; k < size; k++, w.next()) {
+                    for (int c = 0; c < e; c++) {
+                        d[f + inner[k] + c] = s[w.offset + c];
+                    }
+                }
+            }
+        } else if (dst instanceof int[]) {
+            final int[] s = (int[]) src, d = (int[]) dst;
+            for (final int f : from) {
+                for (int k = 0; k < size; k++, w.next()) {
+                    d[f + inner[k]] = s[w.offset];
+                }
+            }
+        } else if (dst instanceof long[]) {
+            final long[] s = (long[]) src, d = (long[]) dst;
+            for (final int f : from) {
+                for (int k = 0; k < size; k++, w.next()) {
+                    d[f + inner[k]] = s[w.offset];
+                }
+            }
+        } else if (dst instanceof short[]) {
+            final short[] s = (short[]) src, d = (short[]) dst;
+            for (final int f : from) {
+                for (int k = 0; k < size; k++, w.next()) {
+                    d[f + inner[k]] = s[w.offset];
+                }
+            }
+        } else if (dst instanceof byte[]) {
+            final byte[] s = (byte[]) src, d = (byte[]) dst;
+            for (final int f : from) {
+                for (int k = 0; k < size; k++, w.next()) {
+                    d[f + inner[k]] = s[w.offset];
+                }
+            }
+        } else {
+            final Object[] s = (Object[]) src, d = (Object[]) dst;
+            for (final int f : from) {
+                for (int k = 0; k < size; k++, w.next()) {
+                    d[f + inner[k]] = s[w.offset];
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill elements <code>[lo, hi)</code> of dst, each <code>e</code> wide,
+     * from the choices named by k: element i of choice c is at
+     * <code>starts[c] + i * steps[c]</code> of <code>data[c]</code>.
+     */
+    private static void select(final Object[] data, final int[] starts, final int[] steps, final int[] k, final int e,
+            final Object dst, final int lo, final int hi) {
+        if (dst instanceof double[]) {
+            final double[] d = (double[]) dst;
+            for (int i = lo; i < hi; i++) {
+                final int c = k[i], at = starts[c] + i * steps[c];
+                for (int j = 0; j < e; j++) {
+                    d[i * e + j] = ((double[]) data[c])[at + j];
+                }
+            }
+        } else if (dst instanceof float[]) {
+            final float[] d = (float[]) dst;
+            for (int i = lo; i < hi; i++) {
+                final int c = k[i], at = starts[c] + i * steps[c];
+                for (int j = 0; j < e; j++) {
+                    d[i * e + j] = ((float[]) data[c])[at + j];
+                }
+            }
+        } else if (dst instanceof int[]) {
+            final int[] d = (int[]) dst;
+            for (int i = lo; i < hi; i++) {
+                final int c = k[i];
+                d[i] = ((int[]) data[c])[starts[c] + i * steps[c]];
+            }
+        } else if (dst instanceof long[]) {
+            final long[] d = (long[]) dst;
+            for (int i = lo; i < hi; i++) {
+                final int c = k[i];
+                d[i] = ((long[]) data[c])[starts[c] + i * steps[c]];
+            }
+        } else if (dst instanceof short[]) {
+            final short[] d = (short[]) dst;
+            for (int i = lo; i < hi; i++) {
+                final int c = k[i];
+                d[i] = ((short[]) data[c])[starts[c] + i * steps[c]];
+            }
+        } else if (dst instanceof byte[]) {
+            final byte[] d = (byte[]) dst;
+            for (int i = lo; i < hi; i++) {
+                final int c = k[i];
+                d[i] = ((byte[]) data[c])[starts[c] + i * steps[c]];
+            }
+        } else {
+            final Object[] d = (Object[]) dst;
+            for (int i = lo; i < hi; i++) {
+                final int c = k[i];
+                d[i] = ((Object[]) data[c])[starts[c] + i * steps[c]];
+            }
+        }
+    }
+}
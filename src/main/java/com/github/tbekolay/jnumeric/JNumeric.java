@@ -10,9 +10,14 @@
 
 package com.github.tbekolay.jnumeric;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
 import org.python.core.ClassDictInit;
 import org.python.core.Py;
 import org.python.core.PyObject;
+import org.python.core.PyString;
 import org.python.core.PyTuple;
 import org.python.core.PyType;
 
@@ -99,8 +104,10 @@ public class JNumeric extends PyObject implements ClassDictInit {
         dict.__setitem__("argmax", JNumeric.argmax);
         dict.__setitem__("argsort", JNumeric.argsort);
         dict.__setitem__("argmin", JNumeric.argmin);
+        dict.__setitem__("argpartition", JNumeric.argpartition);
         dict.__setitem__("array", JNumeric.array);
         dict.__setitem__("asarray", JNumeric.asarray);
+        dict.__setitem__("bincount", JNumeric.bincount);
         dict.__setitem__("bitwise_not", JNumeric.bitwise_not);
         dict.__setitem__("choose", JNumeric.choose);
         dict.__setitem__("clip", JNumeric.clip);
@@ -109,25 +116,47 @@ public class JNumeric extends PyObject implements ClassDictInit {
         dict.__setitem__("convolve", JNumeric.convolve);
         dict.__setitem__("cross_correlate", JNumeric.cross_correlate);
         dict.__setitem__("diagonal", JNumeric.diagonal);
+        dict.__setitem__("digitize", JNumeric.digitize);
         dict.__setitem__("dot", JNumeric.dot);
+        dict.__setitem__("frombuffer", JNumeric.frombuffer);
         dict.__setitem__("fromfunction", JNumeric.fromfunction);
         dict.__setitem__("fromstring", JNumeric.fromstring);
+        dict.__setitem__("group_reduce", JNumeric.group_reduce);
+        dict.__setitem__("histogram", JNumeric.histogram);
         dict.__setitem__("identity", JNumeric.identity);
+        dict.__setitem__("in1d", JNumeric.in1d);
         dict.__setitem__("indices", JNumeric.indices);
         dict.__setitem__("innerproduct", JNumeric.innerproduct);
+        dict.__setitem__("intersect1d", JNumeric.intersect1d);
         dict.__setitem__("linspace", JNumeric.linspace);
+        dict.__setitem__("mean", JNumeric.mean);
+        dict.__setitem__("minmax", JNumeric.minmax);
+        dict.__setitem__("moments", JNumeric.moments);
+        dict.__setitem__("nanargmax", JNumeric.nanargmax);
+        dict.__setitem__("nanargmin", JNumeric.nanargmin);
         dict.__setitem__("nonzero", JNumeric.nonzero);
         dict.__setitem__("ones", JNumeric.ones);
+        dict.__setitem__("partition", JNumeric.partition);
+        dict.__setitem__("put", JNumeric.put);
+        dict.__setitem__("put_along_axis", JNumeric.put_along_axis);
+        dict.__setitem__("reduceat", JNumeric.reduceat);
         dict.__setitem__("repeat", JNumeric.repeat);
         dict.__setitem__("reshape", JNumeric.reshape);
         dict.__setitem__("resize", JNumeric.resize);
         dict.__setitem__("ravel", JNumeric.ravel);
         dict.__setitem__("searchsorted", JNumeric.searchsorted);
+        dict.__setitem__("setdiff1d", JNumeric.setdiff1d);
         dict.__setitem__("shape", JNumeric.shape);
         dict.__setitem__("sort", JNumeric.sort);
+        dict.__setitem__("std", JNumeric.std);
         dict.__setitem__("take", JNumeric.take);
+        dict.__setitem__("take_along_axis", JNumeric.take_along_axis);
+        dict.__setitem__("topk", JNumeric.topk);
         dict.__setitem__("trace", JNumeric.trace);
         dict.__setitem__("transpose", JNumeric.transpose);
+        dict.__setitem__("union1d", JNumeric.union1d);
+        dict.__setitem__("unique", JNumeric.unique);
+        dict.__setitem__("var", JNumeric.var);
         dict.__setitem__("where", JNumeric.where);
         dict.__setitem__("zeros", JNumeric.zeros);
 
@@ -152,13 +181,17 @@ public class JNumeric extends PyObject implements ClassDictInit {
      */
     static final public PyObject argmax = new ArgmaxFunction();
     /**
-     * argsort(a, axis=-1)
+     * argsort(a, axis=-1, kind=None)
      */
     static final public PyObject argsort = new ArgsortFunction();
     /**
      * argsort(a, axis=-1)
      */
     static final public PyObject argmin = new ArgminFunction();
+    /**
+     * argpartition(a, kth, axis=-1)
+     */
+    static final public PyObject argpartition = new ArgpartitionFunction();
     /**
      * array(sequence, typecode=None, copy=1)
      */
@@ -167,6 +200,10 @@ public class JNumeric extends PyObject implements ClassDictInit {
      * asarray(sequence, typecode=None)
      */
     static final public PyObject asarray = new AsarrayFunction();
+    /**
+     * bincount(x, weights=None, minlength=0)
+     */
+    static final public PyObject bincount = new BincountFunction();
     /**
      * bitwise_not(a)
      */
@@ -176,7 +213,7 @@ public class JNumeric extends PyObject implements ClassDictInit {
      */
     static final public PyObject choose = new ChooseFunction();
     /**
-     * clip(a, a_min, a_max)
+     * clip(a, a_min, a_max, out=None)
      */
     static final public PyObject clip = new ClipFunction();
     /**
@@ -199,10 +236,18 @@ public class JNumeric extends PyObject implements ClassDictInit {
      * diagonal(a, offset=0, axis=-2)
      */
     static final public PyObject diagonal = new DiagonalFunction();
+    /**
+     * digitize(x, bins, right=0)
+     */
+    static final public PyObject digitize = new DigitizeFunction();
     /**
      * dot(a, b, axisA=-1, axisB=0)
      */
     static final public PyObject dot = new DotFunction();
+    /**
+     * frombuffer(buffer, typecode, byteorder=None)
+     */
+    static final public PyObject frombuffer = new FrombufferFunction();
     /**
      * fromfunction(function, dimensions)
      */
@@ -211,10 +256,22 @@ public class JNumeric extends PyObject implements ClassDictInit {
      * fromstring(string, typecode)
      */
     static final public PyObject fromstring = new FromstringFunction();
+    /**
+     * group_reduce(values, group_ids, ufunc=add, ngroups=None)
+     */
+    static final public PyObject group_reduce = new GroupReduceFunction();
+    /**
+     * histogram(a, bins=10, range=None)
+     */
+    static final public PyObject histogram = new HistogramFunction();
     /**
      * identity(n)
      */
     static final public PyObject identity = new IdentityFunction();
+    /**
+     * in1d(a, b, invert=0)
+     */
+    static final public PyObject in1d = new In1dFunction();
     /**
      * indices(dimensions, typecode=None)
      */
@@ -223,6 +280,10 @@ public class JNumeric extends PyObject implements ClassDictInit {
      * innerproduct(a, b, axisA=-1, axisB=-1)
      */
     static final public PyObject innerproduct = new InnerproductFunction();
+    /**
+     * intersect1d(a, b)
+     */
+    static final public PyObject intersect1d = new Intersect1dFunction();
     /**
      * nonzero(a)
      */
@@ -231,10 +292,46 @@ public class JNumeric extends PyObject implements ClassDictInit {
      * linspace(start, stop, num=50, endpoint=True, retstep=False)
      */
     static final public PyObject linspace = new LinspaceFunction();
+    /**
+     * mean(a, axis=0)
+     */
+    static final public PyObject mean = new MeanFunction();
+    /**
+     * minmax(a, axis=None)
+     */
+    static final public PyObject minmax = new MinmaxFunction();
+    /**
+     * moments(axis=0)
+     */
+    static final public PyObject moments = new MomentsFunction();
+    /**
+     * nanargmax(a, axis=-1)
+     */
+    static final public PyObject nanargmax = new NanargmaxFunction();
+    /**
+     * nanargmin(a, axis=-1)
+     */
+    static final public PyObject nanargmin = new NanargminFunction();
     /**
      * ones(shape, typecode=None)
      */
     static final public PyObject ones = new OnesFunction();
+    /**
+     * partition(a, kth, axis=-1)
+     */
+    static final public PyObject partition = new PartitionFunction();
+    /**
+     * put(a, indices, values, mode='raise')
+     */
+    static final public PyObject put = new PutFunction();
+    /**
+     * put_along_axis(a, indices, values, axis)
+     */
+    static final public PyObject put_along_axis = new PutAlongAxisFunction();
+    /**
+     * reduceat(ufunc, a, indices, axis=0)
+     */
+    static final public PyObject reduceat = new ReduceatFunction();
     /**
      * repeat(a, repeats, axis=0)
      */
@@ -252,21 +349,37 @@ public class JNumeric extends PyObject implements ClassDictInit {
      */
     static final public PyObject ravel = new RavelFunction();
     /**
-     * searchsorted(a, values)
+     * searchsorted(a, values, side='left', sorter=None)
      */
     static final public PyObject searchsorted = new SearchsortedFunction();
+    /**
+     * setdiff1d(a, b)
+     */
+    static final public PyObject setdiff1d = new Setdiff1dFunction();
     /**
      * shape(a)
      */
     static final public PyObject shape = new ShapeFunction();
     /**
-     * sort(a, axis=-1)
+     * sort(a, axis=-1, kind=None)
      */
     static final public PyObject sort = new SortFunction();
     /**
-     * take(a, indices, axis=-1)
+     * std(a, axis=0, ddof=0)
+     */
+    static final public PyObject std = new StdFunction();
+    /**
+     * take(a, indices, axis=0, mode='raise')
      */
     static final public PyObject take = new TakeFunction();
+    /**
+     * take_along_axis(a, indices, axis)
+     */
+    static final public PyObject take_along_axis = new TakeAlongAxisFunction();
+    /**
+     * topk(a, k, axis=-1, largest=1)
+     */
+    static final public PyObject topk = new TopkFunction();
     /**
      * trace(a, offset=0, axis1=-2, axis1=-1)
      */
@@ -275,6 +388,18 @@ public class JNumeric extends PyObject implements ClassDictInit {
      * transpose(a, axes=None)
      */
     static final public PyObject transpose = new TransposeFunction();
+    /**
+     * union1d(a, b)
+     */
+    static final public PyObject union1d = new Union1dFunction();
+    /**
+     * unique(a, return_index=0, return_inverse=0, return_counts=0)
+     */
+    static final public PyObject unique = new UniqueFunction();
+    /**
+     * var(a, axis=0, ddof=0)
+     */
+    static final public PyObject var = new VarFunction();
     /**
      * where(condition, x, y)
      */
@@ -287,7 +412,7 @@ public class JNumeric extends PyObject implements ClassDictInit {
     // Abbreviations
 
     /**
-     * sum(a, [axis])
+     * sum(a, axis=0, method=None, keepdims=0, out=None)
      */
     static final public PyObject sum = new SumFunction();
     /**
@@ -295,7 +420,7 @@ public class JNumeric extends PyObject implements ClassDictInit {
      */
     static final public PyObject cumsum = new CumsumFunction();
     /**
-     * product(a, [axis])
+     * product(a, axis=0, keepdims=0, out=None)
      */
     static final public PyObject product = new ProductFunction();
     /**
@@ -303,11 +428,11 @@ public class JNumeric extends PyObject implements ClassDictInit {
      */
     static final public PyObject cumproduct = new CumproductFunction();
     /**
-     * alltrue(a, [axis])
+     * alltrue(a, axis=0, keepdims=0, out=None)
      */
     static final public PyObject alltrue = new AlltrueFunction();
     /**
-     * sometrue(a, [axis])
+     * sometrue(a, axis=0, keepdims=0, out=None)
      */
     static final public PyObject sometrue = new SometrueFunction();
 
@@ -346,7 +471,8 @@ final class ArgmaxFunction extends KeywordFunction {
     private static final long serialVersionUID = -4129702317640731140L;
 
     ArgmaxFunction() {
-        this.docString = "argmax(a, axis=-1)";
+        this.docString = "argmax(a, axis=-1)\n"
+                + "a NaN counts as the largest value; see nanargmax";
         this.argNames = new String[] { "a", "axis" };
         this.defaultArgs = new PyObject[] { null, Py.newInteger(-1) };
     }
@@ -362,13 +488,18 @@ final class ArgsortFunction extends KeywordFunction {
     private static final long serialVersionUID = 306756599399721463L;
 
     ArgsortFunction() {
-        this.docString = "argsort(a, axis=-1)";
-        this.argNames = new String[] { "a", "axis" };
-        this.defaultArgs = new PyObject[] { null, Py.newInteger(-1) };
+        this.docString = "argsort(a, axis=-1, kind=None)\n"
+                + "kind is 'quicksort', 'mergesort' or 'radix' (both stable), "
+                + "or None to choose by type and size";
+        this.argNames = new String[] { "a", "axis", "kind" };
+        this.defaultArgs = new PyObject[] { null, Py.newInteger(-1), Py.None };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return PyMultiarray.argSort(args[0], Py.py2int(args[1]));
+        return PyMultiarray.argSort(
+                args[0],
+                Py.py2int(args[1]),
+                (args[2] == Py.None) ? null : args[2].toString());
     }
 }
 
@@ -376,7 +507,8 @@ final class ArgminFunction extends KeywordFunction {
     private static final long serialVersionUID = 8745320868186865391L;
 
     ArgminFunction() {
-        this.docString = "argmin(a, axis=-1)";
+        this.docString = "argmin(a, axis=-1)\n"
+                + "a NaN counts as the smallest value; see nanargmin";
         this.argNames = new String[] { "a", "axis" };
         this.defaultArgs = new PyObject[] { null, Py.newInteger(-1) };
     }
@@ -388,6 +520,21 @@ final class ArgminFunction extends KeywordFunction {
     }
 }
 
+final class ArgpartitionFunction extends KeywordFunction {
+    private static final long serialVersionUID = -5394729101736648035L;
+
+    ArgpartitionFunction() {
+        this.docString = "argpartition(a, kth, axis=-1) returns the indices that partition a "
+                + "so that the elements at kth are in their sorted positions";
+        this.argNames = new String[] { "a", "kth", "axis" };
+        this.defaultArgs = new PyObject[] { null, null, Py.newInteger(-1) };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return PyMultiarray.partition(args[0], args[1], Py.py2int(args[2]), true);
+    }
+}
+
 final class ArrayFunction extends KeywordFunction {
     private static final long serialVersionUID = 3022516972317954103L;
 
@@ -426,6 +573,21 @@ final class AsarrayFunction extends KeywordFunction {
     }
 }
 
+final class BincountFunction extends KeywordFunction {
+    private static final long serialVersionUID = -3857103125066914027L;
+
+    BincountFunction() {
+        this.docString = "bincount(x, weights=None, minlength=0)\n"
+                + "counts each non-negative int in x, or sums the weights given for each";
+        this.argNames = new String[] { "x", "weights", "minlength" };
+        this.defaultArgs = new PyObject[] { null, Py.None, Py.Zero };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return Histogram.bincount(args[0], args[1], Py.py2int(args[2]));
+    }
+}
+
 final class BitwiseNotFunction extends KeywordFunction {
     private static final long serialVersionUID = 733464928332987972L;
 
@@ -444,13 +606,14 @@ final class ChooseFunction extends KeywordFunction {
     private static final long serialVersionUID = 1636534146777194754L;
 
     ChooseFunction() {
-        this.docString = "choose(a, indices)";
-        this.argNames = new String[] { "a", "indices" };
-        this.defaultArgs = new PyObject[] { null, null };
+        this.docString = "choose(a, indices, mode='raise')\n"
+                + "mode says what to do with choices out of range: 'raise', 'wrap' or 'clip'";
+        this.argNames = new String[] { "a", "indices", "mode" };
+        this.defaultArgs = new PyObject[] { null, null, Py.newString("raise") };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return PyMultiarray.choose(args[0], args[1]);
+        return Indexing.choose(args[0], args[1], Indexing.mode(args[2].toString()));
     }
 }
 
@@ -458,18 +621,14 @@ final class ClipFunction extends KeywordFunction {
     private static final long serialVersionUID = -8844211418827105029L;
 
     ClipFunction() {
-        this.docString = "clip(a, a_min, a_max)";
-        this.argNames = new String[] { "a", "a_min", "a_max" };
-        this.defaultArgs = new PyObject[] { null, null, null };
+        this.docString = "clip(a, a_min, a_max, out=None)\n\n"
+                + "Clip the elements of a to [a_min, a_max], into out if it is given.";
+        this.argNames = new String[] { "a", "a_min", "a_max", "out" };
+        this.defaultArgs = new PyObject[] { null, null, null, Py.None };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        final PyObject Two = Py.newInteger(2);
-        // XXX Turn into PyMultiarray.clip ?
-        return PyMultiarray.choose(
-                Umath.less.__call__(args[0], args[1]).__add__(
-                        Umath.greater.__call__(args[0], args[2]).__mul__(Two)),
-                new PyTuple(args));
+        return Selection.clip(args[0], args[1], args[2], args[3]);
     }
 }
 
@@ -483,12 +642,7 @@ final class CompressFunction extends KeywordFunction {
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        // XXX Turn into PyMultiarray.compress ?
-        final PyObject nonZero = PyMultiarray.repeat(
-                JNumeric.arrayrange.__call__(Py.newInteger(args[0].__len__())),
-                Umath.not_equal.__call__(args[0], Py.Zero),
-                0);
-        return PyMultiarray.take(args[1], nonZero, Py.py2int(args[2]));
+        return Indexing.compress(args[0], args[1], Py.py2int(args[2]));
     }
 }
 
@@ -554,6 +708,21 @@ final class DiagonalFunction extends KeywordFunction {
     }
 }
 
+final class DigitizeFunction extends KeywordFunction {
+    private static final long serialVersionUID = 2214870061385924392L;
+
+    DigitizeFunction() {
+        this.docString = "digitize(x, bins, right=0)\n"
+                + "returns the index of the bin of bins (monotonic edges) each x falls in";
+        this.argNames = new String[] { "x", "bins", "right" };
+        this.defaultArgs = new PyObject[] { null, null, Py.Zero };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return Histogram.digitize(args[0], args[1], args[2].__nonzero__());
+    }
+}
+
 final class DotFunction extends KeywordFunction {
     private static final long serialVersionUID = -4845146524858011834L;
 
@@ -590,6 +759,41 @@ final class FromfunctionFunction extends KeywordFunction {
     }
 }
 
+final class FrombufferFunction extends KeywordFunction {
+    private static final long serialVersionUID = -2794460168210553297L;
+
+    FrombufferFunction() {
+        this.docString = "frombuffer(buffer, typecode, byteorder=None)\n"
+                + "buffer is a java.nio.ByteBuffer, a Java byte array or a string; "
+                + "byteorder is 'big', 'little' or 'native', or None for the "
+                + "ByteBuffer's own order or big-endian otherwise";
+        this.argNames = new String[] { "buffer", "typecode", "byteorder" };
+        this.defaultArgs = new PyObject[] { null, null, Py.None };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        final char type = Py.py2char(args[1]);
+        final ByteOrder order = (args[2] == Py.None) ? null : PyMultiarray.byteOrder(args[2].toString());
+        final Object buffer = args[0].__tojava__(ByteBuffer.class);
+        if (buffer != Py.NoConversion) {
+            final ByteBuffer b = (ByteBuffer) buffer;
+            return PyMultiarray.frombuffer(
+                    (order == null) ? b : b.duplicate().order(order),
+                    type);
+        }
+        final Object bytes = args[0].__tojava__(byte[].class);
+        if (bytes != Py.NoConversion) {
+            return PyMultiarray.frombuffer((byte[]) bytes, type,
+                    (order == null) ? ByteOrder.BIG_ENDIAN : order);
+        }
+        if (args[0] instanceof PyString) {
+            return PyMultiarray.frombuffer(args[0].toString().getBytes(StandardCharsets.ISO_8859_1), type,
+                    (order == null) ? ByteOrder.BIG_ENDIAN : order);
+        }
+        throw Py.TypeError("buffer must be a ByteBuffer, a byte array or a string");
+    }
+}
+
 final class FromstringFunction extends KeywordFunction {
     private static final long serialVersionUID = 134207923841227124L;
 
@@ -605,6 +809,41 @@ final class FromstringFunction extends KeywordFunction {
     }
 }
 
+final class GroupReduceFunction extends KeywordFunction {
+    private static final long serialVersionUID = 4460618092675531824L;
+
+    GroupReduceFunction() {
+        this.docString = "group_reduce(values, group_ids, ufunc=add, ngroups=None)\n"
+                + "reduces together the rows of values (along axis 0) whose group_ids are\n"
+                + "equal; row g of the result is for group id g, and empty groups get the\n"
+                + "ufunc's identity";
+        this.argNames = new String[] { "values", "group_ids", "ufunc", "ngroups" };
+        this.defaultArgs = new PyObject[] { null, null, Umath.add, Py.None };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        if (!(args[2] instanceof BinaryUfunc)) { throw Py.TypeError("ufunc must be a binary ufunc"); }
+        return ((BinaryUfunc) args[2]).groupReduce(args[0], args[1], (args[3] == Py.None) ? -1 : Py
+                .py2int(args[3]));
+    }
+}
+
+final class HistogramFunction extends KeywordFunction {
+    private static final long serialVersionUID = -6044735098128351566L;
+
+    HistogramFunction() {
+        this.docString = "histogram(a, bins=10, range=None) returns (counts, edges)\n"
+                + "bins is a number of equal bins over range (by default the range of a),\n"
+                + "or a sequence of increasing edges; the last bin includes its right edge";
+        this.argNames = new String[] { "a", "bins", "range" };
+        this.defaultArgs = new PyObject[] { null, Py.newInteger(10), Py.None };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return Histogram.histogram(args[0], args[1], args[2]);
+    }
+}
+
 final class IdentityFunction extends KeywordFunction {
     private static final long serialVersionUID = -9178247895975583251L;
 
@@ -625,6 +864,21 @@ final class IdentityFunction extends KeywordFunction {
     }
 }
 
+final class In1dFunction extends KeywordFunction {
+    private static final long serialVersionUID = 4630731823507736914L;
+
+    In1dFunction() {
+        this.docString = "in1d(a, b, invert=0)\n"
+                + "returns 1 for each element of a, flattened, that is in b and 0 for the rest";
+        this.argNames = new String[] { "a", "b", "invert" };
+        this.defaultArgs = new PyObject[] { null, null, Py.Zero };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return SetOps.in1d(args[0], args[1], args[2].__nonzero__());
+    }
+}
+
 final class IndicesFunction extends KeywordFunction {
     private static final long serialVersionUID = 2184217250691275960L;
 
@@ -664,6 +918,20 @@ final class InnerproductFunction extends KeywordFunction {
     }
 }
 
+final class Intersect1dFunction extends KeywordFunction {
+    private static final long serialVersionUID = -2385521469126302617L;
+
+    Intersect1dFunction() {
+        this.docString = "intersect1d(a, b) returns the sorted unique elements in both a and b";
+        this.argNames = new String[] { "a", "b" };
+        this.defaultArgs = new PyObject[] { null, null };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return SetOps.intersect1d(args[0], args[1]);
+    }
+}
+
 final class LinspaceFunction extends KeywordFunction {
     private static final long serialVersionUID = 5746081813573451761L;
 
@@ -706,6 +974,100 @@ final class LinspaceFunction extends KeywordFunction {
     }
 }
 
+final class MeanFunction extends KeywordFunction {
+    private static final long serialVersionUID = 3390207410986044385L;
+
+    MeanFunction() {
+        this.docString = "mean(a, axis=0)\n"
+                + "axis may be a tuple of axes, or None for all of them";
+        this.argNames = new String[] { "a", "axis" };
+        this.defaultArgs = new PyObject[] { null, Py.Zero };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return Moments.of(args[0], args[1]).mean();
+    }
+}
+
+final class MinmaxFunction extends KeywordFunction {
+    private static final long serialVersionUID = 5820735192216640473L;
+
+    MinmaxFunction() {
+        this.docString = "minmax(a, axis=None) returns (minimum, maximum) from one pass over a\n"
+                + "axis may be an int, a tuple of axes, or None for all of them";
+        this.argNames = new String[] { "a", "axis" };
+        this.defaultArgs = new PyObject[] { null, Py.None };
+    }
+
+    static final BinaryUfunc[] minmax_ = new BinaryUfunc[] { Umath.minimum, Umath.maximum };
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return BinaryUfunc.reduce(MinmaxFunction.minmax_, args[0], args[1]);
+    }
+}
+
+final class MomentsFunction extends KeywordFunction {
+    private static final long serialVersionUID = -1259466320950788637L;
+
+    MomentsFunction() {
+        this.docString = "moments(axis=0)\n"
+                + "An accumulator: push(chunk) reduces each chunk along axis, and\n"
+                + "count(), mean(), var(ddof=0) and std(ddof=0) may be read at any time";
+        this.argNames = new String[] { "axis" };
+        this.defaultArgs = new PyObject[] { Py.Zero };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return new Moments(args[0]);
+    }
+}
+
+final class NanargmaxFunction extends KeywordFunction {
+    private static final long serialVersionUID = -2306914872359016862L;
+
+    NanargmaxFunction() {
+        this.docString = "nanargmax(a, axis=-1)\n"
+                + "like argmax, but ignoring NaNs (an all-NaN slice is an error)";
+        this.argNames = new String[] { "a", "axis" };
+        this.defaultArgs = new PyObject[] { null, Py.newInteger(-1) };
+    }
+
+    static final BinaryUfunc nanargmax_ = new BinaryUfunc(BinaryUfunc.nanArgMax);
+
+    /**
+     * Indices from a NaN-skipping reduction, which marks an all-NaN slice
+     * with -1.
+     */
+    static PyObject checked(final PyObject indices) {
+        final PyMultiarray a = PyMultiarray.array(indices, 'i');
+        for (final int i : (int[]) a.data) {
+            if (i < 0) { throw Py.ValueError("All-NaN slice encountered"); }
+        }
+        return indices;
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return NanargmaxFunction.checked(NanargmaxFunction.nanargmax_.reduce(args[0], Py.py2int(args[1])));
+    }
+}
+
+final class NanargminFunction extends KeywordFunction {
+    private static final long serialVersionUID = 7413960254158330287L;
+
+    NanargminFunction() {
+        this.docString = "nanargmin(a, axis=-1)\n"
+                + "like argmin, but ignoring NaNs (an all-NaN slice is an error)";
+        this.argNames = new String[] { "a", "axis" };
+        this.defaultArgs = new PyObject[] { null, Py.newInteger(-1) };
+    }
+
+    static final BinaryUfunc nanargmin_ = new BinaryUfunc(BinaryUfunc.nanArgMin);
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return NanargmaxFunction.checked(NanargminFunction.nanargmin_.reduce(args[0], Py.py2int(args[1])));
+    }
+}
+
 final class NonzeroFunction extends KeywordFunction {
     private static final long serialVersionUID = 1732261811691013401L;
 
@@ -716,11 +1078,7 @@ final class NonzeroFunction extends KeywordFunction {
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        // XXX Turn into PyMultiarray.nonzero ?
-        return PyMultiarray.repeat(
-                JNumeric.arrayrange.__call__(Py.newInteger(args[0].__len__())),
-                Umath.not_equal.__call__(args[0], Py.Zero),
-                0);
+        return Selection.nonzero(args[0]);
     }
 }
 
@@ -743,6 +1101,74 @@ final class OnesFunction extends KeywordFunction {
     }
 }
 
+final class PartitionFunction extends KeywordFunction {
+    private static final long serialVersionUID = 7212846907455137470L;
+
+    PartitionFunction() {
+        this.docString = "partition(a, kth, axis=-1) returns a copy of a with the elements at kth "
+                + "in their sorted positions, smaller elements before and larger ones after";
+        this.argNames = new String[] { "a", "kth", "axis" };
+        this.defaultArgs = new PyObject[] { null, null, Py.newInteger(-1) };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return PyMultiarray.partition(args[0], args[1], Py.py2int(args[2]), false);
+    }
+}
+
+final class PutFunction extends KeywordFunction {
+    private static final long serialVersionUID = -3127650914273381566L;
+
+    PutFunction() {
+        this.docString = "put(a, indices, values, mode='raise')\n"
+                + "sets the elements of a at indices, as if a were flat, to values (repeated as needed)";
+        this.argNames = new String[] { "a", "indices", "values", "mode" };
+        this.defaultArgs = new PyObject[] { null, null, null, Py.newString("raise") };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        if (!(args[0] instanceof PyMultiarray)) { throw Py.TypeError("put requires an array"); }
+        Indexing.put((PyMultiarray) args[0], args[1], args[2], Indexing.mode(args[3].toString()));
+        return Py.None;
+    }
+}
+
+final class PutAlongAxisFunction extends KeywordFunction {
+    private static final long serialVersionUID = 5742918836110725093L;
+
+    PutAlongAxisFunction() {
+        this.docString = "put_along_axis(a, indices, values, axis)\n"
+                + "sets the elements of each line of a along axis at the matching line of indices";
+        this.argNames = new String[] { "a", "indices", "values", "axis" };
+        this.defaultArgs = new PyObject[] { null, null, null, null };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        if (!(args[0] instanceof PyMultiarray)) { throw Py.TypeError("put_along_axis requires an array"); }
+        Indexing.putAlongAxis((PyMultiarray) args[0], args[1], args[2], Py.py2int(args[3]));
+        return Py.None;
+    }
+}
+
+final class ReduceatFunction extends KeywordFunction {
+    private static final long serialVersionUID = -7106318859263441960L;
+
+    ReduceatFunction() {
+        this.docString = "reduceat(ufunc, a, indices, axis=0)\n"
+                + "reduces each segment a[indices[i]:indices[i+1]] along axis (the last\n"
+                + "segment runs to the end); a segment that is empty gives the identity";
+        this.argNames = new String[] { "ufunc", "a", "indices", "axis" };
+        this.defaultArgs = new PyObject[] { null, null, null, Py.Zero };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        if (!(args[0] instanceof BinaryUfunc)) { throw Py.TypeError("ufunc must be a binary ufunc"); }
+        final PyMultiarray indices = PyMultiarray.array(args[2], 'i');
+        if (indices.dimensions.length != 1) { throw Py.ValueError("indices must be one dimensional"); }
+        return ((BinaryUfunc) args[0]).reduceat(args[1], (int[]) indices.data, Py.py2int(args[3]));
+    }
+}
+
 final class RepeatFunction extends KeywordFunction {
     private static final long serialVersionUID = -3346152024620868094L;
 
@@ -807,13 +1233,30 @@ final class SearchsortedFunction extends KeywordFunction {
     private static final long serialVersionUID = -6897451098438572030L;
 
     SearchsortedFunction() {
-        this.docString = "searchsorted(a, values)";
-        this.argNames = new String[] { "a", "values" };
+        this.docString = "searchsorted(a, values, side='left', sorter=None)";
+        this.argNames = new String[] { "a", "values", "side", "sorter" };
+        this.defaultArgs = new PyObject[] { null, null, Py.newString("left"), Py.None };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        final String side = args[2].toString();
+        if (!side.equals("left") && !side.equals("right")) { throw Py
+                .ValueError("side must be 'left' or 'right'"); }
+        return PyMultiarray.searchSorted(args[0], args[1], side.equals("right"), args[3]);
+    }
+}
+
+final class Setdiff1dFunction extends KeywordFunction {
+    private static final long serialVersionUID = 7305863416207935130L;
+
+    Setdiff1dFunction() {
+        this.docString = "setdiff1d(a, b) returns the sorted unique elements of a that are not in b";
+        this.argNames = new String[] { "a", "b" };
         this.defaultArgs = new PyObject[] { null, null };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return PyMultiarray.searchSorted(args[0], args[1]);
+        return SetOps.setdiff1d(args[0], args[1]);
     }
 }
 
@@ -840,13 +1283,34 @@ final class SortFunction extends KeywordFunction {
     private static final long serialVersionUID = -8748798385755543671L;
 
     SortFunction() {
-        this.docString = "sort(a, axis=-1)";
-        this.argNames = new String[] { "a", "axis" };
-        this.defaultArgs = new PyObject[] { null, Py.newInteger(-1) };
+        this.docString = "sort(a, axis=-1, kind=None)\n"
+                + "kind is 'quicksort', 'mergesort' or 'radix', "
+                + "or None to choose by type and size";
+        this.argNames = new String[] { "a", "axis", "kind" };
+        this.defaultArgs = new PyObject[] { null, Py.newInteger(-1), Py.None };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return PyMultiarray.sort(args[0], Py.py2int(args[1]));
+        return PyMultiarray.sort(
+                args[0],
+                Py.py2int(args[1]),
+                (args[2] == Py.None) ? null : args[2].toString());
+    }
+}
+
+final class StdFunction extends KeywordFunction {
+    private static final long serialVersionUID = 8841503922746106552L;
+
+    StdFunction() {
+        this.docString = "std(a, axis=0, ddof=0)\n"
+                + "axis may be a tuple of axes, or None for all of them; "
+                + "the variance is divided by n - ddof";
+        this.argNames = new String[] { "a", "axis", "ddof" };
+        this.defaultArgs = new PyObject[] { null, Py.Zero, Py.Zero };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return Moments.of(args[0], args[1]).std(Py.py2int(args[2]));
     }
 }
 
@@ -854,13 +1318,45 @@ final class TakeFunction extends KeywordFunction {
     private static final long serialVersionUID = -2646084886841367336L;
 
     TakeFunction() {
-        this.docString = "take(a, indices, axis=-1)";
+        this.docString = "take(a, indices, axis=0, mode='raise')\n"
+                + "mode says what to do with indices out of range: 'raise', 'wrap' or 'clip'";
+        this.argNames = new String[] { "a", "indices", "axis", "mode" };
+        this.defaultArgs = new PyObject[] { null, null, Py.Zero, Py.newString("raise") };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return Indexing.take(args[0], args[1], Py.py2int(args[2]), Indexing.mode(args[3].toString()));
+    }
+}
+
+final class TakeAlongAxisFunction extends KeywordFunction {
+    private static final long serialVersionUID = -8804415290264133157L;
+
+    TakeAlongAxisFunction() {
+        this.docString = "take_along_axis(a, indices, axis)\n"
+                + "takes from each line of a along axis the elements at the matching line of indices";
         this.argNames = new String[] { "a", "indices", "axis" };
-        this.defaultArgs = new PyObject[] { null, null, Py.Zero };
+        this.defaultArgs = new PyObject[] { null, null, null };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return PyMultiarray.take(args[0], args[1], Py.py2int(args[2]));
+        return Indexing.takeAlongAxis(args[0], args[1], Py.py2int(args[2]));
+    }
+}
+
+final class TopkFunction extends KeywordFunction {
+    private static final long serialVersionUID = 1874391757329611209L;
+
+    TopkFunction() {
+        this.docString = "topk(a, k, axis=-1, largest=1) returns (values, indices) of the k largest "
+                + "(or smallest) elements along axis, best first";
+        this.argNames = new String[] { "a", "k", "axis", "largest" };
+        this.defaultArgs = new PyObject[] { null, null, Py.newInteger(-1), Py.One };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return PyMultiarray.topK(args[0], Py.py2int(args[1]), Py.py2int(args[2]),
+                args[3].__nonzero__());
     }
 }
 
@@ -911,6 +1407,54 @@ final class TransposeFunction extends KeywordFunction {
     }
 }
 
+final class Union1dFunction extends KeywordFunction {
+    private static final long serialVersionUID = -5921186442850350744L;
+
+    Union1dFunction() {
+        this.docString = "union1d(a, b) returns the sorted unique elements in a or b";
+        this.argNames = new String[] { "a", "b" };
+        this.defaultArgs = new PyObject[] { null, null };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return SetOps.union1d(args[0], args[1]);
+    }
+}
+
+final class UniqueFunction extends KeywordFunction {
+    private static final long serialVersionUID = 1869247208137541366L;
+
+    UniqueFunction() {
+        this.docString = "unique(a, return_index=0, return_inverse=0, return_counts=0)\n"
+                + "returns the sorted unique elements of a, flattened, and if asked the index\n"
+                + "of the first occurrence of each, the indices into them that rebuild a,\n"
+                + "and the number of occurrences of each";
+        this.argNames = new String[] { "a", "return_index", "return_inverse", "return_counts" };
+        this.defaultArgs = new PyObject[] { null, Py.Zero, Py.Zero, Py.Zero };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return SetOps.unique(args[0], args[1].__nonzero__(), args[2].__nonzero__(),
+                args[3].__nonzero__());
+    }
+}
+
+final class VarFunction extends KeywordFunction {
+    private static final long serialVersionUID = -4378790157745226473L;
+
+    VarFunction() {
+        this.docString = "var(a, axis=0, ddof=0)\n"
+                + "axis may be a tuple of axes, or None for all of them; "
+                + "the sum of squared deviations is divided by n - ddof";
+        this.argNames = new String[] { "a", "axis", "ddof" };
+        this.defaultArgs = new PyObject[] { null, Py.Zero, Py.Zero };
+    }
+
+    @Override public PyObject _call(final PyObject args[]) {
+        return Moments.of(args[0], args[1]).var(Py.py2int(args[2]));
+    }
+}
+
 final class WhereFunction extends KeywordFunction {
     private static final long serialVersionUID = 7102514462359313033L;
 
@@ -921,8 +1465,7 @@ final class WhereFunction extends KeywordFunction {
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return PyMultiarray.choose(Umath.not_equal.__call__(args[0], Py.Zero),
-                new PyTuple(args[2], args[1]));
+        return Selection.where(args[0], args[1], args[2]);
     }
 }
 
@@ -949,13 +1492,18 @@ final class SumFunction extends KeywordFunction {
     private static final long serialVersionUID = 1743179887623752980L;
 
     SumFunction() {
-        this.docString = "sum(a, [axis])";
-        this.argNames = new String[] { "a", "axis" };
-        this.defaultArgs = new PyObject[] { null, Py.Zero };
+        this.docString = "sum(a, axis=0, method=None, keepdims=0, out=None)\n"
+                + "axis may be a tuple of axes, or None for all of them; "
+                + "method is 'pairwise' (the default), 'kahan' or 'sequential'; "
+                + "floating point data is summed in double precision "
+                + "unless it is 'sequential'";
+        this.argNames = new String[] { "a", "axis", "method", "keepdims", "out" };
+        this.defaultArgs = new PyObject[] { null, Py.Zero, Py.None, Py.Zero, Py.None };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return Umath.add.reduce(args[0], Py.py2int(args[1]));
+        final int method = Summation.method((args[2] == Py.None) ? null : args[2].toString());
+        return Summation.add(method).reduce(args[0], args[1], args[3].__nonzero__(), args[4]);
     }
 }
 
@@ -977,13 +1525,14 @@ final class ProductFunction extends KeywordFunction {
     private static final long serialVersionUID = -864706255525505341L;
 
     ProductFunction() {
-        this.docString = "product(a, [axis])";
-        this.argNames = new String[] { "a", "axis" };
-        this.defaultArgs = new PyObject[] { null, Py.Zero };
+        this.docString = "product(a, axis=0, keepdims=0, out=None)\n"
+                + "axis may be a tuple of axes, or None for all of them";
+        this.argNames = new String[] { "a", "axis", "keepdims", "out" };
+        this.defaultArgs = new PyObject[] { null, Py.Zero, Py.Zero, Py.None };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return Umath.multiply.reduce(args[0], Py.py2int(args[1]));
+        return Umath.multiply.reduce(args[0], args[1], args[2].__nonzero__(), args[3]);
     }
 }
 
@@ -1005,13 +1554,14 @@ final class AlltrueFunction extends KeywordFunction {
     private static final long serialVersionUID = -3910946436832357924L;
 
     AlltrueFunction() {
-        this.docString = "alltrue(a, [axis])";
-        this.argNames = new String[] { "a", "axis" };
-        this.defaultArgs = new PyObject[] { null, Py.Zero };
+        this.docString = "alltrue(a, axis=0, keepdims=0, out=None)\n"
+                + "axis may be a tuple of axes, or None for all of them";
+        this.argNames = new String[] { "a", "axis", "keepdims", "out" };
+        this.defaultArgs = new PyObject[] { null, Py.Zero, Py.Zero, Py.None };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return Umath.logical_and.reduce(args[0], Py.py2int(args[1]));
+        return Umath.logical_and.reduce(args[0], args[1], args[2].__nonzero__(), args[3]);
     }
 }
 
@@ -1019,12 +1569,13 @@ final class SometrueFunction extends KeywordFunction {
     private static final long serialVersionUID = -5098199415954538663L;
 
     SometrueFunction() {
-        this.docString = "sometrue(a, [axis])";
-        this.argNames = new String[] { "a", "axis" };
-        this.defaultArgs = new PyObject[] { null, Py.Zero };
+        this.docString = "sometrue(a, axis=0, keepdims=0, out=None)\n"
+                + "axis may be a tuple of axes, or None for all of them";
+        this.argNames = new String[] { "a", "axis", "keepdims", "out" };
+        this.defaultArgs = new PyObject[] { null, Py.Zero, Py.Zero, Py.None };
     }
 
     @Override public PyObject _call(final PyObject args[]) {
-        return Umath.logical_or.reduce(args[0], Py.py2int(args[1]));
+        return Umath.logical_or.reduce(args[0], args[1], args[2].__nonzero__(), args[3]);
     }
 }
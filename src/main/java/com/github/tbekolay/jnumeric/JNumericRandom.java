@@ -5,7 +5,7 @@ import org.python.core.PyObject;
 import org.python.core.PyString;
 import org.python.core.PyType;
 
-import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Random;
 
 public class JNumericRandom extends PyObject{
@@ -28,13 +28,79 @@ public class JNumericRandom extends PyObject{
 	public static void classDictInit(final PyObject dict) {
 		dict.__setitem__("__doc__", new PyString("Random related functions"));
 		
+		dict.__setitem__("seed", JNumericRandom.seed);
 		dict.__setitem__("normal", JNumericRandom.normal);
+		dict.__setitem__("uniform", JNumericRandom.uniform);
+		dict.__setitem__("exponential", JNumericRandom.exponential);
+		dict.__setitem__("gamma", JNumericRandom.gamma);
+		dict.__setitem__("beta", JNumericRandom.beta);
+		dict.__setitem__("binomial", JNumericRandom.binomial);
+		dict.__setitem__("poisson", JNumericRandom.poisson);
+		dict.__setitem__("multinomial", JNumericRandom.multinomial);
+		dict.__setitem__("permutation", JNumericRandom.permutation);
+		dict.__setitem__("shuffle", JNumericRandom.shuffle);
+		dict.__setitem__("choice", JNumericRandom.choice);
 	}
 	
 	/**
-	 * normal(loc=0.0, scale=1.0, size=None)
+	 * seed(seed)
+	 */
+	static final public PyObject seed = new SeedFunction();
+
+	/**
+	 * normal(loc=0.0, scale=1.0, size=None, out=None)
 	 */
 	static final public PyObject normal = new NormalFunction();
+
+	/**
+	 * uniform(low=0.0, high=1.0, size=None, out=None)
+	 */
+	static final public PyObject uniform = new UniformFunction();
+
+	/**
+	 * exponential(scale=1.0, size=None, out=None)
+	 */
+	static final public PyObject exponential = new ExponentialFunction();
+
+	/**
+	 * gamma(shape, scale=1.0, size=None, out=None)
+	 */
+	static final public PyObject gamma = new GammaFunction();
+
+	/**
+	 * beta(a, b, size=None, out=None)
+	 */
+	static final public PyObject beta = new BetaFunction();
+
+	/**
+	 * binomial(n, p, size=None, out=None)
+	 */
+	static final public PyObject binomial = new BinomialFunction();
+
+	/**
+	 * poisson(lam=1.0, size=None, out=None)
+	 */
+	static final public PyObject poisson = new PoissonFunction();
+
+	/**
+	 * multinomial(n, pvals, size=None, out=None)
+	 */
+	static final public PyObject multinomial = new MultinomialFunction();
+
+	/**
+	 * permutation(x)
+	 */
+	static final public PyObject permutation = new PermutationFunction();
+
+	/**
+	 * shuffle(x)
+	 */
+	static final public PyObject shuffle = new ShuffleFunction();
+
+	/**
+	 * choice(a, size=None, replace=1, p=None)
+	 */
+	static final public PyObject choice = new ChoiceFunction();
 }
 
 
@@ -42,45 +108,784 @@ public class JNumericRandom extends PyObject{
 final class RandomFunction extends PyObject{
 	private static final long serialVersionUID = 5723343986714030049L;
 
-	static public PyMultiarray Normal(final float loc, final float scale, final Object size) {
-	    int[] shape = PyMultiarray.objectToInts(size, true);
-		int[] samples = {1};
-		
-		for (int i = 0; i < shape.length; i++) {
-			samples[0] *= shape[i];
+	/**
+	 * Generator shared by every sampler, so that seed() makes all of them
+	 * reproducible.
+	 */
+	static final Random rng = new Random();
+
+	/**
+	 * Draws one sample at a time from a fixed distribution.
+	 */
+	static abstract class Sampler {
+		abstract double next();
+	}
+
+	static public void seed(final long seed) {
+		RandomFunction.rng.setSeed(seed);
+	}
+
+	/**
+	 * Returns the array the samples should be written to: <code>out</code> if
+	 * it is given, otherwise a new array of shape <code>size</code> (with
+	 * <code>extra</code> appended when it is not negative).
+	 */
+	static PyMultiarray target(final PyObject size, final PyObject out, final char type, final int extra) {
+		int[] shape = (size == Py.None) ? new int[0] : PyMultiarray.objectToInts(size, true);
+		if (extra >= 0) {
+			shape = Arrays.copyOf(shape, shape.length + 1);
+			shape[shape.length - 1] = extra;
 		}
-		
-		PyMultiarray a = PyMultiarray.zeros(samples, 'd');
-		
-		for (int i = 0; i < samples[0]; i++) {
-			Array.setDouble(a.data, i, RandomFunction.NormalSample(loc, scale));
+		if (out == Py.None) {
+			return PyMultiarray.zeros(shape, type);
 		}
-		
-		a = PyMultiarray.reshape(a, shape);
-		return a;
+		if (!(out instanceof PyMultiarray)) {
+			throw Py.TypeError("out must be an array");
+		}
+		final PyMultiarray r = (PyMultiarray) out;
+		if (size != Py.None && !Arrays.equals(shape, r.dimensions)) {
+			throw Py.ValueError("size and out shapes do not match");
+		}
+		if (extra >= 0 && (r.dimensions.length == 0
+				|| r.dimensions[r.dimensions.length - 1] != extra)) {
+			throw Py.ValueError("last axis of out must match pvals");
+		}
+		return r;
 	}
-	
-	static public double NormalSample(final float loc, final float scale) {
-		Random rng = new Random();
-		return scale * rng.nextGaussian() + loc; 
+
+	/**
+	 * Fills <code>r</code> with samples from <code>s</code>. Contiguous real
+	 * arrays are written in place; anything else goes through a double buffer.
+	 */
+	static void fill(final PyMultiarray r, final Sampler s) {
+		if (r.isContiguous) {
+			final int size = RandomFunction.nItems(r);
+			final int end = r.start + size;
+			switch (r._typecode) {
+			case '1': {
+				final byte[] d = (byte[]) r.data;
+				for (int i = r.start; i < end; i++) d[i] = (byte) s.next();
+				return; }
+			case 's': {
+				final short[] d = (short[]) r.data;
+				for (int i = r.start; i < end; i++) d[i] = (short) s.next();
+				return; }
+			case 'i': {
+				final int[] d = (int[]) r.data;
+				for (int i = r.start; i < end; i++) d[i] = (int) s.next();
+				return; }
+			case 'l': {
+				final long[] d = (long[]) r.data;
+				for (int i = r.start; i < end; i++) d[i] = (long) s.next();
+				return; }
+			case 'f': {
+				final float[] d = (float[]) r.data;
+				for (int i = r.start; i < end; i++) d[i] = (float) s.next();
+				return; }
+			case 'd': {
+				final double[] d = (double[]) r.data;
+				for (int i = r.start; i < end; i++) d[i] = s.next();
+				return; }
+			}
+		}
+		final PyMultiarray buffer = PyMultiarray.zeros(r.dimensions, 'd');
+		RandomFunction.fill(buffer, s);
+		PyMultiarray.copyAToB(buffer, r);
+	}
+
+	static PyObject draw(final Sampler s, final PyObject size, final PyObject out, final char type) {
+		final PyMultiarray r = RandomFunction.target(size, out, type, -1);
+		RandomFunction.fill(r, s);
+		if (size == Py.None && out == Py.None) {
+			return PyMultiarray.returnValue(r);
+		}
+		return r;
+	}
+
+	static int nItems(final PyMultiarray a) {
+		int n = 1;
+		for (int i = 0; i < a.dimensions.length; i++) {
+			n *= a.dimensions[i];
+		}
+		return n;
+	}
+
+	static Sampler normalSampler(final double loc, final double scale) {
+		return new Sampler() {
+			@Override double next() {
+				return scale * RandomFunction.rng.nextGaussian() + loc;
+			}
+		};
+	}
+
+	static Sampler uniformSampler(final double low, final double high) {
+		final double width = high - low;
+		return new Sampler() {
+			@Override double next() {
+				return low + width * RandomFunction.rng.nextDouble();
+			}
+		};
+	}
+
+	static Sampler exponentialSampler(final double scale) {
+		if (scale < 0) {
+			throw Py.ValueError("scale < 0");
+		}
+		return new Sampler() {
+			@Override double next() {
+				return -scale * Math.log(1.0 - RandomFunction.rng.nextDouble());
+			}
+		};
+	}
+
+	static Sampler gammaSampler(final double shape, final double scale) {
+		if (shape <= 0 || scale < 0) {
+			throw Py.ValueError("shape <= 0 or scale < 0");
+		}
+		return new Sampler() {
+			@Override double next() {
+				return scale * RandomFunction.standardGamma(shape);
+			}
+		};
+	}
+
+	static Sampler betaSampler(final double a, final double b) {
+		if (a <= 0 || b <= 0) {
+			throw Py.ValueError("a <= 0 or b <= 0");
+		}
+		return new Sampler() {
+			@Override double next() {
+				final double x = RandomFunction.standardGamma(a);
+				final double y = RandomFunction.standardGamma(b);
+				return x / (x + y);
+			}
+		};
+	}
+
+	static Sampler binomialSampler(final int n, final double p) {
+		if (n < 0 || p < 0 || p > 1 || Double.isNaN(p)) {
+			throw Py.ValueError("n < 0 or p not in [0, 1]");
+		}
+		return new Sampler() {
+			@Override double next() {
+				return RandomFunction.binomialSample(n, p);
+			}
+		};
+	}
+
+	static Sampler poissonSampler(final double lam) {
+		if (lam < 0 || Double.isNaN(lam)) {
+			throw Py.ValueError("lam < 0");
+		}
+		return new Sampler() {
+			@Override double next() {
+				return RandomFunction.poissonSample(lam);
+			}
+		};
+	}
+
+	/**
+	 * Marsaglia and Tsang's method; shapes below one are boosted by one and
+	 * corrected with a uniform power.
+	 */
+	static double standardGamma(final double shape) {
+		if (shape < 1) {
+			final double u = RandomFunction.rng.nextDouble();
+			return RandomFunction.standardGamma(shape + 1) * Math.pow(u, 1.0 / shape);
+		}
+		final double d = shape - 1.0 / 3.0;
+		final double c = 1.0 / Math.sqrt(9.0 * d);
+		while (true) {
+			double x, v;
+			do {
+				x = RandomFunction.rng.nextGaussian();
+				v = 1.0 + c * x;
+			} while (v <= 0);
+			v = v * v * v;
+			final double u = RandomFunction.rng.nextDouble();
+			if (u < 1.0 - 0.0331 * x * x * x * x) {
+				return d * v;
+			}
+			if (Math.log(u) < 0.5 * x * x + d * (1.0 - v + Math.log(v))) {
+				return d * v;
+			}
+		}
+	}
+
+	private static final double[] logFactorials = new double[16];
+	static {
+		for (int i = 1; i < RandomFunction.logFactorials.length; i++) {
+			RandomFunction.logFactorials[i] = RandomFunction.logFactorials[i - 1] + Math.log(i);
+		}
+	}
+
+	/**
+	 * log(k!) from a table for small k and Stirling's series otherwise.
+	 */
+	static double logFactorial(final double k) {
+		if (k < RandomFunction.logFactorials.length) {
+			return RandomFunction.logFactorials[(int) k];
+		}
+		final double k2 = k * k;
+		return (k + 0.5) * Math.log(k) - k + 0.5 * Math.log(2 * Math.PI)
+				+ (1.0 / 12.0 - (1.0 / 360.0 - 1.0 / 1260.0 / k2) / k2) / k;
+	}
+
+	/**
+	 * Inversion for small means and Hormann's BTRS transformed rejection
+	 * otherwise.
+	 */
+	static long binomialSample(final int n, final double p) {
+		if (p > 0.5) {
+			return n - RandomFunction.binomialSample(n, 1.0 - p);
+		}
+		if (n == 0 || p == 0) {
+			return 0;
+		}
+		final double q = 1.0 - p;
+		if (n * p < 10) {
+			final double s = p / q;
+			final double a = (n + 1) * s;
+			double r = Math.pow(q, n);
+			double u = RandomFunction.rng.nextDouble();
+			long x = 0;
+			while (u > r) {
+				u -= r;
+				x++;
+				if (x > n) {
+					// Rounding left some mass over; start again.
+					x = 0;
+					r = Math.pow(q, n);
+					u = RandomFunction.rng.nextDouble();
+					continue;
+				}
+				r *= (a / x - s);
+			}
+			return x;
+		}
+		final double spq = Math.sqrt(n * p * q);
+		final double b = 1.15 + 2.53 * spq;
+		final double a = -0.0873 + 0.0248 * b + 0.01 * p;
+		final double c = n * p + 0.5;
+		final double vr = 0.92 - 4.2 / b;
+		final double alpha = (2.83 + 5.1 / b) * spq;
+		final double lpq = Math.log(p / q);
+		final double m = Math.floor((n + 1) * p);
+		final double h = RandomFunction.logFactorial(m) + RandomFunction.logFactorial(n - m);
+		while (true) {
+			final double u = RandomFunction.rng.nextDouble() - 0.5;
+			double v = RandomFunction.rng.nextDouble();
+			final double us = 0.5 - Math.abs(u);
+			final double k = Math.floor((2 * a / us + b) * u + c);
+			if (k < 0 || k > n) {
+				continue;
+			}
+			if (us >= 0.07 && v <= vr) {
+				return (long) k;
+			}
+			v = Math.log(v * alpha / (a / (us * us) + b));
+			if (v <= h - RandomFunction.logFactorial(k)
+					- RandomFunction.logFactorial(n - k) + (k - m) * lpq) {
+				return (long) k;
+			}
+		}
+	}
+
+	/**
+	 * Multiplication of uniforms for small means and Hormann's PTRS
+	 * transformed rejection otherwise.
+	 */
+	static long poissonSample(final double lam) {
+		if (lam < 10) {
+			final double limit = Math.exp(-lam);
+			double prod = RandomFunction.rng.nextDouble();
+			long k = 0;
+			while (prod > limit) {
+				prod *= RandomFunction.rng.nextDouble();
+				k++;
+			}
+			return k;
+		}
+		final double slam = Math.sqrt(lam);
+		final double loglam = Math.log(lam);
+		final double b = 0.931 + 2.53 * slam;
+		final double a = -0.059 + 0.02483 * b;
+		final double invalpha = 1.1239 + 1.1328 / (b - 3.4);
+		final double vr = 0.9277 - 3.6224 / (b - 2);
+		while (true) {
+			final double u = RandomFunction.rng.nextDouble() - 0.5;
+			final double v = RandomFunction.rng.nextDouble();
+			final double us = 0.5 - Math.abs(u);
+			final double k = Math.floor((2 * a / us + b) * u + lam + 0.43);
+			if (us >= 0.07 && v <= vr) {
+				return (long) k;
+			}
+			if (k < 0 || (us < 0.013 && v > us)) {
+				continue;
+			}
+			if (Math.log(v) + Math.log(invalpha) - Math.log(a / (us * us) + b)
+					<= -lam + k * loglam - RandomFunction.logFactorial(k)) {
+				return (long) k;
+			}
+		}
+	}
+
+	/**
+	 * Each draw is a chain of conditional binomials, written straight into
+	 * the int storage of the result.
+	 */
+	static PyObject Multinomial(final int n, final PyObject pvals, final PyObject size, final PyObject out) {
+		final PyMultiarray pa = PyMultiarray.ascontiguous(pvals, 'd');
+		if (pa.dimensions.length != 1) {
+			throw Py.ValueError("pvals must be 1-d");
+		}
+		final int k = pa.dimensions[0];
+		final double[] p = (double[]) pa.data;
+		if (k == 0) {
+			throw Py.ValueError("pvals must not be empty");
+		}
+		// The last category takes whatever the others leave.
+		double total = 0;
+		for (int j = 0; j < k; j++) {
+			if (p[pa.start + j] < 0) {
+				throw Py.ValueError("pvals < 0");
+			}
+			if (j < k - 1) {
+				total += p[pa.start + j];
+			}
+		}
+		if (total > 1.0 + 1e-12) {
+			throw Py.ValueError("sum(pvals[:-1]) > 1.0");
+		}
+		final PyMultiarray target = RandomFunction.target(size, out, 'i', k);
+		final PyMultiarray r = (target._typecode == 'i' && target.isContiguous)
+				? target : PyMultiarray.zeros(target.dimensions, 'i');
+		final int[] data = (int[]) r.data;
+		final int end = r.start + RandomFunction.nItems(r);
+		for (int i = r.start; i < end; i += k) {
+			int left = n;
+			double mass = 1.0;
+			for (int j = 0; j < k - 1; j++) {
+				final double pj = p[pa.start + j];
+				final int x = (left > 0 && mass > 0)
+						? (int) RandomFunction.binomialSample(left, Math.min(1.0, pj / mass)) : 0;
+				data[i + j] = x;
+				left -= x;
+				mass -= pj;
+			}
+			data[i + k - 1] = left;
+		}
+		if (r != target) {
+			PyMultiarray.copyAToB(r, target);
+		}
+		return target;
+	}
+
+	/**
+	 * Fisher-Yates shuffle of <code>a</code> along its first axis, in place.
+	 */
+	static void Shuffle(final PyMultiarray a) {
+		if (a.dimensions.length == 0) {
+			throw Py.ValueError("cannot shuffle a 0-d array");
+		}
+		final int n = a.dimensions[0];
+		if (a.dimensions.length > 1) {
+			final PyMultiarray shuffled = PyMultiarray.take(a,
+					RandomFunction.Permutation(n), 0);
+			PyMultiarray.copyAToB(shuffled, a);
+			return;
+		}
+		final int s = a.strides[0];
+		final int o = a.start;
+		final Random rng = RandomFunction.rng;
+		switch (a._typecode) {
+		case '1': {
+			final byte[] d = (byte[]) a.data;
+			for (int i = n - 1; i > 0; i--) {
+				final int j = rng.nextInt(i + 1);
+				final byte t = d[o + i * s]; d[o + i * s] = d[o + j * s]; d[o + j * s] = t;
+			}
+			break; }
+		case 's': {
+			final short[] d = (short[]) a.data;
+			for (int i = n - 1; i > 0; i--) {
+				final int j = rng.nextInt(i + 1);
+				final short t = d[o + i * s]; d[o + i * s] = d[o + j * s]; d[o + j * s] = t;
+			}
+			break; }
+		case 'i': {
+			final int[] d = (int[]) a.data;
+			for (int i = n - 1; i > 0; i--) {
+				final int j = rng.nextInt(i + 1);
+				final int t = d[o + i * s]; d[o + i * s] = d[o + j * s]; d[o + j * s] = t;
+			}
+			break; }
+		case 'l': {
+			final long[] d = (long[]) a.data;
+			for (int i = n - 1; i > 0; i--) {
+				final int j = rng.nextInt(i + 1);
+				final long t = d[o + i * s]; d[o + i * s] = d[o + j * s]; d[o + j * s] = t;
+			}
+			break; }
+		case 'f': {
+			final float[] d = (float[]) a.data;
+			for (int i = n - 1; i > 0; i--) {
+				final int j = rng.nextInt(i + 1);
+				final float t = d[o + i * s]; d[o + i * s] = d[o + j * s]; d[o + j * s] = t;
+			}
+			break; }
+		case 'd': {
+			final double[] d = (double[]) a.data;
+			for (int i = n - 1; i > 0; i--) {
+				final int j = rng.nextInt(i + 1);
+				final double t = d[o + i * s]; d[o + i * s] = d[o + j * s]; d[o + j * s] = t;
+			}
+			break; }
+		case 'F': {
+			final float[] d = (float[]) a.data;
+			for (int i = n - 1; i > 0; i--) {
+				final int j = rng.nextInt(i + 1);
+				final int x = o + i * s, y = o + j * s;
+				final float re = d[x], im = d[x + 1];
+				d[x] = d[y]; d[x + 1] = d[y + 1];
+				d[y] = re; d[y + 1] = im;
+			}
+			break; }
+		case 'D': {
+			final double[] d = (double[]) a.data;
+			for (int i = n - 1; i > 0; i--) {
+				final int j = rng.nextInt(i + 1);
+				final int x = o + i * s, y = o + j * s;
+				final double re = d[x], im = d[x + 1];
+				d[x] = d[y]; d[x + 1] = d[y + 1];
+				d[y] = re; d[y + 1] = im;
+			}
+			break; }
+		default: {
+			final Object[] d = (Object[]) a.data;
+			for (int i = n - 1; i > 0; i--) {
+				final int j = rng.nextInt(i + 1);
+				final Object t = d[o + i * s]; d[o + i * s] = d[o + j * s]; d[o + j * s] = t;
+			}
+			break; }
+		}
+	}
+
+	/**
+	 * A random permutation of range(n).
+	 */
+	static PyMultiarray Permutation(final int n) {
+		final int[] data = new int[n];
+		for (int i = 0; i < n; i++) {
+			data[i] = i;
+		}
+		final PyMultiarray result = new PyMultiarray(data, 'i', 0, new int[] { n }, new int[] { 1 });
+		RandomFunction.Shuffle(result);
+		return result;
+	}
+
+	/**
+	 * Draws <code>k</code> indices into a population of <code>n</code>.
+	 * Weighted draws with replacement bisect the cumulative weights; weighted
+	 * draws without replacement keep the <code>k</code> smallest exponential
+	 * keys (Efraimidis and Spirakis).
+	 */
+	static int[] ChoiceIndices(final int n, final int k, final boolean replace, final PyObject p) {
+		final Random rng = RandomFunction.rng;
+		final int[] indices = new int[k];
+		if (n == 0 && k > 0) {
+			throw Py.ValueError("a must be non-empty");
+		}
+		if (!replace && k > n) {
+			throw Py.ValueError("cannot take a larger sample than population when replace=0");
+		}
+		if (p == Py.None) {
+			if (replace) {
+				for (int i = 0; i < k; i++) {
+					indices[i] = rng.nextInt(n);
+				}
+			} else {
+				final int[] pool = new int[n];
+				for (int i = 0; i < n; i++) {
+					pool[i] = i;
+				}
+				for (int i = 0; i < k; i++) {
+					final int j = i + rng.nextInt(n - i);
+					final int t = pool[j]; pool[j] = pool[i]; pool[i] = t;
+					indices[i] = t;
+				}
+			}
+			return indices;
+		}
+		final PyMultiarray pa = PyMultiarray.ascontiguous(p, 'd');
+		if (pa.dimensions.length != 1 || pa.dimensions[0] != n) {
+			throw Py.ValueError("a and p must have the same size");
+		}
+		final double[] w = (double[]) pa.data;
+		if (replace) {
+			final double[] cdf = new double[n];
+			double total = 0;
+			for (int i = 0; i < n; i++) {
+				if (w[pa.start + i] < 0) {
+					throw Py.ValueError("probabilities are not non-negative");
+				}
+				total += w[pa.start + i];
+				cdf[i] = total;
+			}
+			if (!(total > 0)) {
+				throw Py.ValueError("probabilities do not sum to 1");
+			}
+			for (int i = 0; i < k; i++) {
+				final double u = rng.nextDouble() * total;
+				int lo = 0, hi = n - 1;
+				while (lo < hi) {
+					final int mid = (lo + hi) >>> 1;
+					if (cdf[mid] <= u) {
+						lo = mid + 1;
+					} else {
+						hi = mid;
+					}
+				}
+				indices[i] = lo;
+			}
+			return indices;
+		}
+		final double[] keys = new double[n];
+		int nonzero = 0;
+		for (int i = 0; i < n; i++) {
+			final double wi = w[pa.start + i];
+			if (wi < 0) {
+				throw Py.ValueError("probabilities are not non-negative");
+			}
+			if (wi > 0) {
+				nonzero++;
+				keys[i] = -Math.log(1.0 - rng.nextDouble()) / wi;
+			} else {
+				keys[i] = Double.POSITIVE_INFINITY;
+			}
+		}
+		if (nonzero < k) {
+			throw Py.ValueError("fewer non-zero entries in p than size");
+		}
+		final PyMultiarray order = PyMultiarray.argSort(
+				new PyMultiarray(keys, 'd', 0, new int[] { n }, new int[] { 1 }), -1);
+		System.arraycopy(order.data, order.start, indices, 0, k);
+		return indices;
+	}
+
+	static PyObject Choice(final PyObject a, final PyObject size, final boolean replace, final PyObject p) {
+		final PyMultiarray population;
+		final int n;
+		if (PyMultiarray.shapeOf(a).length == 0) {
+			n = Py.py2int(a);
+			population = null;
+		} else {
+			population = PyMultiarray.asarray(a);
+			if (population.dimensions.length != 1) {
+				throw Py.ValueError("a must be 1-dimensional");
+			}
+			n = population.dimensions[0];
+		}
+		final int[] shape = (size == Py.None) ? new int[0] : PyMultiarray.objectToInts(size, true);
+		int k = 1;
+		for (int i = 0; i < shape.length; i++) {
+			k *= shape[i];
+		}
+		final PyMultiarray indices = new PyMultiarray(
+				RandomFunction.ChoiceIndices(n, k, replace, p), 'i', 0,
+				new int[] { k }, new int[] { 1 });
+		final PyMultiarray result = (population == null) ? indices
+				: PyMultiarray.take(population, indices, 0);
+		if (size == Py.None) {
+			return result.__getitem__(0);
+		}
+		return PyMultiarray.reshape(result, shape);
 	}
 }
 
 
 // KEYWORD FUNCTIONS BELOW
+final class SeedFunction extends KeywordFunction {
+	private static final long serialVersionUID = 2307712650317424941L;
+
+	SeedFunction() {
+		this.docString = "seed(seed) reseeds the generator shared by all random functions";
+		this.argNames = new String[] {"seed" };
+		this.defaultArgs = new PyObject[] {null};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		RandomFunction.seed(Py.py2long(args[0]));
+		return Py.None;
+	}
+}
+
 final class NormalFunction extends KeywordFunction {
 	private static final long serialVersionUID = -3862006095793888350L;
 
 	NormalFunction() {
-		this.docString = "normal(loc=0.0, scale=1.0, size=None";
-		this.argNames = new String[] {"loc", "scale", "size" };
-		this.defaultArgs = new PyObject[] {Py.newFloat(0), Py.newFloat(1), Py.None};
+		this.docString = "normal(loc=0.0, scale=1.0, size=None, out=None)";
+		this.argNames = new String[] {"loc", "scale", "size", "out" };
+		this.defaultArgs = new PyObject[] {Py.newFloat(0), Py.newFloat(1), Py.None, Py.None};
 	}
 	
 	@Override public PyObject _call(final PyObject args[]) {
-		if (args[2].equals(Py.None)) 
-			return Py.newFloat(RandomFunction.NormalSample(Py.py2float(args[0]), Py.py2float(args[1])));
-		else 
-			return RandomFunction.Normal(Py.py2float(args[0]), Py.py2float(args[1]), args[2]);
+		return RandomFunction.draw(RandomFunction.normalSampler(Py.py2double(args[0]),
+				Py.py2double(args[1])), args[2], args[3], 'd');
+	}
+}
+
+final class UniformFunction extends KeywordFunction {
+	private static final long serialVersionUID = 6193950728469325317L;
+
+	UniformFunction() {
+		this.docString = "uniform(low=0.0, high=1.0, size=None, out=None)";
+		this.argNames = new String[] {"low", "high", "size", "out" };
+		this.defaultArgs = new PyObject[] {Py.newFloat(0), Py.newFloat(1), Py.None, Py.None};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		return RandomFunction.draw(RandomFunction.uniformSampler(Py.py2double(args[0]),
+				Py.py2double(args[1])), args[2], args[3], 'd');
+	}
+}
+
+final class ExponentialFunction extends KeywordFunction {
+	private static final long serialVersionUID = -5716453019938145563L;
+
+	ExponentialFunction() {
+		this.docString = "exponential(scale=1.0, size=None, out=None)";
+		this.argNames = new String[] {"scale", "size", "out" };
+		this.defaultArgs = new PyObject[] {Py.newFloat(1), Py.None, Py.None};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		return RandomFunction.draw(RandomFunction.exponentialSampler(Py.py2double(args[0])),
+				args[1], args[2], 'd');
+	}
+}
+
+final class GammaFunction extends KeywordFunction {
+	private static final long serialVersionUID = 4477265196573063283L;
+
+	GammaFunction() {
+		this.docString = "gamma(shape, scale=1.0, size=None, out=None)";
+		this.argNames = new String[] {"shape", "scale", "size", "out" };
+		this.defaultArgs = new PyObject[] {null, Py.newFloat(1), Py.None, Py.None};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		return RandomFunction.draw(RandomFunction.gammaSampler(Py.py2double(args[0]),
+				Py.py2double(args[1])), args[2], args[3], 'd');
+	}
+}
+
+final class BetaFunction extends KeywordFunction {
+	private static final long serialVersionUID = -1206410868962618440L;
+
+	BetaFunction() {
+		this.docString = "beta(a, b, size=None, out=None)";
+		this.argNames = new String[] {"a", "b", "size", "out" };
+		this.defaultArgs = new PyObject[] {null, null, Py.None, Py.None};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		return RandomFunction.draw(RandomFunction.betaSampler(Py.py2double(args[0]),
+				Py.py2double(args[1])), args[2], args[3], 'd');
+	}
+}
+
+final class BinomialFunction extends KeywordFunction {
+	private static final long serialVersionUID = 8841652771009457726L;
+
+	BinomialFunction() {
+		this.docString = "binomial(n, p, size=None, out=None)";
+		this.argNames = new String[] {"n", "p", "size", "out" };
+		this.defaultArgs = new PyObject[] {null, null, Py.None, Py.None};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		return RandomFunction.draw(RandomFunction.binomialSampler(Py.py2int(args[0]),
+				Py.py2double(args[1])), args[2], args[3], 'i');
+	}
+}
+
+final class PoissonFunction extends KeywordFunction {
+	private static final long serialVersionUID = -2640981125004388119L;
+
+	PoissonFunction() {
+		this.docString = "poisson(lam=1.0, size=None, out=None)";
+		this.argNames = new String[] {"lam", "size", "out" };
+		this.defaultArgs = new PyObject[] {Py.newFloat(1), Py.None, Py.None};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		return RandomFunction.draw(RandomFunction.poissonSampler(Py.py2double(args[0])),
+				args[1], args[2], 'i');
+	}
+}
+
+final class MultinomialFunction extends KeywordFunction {
+	private static final long serialVersionUID = 3125843094486712045L;
+
+	MultinomialFunction() {
+		this.docString = "multinomial(n, pvals, size=None, out=None)";
+		this.argNames = new String[] {"n", "pvals", "size", "out" };
+		this.defaultArgs = new PyObject[] {null, null, Py.None, Py.None};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		return RandomFunction.Multinomial(Py.py2int(args[0]), args[1], args[2], args[3]);
+	}
+}
+
+final class PermutationFunction extends KeywordFunction {
+	private static final long serialVersionUID = -7437530186300455711L;
+
+	PermutationFunction() {
+		this.docString = "permutation(x) returns a shuffled copy of x, or of arange(x) if x is an int";
+		this.argNames = new String[] {"x" };
+		this.defaultArgs = new PyObject[] {null};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		if (PyMultiarray.shapeOf(args[0]).length == 0) {
+			return RandomFunction.Permutation(Py.py2int(args[0]));
+		}
+		final PyMultiarray a = PyMultiarray.array(args[0]);
+		RandomFunction.Shuffle(a);
+		return a;
+	}
+}
+
+final class ShuffleFunction extends KeywordFunction {
+	private static final long serialVersionUID = 1657227012861795046L;
+
+	ShuffleFunction() {
+		this.docString = "shuffle(x) shuffles the array x in place along its first axis";
+		this.argNames = new String[] {"x" };
+		this.defaultArgs = new PyObject[] {null};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		if (!(args[0] instanceof PyMultiarray)) {
+			throw Py.TypeError("shuffle requires an array");
+		}
+		RandomFunction.Shuffle((PyMultiarray) args[0]);
+		return Py.None;
+	}
+}
+
+final class ChoiceFunction extends KeywordFunction {
+	private static final long serialVersionUID = -4951268331947750836L;
+
+	ChoiceFunction() {
+		this.docString = "choice(a, size=None, replace=1, p=None)";
+		this.argNames = new String[] {"a", "size", "replace", "p" };
+		this.defaultArgs = new PyObject[] {null, Py.None, Py.One, Py.None};
+	}
+
+	@Override public PyObject _call(final PyObject args[]) {
+		return RandomFunction.Choice(args[0], args[1], args[2].__nonzero__(), args[3]);
 	}
 }
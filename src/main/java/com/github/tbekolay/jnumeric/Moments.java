@@ -0,0 +1,476 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import java.util.Arrays;
+
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.core.PyType;
+
+/**
+ * Running count, mean and sum of squared deviations along some axes.
+ *
+ * Data is read once. Blocks of a run are reduced with an exact two-pass
+ * formula over a small double buffer, and blocks (or threads, or pushed
+ * chunks) are merged with the pairwise update of Chan, Golub and LeVeque,
+ * so the result is as stable as Welford's algorithm without a division per
+ * element.
+ *
+ * A Moments object is also a streaming accumulator: <code>push</code>
+ * chunks along its axes and read <code>mean</code>, <code>var</code> and
+ * <code>std</code> at any time. It is not safe to push from several
+ * threads at once.
+ */
+public class Moments extends PyObject {
+
+    private static final long serialVersionUID = -6402158824313829178L;
+
+    /**
+     * Python class of Moments.
+     */
+    public static final PyType MTYPE = PyType.fromClass(Moments.class);
+
+    /**
+     * Elements loaded into the double buffer at a time.
+     */
+    private static final int BLOCK = 256;
+
+    private final PyObject axis;
+    private int[] shape;
+    private long count;
+    private double[] mean, m2;
+
+    /**
+     * Create an empty accumulator that reduces pushed chunks along
+     * <code>axis</code> (an int, a sequence of ints, or None for all).
+     * @param axis Axes to accumulate over
+     */
+    public Moments(final PyObject axis) {
+        super(Moments.MTYPE);
+        this.javaProxy = this;
+        this.axis = axis;
+    }
+
+    private Moments(final int[] shape, final long count, final double[] mean, final double[] m2) {
+        this(Py.None);
+        this.shape = shape;
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    /**
+     * Accumulate the elements of a chunk.
+     * @param chunk Array-like; all chunks must agree on the kept axes
+     * @return this accumulator
+     */
+    public Moments push(final PyObject chunk) {
+        this.merge(Moments.of(chunk, this.axis));
+        return this;
+    }
+
+    /**
+     * Merge the moments of another accumulator into this one.
+     * @param other Moments over the same kept shape
+     * @return this accumulator
+     */
+    public Moments merge(final Moments other) {
+        if (other.count == 0) { return this; }
+        if (this.count == 0) {
+            this.shape = other.shape.clone();
+            this.count = other.count;
+            this.mean = other.mean.clone();
+            this.m2 = other.m2.clone();
+            return this;
+        }
+        if (!Arrays.equals(this.shape, other.shape)) { throw Py
+                .ValueError("moments have different shapes"); }
+        Moments.merge(this.count, this.mean, this.m2, 0, other.count, other.mean, other.m2, 0,
+                this.mean.length);
+        this.count += other.count;
+        return this;
+    }
+
+    /**
+     * @return Number of elements accumulated for each result
+     */
+    public long count() {
+        return this.count;
+    }
+
+    /**
+     * @return The mean of the accumulated elements
+     */
+    public PyObject mean() {
+        this.check();
+        return this.result(this.mean, 1.0, false);
+    }
+
+    /**
+     * @param ddof Delta degrees of freedom; the divisor is count - ddof
+     * @return The variance of the accumulated elements
+     */
+    public PyObject var(final int ddof) {
+        this.check();
+        return this.result(this.m2, this.scale(ddof), false);
+    }
+
+    /**
+     * @return The population variance of the accumulated elements
+     */
+    public PyObject var() {
+        return this.var(0);
+    }
+
+    /**
+     * @param ddof Delta degrees of freedom; the divisor is count - ddof
+     * @return The standard deviation of the accumulated elements
+     */
+    public PyObject std(final int ddof) {
+        this.check();
+        return this.result(this.m2, this.scale(ddof), true);
+    }
+
+    /**
+     * @return The population standard deviation of the accumulated elements
+     */
+    public PyObject std() {
+        return this.std(0);
+    }
+
+    @Override public String toString() {
+        return "<moments of " + this.count + " elements>";
+    }
+
+    /**
+     * 1 / (count - ddof), where a divisor of zero or less counts as zero:
+     * the result is then infinite, or NaN for no spread, as in numpy.
+     */
+    private double scale(final int ddof) {
+        return 1.0 / Math.max(this.count - ddof, 0);
+    }
+
+    private void check() {
+        if (this.count == 0) { throw Py.ValueError("no elements have been accumulated"); }
+    }
+
+    private PyObject result(final double[] values, final double scale, final boolean sqrt) {
+        final PyMultiarray r = PyMultiarray.zeros(this.shape, 'd');
+        final double[] rd = (double[]) r.data;
+        for (int i = 0; i < rd.length; i++) {
+            rd[i] = sqrt ? Math.sqrt(values[i] * scale) : values[i] * scale;
+        }
+        return PyMultiarray.returnValue(r);
+    }
+
+    /**
+     * The moments of <code>o</code> along <code>axis</code>.
+     */
+    static Moments of(final PyObject o, final PyObject axis) {
+        PyMultiarray a = PyMultiarray.asarray(o);
+        if (a._typecode == 'F' || a._typecode == 'D') { throw Py
+                .ValueError("moments of complex arrays are not supported"); }
+        final boolean[] reduced = BinaryUfunc.axes(axis, a.dimensions.length);
+        final int nd = a.dimensions.length;
+        int[] kd = new int[nd], ks = new int[nd], rd = new int[nd], rs = new int[nd];
+        int nk = 0, nr = 0;
+        for (int i = 0; i < nd; i++) {
+            if (reduced[i]) {
+                rd[nr] = a.dimensions[i];
+                rs[nr++] = a.strides[i];
+            } else {
+                kd[nk] = a.dimensions[i];
+                ks[nk++] = a.strides[i];
+            }
+        }
+        final int[] shape = Arrays.copyOf(kd, nk);
+        final int[][] kept = Reduction.coalesce(kd, ks, nk), over = Reduction.coalesce(rd, rs, nr);
+        kd = kept[0];
+        ks = kept[1];
+        rd = over[0];
+        rs = over[1];
+        int m = 1, n = 1;
+        for (final int d : kd) {
+            m *= d;
+        }
+        for (final int d : rd) {
+            n *= d;
+        }
+        final double[] mean = new double[m], m2 = new double[m];
+        if (n == 0 || m == 0) { return new Moments(shape, (m == 0) ? n : 0, mean, m2); }
+        int minStride = Integer.MAX_VALUE;
+        for (final int s : rs) {
+            minStride = Math.min(minStride, Math.abs(s));
+        }
+        if (kd.length > 0 && kd[kd.length - 1] >= 8 && Math.abs(ks[ks.length - 1]) < minStride) {
+            Moments.vector(a.data, a._typecode, a.start, kd, ks, rd, rs, m, n, mean, m2);
+        } else {
+            if (rd.length > 1) {
+                // The reduced axes are not one run; copy them innermost.
+                final int[] perms = new int[nd];
+                int p = 0;
+                for (int i = 0; i < nd; i++) {
+                    if (!reduced[i]) {
+                        perms[p++] = i;
+                    }
+                }
+                for (int i = 0; i < nd; i++) {
+                    if (reduced[i]) {
+                        perms[p++] = i;
+                    }
+                }
+                a = PyMultiarray.ascontiguous(PyMultiarray.transpose(a, perms));
+                kd = new int[] { m };
+                ks = new int[] { n };
+                rd = new int[] { n };
+                rs = new int[] { 1 };
+            }
+            Moments.scalar(a.data, a._typecode, a.start, kd, ks, n, (rs.length == 0) ? 1 : rs[0], m, mean,
+                    m2);
+        }
+        return new Moments(shape, n, mean, m2);
+    }
+
+    /**
+     * Moments of one run per result element.
+     */
+    private static void scalar(final Object data, final char type, final int start, final int[] kd,
+            final int[] ks, final int n, final int s, final int m, final double[] mean, final double[] m2) {
+        if (m >= Parallel.parallelism() || !Parallel.worthwhile(n)) {
+            Parallel.forRange(type, m, (long) m * n, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    final double[] buf = new double[Moments.BLOCK];
+                    final Reduction.Walk w = new Reduction.Walk(kd, ks, start, lo);
+                    for (int q = lo; q < hi; q++, w.next()) {
+                        Moments.run(data, type, w.offset, s, n, buf, mean, m2, q);
+                    }
+                }
+            });
+            return;
+        }
+        // Few long runs: split each across threads and merge the pieces.
+        final int par = Parallel.parallelism();
+        final int size = Math.max(Moments.BLOCK, (n + 4 * par - 1) / (4 * par));
+        final int chunks = (n + size - 1) / size;
+        final double[] cMean = new double[chunks], cM2 = new double[chunks];
+        final Reduction.Walk w = new Reduction.Walk(kd, ks, start, 0);
+        for (int q = 0; q < m; q++, w.next()) {
+            final int offset = w.offset;
+            Parallel.forRange(type, chunks, n, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    final double[] buf = new double[Moments.BLOCK];
+                    for (int c = lo; c < hi; c++) {
+                        Moments.run(data, type, offset + c * size * s, s, Math.min(size, n - c * size), buf,
+                                cMean, cM2, c);
+                    }
+                }
+            });
+            long count = 0;
+            for (int c = 0; c < chunks; c++) {
+                final int len = Math.min(size, n - c * size);
+                Moments.merge(count, mean, m2, q, len, cMean, cM2, c, 1);
+                count += len;
+            }
+        }
+    }
+
+    /**
+     * Mean and squared deviations of <code>n</code> elements into
+     * <code>mean[q]</code> and <code>m2[q]</code>.
+     */
+    private static void run(final Object data, final char type, final int offset, final int s, final int n,
+            final double[] buf, final double[] mean, final double[] m2, final int q) {
+        long count = 0;
+        mean[q] = 0;
+        m2[q] = 0;
+        for (int i = 0; i < n; i += Moments.BLOCK) {
+            final int len = Math.min(Moments.BLOCK, n - i);
+            Moments.load(data, type, offset + i * s, s, len, buf);
+            double sum = 0;
+            for (int j = 0; j < len; j++) {
+                sum += buf[j];
+            }
+            final double bMean = sum / len;
+            double bM2 = 0;
+            for (int j = 0; j < len; j++) {
+                final double d = buf[j] - bMean;
+                bM2 += d * d;
+            }
+            if (count == 0) {
+                mean[q] = bMean;
+                m2[q] = bM2;
+            } else {
+                final double delta = bMean - mean[q], total = count + len;
+                mean[q] += delta * len / total;
+                m2[q] += bM2 + delta * delta * count * len / total;
+            }
+            count += len;
+        }
+    }
+
+    /**
+     * Moments of whole rows of the innermost kept axis at a time.
+     */
+    private static void vector(final Object data, final char type, final int start, final int[] kd,
+            final int[] ks, final int[] rd, final int[] rs, final int m, final int n, final double[] mean,
+            final double[] m2) {
+        final int inner = kd[kd.length - 1], sIn = ks[ks.length - 1], outer = m / inner;
+        final int[] od = Arrays.copyOf(kd, kd.length - 1), os = Arrays.copyOf(ks, ks.length - 1);
+        final int par = Parallel.parallelism();
+        final long cost = (long) m * n;
+        if (outer >= par || !Parallel.worthwhile(cost)) {
+            Parallel.forRange(type, outer, cost, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    final Reduction.Walk w = new Reduction.Walk(od, os, start, lo);
+                    for (int o = lo; o < hi; o++, w.next()) {
+                        Moments.rows(data, type, w.offset, sIn, inner, rd, rs, 0, n, mean, m2, o * inner);
+                    }
+                }
+            });
+            return;
+        }
+        final Reduction.Walk w = new Reduction.Walk(od, os, start, 0);
+        for (int o = 0; o < outer; o++, w.next()) {
+            final int base = w.offset, at = o * inner;
+            if (inner >= 256 * par) {
+                final int width = (inner + 4 * par - 1) / (4 * par), bands = (inner + width - 1) / width;
+                Parallel.forRange(type, bands, cost / outer, new Parallel.Range() {
+                    @Override void run(final int lo, final int hi) {
+                        for (int b = lo; b < hi; b++) {
+                            final int c0 = b * width;
+                            Moments.rows(data, type, base + c0 * sIn, sIn, Math.min(width, inner - c0), rd, rs,
+                                    0, n, mean, m2, at + c0);
+                        }
+                    }
+                });
+            } else {
+                final int size = Math.max(Moments.BLOCK, (n + 4 * par - 1) / (4 * par));
+                final int chunks = (n + size - 1) / size;
+                final double[] cMean = new double[chunks * inner], cM2 = new double[chunks * inner];
+                Parallel.forRange(type, chunks, cost / outer, new Parallel.Range() {
+                    @Override void run(final int lo, final int hi) {
+                        for (int c = lo; c < hi; c++) {
+                            Moments.rows(data, type, base, sIn, inner, rd, rs, c * size, Math.min(n, (c + 1)
+                                    * size), cMean, cM2, c * inner);
+                        }
+                    }
+                });
+                long count = 0;
+                for (int c = 0; c < chunks; c++) {
+                    final int len = Math.min(size, n - c * size);
+                    Moments.merge(count, mean, m2, at, len, cMean, cM2, c * inner, inner);
+                    count += len;
+                }
+            }
+        }
+    }
+
+    /**
+     * Welford's update over rows <code>[lo, hi)</code>, each
+     * <code>width</code> elements of stride <code>sIn</code>, into
+     * <code>mean</code> and <code>m2</code> from <code>at</code>.
+     */
+    private static void rows(final Object data, final char type, final int base, final int sIn,
+            final int width, final int[] rd, final int[] rs, final int lo, final int hi, final double[] mean,
+            final double[] m2, final int at) {
+        final double[] buf = new double[width];
+        Arrays.fill(mean, at, at + width, 0);
+        Arrays.fill(m2, at, at + width, 0);
+        final Reduction.Walk w = new Reduction.Walk(rd, rs, base, lo);
+        for (int row = lo; row < hi; row++, w.next()) {
+            Moments.load(data, type, w.offset, sIn, width, buf);
+            final double inv = 1.0 / (row - lo + 1);
+            for (int i = 0, j = at; i < width; i++, j++) {
+                final double x = buf[i], d = x - mean[j];
+                mean[j] += d * inv;
+                m2[j] += d * (x - mean[j]);
+            }
+        }
+    }
+
+    /**
+     * Merge <code>nb</code>-element moments <code>(bMean, bM2)</code> from
+     * <code>bAt</code> into <code>na</code>-element moments from
+     * <code>aAt</code>, for <code>width</code> results.
+     */
+    private static void merge(final long na, final double[] aMean, final double[] aM2, final int aAt,
+            final long nb, final double[] bMean, final double[] bM2, final int bAt, final int width) {
+        if (na == 0) {
+            System.arraycopy(bMean, bAt, aMean, aAt, width);
+            System.arraycopy(bM2, bAt, aM2, aAt, width);
+            return;
+        }
+        final double n = na + nb, fa = (double) na * nb / n, fb = nb / n;
+        for (int i = 0; i < width; i++) {
+            final double delta = bMean[bAt + i] - aMean[aAt + i];
+            aMean[aAt + i] += delta * fb;
+            aM2[aAt + i] += bM2[bAt + i] + delta * delta * fa;
+        }
+    }
+
+    /**
+     * Read <code>n</code> elements, <code>s</code> apart, as doubles.
+     */
+    static void load(final Object data, final char type, int offset, final int s, final int n,
+            final double[] buf) {
+        switch (type) {
+        case '1':
+            final byte[] data1 = (byte[]) data;
+            for (int i = 0; i < n; i++, offset += s) {
+                buf[i] = data1[offset];
+            }
+            break;
+        case 's':
+            final short[] datas = (short[]) data;
+            for (int i = 0; i < n; i++, offset += s) {
+                buf[i] = datas[offset];
+            }
+            break;
+        case 'i':
+            final int[] datai = (int[]) data;
+            for (int i = 0; i < n; i++, offset += s) {
+                buf[i] = datai[offset];
+            }
+            break;
+        case 'l':
+            final long[] datal = (long[]) data;
+            for (int i = 0; i < n; i++, offset += s) {
+                buf[i] = datal[offset];
+            }
+            break;
+        case 'f':
+            final float[] dataf = (float[]) data;
+            for (int i = 0; i < n; i++, offset += s) {
+                buf[i] = dataf[offset];
+            }
+            break;
+        case 'd':
+            if (s == 1) {
+                System.arraycopy(data, offset, buf, 0, n);
+                break;
+            }
+            final double[] datad = (double[]) data;
+            for (int i = 0; i < n; i++, offset += s) {
+                buf[i] = datad[offset];
+            }
+            break;
+        case 'O':
+            final PyObject[] dataO = (PyObject[]) data;
+            for (int i = 0; i < n; i++, offset += s) {
+                buf[i] = Py.py2double(dataO[offset]);
+            }
+            break;
+        default:
+            throw Py.ValueError("typecode must be in [1silfdO]");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits loops over independent ranges across the common fork/join pool.
+ *
+ * Work smaller than <code>threshold</code> elements, or any work when the
+ * pool has a single thread, runs on the calling thread.
+ */
+final class Parallel {
+
+    /**
+     * Minimum number of elements before work is split across threads.
+     */
+    static int threshold = 1 << 16;
+
+    private Parallel() {}
+
+    /**
+     * The body of a loop over <code>[lo, hi)</code>.
+     */
+    static abstract class Range {
+        abstract void run(int lo, int hi);
+    }
+
+    /**
+     * Number of threads work may be split across.
+     */
+    static int parallelism() {
+        return ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    /**
+     * True if <code>nElements</code> of work is worth splitting.
+     */
+    static boolean worthwhile(final long nElements) {
+        return nElements >= Parallel.threshold && Parallel.parallelism() > 1;
+    }
+
+    /**
+     * Run <code>body</code> over <code>[0, n)</code>, split into pieces of
+     * at least <code>grain</code> indices. <code>cost</code> is the total
+     * number of elements touched, which decides whether to split at all.
+     */
+    static void forRange(final int n, final long cost, final Range body) {
+        if (n <= 1 || !Parallel.worthwhile(cost)) {
+            body.run(0, n);
+            return;
+        }
+        final int grain = Math.max(1, n / (4 * Parallel.parallelism()));
+        final RangeTask task = new RangeTask(body, 0, n, grain, new RuntimeException[1]);
+        ForkJoinPool.commonPool().invoke(task);
+        task.rethrow();
+    }
+
+    /**
+     * Like forRange, for work on the elements of an array of type. Object
+     * arrays always run on the calling thread: Jython has no global lock,
+     * so Python methods of their elements must not run concurrently.
+     */
+    static void forRange(final char type, final int n, final long cost, final Range body) {
+        if (type == 'O') {
+            body.run(0, n);
+            return;
+        }
+        Parallel.forRange(n, cost, body);
+    }
+
+    /**
+     * Splits a range in halves until it is no larger than the grain.
+     * Exceptions are handed back to the calling thread unchanged (the pool
+     * would otherwise wrap Python exceptions).
+     */
+    static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = -2817408253153612284L;
+
+        private final Range body;
+        private final int lo, hi, grain;
+        private final RuntimeException[] failure;
+
+        RangeTask(final Range body, final int lo, final int hi, final int grain, final RuntimeException[] failure) {
+            this.body = body;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+            this.failure = failure;
+        }
+
+        @Override protected void compute() {
+            if (this.hi - this.lo <= this.grain) {
+                try {
+                    this.body.run(this.lo, this.hi);
+                } catch (final RuntimeException e) {
+                    synchronized (this.failure) {
+                        if (this.failure[0] == null) {
+                            this.failure[0] = e;
+                        }
+                    }
+                }
+                return;
+            }
+            final int mid = (this.lo + this.hi) >>> 1;
+            ForkJoinTask.invokeAll(
+                    new RangeTask(this.body, this.lo, mid, this.grain, this.failure),
+                    new RangeTask(this.body, mid, this.hi, this.grain, this.failure));
+        }
+
+        void rethrow() {
+            if (this.failure[0] != null) {
+                throw this.failure[0];
+            }
+        }
+    }
+}
@@ -10,9 +10,11 @@
 
 package com.github.tbekolay.jnumeric;
 
-import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Array;
-import java.util.Comparator;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import org.python.core.Py;
 import org.python.core.PyArray;
@@ -23,6 +25,7 @@ import org.python.core.PyFloat;
 import org.python.core.PyIgnoreMethodTag;
 import org.python.core.PyInteger;
 import org.python.core.PyList;
+import org.python.core.PyLong;
 import org.python.core.PyNone;
 import org.python.core.PyObject;
 import org.python.core.PySequence;
@@ -87,6 +90,7 @@ public class PyMultiarray extends PySequence {
             "	typecode()\n" +
             "	iscontiguous()\n" +
             "	tostring()\n" +
+            "	tobytes(byteorder='big')\n" +
             "	tolist()\n";
     
     /**
@@ -117,6 +121,15 @@ public class PyMultiarray extends PySequence {
     // so we keep track of that here.
     boolean isContiguous;
 
+    // Set on temporaries that nothing else refers to, so that a ufunc may
+    // compute its result into them rather than into a new array.
+    boolean overwritable;
+
+    // Set on the new arrays made by comparisons and logical operations, so
+    // that indexing with them selects the true elements rather than the
+    // positions 0 and 1. Views and copies of them are plain int arrays.
+    boolean isMask;
+
     /**
      * Create a multiarray object given values of instance variables.
      * 
@@ -293,12 +306,16 @@ public class PyMultiarray extends PySequence {
     public static PyMultiarray array(final PyObject seq, final char typecode) {
         if (seq instanceof PyMultiarray) {
             final PyMultiarray a = (PyMultiarray) seq;
-            final PyMultiarray b = PyMultiarray.zeros(
+            final PyMultiarray b = PyMultiarray.empty(
                     a.dimensions,
                     (typecode == '\0') ? a._typecode : typecode);
             PyMultiarray.copyAToB(a, b);
             return b;
         }
+        if (seq instanceof PyInteger || seq instanceof PyFloat || seq instanceof PyComplex) {
+            final PyMultiarray a = PyMultiarray.scalar(seq, typecode);
+            if (a != null) { return a; }
+        }
         if (seq instanceof PyArray) {
             final PyArray copyOfSeq = (PyArray) seq.__getslice__(
                     Py.None,
@@ -309,6 +326,28 @@ public class PyMultiarray extends PySequence {
         return PyMultiarray.seqToMultiarray(seq, typecode);
     }
 
+    /**
+     * A 0-d array holding the number o, made without going through the
+     * general sequence conversion, or null if o only converts to typecode
+     * (or fails to) that way.
+     */
+    private static PyMultiarray scalar(final PyObject o, final char typecode) {
+        final PyMultiarray a;
+        if (o instanceof PyInteger) {
+            a = new PyMultiarray(new int[] { ((PyInteger) o).getValue() }, 'i', 0, new int[0], new int[0]);
+        } else if (o instanceof PyFloat) {
+            a = new PyMultiarray(new double[] { ((PyFloat) o).getValue() }, 'd', 0, new int[0], new int[0]);
+        } else {
+            final PyComplex z = (PyComplex) o;
+            a = new PyMultiarray(new double[] { z.real, z.imag }, 'D', 0, new int[0], new int[0]);
+        }
+        if (typecode == '\0' || typecode == a._typecode) { return a; }
+        if (typecode == 'O' || (a._typecode != 'i' && "1sil".indexOf(typecode) >= 0)) { return null; }
+        final PyMultiarray b = PyMultiarray.zeros(new int[0], typecode);
+        Broadcast.copy(a.data, a._typecode, 0, 1, b.data, typecode, 0, 1, 1);
+        return b;
+    }
+
     /**
      * Create a new multiarray from <code>seq</code>. The type is determined by
      * examining <code>seq</code>.
@@ -330,15 +369,27 @@ public class PyMultiarray extends PySequence {
     public static PyMultiarray zeros(final int[] shape, final char typecode) {
         // int length = Math.max(1,
         // typeToNElements(typecode)*shapeToNItems(shape));
+        return PyMultiarray.allocate(shape, typecode, true);
+    }
+
+    /**
+     * Create a new multiarray with shape <code>shape</code> of type
+     * <code>typecode</code> whose every element is about to be written, so
+     * that pooled data need not be cleared first.
+     */
+    static PyMultiarray empty(final int[] shape, final char typecode) {
+        return PyMultiarray.allocate(shape, typecode, false);
+    }
+
+    private static PyMultiarray allocate(final int[] shape, final char typecode, final boolean zero) {
         final int length = PyMultiarray.typeToNElements(typecode)
                 * PyMultiarray.shapeToNItems(shape);
-        final Object data = Array.newInstance(
-                PyMultiarray.typeToClass(typecode),
-                length);
+        final Object data;
         if (typecode == 'O') {
-            for (int i = 0; i < Array.getLength(data); i++) {
-                Array.set(data, i, Py.Zero);
-            }
+            data = new PyObject[length];
+            Arrays.fill((PyObject[]) data, Py.Zero);
+        } else {
+            data = BufferPool.take(typecode, length, zero);
         }
         final int[] strides = PyMultiarray.shapeToStrides(
                 shape,
@@ -484,29 +535,67 @@ public class PyMultiarray extends PySequence {
     }
 
     /**
-     * Create a 1D array from a string.
-     * @see #toString() 
+     * Create a 1D array from a string of big-endian bytes.
+     * @see #tostring() 
      * @param s String from which to create the array
      * @param type Datatype of the array
      * @return The new multiarray
      */
     public static PyMultiarray fromString(final String s, final char type) {
+        return PyMultiarray.frombuffer(s.getBytes(StandardCharsets.ISO_8859_1), type);
+    }
+
+    /**
+     * Create a 1D array from big-endian bytes.
+     * @see #tobytes() 
+     * @param bytes Bytes from which to create the array
+     * @param type Datatype of the array
+     * @return The new multiarray
+     */
+    public static PyMultiarray frombuffer(final byte[] bytes, final char type) {
+        return PyMultiarray.frombuffer(bytes, type, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Create a 1D array from bytes in the given byte order.
+     * @param bytes Bytes from which to create the array
+     * @param type Datatype of the array
+     * @param order Byte order of the bytes
+     * @return The new multiarray
+     */
+    public static PyMultiarray frombuffer(final byte[] bytes, final char type, final ByteOrder order) {
+        return PyMultiarray.frombuffer(ByteBuffer.wrap(bytes).order(order), type);
+    }
+
+    /**
+     * Create a 1D array from the remaining bytes of a buffer, in the
+     * buffer's byte order. The buffer's position is left unchanged.
+     * @param buffer Buffer from which to create the array
+     * @param type Datatype of the array
+     * @return The new multiarray
+     */
+    public static PyMultiarray frombuffer(final ByteBuffer buffer, final char type) {
         final int itemsize = PyMultiarray.typeToNBytes(type)
                 * PyMultiarray.typeToNElements(type);
-        if (s.length() % itemsize != 0) { throw Py
+        if (itemsize == 0) { throw Py.ValueError("typecode must be in [1silfFdD]"); }
+        if (buffer.remaining() % itemsize != 0) { throw Py
                 .ValueError("string size must be a multiple of element size"); }
-        Object data;
-        try {
-            data = PyMultiarray.fromByteArray(s.getBytes("ISO-8859-1"), type);
-        } catch (final UnsupportedEncodingException e) {
-            throw Py.RuntimeError("ISO-LATIN-1 encoding unavailable, can't convert from string.");
-        }
+        final Object data = PyMultiarray.fromByteBuffer(buffer, type);
         return new PyMultiarray(data, type, 0,
-                new int[] { Array.getLength(data)
-                        / PyMultiarray.typeToNElements(type) },
+                new int[] { buffer.remaining() / itemsize },
                 new int[] { PyMultiarray.typeToNElements(type) });
     }
 
+    /**
+     * Parse the name of a byte order: 'big', 'little' or 'native'.
+     */
+    static ByteOrder byteOrder(final String name) {
+        if (name.equals("big")) { return ByteOrder.BIG_ENDIAN; }
+        if (name.equals("little")) { return ByteOrder.LITTLE_ENDIAN; }
+        if (name.equals("native")) { return ByteOrder.nativeOrder(); }
+        throw Py.ValueError("byteorder must be 'big', 'little' or 'native'");
+    }
+
     /**
      * Return <code>seq</code> if it's a multiarray of type
      * <code>typecode</code>, otherwise returns a new multiarray.
@@ -605,17 +694,55 @@ public class PyMultiarray extends PySequence {
     }
 
     /**
-     * Return multiarray data represented as a string.
+     * Return multiarray data represented as a string of big-endian bytes.
      * @return The string representation
      */
     public String tostring() {
-        try {
-            return new String(PyMultiarray.toByteArray(
-                    PyMultiarray.array(this).data,
-                    this._typecode), "ISO-8859-1");
-        } catch (final UnsupportedEncodingException e) {
-            throw Py.RuntimeError("ISO-LATIN-1 encoding unavailable, can't convert to string.");
-        }
+        return new String(this.tobytes(), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Return multiarray data as big-endian bytes.
+     * @return The bytes of the data
+     */
+    public byte[] tobytes() {
+        return this.tobytes(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Return multiarray data as bytes in the named byte order.
+     * @param byteorder 'big', 'little' or 'native'
+     * @return The bytes of the data
+     */
+    public byte[] tobytes(final String byteorder) {
+        return this.tobytes(PyMultiarray.byteOrder(byteorder));
+    }
+
+    /**
+     * Return multiarray data as bytes in the given byte order.
+     * @param order Byte order of the bytes
+     * @return The bytes of the data
+     */
+    public byte[] tobytes(final ByteOrder order) {
+        final byte[] bytes = new byte[this.itemsize() * PyMultiarray.shapeToNItems(this.dimensions)];
+        this.tobytes(ByteBuffer.wrap(bytes).order(order));
+        return bytes;
+    }
+
+    /**
+     * Write multiarray data into a buffer, in the buffer's byte order,
+     * starting at and advancing its position.
+     * @param buffer Buffer to write into
+     * @return The buffer
+     */
+    public ByteBuffer tobytes(final ByteBuffer buffer) {
+        final int n = PyMultiarray.shapeToNItems(this.dimensions);
+        if (this.itemsize() == 0) { throw Py.ValueError("typecode must be in [1silfFdD]"); }
+        if (buffer.remaining() < this.itemsize() * n) { throw Py.ValueError("buffer too small for array"); }
+        final PyMultiarray a = this.isContiguous ? this : PyMultiarray.array(this);
+        PyMultiarray.toByteBuffer(a.data, a.start, n * PyMultiarray.typeToNElements(this._typecode),
+                this._typecode, buffer);
+        return buffer;
     }
 
     /**
@@ -623,22 +750,11 @@ public class PyMultiarray extends PySequence {
      * @return The byte swapped multiarray
      */
     public final PyMultiarray byteswapped() {
-        // This assumes typesize is even or 1 (it better be!).
         final PyMultiarray result = PyMultiarray.array(this);
-        final byte[] bytes = PyMultiarray.toByteArray(
-                result.data,
+        // Written little-endian and read back big-endian.
+        result.data = PyMultiarray.fromByteBuffer(
+                ByteBuffer.wrap(result.tobytes(ByteOrder.LITTLE_ENDIAN)),
                 this._typecode);
-        final int typesize = PyMultiarray.typeToNBytes(this._typecode);
-        final int swaps = typesize / 2;
-        for (int i = 0; i < Array.getLength(result.data); i++) {
-            for (int j = 0; j < swaps; j++) {
-                final byte temp = bytes[i * typesize + j];
-                bytes[i * typesize + j] = bytes[i * typesize
-                        + (typesize - 1 - j)];
-                bytes[i * typesize + (typesize - 1 - j)] = temp;
-            }
-        }
-        result.data = PyMultiarray.fromByteArray(bytes, this._typecode);
         return result;
     }
 
@@ -726,34 +842,41 @@ public class PyMultiarray extends PySequence {
      * @return A new, sorted array
      */
     public static PyMultiarray sort(final PyObject o, final int axis) {
+        return PyMultiarray.sort(o, axis, null);
+    }
+
+    /**
+     * Return a new, sorted array. Many rows are sorted in parallel; a few
+     * large rows are each sorted with a parallel merge sort.
+     * @param o Array to be sorted
+     * @param axis Axis over which to sort
+     * @param kind 'quicksort', 'mergesort', 'radix', or null to choose
+     *  from the type and size of the array
+     * @return A new, sorted array
+     */
+    public static PyMultiarray sort(final PyObject o, final int axis, final String kind) {
         final PyMultiarray a = PyMultiarray.array(PyMultiarray.swapAxes(
                 PyMultiarray.asarray(o),
                 axis,
                 -1));
-        final int stride = a.dimensions[a.dimensions.length - 1];
-        for (int i = 0; i < Array.getLength(a.data); i += stride) {
-            switch (a._typecode) {
-            case '1':
-                java.util.Arrays.sort((byte[]) a.data, i, i + stride);
-                break;
-            case 's':
-                java.util.Arrays.sort((short[]) a.data, i, i + stride);
-                break;
-            case 'i':
-                java.util.Arrays.sort((int[]) a.data, i, i + stride);
-                break;
-            case 'l':
-                java.util.Arrays.sort((long[]) a.data, i, i + stride);
-                break;
-            case 'f':
-                java.util.Arrays.sort((float[]) a.data, i, i + stride);
-                break;
-            case 'd':
-                java.util.Arrays.sort((double[]) a.data, i, i + stride);
-                break;
-            default:
-                throw Py.ValueError("unsortable array type");
-            }
+        if (a.dimensions.length == 0) { return a; }
+        final int n = a.dimensions[a.dimensions.length - 1];
+        final int nRows = (n == 0) ? 0 : PyMultiarray.shapeToNItems(a.dimensions) / n;
+        if (nRows == 0) { return PyMultiarray.swapAxes(a, axis, -1); }
+        final int sortKind = Sorting.resolve(Sorting.kind(kind), a._typecode, n, false);
+        if (sortKind != Sorting.RADIXSORT && nRows < Parallel.parallelism()
+                && Parallel.worthwhile(n)) {
+            for (int i = 0; i < nRows; i++) {
+                Sorting.sortRow(a.data, a._typecode, i * n, (i + 1) * n, sortKind, true);
+            }
+        } else {
+            Parallel.forRange(nRows, (long) nRows * n, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    for (int i = lo; i < hi; i++) {
+                        Sorting.sortRow(a.data, a._typecode, i * n, (i + 1) * n, sortKind, false);
+                    }
+                }
+            });
         }
         return PyMultiarray.swapAxes(a, axis, -1);
     }
@@ -765,57 +888,156 @@ public class PyMultiarray extends PySequence {
      * @return The indices that would sort the array.
      */
     public static PyMultiarray argSort(final PyObject o, final int axis) {
-        // We depend on 'a' being 'vanilla' below.
-        // There's a probable extra copy here though.
-        final PyMultiarray a = PyMultiarray.array(PyMultiarray.swapAxes(
+        return PyMultiarray.argSort(o, axis, null);
+    }
+
+    /**
+     * Returns the indices that would sort an array. Many rows are sorted in
+     * parallel; a few large rows are each sorted with a parallel merge sort.
+     * @param o Input array
+     * @param axis Axis over which to sort
+     * @param kind 'quicksort'; 'mergesort' or 'radix' to keep equal elements
+     *  in their original order; or null to choose from the type and size of
+     *  the array
+     * @return The indices that would sort the array.
+     */
+    public static PyMultiarray argSort(final PyObject o, final int axis, final String kind) {
+        final PyMultiarray a = PyMultiarray.swapAxes(
                 PyMultiarray.asarray(o),
                 axis,
-                -1));
+                -1);
         if (a._typecode == 'F' || a._typecode == 'D' || a._typecode == 'O') { throw Py
                 .ValueError("unsortable array type"); }
-        // 'data' holds the argsorted indices.
-        final int stride = a.dimensions[a.dimensions.length - 1];
-        final int size = Array.getLength(a.data);
-        final int data[] = new int[size];
-        // Create an array of Numbers tagged with indices
-        class IndexedArray {
-            Number item;
-            int index;
-        }
-        final IndexedArray ia[] = new IndexedArray[stride];
-        for (int j = 0; j < stride; j++) {
-            ia[j] = new IndexedArray();
-        }
-        // Create a comparator that sorts an IndexArray
-        final Comparator<IndexedArray> comp = new Comparator<IndexedArray>() {
-            public int compare(final IndexedArray o1, final IndexedArray o2) {
-                if (o1.item.equals(o2.item)) {
-                	return 0;
+        final PyMultiarray result = PyMultiarray.zeros(a.dimensions, 'i');
+        if (a.dimensions.length == 0) { return result; }
+        final int n = a.dimensions[a.dimensions.length - 1];
+        final int sortKind = Sorting.resolve(Sorting.kind(kind), a._typecode, n, true);
+        final int stride = a.strides[a.dimensions.length - 1];
+        final int[] offsets = PyMultiarray.rowOffsets(a);
+        final int[] data = (int[]) result.data;
+        if (sortKind != Sorting.RADIXSORT && offsets.length < Parallel.parallelism()
+                && Parallel.worthwhile(n)) {
+            for (int row = 0; row < offsets.length; row++) {
+                final long[] keys = new long[n];
+                final int[] index = new int[n];
+                Sorting.loadKeys(a.data, a._typecode, offsets[row], stride, n, keys);
+                for (int j = 0; j < n; j++) {
+                    index[j] = j;
+                }
+                Sorting.parallelSort(keys, index, n, sortKind == Sorting.MERGESORT);
+                System.arraycopy(index, 0, data, row * n, n);
+            }
+        } else {
+            Parallel.forRange(offsets.length, (long) offsets.length * n, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    for (int row = lo; row < hi; row++) {
+                        Sorting.argSortRow(a.data, a._typecode, offsets[row], stride, n,
+                                sortKind, data, row * n);
+                    }
                 }
-                final double d1 = o1.item.doubleValue();
-                final double d2 = o2.item.doubleValue();
-                if (d1 > d2) {
-                	return 1;
+            });
+        }
+        return PyMultiarray.swapAxes(result, axis, -1);
+    }
+
+    /**
+     * Partially sort an array so that the elements at the positions in
+     * <code>kth</code> are where a full sort would put them, with smaller
+     * elements before and larger ones after (introselect).
+     * @param o Input array
+     * @param kth Position, or sequence of positions, to partition on
+     * @param axis Axis along which to partition
+     * @param arg If true, return the indices instead of the values
+     * @return The partitioned array, or the indices that partition it
+     */
+    public static PyMultiarray partition(final PyObject o, final PyObject kth, final int axis, final boolean arg) {
+        final PyMultiarray a = PyMultiarray.swapAxes(
+                PyMultiarray.asarray(o),
+                axis,
+                -1);
+        if (a.dimensions.length == 0) { throw Py.ValueError("cannot partition a 0-d array"); }
+        final int n = a.dimensions[a.dimensions.length - 1];
+        final int stride = a.strides[a.dimensions.length - 1];
+        final int[] kths = PyMultiarray.objectToInts(kth, true).clone();
+        for (int i = 0; i < kths.length; i++) {
+            if (kths[i] < 0) {
+                kths[i] += n;
+            }
+            if (kths[i] < 0 || kths[i] >= n) { throw Py.ValueError("kth out of bounds"); }
+        }
+        java.util.Arrays.sort(kths);
+        final PyMultiarray result = PyMultiarray.zeros(a.dimensions, arg ? 'i' : a._typecode);
+        final int[] offsets = PyMultiarray.rowOffsets(a);
+        Parallel.forRange(offsets.length, (long) offsets.length * n, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                for (int row = lo; row < hi; row++) {
+                    Sorting.partitionRow(a.data, a._typecode, offsets[row], stride, n,
+                            kths, arg, result.data, row * n);
                 }
-                return -1;
             }
-        };
-        // Loop over all indices except the last.
-        for (int i = 0; i < size; i += stride) {
-            for (int j = 0; j < stride; j++) {
-                ia[j].item = (Number) Array.get(a.data, i + j);
-                ia[j].index = j;
+        });
+        return PyMultiarray.swapAxes(result, axis, -1);
+    }
+
+    /**
+     * Find the <code>k</code> largest (or smallest) elements along an axis
+     * without sorting the whole array.
+     * @param o Input array
+     * @param k Number of elements to keep
+     * @param axis Axis along which to select
+     * @param largest If false, select the smallest elements instead
+     * @return A tuple of the values and their indices, best first
+     */
+    public static PyTuple topK(final PyObject o, final int k, final int axis, final boolean largest) {
+        final PyMultiarray a = PyMultiarray.swapAxes(
+                PyMultiarray.asarray(o),
+                axis,
+                -1);
+        if (a.dimensions.length == 0) { throw Py.ValueError("cannot select from a 0-d array"); }
+        final int n = a.dimensions[a.dimensions.length - 1];
+        final int stride = a.strides[a.dimensions.length - 1];
+        if (k < 0 || k > n) { throw Py.ValueError("k out of bounds"); }
+        final int[] shape = a.dimensions.clone();
+        shape[shape.length - 1] = k;
+        final PyMultiarray values = PyMultiarray.zeros(shape, a._typecode);
+        final PyMultiarray indices = PyMultiarray.zeros(shape, 'i');
+        final int[] offsets = PyMultiarray.rowOffsets(a);
+        Parallel.forRange(offsets.length, (long) offsets.length * n, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                for (int row = lo; row < hi; row++) {
+                    Sorting.topKRow(a.data, a._typecode, offsets[row], stride, n, k, largest,
+                            values.data, (int[]) indices.data, row * k);
+                }
             }
-            // sort 'ia'
-            java.util.Arrays.sort(ia, comp);
-            // Load 'a' with the indices from 'ia' and change its type.
-            for (int j = 0; j < stride; j++) {
-                data[i + j] = ia[j].index;
+        });
+        return new PyTuple(new PyObject[] {
+                PyMultiarray.swapAxes(values, axis, -1),
+                PyMultiarray.swapAxes(indices, axis, -1) });
+    }
+
+    /**
+     * Return the offset into <code>a.data</code> of the start of each row
+     * along the last axis, in C order.
+     */
+    static int[] rowOffsets(final PyMultiarray a) {
+        final int last = a.dimensions.length - 1;
+        final int n = (last < 0) ? 1 : a.dimensions[last];
+        final int nRows = (n == 0) ? 0 : PyMultiarray.shapeToNItems(a.dimensions) / n;
+        final int[] offsets = new int[nRows];
+        final int[] counter = new int[Math.max(last, 0)];
+        int offset = a.start;
+        for (int row = 0; row < nRows; row++) {
+            offsets[row] = offset;
+            for (int d = last - 1; d >= 0; d--) {
+                offset += a.strides[d];
+                if (++counter[d] < a.dimensions[d]) {
+                    break;
+                }
+                offset -= counter[d] * a.strides[d];
+                counter[d] = 0;
             }
         }
-        a._typecode = 'i';
-        a.data = data;
-        return PyMultiarray.swapAxes(a, axis, -1);
+        return offsets;
     }
 
     /**
@@ -897,37 +1119,8 @@ public class PyMultiarray extends PySequence {
      * @param axis The axis over which to select values.
      * @return The returned array has the same type as oA.
      */
-    public static PyMultiarray take(final PyObject oA, final PyObject oIndices, int axis) {
-        PyMultiarray a = PyMultiarray.asarray(oA), indices = PyMultiarray
-                .asarray(oIndices);
-        // Check axis and rotate the axis to zero.
-        if (axis < 0) {
-            axis += a.dimensions.length;
-        }
-        if (axis < 0 || axis >= a.dimensions.length) { throw Py
-                .ValueError("illegal axis"); }
-        a = PyMultiarray.ascontiguous(PyMultiarray.rotateAxes(a, -axis));
-        // Check indices argument, copy and cast to integer.
-        indices = PyMultiarray.array(indices, 'i');
-        if (indices.dimensions.length != 1) { throw Py
-                .ValueError("wrong number of dimensions"); }
-        // Create the result array.
-        final int[] dimensions = a.dimensions.clone();
-        dimensions[0] = indices.dimensions[0];
-        final PyMultiarray result = PyMultiarray.zeros(dimensions, a._typecode);
-        final int stride = result.strides[0];
-        final int start = a.start;
-        for (int i = 0; i < indices.dimensions[0]; i++) {
-            final int item = Array.getInt(indices.data, i);
-            for (int j = 0; j < stride; j++) {
-                Array.set(
-                        result.data,
-                        i * stride + j,
-                        Array.get(a.data, start + item * stride + j));
-            }
-        }
-        // Rotate axis of result back to where it belongs and return.
-        return PyMultiarray.rotateAxes(result, axis);
+    public static PyMultiarray take(final PyObject oA, final PyObject oIndices, final int axis) {
+        return Indexing.take(oA, oIndices, axis, Indexing.RAISE);
     }
 
     /**
@@ -942,50 +1135,7 @@ public class PyMultiarray extends PySequence {
      * @return The merged result.
      */
     public static PyMultiarray choose(final PyObject oA, final PyObject b) {
-        PyMultiarray a = PyMultiarray.array(oA);
-        final boolean debug_this = false;
-        // Convert b into an array of PyMultiarrays.
-        // (b must be a PyObject because it might not be rectangular).
-        final int n = b.__len__();
-        final PyMultiarray[] bs = new PyMultiarray[n];
-        for (int i = 0; i < n; i++) {
-            bs[i] = PyMultiarray.ascontiguous(b.__getitem__(i));
-        }
-        // Find a common type for the arrays in bs.
-        char type = (n > 0) ? bs[0]._typecode : 'i';
-        for (int i = 1; i < n; i++) {
-            type = PyMultiarray.commonType(type, bs[i]._typecode);
-        }
-        // find bs array sizes and coerce its elements to correct type.
-        a = PyMultiarray.ascontiguous(a, 'i');
-        final int[] sizes = new int[n];
-        for (int i = 0; i < n; i++) {
-            if (a.dimensions.length < bs[i].dimensions.length) {
-                if (debug_this) {
-                    System.out.println("choose() got " + a);
-                    System.out.println("Comparing with this: " + bs[i]);
-                }
-                throw Py.ValueError("choice array has too many dimensions: "
-                        + bs[i].dimensions.length + " > " + a.dimensions.length);
-            }
-            for (int j = 0; j < bs[i].dimensions.length; j++) {
-                if (a.dimensions[j + a.dimensions.length
-                        - bs[i].dimensions.length] != bs[i].dimensions[j]) { throw Py
-                        .ValueError("array dimensions must agree."); }
-            }
-            bs[i] = PyMultiarray.array(bs[i], type);
-            sizes[i] = Array.getLength(bs[i].data);
-        }
-        final PyMultiarray result = PyMultiarray.zeros(a.dimensions, type);
-        final PyMultiarray flat = PyMultiarray
-                .reshape(result, new int[] { -1 });
-        for (int i = 0; i < Array.getLength(flat.data); i++) {
-            final int index = Array.getInt(a.data, i);
-            if (index < 0 || index >= n) { throw Py
-                    .ValueError("invalid entry in choice array"); }
-            Array.set(flat.data, i, Array.get(bs[index].data, i % sizes[index]));
-        }
-        return result;
+        return Indexing.choose(oA, b, Indexing.RAISE);
     }
 
     /**
@@ -1186,10 +1336,13 @@ public class PyMultiarray extends PySequence {
         a = PyMultiarray.reshape(a, aDimensions);
         b = PyMultiarray.reshape(b, bDimensions);
         final PyMultiarray result = PyMultiarray.zeros(dimensions, type);
+        // Each product goes into the same scratch array.
+        final PyMultiarray product = PyMultiarray.empty(dimensions, type);
         for (int i = 0; i < a.dimensions[0]; i++) {
-            result.__add__(PyMultiarray.asarray(PyMultiarray.asarray(a.get(i))
-                    .__mul__(b.get(i))), result);
+            PyMultiarray.asarray(a.get(i)).__mul__(b.get(i), product);
+            result.__add__(product, result);
         }
+        BufferPool.release(product);
         // unrotate the axes and return.
         final int[] axes = new int[result.dimensions.length];
         for (int i = 0; i < nDimsA - 1; i++) {
@@ -1210,56 +1363,70 @@ public class PyMultiarray extends PySequence {
      * @return Array of insertion points with the same shape as v
      */
     public static PyObject searchSorted(final PyObject o, final PyObject v) {
-        final PyMultiarray a = PyMultiarray.ascontiguous(o);
-        PyMultiarray values = PyMultiarray.ascontiguous(v);
-        if (a.dimensions.length != 1 || values.dimensions.length > 1) { throw Py
-                .ValueError("searchSorted only works on 1D arrays"); }
-        if (a._typecode == 'F' || a._typecode == 'D') { throw Py
+        return PyMultiarray.searchSorted(o, v, false, Py.None);
+    }
+
+    /**
+     * Find indices where elements should be inserted to maintain order.
+     * Real arrays are searched through their primitive storage; sorted
+     * values are found in a single merge-like sweep.
+     * @param o Input 1-D array. Must be sorted in ascending order, unless
+     *  sorter is given.
+     * @param v Values to insert into a, of any shape.
+     * @param right If false, return the first suitable index ('left');
+     *  otherwise the last ('right').
+     * @param sorter Indices that sort a, or None.
+     * @return Array of insertion points with the same shape as v.
+     */
+    public static PyObject searchSorted(final PyObject o, final PyObject v, final boolean right, final PyObject sorter) {
+        final PyMultiarray a = PyMultiarray.asarray(o);
+        if (a.dimensions.length != 1) { throw Py
+                .ValueError("searchsorted requires a 1-d array"); }
+        final PyMultiarray values = PyMultiarray.ascontiguous(v);
+        if (a._typecode == 'F' || a._typecode == 'D' || values._typecode == 'F'
+                || values._typecode == 'D') { throw Py
                 .ValueError("cannot search complex arrays"); }
-        final boolean singleValue = (values.dimensions.length == 0);
-        if (singleValue) {
-            values = PyMultiarray.stretchAxes(values);
-        }
-        final PyMultiarray result = PyMultiarray.zeros(
-                new int[] { values.dimensions[0] },
-                'i');
-        for (int i = 0; i < values.dimensions[0]; i++) {
-            int start = 0, stop = a.dimensions[0] - 1;
-            int j = (start + stop) / 2;
-            if (a._typecode != 'O' && values._typecode != 'O') {
-                final double value = ((Number) Array.get(
-                        values.data,
-                        values.start + i)).doubleValue();
-                while (start != stop) {
-                    final double val = ((Number) Array.get(a.data, a.start + j))
-                            .doubleValue();
-                    if ((val == value) || (stop == j)) {
-                        break;
-                    } else if (val < value) {
-                        start = j;
-                    } else {
-                        stop = j;
-                    }
-                    j = (start + stop + 1) / 2;
-                }
-            } else {
-                final PyObject value = values.get(i);
-                while (start != stop) {
-                    final PyObject val = a.get(j);
-                    if (val._eq(value).__nonzero__() || (stop == j)) {
-                        break;
-                    } else if (val._le(value).__nonzero__()) {
-                        start = j;
+        final int n = a.dimensions[0];
+        int[] order = null;
+        if (sorter != Py.None) {
+            final PyMultiarray s = PyMultiarray.ascontiguous(sorter, 'i');
+            if (s.dimensions.length != 1 || s.dimensions[0] != n) { throw Py
+                    .ValueError("sorter must be a 1-d array the length of a"); }
+            order = new int[n];
+            System.arraycopy(s.data, s.start, order, 0, n);
+            for (int i = 0; i < n; i++) {
+                if (order[i] < 0 || order[i] >= n) { throw Py
+                        .ValueError("sorter index out of range"); }
+            }
+        }
+        final PyMultiarray result = PyMultiarray.zeros(values.dimensions, 'i');
+        final int m = PyMultiarray.shapeToNItems(values.dimensions);
+        final int[] out = (int[]) result.data;
+        if (a._typecode != 'O' && values._typecode != 'O') {
+            Sorting.searchSorted(a.data, a._typecode, a.start, a.strides[0], n, order,
+                    values.data, values._typecode, values.start, m, right, out);
+        } else {
+            final PyObject[] items = new PyObject[m];
+            for (int i = 0; i < m; i++) {
+                items[i] = Py.java2py(Array.get(values.data, values.start + i));
+            }
+            for (int i = 0; i < m; i++) {
+                int low = 0, high = n;
+                while (low < high) {
+                    final int mid = (low + high) >>> 1;
+                    final PyObject val = a.get((order == null) ? mid : order[mid]);
+                    final boolean before = right ? val._le(items[i]).__nonzero__()
+                            : val._lt(items[i]).__nonzero__();
+                    if (before) {
+                        low = mid + 1;
                     } else {
-                        stop = j;
+                        high = mid;
                     }
-                    j = (start + stop + 1) / 2;
                 }
+                out[i] = low;
             }
-            Array.setInt(result.data, i, j);
         }
-        if (singleValue) { return result.get(0); }
-        return result;
+        return PyMultiarray.returnValue(result);
     }
 
     /**
@@ -1568,8 +1735,16 @@ public class PyMultiarray extends PySequence {
          * Finally, copy results into standard order ('unpad' them).
          */
         final PyMultiarray prod = PyMultiarray.zeros(new int[] { padl }, 'D');
-        fft_a.__mul__(Umath.conjugate.__call__(FFT.fft(b_pad)), prod);
+        final PyMultiarray fft_b = FFT.fft(b_pad);
+        fft_b.overwritable = true;
+        fft_a.__mul__(Umath.conjugate.__call__(fft_b), prod);
         PyMultiarray inverse_prod_real = FFT.inverse_fft(prod).getReal();
+        // The padded vectors and transforms are temporaries.
+        BufferPool.release(a_pad);
+        BufferPool.release(b_pad);
+        BufferPool.release(fft_a);
+        BufferPool.release(fft_b);
+        BufferPool.release(prod);
 
         PyMultiarray result;
         if (PyMultiarray.typeToKind(type) == PyMultiarray.INTEGER) {
@@ -1941,7 +2116,7 @@ public class PyMultiarray extends PySequence {
      * Return the number of items of a multiarray based on its shape
      * (dimensions).
      */
-    private final static int shapeToNItems(final int[] shape) {
+    final static int shapeToNItems(final int[] shape) {
         int size = 1;
         for (final int element : shape) {
             if (element < 0) { throw Py
@@ -2082,95 +2257,179 @@ public class PyMultiarray extends PySequence {
     }
 
     /**
-     * Return an array derived from <code>a</code> whose axes are suitable for
-     * binary operations.
+     * The typed loops of a binary operation. They run over a, b and result,
+     * which all have the same shape; a and b are of type <code>type</code>.
      */
-    private final static PyMultiarray stretchAxes(final PyMultiarray a, final PyMultiarray b) {
-        if (a.dimensions.length > b.dimensions.length) {
-            final int[] dimensions = a.dimensions.clone();
-            final int[] strides = a.strides.clone();
-            final int excess = a.dimensions.length - b.dimensions.length;
-            for (int i = excess; i < dimensions.length; i++) {
-                if (dimensions[i] != b.dimensions[i - excess]) {
-                    if (dimensions[i] == 1) {
-                        dimensions[i] = b.dimensions[i - excess];
-                        strides[i] = 0;
-                    }
-                    else if (b.dimensions[i - excess] != 1) { throw Py
-                            .ValueError("matrices not aligned"); }
-                }
-            }
-            return new PyMultiarray(
-                    a.data,
-                    a._typecode,
-                    a.start,
-                    dimensions,
-                    strides);
-        }
-        else {
-            final int[] dimensions = b.dimensions.clone();
-            final int[] strides = new int[dimensions.length];
-            final int excess = b.dimensions.length - a.dimensions.length;
-            for (int i = excess; i < dimensions.length; i++) {
-                if (dimensions[i] != a.dimensions[i - excess]) {
-                    if (dimensions[i] == 1) {
-                        dimensions[i] = a.dimensions[i - excess];
-                    } else if (a.dimensions[i - excess] == 1) {
-                        continue; // Don't set strides.
-                    } else {
-                        throw Py.ValueError("matrices not aligned");
-                    }
-                }
-                strides[i] = a.strides[i - excess];
-            }
-            return new PyMultiarray(
-                    a.data,
-                    a._typecode,
-                    a.start,
-                    dimensions,
-                    strides);
-        }
+    static abstract class Kernel {
+        abstract void run(char type, PyMultiarray a, PyMultiarray b, PyMultiarray result);
     }
 
-    /** Return an array with shape [1] for use when multiplying shape [] arrays. */
-    private final static PyMultiarray stretchAxes(final PyMultiarray a) {
-        final int[] dimensions = new int[] { 1 };
-        final int[] strides = new int[] { 1 };
-        return new PyMultiarray(
-                a.data,
-                a._typecode,
-                a.start,
-                dimensions,
-                strides);
+    /**
+     * Number of elements cast at a time by binary operations on operands of
+     * different types.
+     */
+    private final static int BLOCK = 1024;
+
+    /**
+     * The result r of a comparison or logical operation, marked as a mask
+     * unless it was stored into a given result array.
+     */
+    private static PyObject mask(final PyObject r, final PyMultiarray result) {
+        if (result == null && r instanceof PyMultiarray) {
+            ((PyMultiarray) r).isMask = true;
+        }
+        return r;
     }
 
-    /** Return an array for storing the result of a binary operation on a and b. */
-    private final static PyMultiarray getResultArray(final PyMultiarray a, final PyMultiarray b, char type) {
-        if (type == '\0') {
-            type = a._typecode;
+    /**
+     * Apply kernel to <code>this</code> and o, broadcast against each other,
+     * storing into result, or into a new array of type rtype (the common
+     * type if rtype is '\0') if result is null. The operands are walked
+     * with their shapes merged once rather than stretched to full views,
+     * and an operand that is not of the common type is cast a block at a
+     * time instead of being copied whole.
+     */
+    private PyObject binary(final PyObject o, PyMultiarray result, final char rtype, final Kernel kernel) {
+        PyMultiarray a = this, b = null;
+        if (o instanceof PyInteger || o instanceof PyFloat || o instanceof PyComplex) {
+            // A Python number is made straight into an array of the common
+            // type.
+            b = PyMultiarray.scalar(o, PyMultiarray.commonType(a._typecode, PyMultiarray.objectToType(o)));
         }
-        final int[] dimensions = new int[a.dimensions.length];
-        for (int i = 0; i < a.dimensions.length; i++) {
-            dimensions[i] = Math.max(a.dimensions[i], b.dimensions[i]);
+        if (b == null) {
+            b = PyMultiarray.asarray(o);
+        }
+        final char type = PyMultiarray.commonType(a._typecode, b._typecode);
+        // Small operands and objects gain nothing from casting in blocks.
+        if (type == 'O' || PyMultiarray.shapeToNItems(a.dimensions) <= PyMultiarray.BLOCK) {
+            a = PyMultiarray.asarray(a, type);
+        }
+        if (type == 'O' || PyMultiarray.shapeToNItems(b.dimensions) <= PyMultiarray.BLOCK) {
+            b = PyMultiarray.asarray(b, type);
+        }
+        final int[] shape = Broadcast.shape(a.dimensions, b.dimensions);
+        if (shape == null) { throw Py.ValueError("matrices not aligned"); }
+        if (result == null) {
+            result = PyMultiarray.empty(shape, (rtype == '\0') ? type : rtype);
+        } else {
+            if (result._typecode != ((rtype == '\0') ? type : rtype)) { throw Py
+                    .ValueError("return array has incorrect type."); }
+            if (result.dimensions.length != shape.length) { throw Py
+                    .ValueError("return array has the wrong number of dimensions"); }
+            if (!Arrays.equals(result.dimensions, shape)) { throw Py
+                    .ValueError("return array has incorrect dimensions"); }
+        }
+        if (shape.length == 0) {
+            // Scalars: one element each, with no walk to set up.
+            kernel.run(type, PyMultiarray.single(a, type), PyMultiarray.single(b, type),
+                    PyMultiarray.single(result, result._typecode));
+            return PyMultiarray.returnValue(result);
+        }
+        Broadcast walk = new Broadcast(shape, result, a, b);
+        if ((a._typecode != type || b._typecode != type) && walk.length < PyMultiarray.BLOCK / 16) {
+            // Lines too short to cast a block at a time.
+            a = PyMultiarray.asarray(a, type);
+            b = PyMultiarray.asarray(b, type);
+            walk = new Broadcast(shape, result, a, b);
+        }
+        if (a._typecode == type && b._typecode == type) {
+            PyMultiarray.binary(walk, kernel, type, result, a, b);
+        } else {
+            PyMultiarray.binaryBlocks(walk, kernel, type, result, a, b);
         }
-        return PyMultiarray.zeros(dimensions, type);
+        return PyMultiarray.returnValue(result);
     }
 
     /**
-     * Check that <code>result</code> is consistent with <code>a</code> and
-     * <code>b</code>.
+     * Run kernel over result, a and b, all of type, with the merged shape of
+     * walk, split along its first axis.
      */
-    private final static void checkResultArray(final PyMultiarray result, final PyMultiarray a, final PyMultiarray b) {
-        if (result._typecode != a._typecode) { throw Py
-                .ValueError("return array has incorrect type."); }
-        if (result.dimensions.length != a.dimensions.length) { throw Py
-                .ValueError("return array has the wrong number of dimensions"); }
-        for (int i = 0; i < result.dimensions.length; i++) {
-            if (result.dimensions[i] != Math.max(
-                    a.dimensions[i],
-                    b.dimensions[i])) { throw Py
-                    .ValueError("return array has incorrect dimensions"); }
+    private final static void binary(final Broadcast walk, final Kernel kernel, final char type,
+            final PyMultiarray result, final PyMultiarray a, final PyMultiarray b) {
+        final PyMultiarray r = walk.view(0, result), x = walk.view(1, a), y = walk.view(2, b);
+        // A result of a single element is walked with no step.
+        if (r.strides[r.strides.length - 1] == 0) {
+            r.strides[r.strides.length - 1] = 1;
+        }
+        final int n = r.dimensions[0];
+        if (type == 'O' || n == 1) {
+            kernel.run(type, x, y, r);
+            return;
         }
+        Parallel.forRange(n, walk.size, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                kernel.run(type, PyMultiarray.slab(x, lo, hi), PyMultiarray.slab(y, lo, hi),
+                        PyMultiarray.slab(r, lo, hi));
+            }
+        });
+    }
+
+    /**
+     * The single element of the 0-d array a as a 1-d array of type, which
+     * the kernels can walk.
+     */
+    private final static PyMultiarray single(final PyMultiarray a, final char type) {
+        final PyMultiarray b = PyMultiarray.asarray(a, type);
+        return new PyMultiarray(b.data, type, b.start, new int[] { 1 }, new int[] { 1 });
+    }
+
+    /**
+     * The part of a between lo and hi along its first axis.
+     */
+    private final static PyMultiarray slab(final PyMultiarray a, final int lo, final int hi) {
+        final int[] dimensions = a.dimensions.clone();
+        dimensions[0] = hi - lo;
+        return new PyMultiarray(a.data, a._typecode, a.start + lo * a.strides[0], dimensions, a.strides);
+    }
+
+    /**
+     * Run kernel over result, a and b with the merged shape of walk, a line
+     * at a time, casting whichever of a and b is not of type a block at a
+     * time.
+     */
+    private final static void binaryBlocks(final Broadcast walk, final Kernel kernel, final char type,
+            final PyMultiarray result, final PyMultiarray a, final PyMultiarray b) {
+        final PyMultiarray[] operands = { result, a, b };
+        walk.forEach(1, new Broadcast.Line() {
+            @Override void run(final int[] at, final int index, final int n) {
+                // One line of each operand; the operands of another type
+                // are read through a buffer.
+                final PyMultiarray[] line = new PyMultiarray[3];
+                final int m = Math.min(n, PyMultiarray.BLOCK);
+                for (int k = 0; k < 3; k++) {
+                    final PyMultiarray p = operands[k];
+                    line[k] = (k == 0 || p._typecode == type) ? new PyMultiarray(p.data, p._typecode, 0,
+                            new int[1], new int[] { walk.step[k] }) : PyMultiarray.zeros(new int[] { m }, type);
+                }
+                for (int i = 0; i < n; i += m) {
+                    final int count = Math.min(m, n - i);
+                    for (int k = 0; k < 3; k++) {
+                        final PyMultiarray p = operands[k];
+                        final int from = at[k] + i * walk.step[k];
+                        if (k == 0 || p._typecode == type) {
+                            line[k].start = from;
+                        } else {
+                            Broadcast.copy(p.data, p._typecode, from, walk.step[k], line[k].data, type, 0,
+                                    line[k].strides[0], count);
+                        }
+                        line[k].dimensions[0] = count;
+                    }
+                    kernel.run(type, line[1], line[2], line[0]);
+                }
+            }
+        });
+    }
+
+    /**
+     * a, or a copy of it if it shares data with <code>out</code> other than
+     * element for element, so that an operation reading a and writing out
+     * never reads an element it has already overwritten.
+     */
+    final static PyMultiarray unaliased(final PyMultiarray a, final PyMultiarray out) {
+        if (a.data != out.data) { return a; }
+        if (a.start == out.start && Arrays.equals(a.dimensions, out.dimensions)
+                && Arrays.equals(a.strides, out.strides)) { return a; }
+        return PyMultiarray.array(a, a._typecode);
     }
 
     //
@@ -2247,6 +2506,9 @@ public class PyMultiarray extends PySequence {
      * Return the subarray or item indicated by indices.
      */
     @Override public PyObject __getitem__(final PyObject indices) {
+        final int at = this.elementOffset(indices);
+        if (at >= 0) { return PyMultiarray.element(this.data, this._typecode, at); }
+        if (Indexing.isAdvanced(indices)) { return Indexing.get(this, indices); }
         return PyMultiarray.returnValue(this.indicesToStructure(indices));
     }
 
@@ -2254,6 +2516,22 @@ public class PyMultiarray extends PySequence {
      * Set the subarray based on indices to PyValue.
      */
     @Override public void __setitem__(final PyObject indices, final PyObject pyValue) {
+        final int at = this.elementOffset(indices);
+        if (at >= 0) {
+            final PyMultiarray value = PyMultiarray.asarray(pyValue, this._typecode);
+            if (value.dimensions.length == 0) {
+                if (this._typecode == 'O') {
+                    ((PyObject[]) this.data)[at] = ((PyObject[]) value.data)[value.start];
+                } else {
+                    Broadcast.copy(value.data, this._typecode, value.start, 1, this.data, this._typecode, at, 1, 1);
+                }
+                return;
+            }
+        }
+        if (Indexing.isAdvanced(indices)) {
+            Indexing.set(this, indices, pyValue);
+            return;
+        }
         // Get the shape of the subarray to set.
         final PyMultiarray toStructure = this.indicesToStructure(indices);
         // Convert value to array.
@@ -2394,34 +2672,152 @@ public class PyMultiarray extends PySequence {
     // Sequence special methods.
     //
 
-    protected PyObject get(final int i) {
-        if (this.dimensions.length < 1) { throw Py
-                .IndexError("too few dimensions"); }
-        final int newStart = this.start + this.fixIndex(i, 0) * this.strides[0];
-        final int[] newDimensions = new int[this.dimensions.length - 1];
-        final int[] newStrides = new int[this.dimensions.length - 1];
-        for (int j = 0; j < this.dimensions.length - 1; j++) {
-            newDimensions[j] = this.dimensions[j + 1];
-            newStrides[j] = this.strides[j + 1];
+    /**
+     * The offset in data of the element picked by indices if they are one
+     * integer per dimension, or -1 if they pick anything else.
+     */
+    private int elementOffset(final PyObject indices) {
+        if (indices instanceof PyInteger) {
+            if (this.dimensions.length != 1) { return -1; }
+            return this.start + this.fixIndex(((PyInteger) indices).getValue(), 0) * this.strides[0];
         }
-        return PyMultiarray.returnValue(new PyMultiarray(
-                this.data,
-                this._typecode,
-                newStart,
-                newDimensions,
-                newStrides));
-    }
-
-    @Override protected PyObject pyget(final int i) {
-        return this.get(i);
+        if (!(indices instanceof PyTuple)) { return -1; }
+        final PyObject[] items = ((PyTuple) indices).getArray();
+        if (items.length != this.dimensions.length || items.length == 0) { return -1; }
+        for (final PyObject item : items) {
+            if (!(item instanceof PyInteger)) { return -1; }
+        }
+        int at = this.start;
+        for (int i = 0; i < items.length; i++) {
+            at += this.fixIndex(((PyInteger) items[i]).getValue(), i) * this.strides[i];
+        }
+        return at;
     }
 
-    @Override protected PyObject repeat(final int count) {
-        throw Py.TypeError("can't apply '*' to arrays");
+    /**
+     * The offset in data of the element at index, which has one entry per
+     * dimension; negative entries count from the end.
+     */
+    private int offset(final int[] index) {
+        if (index.length != this.dimensions.length) { throw Py
+                .IndexError("wrong number of indices"); }
+        int at = this.start;
+        for (int i = 0; i < index.length; i++) {
+            at += this.fixIndex(index[i], i) * this.strides[i];
+        }
+        return at;
     }
 
-    @Override protected void del(final int i) {
-        throw Py.TypeError("can't remove from array");
+    /**
+     * The element at index as a double, without making a Python object; the
+     * real part of complex elements.
+     */
+    public double getDouble(final int... index) {
+        final int at = this.offset(index);
+        switch (this._typecode) {
+        case '1':
+            return ((byte[]) this.data)[at];
+        case 's':
+            return ((short[]) this.data)[at];
+        case 'i':
+            return ((int[]) this.data)[at];
+        case 'l':
+            return ((long[]) this.data)[at];
+        case 'f':
+        case 'F':
+            return ((float[]) this.data)[at];
+        case 'd':
+        case 'D':
+            return ((double[]) this.data)[at];
+        default:
+            return ((PyObject[]) this.data)[at].__float__().getValue();
+        }
+    }
+
+    /**
+     * The element at index as a long, without making a Python object; real
+     * elements are truncated, and complex elements give their real part.
+     */
+    public long getLong(final int... index) {
+        final int at = this.offset(index);
+        switch (this._typecode) {
+        case '1':
+            return ((byte[]) this.data)[at];
+        case 's':
+            return ((short[]) this.data)[at];
+        case 'i':
+            return ((int[]) this.data)[at];
+        case 'l':
+            return ((long[]) this.data)[at];
+        case 'f':
+        case 'F':
+            return (long) ((float[]) this.data)[at];
+        case 'd':
+        case 'D':
+            return (long) ((double[]) this.data)[at];
+        default:
+            return ((PyObject[]) this.data)[at].asLong();
+        }
+    }
+
+    /**
+     * Set the element at index to value, cast to the type of the array;
+     * complex elements get a zero imaginary part.
+     */
+    public void setDouble(final double value, final int... index) {
+        final int at = this.offset(index);
+        if (this._typecode == 'O') {
+            ((PyObject[]) this.data)[at] = Py.newFloat(value);
+        } else {
+            Broadcast.copy(new double[] { value }, 'd', 0, 1, this.data, this._typecode, at, 1, 1);
+        }
+    }
+
+    /**
+     * Set the element at index to value, cast to the type of the array;
+     * complex elements get a zero imaginary part.
+     */
+    public void setLong(final long value, final int... index) {
+        final int at = this.offset(index);
+        if (this._typecode == 'O') {
+            ((PyObject[]) this.data)[at] = Py.newLong(value);
+        } else {
+            Broadcast.copy(new long[] { value }, 'l', 0, 1, this.data, this._typecode, at, 1, 1);
+        }
+    }
+
+    protected PyObject get(final int i) {
+        if (this.dimensions.length < 1) { throw Py
+                .IndexError("too few dimensions"); }
+        if (this.dimensions.length == 1) { return PyMultiarray.element(
+                this.data,
+                this._typecode,
+                this.start + this.fixIndex(i, 0) * this.strides[0]); }
+        final int newStart = this.start + this.fixIndex(i, 0) * this.strides[0];
+        final int[] newDimensions = new int[this.dimensions.length - 1];
+        final int[] newStrides = new int[this.dimensions.length - 1];
+        for (int j = 0; j < this.dimensions.length - 1; j++) {
+            newDimensions[j] = this.dimensions[j + 1];
+            newStrides[j] = this.strides[j + 1];
+        }
+        return PyMultiarray.returnValue(new PyMultiarray(
+                this.data,
+                this._typecode,
+                newStart,
+                newDimensions,
+                newStrides));
+    }
+
+    @Override protected PyObject pyget(final int i) {
+        return this.get(i);
+    }
+
+    @Override protected PyObject repeat(final int count) {
+        throw Py.TypeError("can't apply '*' to arrays");
+    }
+
+    @Override protected void del(final int i) {
+        throw Py.TypeError("can't remove from array");
     }
 
     protected void delRange(final int start, final int stop, final int step) {
@@ -2548,7 +2944,7 @@ public class PyMultiarray extends PySequence {
      * Convert a set of indices into a Multiarray object, but do not fill in the
      * data.
      */
-    private final PyMultiarray indicesToStructure(final PyObject pyIndices) {
+    final PyMultiarray indicesToStructure(final PyObject pyIndices) {
         // Convert the pyIndices into an array of PyObjects.
         // RGA PyObject indices[] = (pyIndices instanceof PyTuple) ?
         // ((PyTuple)pyIndices).list : new PyObject[] {pyIndices};
@@ -2661,18 +3057,37 @@ public class PyMultiarray extends PySequence {
      * convert to a PyObject and return.
      */
     static final PyObject returnValue(final PyMultiarray a) {
-        if (a.dimensions.length == 0) {
-            if (PyMultiarray.typeToNElements(a._typecode) == 1) {
-                return Py.java2py(Array.get(a.data, a.start));
-            } else {
-                return new PyComplex(
-                        ((Number) Array.get(a.data, a.start)).doubleValue(),
-                        ((Number) Array.get(a.data, a.start + 1)).doubleValue());
-            }
-        }
+        if (a.dimensions.length == 0) { return PyMultiarray.element(a.data, a._typecode, a.start); }
         return a;
     }
 
+    /**
+     * The element of type <code>type</code> at <code>at</code> in data, as a
+     * Python scalar.
+     */
+    static final PyObject element(final Object data, final char type, final int at) {
+        switch (type) {
+        case '1':
+            return Py.newInteger(((byte[]) data)[at]);
+        case 's':
+            return Py.newInteger(((short[]) data)[at]);
+        case 'i':
+            return Py.newInteger(((int[]) data)[at]);
+        case 'l':
+            return Py.newLong(((long[]) data)[at]);
+        case 'f':
+            return Py.newFloat(((float[]) data)[at]);
+        case 'd':
+            return Py.newFloat(((double[]) data)[at]);
+        case 'F':
+            return new PyComplex(((float[]) data)[at], ((float[]) data)[at + 1]);
+        case 'D':
+            return new PyComplex(((double[]) data)[at], ((double[]) data)[at + 1]);
+        default:
+            return ((PyObject[]) data)[at];
+        }
+    }
+
     /**
      * Copy the array A to the array B. The arrays must be the same shape.
      * (Length 1 axes can be converted to length N axes if the appropriate
@@ -2693,10 +3108,9 @@ public class PyMultiarray extends PySequence {
                     b.start,
                     PyMultiarray.typeToNElements(a._typecode)
                             * PyMultiarray.shapeToNItems(a.dimensions));
-        } else if (a.dimensions.length == 0) {
+        } else if (a.dimensions.length == 0 && (a._typecode == 'O' || b._typecode == 'O')) {
             b.__setitem__(Py.Ellipsis, a.__getitem__(Py.Ellipsis));
-        } else if (a._typecode == b._typecode && a._typecode != 'F'
-                && a._typecode != 'D') {
+        } else if (a._typecode == 'O' && b._typecode == 'O') {
             PyMultiarray.copyAxToBx(
                     a.data,
                     a.start,
@@ -2717,134 +3131,42 @@ public class PyMultiarray extends PySequence {
                     b._typecode,
                     b.dimensions,
                     0);
+        } else if (b._typecode == 'O') {
+            PyMultiarray.copyAToBO(
+                    a.data,
+                    a.start,
+                    a.strides,
+                    b.data,
+                    b.start,
+                    b.strides,
+                    b.dimensions,
+                    0);
         } else {
-            switch (b._typecode) {
-            case '1':
-                PyMultiarray.copyAToBb(
-                        a.data,
-                        a.start,
-                        a.strides,
-                        b.data,
-                        b.start,
-                        b.strides,
-                        b.dimensions,
-                        0);
-                break;
-            case 's':
-                PyMultiarray.copyAToBs(
-                        a.data,
-                        a.start,
-                        a.strides,
-                        b.data,
-                        b.start,
-                        b.strides,
-                        b.dimensions,
-                        0);
-                break;
-            case 'i':
-                PyMultiarray.copyAToBi(
-                        a.data,
-                        a.start,
-                        a.strides,
-                        b.data,
-                        b.start,
-                        b.strides,
-                        b.dimensions,
-                        0);
-                break;
-            case 'l':
-                PyMultiarray.copyAToBl(
-                        a.data,
-                        a.start,
-                        a.strides,
-                        b.data,
-                        b.start,
-                        b.strides,
-                        b.dimensions,
-                        0);
-                break;
-            case 'f':
-                PyMultiarray.copyAToBf(
-                        a.data,
-                        a.start,
-                        a.strides,
-                        b.data,
-                        b.start,
-                        b.strides,
-                        b.dimensions,
-                        0);
-                break;
-            case 'd':
-                PyMultiarray.copyAToBd(
-                        a.data,
-                        a.start,
-                        a.strides,
-                        b.data,
-                        b.start,
-                        b.strides,
-                        b.dimensions,
-                        0);
-                break;
-            case 'F':
-                if (a._typecode == 'F' || a._typecode == 'D') {
-                    PyMultiarray.copyAToBF(
-                            a.data,
-                            a.start,
-                            a.strides,
-                            b.data,
-                            b.start,
-                            b.strides,
-                            b.dimensions,
-                            0);
-                } else {
-                    PyMultiarray.copyAToBf(
-                            a.data,
-                            a.start,
-                            a.strides,
-                            b.data,
-                            b.start,
-                            b.strides,
-                            b.dimensions,
-                            0);
-                }
-                break;
-            case 'D':
-                if (a._typecode == 'F' || a._typecode == 'D') {
-                    PyMultiarray.copyAToBD(
-                            a.data,
-                            a.start,
-                            a.strides,
-                            b.data,
-                            b.start,
-                            b.strides,
-                            b.dimensions,
-                            0);
-                } else {
-                    PyMultiarray.copyAToBd(
-                            a.data,
-                            a.start,
-                            a.strides,
-                            b.data,
-                            b.start,
-                            b.strides,
-                            b.dimensions,
-                            0);
-                }
-                break;
-            case 'O':
-                PyMultiarray.copyAToBO(
-                        a.data,
-                        a.start,
-                        a.strides,
-                        b.data,
-                        b.start,
-                        b.strides,
-                        b.dimensions,
-                        0);
-                break;
-            default:
-                throw Py.ValueError("typecode must be in [1silfFdDO]");
+            PyMultiarray.convertAToB(a, b);
+        }
+    }
+
+    /**
+     * Copy the numeric array a to b, of the same shape, converting each
+     * element straight from the type of a to that of b.
+     */
+    private static void convertAToB(final PyMultiarray a, final PyMultiarray b) {
+        if (a.dimensions.length == 0) {
+            Broadcast.copy(a.data, a._typecode, a.start, 1, b.data, b._typecode, b.start, 1, 1);
+            return;
+        }
+        final Broadcast walk = new Broadcast(b.dimensions, b, a);
+        final int[] s = walk.step;
+        final Broadcast.Line body = new Broadcast.Line() {
+            @Override void run(final int[] at, final int index, final int n) {
+                Broadcast.copy(a.data, a._typecode, at[1], s[1], b.data, b._typecode, at[0], s[0], n);
             }
+        };
+        // Copies within one array keep to C order.
+        if (a.data == b.data) {
+            walk.run(0, walk.size, body);
+        } else {
+            walk.forEach(1, body);
         }
     }
 
@@ -2894,214 +3216,6 @@ public class PyMultiarray extends PySequence {
         }
     }
 
-    static void copyAToBb(final Object aData, final int aStart, final int[] aStrides,
-            final Object bData, final int bStart, final int[] bStrides, final int[] dimensions, final int depth) {
-        final int jMax = bStart + dimensions[depth] * bStrides[depth];
-        if (depth < dimensions.length - 1) {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                PyMultiarray.copyAToBb(
-                        aData,
-                        i,
-                        aStrides,
-                        bData,
-                        j,
-                        bStrides,
-                        dimensions,
-                        depth + 1);
-            }
-        } else {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                Array.setByte(
-                        bData,
-                        j,
-                        ((Number) Array.get(aData, i)).byteValue());
-            }
-        }
-    }
-
-    static void copyAToBs(final Object aData, final int aStart, final int[] aStrides,
-            final Object bData, final int bStart, final int[] bStrides, final int[] dimensions, final int depth) {
-        final int jMax = bStart + dimensions[depth] * bStrides[depth];
-        if (depth < dimensions.length - 1) {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                PyMultiarray.copyAToBs(
-                        aData,
-                        i,
-                        aStrides,
-                        bData,
-                        j,
-                        bStrides,
-                        dimensions,
-                        depth + 1);
-            }
-        } else {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                Array.setShort(
-                        bData,
-                        j,
-                        ((Number) Array.get(aData, i)).shortValue());
-            }
-        }
-    }
-
-    static void copyAToBi(final Object aData, final int aStart, final int[] aStrides,
-            final Object bData, final int bStart, final int[] bStrides, final int[] dimensions, final int depth) {
-        final int jMax = bStart + dimensions[depth] * bStrides[depth];
-        if (depth < dimensions.length - 1) {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                PyMultiarray.copyAToBi(
-                        aData,
-                        i,
-                        aStrides,
-                        bData,
-                        j,
-                        bStrides,
-                        dimensions,
-                        depth + 1);
-            }
-        } else {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                Array.setInt(
-                        bData,
-                        j,
-                        ((Number) Array.get(aData, i)).intValue());
-            }
-        }
-    }
-
-    static void copyAToBl(final Object aData, final int aStart, final int[] aStrides,
-            final Object bData, final int bStart, final int[] bStrides, final int[] dimensions, final int depth) {
-        final int jMax = bStart + dimensions[depth] * bStrides[depth];
-        if (depth < dimensions.length - 1) {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                PyMultiarray.copyAToBl(
-                        aData,
-                        i,
-                        aStrides,
-                        bData,
-                        j,
-                        bStrides,
-                        dimensions,
-                        depth + 1);
-            }
-        } else {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                Array.setLong(
-                        bData,
-                        j,
-                        ((Number) Array.get(aData, i)).longValue());
-            }
-        }
-    }
-
-    static void copyAToBf(final Object aData, final int aStart, final int[] aStrides,
-            final Object bData, final int bStart, final int[] bStrides, final int[] dimensions, final int depth) {
-        final int jMax = bStart + dimensions[depth] * bStrides[depth];
-        if (depth < dimensions.length - 1) {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                PyMultiarray.copyAToBf(
-                        aData,
-                        i,
-                        aStrides,
-                        bData,
-                        j,
-                        bStrides,
-                        dimensions,
-                        depth + 1);
-            }
-        } else {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                Array.setFloat(
-                        bData,
-                        j,
-                        ((Number) Array.get(aData, i)).floatValue());
-            }
-        }
-    }
-
-    static void copyAToBd(final Object aData, final int aStart, final int[] aStrides,
-            final Object bData, final int bStart, final int[] bStrides, final int[] dimensions, final int depth) {
-        final int jMax = bStart + dimensions[depth] * bStrides[depth];
-        if (depth < dimensions.length - 1) {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                PyMultiarray.copyAToBd(
-                        aData,
-                        i,
-                        aStrides,
-                        bData,
-                        j,
-                        bStrides,
-                        dimensions,
-                        depth + 1);
-            }
-        } else {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                Array.setDouble(
-                        bData,
-                        j,
-                        ((Number) Array.get(aData, i)).doubleValue());
-            }
-        }
-    }
-
-    static void copyAToBF(final Object aData, final int aStart, final int[] aStrides,
-            final Object bData, final int bStart, final int[] bStrides, final int[] dimensions, final int depth) {
-        final int jMax = bStart + dimensions[depth] * bStrides[depth];
-        if (depth < dimensions.length - 1) {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                PyMultiarray.copyAToBF(
-                        aData,
-                        i,
-                        aStrides,
-                        bData,
-                        j,
-                        bStrides,
-                        dimensions,
-                        depth + 1);
-            }
-        } else {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                Array.setFloat(
-                        bData,
-                        j,
-                        ((Number) Array.get(aData, i)).floatValue());
-                Array.setFloat(
-                        bData,
-                        j + 1,
-                        ((Number) Array.get(aData, i + 1)).floatValue());
-            }
-        }
-    }
-
-    static void copyAToBD(final Object aData, final int aStart, final int[] aStrides,
-            final Object bData, final int bStart, final int[] bStrides, final int[] dimensions, final int depth) {
-        final int jMax = bStart + dimensions[depth] * bStrides[depth];
-        if (depth < dimensions.length - 1) {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                PyMultiarray.copyAToBD(
-                        aData,
-                        i,
-                        aStrides,
-                        bData,
-                        j,
-                        bStrides,
-                        dimensions,
-                        depth + 1);
-            }
-        } else {
-            for (int i = aStart, j = bStart; j != jMax; i += aStrides[depth], j += bStrides[depth]) {
-                Array.setDouble(
-                        bData,
-                        j,
-                        ((Number) Array.get(aData, i)).doubleValue());
-                Array.setDouble(
-                        bData,
-                        j + 1,
-                        ((Number) Array.get(aData, i + 1)).doubleValue());
-            }
-        }
-    }
-
     static void copyAToBO(final Object aData, final int aStart, final int[] aStrides,
             final Object bData, final int bStart, final int[] bStrides, final int[] dimensions, final int depth) {
         final int jMax = bStart + dimensions[depth] * bStrides[depth];
@@ -3125,105 +3239,81 @@ public class PyMultiarray extends PySequence {
     }
 
     /**
-     * This converts data (which must be an array) to an array of bytes.
-     */
-    static byte[] toByteArray(final Object data, final char type) {
-        try {
-            final java.io.ByteArrayOutputStream byteStream = new java.io.ByteArrayOutputStream();
-            final java.io.DataOutputStream dataStream = new java.io.DataOutputStream(
-                    byteStream);
-            switch (type) {
-            case '1':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    dataStream.writeByte(Array.getByte(data, i));
-                }
-                break;
-            case 's':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    dataStream.writeShort(Array.getShort(data, i));
-                }
-                break;
-            case 'i':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    dataStream.writeInt(Array.getInt(data, i));
-                }
-                break;
-            case 'l':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    dataStream.writeLong(Array.getLong(data, i));
-                }
-                break;
-            case 'f':
-            case 'F':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    dataStream.writeFloat(Array.getFloat(data, i));
-                }
-                break;
-            case 'd':
-            case 'D':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    dataStream.writeDouble(Array.getDouble(data, i));
-                }
-                break;
-            default:
-                throw Py.ValueError("typecode must be in [1silfFdDO]");
-            }
-            return byteStream.toByteArray();
-        } catch (final java.io.IOException e) {
-            throw Py.RuntimeError("ioexception:" + e.getMessage());
+     * Write length elements of data (which must be an array), from start
+     * on, into buffer at its position in its byte order, advancing it.
+     */
+    static void toByteBuffer(final Object data, final int start, final int length, final char type,
+            final ByteBuffer buffer) {
+        switch (type) {
+        case '1':
+            buffer.put((byte[]) data, start, length);
+            return;
+        case 's':
+            buffer.asShortBuffer().put((short[]) data, start, length);
+            break;
+        case 'i':
+            buffer.asIntBuffer().put((int[]) data, start, length);
+            break;
+        case 'l':
+            buffer.asLongBuffer().put((long[]) data, start, length);
+            break;
+        case 'f':
+        case 'F':
+            buffer.asFloatBuffer().put((float[]) data, start, length);
+            break;
+        case 'd':
+        case 'D':
+            buffer.asDoubleBuffer().put((double[]) data, start, length);
+            break;
+        default:
+            throw Py.ValueError("typecode must be in [1silfFdDO]");
         }
+        // Views have their own positions, so advance the buffer's.
+        buffer.position(buffer.position() + length * PyMultiarray.typeToNBytes(type));
     }
 
-    static Object fromByteArray(final byte[] bytes, final char type) {
-        if (bytes.length % PyMultiarray.typeToNBytes(type) != 0) { throw Py
+    /**
+     * Read the remaining bytes of buffer, in its byte order, as the data of
+     * an array of type. The buffer's position is left unchanged.
+     */
+    static Object fromByteBuffer(final ByteBuffer buffer, final char type) {
+        if (buffer.remaining() % PyMultiarray.typeToNBytes(type) != 0) { throw Py
                 .ValueError("array size must be a multiple of the type size"); }
-        try {
-            final java.io.ByteArrayInputStream byteStream = new java.io.ByteArrayInputStream(
-                    bytes);
-            final java.io.DataInputStream dataStream = new java.io.DataInputStream(
-                    byteStream);
-            final Object data = Array.newInstance(
-                    PyMultiarray.typeToClass(type),
-                    bytes.length / PyMultiarray.typeToNBytes(type));
-            switch (type) {
-            case '1':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    Array.setByte(data, i, dataStream.readByte());
-                }
-                break;
-            case 's':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    Array.setShort(data, i, dataStream.readShort());
-                }
-                break;
-            case 'i':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    Array.setInt(data, i, dataStream.readInt());
-                }
-                break;
-            case 'l':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    Array.setLong(data, i, dataStream.readLong());
-                }
-                break;
-            case 'f':
-            case 'F':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    Array.setFloat(data, i, dataStream.readFloat());
-                }
-                break;
-            case 'd':
-            case 'D':
-                for (int i = 0; i < Array.getLength(data); i++) {
-                    Array.setDouble(data, i, dataStream.readDouble());
-                }
-                break;
-            default:
-                throw Py.ValueError("typecode must be in [1silfFdDO]");
-            }
+        switch (type) {
+        case '1': {
+            final byte[] data = new byte[buffer.remaining()];
+            buffer.duplicate().get(data);
+            return data;
+        }
+        case 's': {
+            final short[] data = new short[buffer.remaining() / 2];
+            buffer.asShortBuffer().get(data);
+            return data;
+        }
+        case 'i': {
+            final int[] data = new int[buffer.remaining() / 4];
+            buffer.asIntBuffer().get(data);
+            return data;
+        }
+        case 'l': {
+            final long[] data = new long[buffer.remaining() / 8];
+            buffer.asLongBuffer().get(data);
+            return data;
+        }
+        case 'f':
+        case 'F': {
+            final float[] data = new float[buffer.remaining() / 4];
+            buffer.asFloatBuffer().get(data);
+            return data;
+        }
+        case 'd':
+        case 'D': {
+            final double[] data = new double[buffer.remaining() / 8];
+            buffer.asDoubleBuffer().get(data);
             return data;
-        } catch (final java.io.IOException e) {
-            throw Py.RuntimeError("ioexception:" + e.getMessage());
+        }
+        default:
+            throw Py.ValueError("typecode must be in [1silfFdDO]");
         }
     }
 
@@ -3291,6 +3381,75 @@ public class PyMultiarray extends PySequence {
         return PyMultiarray.array(po).__mod__(this);
     }
 
+    //
+    // Augmented assignment. The operation is computed straight into this,
+    // which is returned; an operand that would widen its type is an error
+    // rather than being silently cast down.
+    //
+
+    @Override public PyObject __iadd__(final PyObject o) {
+        this.__add__(this.inPlaceOperand(o), this);
+        return this;
+    }
+
+    @Override public PyObject __isub__(final PyObject o) {
+        this.__sub__(this.inPlaceOperand(o), this);
+        return this;
+    }
+
+    @Override public PyObject __imul__(final PyObject o) {
+        this.__mul__(this.inPlaceOperand(o), this);
+        return this;
+    }
+
+    @Override public PyObject __idiv__(final PyObject o) {
+        this.__div__(this.inPlaceOperand(o), this);
+        return this;
+    }
+
+    @Override public PyObject __imod__(final PyObject o) {
+        this.__mod__(this.inPlaceOperand(o), this);
+        return this;
+    }
+
+    @Override public PyObject __ipow__(final PyObject o) {
+        this.__pow__(this.inPlaceOperand(o), this);
+        return this;
+    }
+
+    @Override public PyObject __iand__(final PyObject o) {
+        this.__and__(this.inPlaceOperand(o), this);
+        return this;
+    }
+
+    @Override public PyObject __ior__(final PyObject o) {
+        this.__or__(this.inPlaceOperand(o), this);
+        return this;
+    }
+
+    @Override public PyObject __ixor__(final PyObject o) {
+        this.__xor__(this.inPlaceOperand(o), this);
+        return this;
+    }
+
+    /**
+     * o as the right operand of an operation computed into this. Raises
+     * TypeError if it would widen the type of the result.
+     */
+    private PyMultiarray inPlaceOperand(final PyObject o) {
+        if (o instanceof PyInteger || o instanceof PyLong || o instanceof PyFloat || o instanceof PyComplex) {
+            // A Python number only has to be of a kind this can hold.
+            final char least = (o instanceof PyFloat) ? 'f' : (o instanceof PyComplex) ? 'F' : '1';
+            if (PyMultiarray.commonType(this._typecode, least) != this._typecode) { throw Py
+                    .TypeError("cannot cast result to array type in place"); }
+            return PyMultiarray.asarray(o, this._typecode);
+        }
+        final PyMultiarray b = PyMultiarray.asarray(o);
+        if (PyMultiarray.commonType(this._typecode, b._typecode) != this._typecode) { throw Py
+                .TypeError("cannot cast result to array type in place"); }
+        return PyMultiarray.unaliased(b, this);
+    }
+
     @Override public PyObject __divmod__(final PyObject po) {
         final PyObject mod = this.__mod__(po);
         final PyObject div = this.__sub__(mod).__div__(po);
@@ -4006,23 +4165,12 @@ public class PyMultiarray extends PySequence {
         return this.__add__(o, null);
     }
 
-    PyObject __add__(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__add__(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __add__(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.ADD_KERNEL);
+    }
+
+    private final static Kernel ADD_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.addByte(
@@ -4118,8 +4266,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void subByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -4237,23 +4384,12 @@ public class PyMultiarray extends PySequence {
         return this.__sub__(o, null);
     }
 
-    PyObject __sub__(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__sub__(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __sub__(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.SUB_KERNEL);
+    }
+
+    private final static Kernel SUB_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.subByte(
@@ -4349,8 +4485,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void mulByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -4468,23 +4603,12 @@ public class PyMultiarray extends PySequence {
         return this.__mul__(o, null);
     }
 
-    PyObject __mul__(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__mul__(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __mul__(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.MUL_KERNEL);
+    }
+
+    private final static Kernel MUL_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.mulByte(
@@ -4580,8 +4704,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void divByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -4699,24 +4822,13 @@ public class PyMultiarray extends PySequence {
         return this.__div__(o, null);
     }
 
-    PyObject __div__(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = this.astype(type);
-        b = b.astype(type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        try {
-            if (result.dimensions.length == 0) {
-                result.__setitem__(
-                        Py.Ellipsis,
-                        a.__div__(PyMultiarray.stretchAxes(b)).__getitem__(0));
-            } else {
+    PyObject __div__(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.DIV_KERNEL);
+    }
+
+    private final static Kernel DIV_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
+            try {
                 switch (type) {
                 case '1':
                     PyMultiarray.divByte(
@@ -4811,14 +4923,13 @@ public class PyMultiarray extends PySequence {
                 default:
                     throw Py.ValueError("typecode must be in [1silfFdDO]");
                 }
+            } catch (final java.lang.ArithmeticException ex) {
+                if (ex.getMessage().equals("/ by zero")) { throw Py
+                        .ZeroDivisionError("divide by zero"); }
+                throw ex;
             }
-        } catch (final java.lang.ArithmeticException ex) {
-            if (ex.getMessage().equals("/ by zero")) { throw Py
-                    .ZeroDivisionError("divide by zero"); }
-            throw ex;
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void modByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -4936,23 +5047,12 @@ public class PyMultiarray extends PySequence {
         return this.__mod__(o, null);
     }
 
-    PyObject __mod__(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__mod__(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __mod__(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.MOD_KERNEL);
+    }
+
+    private final static Kernel MOD_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.modByte(
@@ -5048,8 +5148,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void powByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -5167,23 +5266,12 @@ public class PyMultiarray extends PySequence {
         return this.__pow__(o, null);
     }
 
-    PyObject __pow__(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__pow__(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __pow__(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.POW_KERNEL);
+    }
+
+    private final static Kernel POW_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.powByte(
@@ -5279,8 +5367,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void maxByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -5425,22 +5512,12 @@ public class PyMultiarray extends PySequence {
         return this.__max(o, null);
     }
 
-    PyObject __max(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(Py.Ellipsis, a
-                    .__max(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __max(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.MAX_KERNEL);
+    }
+
+    private final static Kernel MAX_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.maxByte(
@@ -5536,8 +5613,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void minByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -5664,22 +5740,12 @@ public class PyMultiarray extends PySequence {
         return this.__min(o, null);
     }
 
-    PyObject __min(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(Py.Ellipsis, a
-                    .__min(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __min(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.MIN_KERNEL);
+    }
+
+    private final static Kernel MIN_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.minByte(
@@ -5775,8 +5841,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void eqByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -5899,22 +5964,12 @@ public class PyMultiarray extends PySequence {
         return this.__eq(o, null);
     }
 
-    PyObject __eq(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, 'i');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(Py.Ellipsis, a.__eq(PyMultiarray.stretchAxes(b))
-                    .__getitem__(0));
-        } else {
+    PyObject __eq(final PyObject o, final PyMultiarray result) {
+        return PyMultiarray.mask(this.binary(o, result, 'i', PyMultiarray.EQ_KERNEL), result);
+    }
+
+    private final static Kernel EQ_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.eqByte(
@@ -6010,8 +6065,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void neqByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -6134,22 +6188,12 @@ public class PyMultiarray extends PySequence {
         return this.__neq(o, null);
     }
 
-    PyObject __neq(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, 'i');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(Py.Ellipsis, a
-                    .__neq(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __neq(final PyObject o, final PyMultiarray result) {
+        return PyMultiarray.mask(this.binary(o, result, 'i', PyMultiarray.NEQ_KERNEL), result);
+    }
+
+    private final static Kernel NEQ_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.neqByte(
@@ -6245,8 +6289,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void leByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -6369,22 +6412,12 @@ public class PyMultiarray extends PySequence {
         return this.__le(o, null);
     }
 
-    PyObject __le(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, 'i');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(Py.Ellipsis, a.__le(PyMultiarray.stretchAxes(b))
-                    .__getitem__(0));
-        } else {
+    PyObject __le(final PyObject o, final PyMultiarray result) {
+        return PyMultiarray.mask(this.binary(o, result, 'i', PyMultiarray.LE_KERNEL), result);
+    }
+
+    private final static Kernel LE_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.leByte(
@@ -6464,8 +6497,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void ltByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -6588,22 +6620,12 @@ public class PyMultiarray extends PySequence {
         return this.__lt(o, null);
     }
 
-    PyObject __lt(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, 'i');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(Py.Ellipsis, a.__lt(PyMultiarray.stretchAxes(b))
-                    .__getitem__(0));
-        } else {
+    PyObject __lt(final PyObject o, final PyMultiarray result) {
+        return PyMultiarray.mask(this.binary(o, result, 'i', PyMultiarray.LT_KERNEL), result);
+    }
+
+    private final static Kernel LT_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.ltByte(
@@ -6683,8 +6705,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void geByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -6807,22 +6828,12 @@ public class PyMultiarray extends PySequence {
         return this.__ge(o, null);
     }
 
-    PyObject __ge(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, 'i');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(Py.Ellipsis, a.__ge(PyMultiarray.stretchAxes(b))
-                    .__getitem__(0));
-        } else {
+    PyObject __ge(final PyObject o, final PyMultiarray result) {
+        return PyMultiarray.mask(this.binary(o, result, 'i', PyMultiarray.GE_KERNEL), result);
+    }
+
+    private final static Kernel GE_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.geByte(
@@ -6902,8 +6913,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void gtByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -7026,22 +7036,12 @@ public class PyMultiarray extends PySequence {
         return this.__gt(o, null);
     }
 
-    PyObject __gt(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, 'i');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(Py.Ellipsis, a.__gt(PyMultiarray.stretchAxes(b))
-                    .__getitem__(0));
-        } else {
+    PyObject __gt(final PyObject o, final PyMultiarray result) {
+        return PyMultiarray.mask(this.binary(o, result, 'i', PyMultiarray.GT_KERNEL), result);
+    }
+
+    private final static Kernel GT_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.gtByte(
@@ -7121,8 +7121,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void landByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -7245,23 +7244,12 @@ public class PyMultiarray extends PySequence {
         return this.__land(o, null);
     }
 
-    PyObject __land(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, 'i');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__land(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __land(final PyObject o, final PyMultiarray result) {
+        return PyMultiarray.mask(this.binary(o, result, 'i', PyMultiarray.LAND_KERNEL), result);
+    }
+
+    private final static Kernel LAND_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.landByte(
@@ -7357,8 +7345,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void lorByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -7481,22 +7468,12 @@ public class PyMultiarray extends PySequence {
         return this.__lor(o, null);
     }
 
-    PyObject __lor(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, 'i');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(Py.Ellipsis, a
-                    .__lor(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __lor(final PyObject o, final PyMultiarray result) {
+        return PyMultiarray.mask(this.binary(o, result, 'i', PyMultiarray.LOR_KERNEL), result);
+    }
+
+    private final static Kernel LOR_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.lorByte(
@@ -7592,8 +7569,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void lxorByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -7716,23 +7692,12 @@ public class PyMultiarray extends PySequence {
         return this.__lxor(o, null);
     }
 
-    PyObject __lxor(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, 'i');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__lxor(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __lxor(final PyObject o, final PyMultiarray result) {
+        return PyMultiarray.mask(this.binary(o, result, 'i', PyMultiarray.LXOR_KERNEL), result);
+    }
+
+    private final static Kernel LXOR_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.lxorByte(
@@ -7828,8 +7793,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void andByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -7915,23 +7879,12 @@ public class PyMultiarray extends PySequence {
         return this.__and__(o, null);
     }
 
-    PyObject __and__(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__and__(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __and__(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.AND_KERNEL);
+    }
+
+    private final static Kernel AND_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.andByte(
@@ -7995,8 +7948,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void orByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -8082,23 +8034,12 @@ public class PyMultiarray extends PySequence {
         return this.__or__(o, null);
     }
 
-    PyObject __or__(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__or__(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __or__(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.OR_KERNEL);
+    }
+
+    private final static Kernel OR_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.orByte(
@@ -8162,8 +8103,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     private final static void xorByte(int sa, final PyMultiarray a, int sb, final PyMultiarray b, int sr, final PyMultiarray r, final int d) {
         final int dsa = a.strides[d], dsb = b.strides[d], dsr = r.strides[d], maxSr = sr
@@ -8249,23 +8189,12 @@ public class PyMultiarray extends PySequence {
         return this.__xor__(o, null);
     }
 
-    PyObject __xor__(final PyObject o, PyMultiarray result) {
-        PyMultiarray a, b = PyMultiarray.asarray(o);
-        final char type = PyMultiarray.commonType(this._typecode, b._typecode);
-        a = PyMultiarray.asarray(this, type);
-        b = PyMultiarray.asarray(b, type);
-        a = PyMultiarray.stretchAxes(a, b);
-        b = PyMultiarray.stretchAxes(b, this);
-        if (result == null) {
-            result = PyMultiarray.getResultArray(a, b, '\0');
-        } else {
-            PyMultiarray.checkResultArray(result, a, b);
-        }
-        if (result.dimensions.length == 0) {
-            result.__setitem__(
-                    Py.Ellipsis,
-                    a.__xor__(PyMultiarray.stretchAxes(b)).__getitem__(0));
-        } else {
+    PyObject __xor__(final PyObject o, final PyMultiarray result) {
+        return this.binary(o, result, '\0', PyMultiarray.XOR_KERNEL);
+    }
+
+    private final static Kernel XOR_KERNEL = new Kernel() {
+        @Override void run(final char type, final PyMultiarray a, final PyMultiarray b, final PyMultiarray result) {
             switch (type) {
             case '1':
                 PyMultiarray.xorByte(
@@ -8329,8 +8258,7 @@ public class PyMultiarray extends PySequence {
                 throw Py.ValueError("typecode must be in [1silfFdDO]");
             }
         }
-        return PyMultiarray.returnValue(result);
-    }
+    };
 
     @Override public boolean isNumberType() throws PyIgnoreMethodTag {
         return true;
@@ -0,0 +1,555 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Drives BinaryFunction reductions over any set of axes of a strided array.
+ *
+ * The axes that are kept and the axes that are reduced are each coalesced
+ * into as few (dimension, stride) runs as possible. When the reduced axes
+ * are the innermost ones, every result element is reduced along its own run
+ * with <code>BinaryFunction.reduce</code>. Otherwise whole rows of the kept
+ * innermost axis are combined into a vector accumulator, so memory is read
+ * in order. Rows are combined in blocks, and blocks pairwise, which keeps
+ * the rounding error of sums growing with log(n).
+ *
+ * Large reductions are split across the fork/join pool: by result element
+ * when there are many, otherwise by reduced rows into per-thread partial
+ * results that are combined at the end. Object arrays, whose elements run
+ * Python code, are always reduced on the calling thread.
+ */
+final class Reduction {
+
+    /**
+     * Rows combined into one accumulator before accumulators are cascaded.
+     */
+    private static final int BLOCK = 128;
+
+    /**
+     * Shortest kept inner axis worth accumulating as a vector.
+     */
+    private static final int MIN_INNER = 8;
+
+    /**
+     * Elements of a run reduced by every function in turn when several
+     * reductions share a pass; small enough to stay in cache.
+     */
+    private static final int RUN = 2048;
+
+    private Reduction() {}
+
+    /**
+     * Walks the offsets of a strided index space in C order.
+     */
+    static final class Walk {
+        private final int[] dims, strides, counter;
+        int offset;
+
+        Walk(final int[] dims, final int[] strides, final int start, int index) {
+            this.dims = dims;
+            this.strides = strides;
+            this.counter = new int[dims.length];
+            this.offset = start;
+            for (int d = dims.length - 1; d >= 0; d--) {
+                this.counter[d] = index % dims[d];
+                this.offset += this.counter[d] * strides[d];
+                index /= dims[d];
+            }
+        }
+
+        void next() {
+            for (int d = this.dims.length - 1; d >= 0; d--) {
+                this.offset += this.strides[d];
+                if (++this.counter[d] < this.dims[d]) { return; }
+                this.offset -= this.counter[d] * this.strides[d];
+                this.counter[d] = 0;
+            }
+        }
+    }
+
+    /**
+     * Drop unit dimensions and merge neighbours that form a single run.
+     * Returns {dims, strides}.
+     */
+    static int[][] coalesce(final int[] dims, final int[] strides, final int n) {
+        final int[] d = new int[n], s = new int[n];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            if (dims[i] == 1) {
+                continue;
+            }
+            if (k > 0 && s[k - 1] == strides[i] * dims[i]) {
+                d[k - 1] *= dims[i];
+                s[k - 1] = strides[i];
+            } else {
+                d[k] = dims[i];
+                s[k] = strides[i];
+                k++;
+            }
+        }
+        return new int[][] { Arrays.copyOf(d, k), Arrays.copyOf(s, k) };
+    }
+
+    private static int product(final int[] dims) {
+        int n = 1;
+        for (final int d : dims) {
+            n *= d;
+        }
+        return n;
+    }
+
+    /**
+     * Reduce <code>a</code> over the axes flagged in <code>reduced</code>
+     * into <code>r</code>, a contiguous array (from <code>r.start</code>) of
+     * <code>f.resultType(a._typecode)</code> holding one item per
+     * combination of the kept axes. Every reduced axis must be non-empty.
+     */
+    static void reduce(final BinaryFunction f, final PyMultiarray a, final boolean[] reduced, final PyMultiarray r) {
+        Reduction.reduce(new BinaryFunction[] { f }, a, reduced, new PyMultiarray[] { r });
+    }
+
+    /**
+     * Reduce <code>a</code> with several functions in one pass over the
+     * data, <code>fs[k]</code> into <code>results[k]</code>.
+     */
+    static void reduce(final BinaryFunction[] fs, PyMultiarray a, final boolean[] reduced,
+            final PyMultiarray[] results) {
+        final int nd = a.dimensions.length;
+        int[] kd = new int[nd], ks = new int[nd], rd = new int[nd], rs = new int[nd];
+        int nk = 0, nr = 0;
+        for (int i = 0; i < nd; i++) {
+            if (reduced[i]) {
+                rd[nr] = a.dimensions[i];
+                rs[nr++] = a.strides[i];
+            } else {
+                kd[nk] = a.dimensions[i];
+                ks[nk++] = a.strides[i];
+            }
+        }
+        final int[][] kept = Reduction.coalesce(kd, ks, nk), over = Reduction.coalesce(rd, rs, nr);
+        kd = kept[0];
+        ks = kept[1];
+        rd = over[0];
+        rs = over[1];
+        final int m = Reduction.product(kd), n = Reduction.product(rd);
+        if (m == 0) { return; }
+        final char type = a._typecode;
+        int minStride = Integer.MAX_VALUE;
+        for (final int s : rs) {
+            minStride = Math.min(minStride, Math.abs(s));
+        }
+        final char[] accTypes = new char[fs.length];
+        boolean rowwise = kd.length > 0 && kd[kd.length - 1] >= Reduction.MIN_INNER
+                && Math.abs(ks[ks.length - 1]) < minStride;
+        for (int k = 0; k < fs.length; k++) {
+            accTypes[k] = fs[k].accumulatorType(type);
+            rowwise &= accTypes[k] != '\0';
+        }
+        if (rowwise) {
+            Reduction.vector(fs, a.data, type, accTypes, a.start, kd, ks, rd, rs, m, n, results);
+            return;
+        }
+        if (rd.length > 1) {
+            // The reduced axes are not one run; copy them innermost.
+            final int[] perms = new int[nd];
+            int p = 0;
+            for (int i = 0; i < nd; i++) {
+                if (!reduced[i]) {
+                    perms[p++] = i;
+                }
+            }
+            for (int i = 0; i < nd; i++) {
+                if (reduced[i]) {
+                    perms[p++] = i;
+                }
+            }
+            a = PyMultiarray.ascontiguous(PyMultiarray.transpose(a, perms));
+            final int e = PyMultiarray.typeToNElements(type);
+            kd = new int[] { m };
+            ks = new int[] { n * e };
+            rd = new int[] { n };
+            rs = new int[] { e };
+        }
+        // A single item still needs a nonzero stride to step past.
+        Reduction.scalar(fs, a.data, type, a.start, kd, ks, (rd.length == 0) ? 1 : rd[0],
+                (rs.length == 0) ? 1 : rs[0], m, results);
+    }
+
+    /**
+     * One reduction along a single run per result element.
+     */
+    private static void scalar(final BinaryFunction[] fs, final Object aData, final char type, final int start,
+            final int[] kd, final int[] ks, final int n, final int s, final int m, final PyMultiarray[] results) {
+        // Only functions that combine rows (or pick indices) are known to be
+        // associative, and so safe to split along the run.
+        boolean split = true;
+        for (final BinaryFunction f : fs) {
+            split &= f.accumulatorType(type) != '\0' || f.indexReduce();
+        }
+        if (m >= Parallel.parallelism() || !split || !Parallel.worthwhile(n)) {
+            final boolean blocked = split && fs.length > 1 && n > Reduction.RUN;
+            Parallel.forRange(type, m, (long) m * n, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    final Walk w = new Walk(kd, ks, start, lo);
+                    for (int q = lo; q < hi; q++, w.next()) {
+                        if (blocked) {
+                            Reduction.chunked(fs, aData, type, w.offset, n, s, results, q, Reduction.RUN);
+                            continue;
+                        }
+                        for (int k = 0; k < fs.length; k++) {
+                            final PyMultiarray r = results[k];
+                            fs[k].reduce(aData, w.offset, n, s, r.data,
+                                    r.start + q * PyMultiarray.typeToNElements(r._typecode), type);
+                        }
+                    }
+                }
+            });
+            return;
+        }
+        int size = (n + 4 * Parallel.parallelism() - 1) / (4 * Parallel.parallelism());
+        if (fs.length > 1) {
+            size = Math.min(size, Reduction.RUN);
+        }
+        final Walk w = new Walk(kd, ks, start, 0);
+        for (int q = 0; q < m; q++, w.next()) {
+            Reduction.chunked(fs, aData, type, w.offset, n, s, results, q, size);
+        }
+    }
+
+    /**
+     * Reduce one long run in chunks of <code>size</code>, in parallel, then
+     * reduce the partials into result element <code>q</code>. Each chunk is
+     * reduced by every function while it is still in cache. Partials are
+     * kept in the accumulator type, and cast to the result type only once.
+     */
+    private static void chunked(final BinaryFunction[] fs, final Object aData, final char type, final int offset,
+            final int n, final int s, final PyMultiarray[] results, final int q, final int size) {
+        final int chunks = (n + size - 1) / size;
+        final PyMultiarray[] partials = new PyMultiarray[fs.length];
+        for (int k = 0; k < fs.length; k++) {
+            partials[k] = PyMultiarray.zeros(new int[] { chunks },
+                    fs[k].indexReduce() ? results[k]._typecode : fs[k].accumulatorType(type));
+        }
+        Parallel.forRange(type, chunks, n, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                for (int c = lo; c < hi; c++) {
+                    final int from = c * size;
+                    for (int k = 0; k < fs.length; k++) {
+                        fs[k].reduceAccumulator(aData, offset + from * s, Math.min(size, n - from), s,
+                                partials[k].data, c * PyMultiarray.typeToNElements(partials[k]._typecode), type);
+                    }
+                }
+            }
+        });
+        for (int k = 0; k < fs.length; k++) {
+            final PyMultiarray r = results[k];
+            final int rStep = PyMultiarray.typeToNElements(r._typecode), rPos = r.start + q * rStep;
+            if (!fs[k].indexReduce()) {
+                final char pType = partials[k]._typecode;
+                if (pType == r._typecode) {
+                    fs[k].reduce(partials[k].data, 0, chunks, rStep, r.data, rPos, r._typecode);
+                    continue;
+                }
+                final PyMultiarray total = PyMultiarray.zeros(new int[] { 1 }, pType);
+                fs[k].reduce(partials[k].data, 0, chunks, PyMultiarray.typeToNElements(pType), total.data, 0, pType);
+                Broadcast.copy(total.data, pType, 0, 1, r.data, r._typecode, rPos, 1, 1);
+                continue;
+            }
+            // Pick the winning chunk by the values its index points at. A
+            // chunk with no index (all NaN) is represented by its first NaN.
+            final int[] at = (int[]) partials[k].data;
+            final int e = PyMultiarray.typeToNElements(type);
+            final PyMultiarray values = PyMultiarray.empty(new int[] { chunks }, type);
+            for (int c = 0; c < chunks; c++) {
+                System.arraycopy(aData, offset + (c * size + Math.max(at[c], 0)) * s, values.data, c * e, e);
+            }
+            final int[] best = new int[1];
+            fs[k].reduce(values.data, 0, chunks, e, best, 0, type);
+            Array.setInt(r.data, rPos, (best[0] < 0) ? -1 : best[0] * size + at[best[0]]);
+            BufferPool.release(values);
+        }
+        for (final PyMultiarray p : partials) {
+            BufferPool.release(p);
+        }
+    }
+
+    /**
+     * Combine whole rows of the innermost kept axis at a time.
+     */
+    private static void vector(final BinaryFunction[] fs, final Object aData, final char type,
+            final char[] accTypes, final int start, final int[] kd, final int[] ks, final int[] rd,
+            final int[] rs, final int m, final int n, final PyMultiarray[] results) {
+        final int inner = kd[kd.length - 1], sIn = ks[ks.length - 1], outer = m / inner;
+        final int[] od = Arrays.copyOf(kd, kd.length - 1), os = Arrays.copyOf(ks, ks.length - 1);
+        final int par = Parallel.parallelism();
+        final long cost = (long) m * n;
+        if (outer >= par || !Parallel.worthwhile(cost)) {
+            Parallel.forRange(type, outer, cost, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    final Walk w = new Walk(od, os, start, lo);
+                    for (int o = lo; o < hi; o++, w.next()) {
+                        final Object[] v = Reduction.rows(fs, aData, type, accTypes, w.offset, sIn, inner, rd,
+                                rs, 0, n);
+                        Reduction.store(v, accTypes, results, o * inner, inner);
+                    }
+                }
+            });
+            return;
+        }
+        final Walk w = new Walk(od, os, start, 0);
+        for (int o = 0; o < outer; o++, w.next()) {
+            final int base = w.offset, item = o * inner;
+            if (inner >= 256 * par) {
+                // Enough columns: give each thread a band of them.
+                final int width = (inner + 4 * par - 1) / (4 * par), bands = (inner + width - 1) / width;
+                Parallel.forRange(type, bands, cost / outer, new Parallel.Range() {
+                    @Override void run(final int lo, final int hi) {
+                        for (int b = lo; b < hi; b++) {
+                            final int c0 = b * width, cn = Math.min(width, inner - c0);
+                            final Object[] v = Reduction.rows(fs, aData, type, accTypes, base + c0 * sIn, sIn,
+                                    cn, rd, rs, 0, n);
+                            Reduction.store(v, accTypes, results, item + c0, cn);
+                        }
+                    }
+                });
+            } else {
+                // Few columns: split the rows and combine per-thread partials.
+                final int size = Math.max(Reduction.BLOCK, (n + 4 * par - 1) / (4 * par));
+                final int chunks = (n + size - 1) / size;
+                final Object[][] partials = new Object[chunks][];
+                Parallel.forRange(type, chunks, cost / outer, new Parallel.Range() {
+                    @Override void run(final int lo, final int hi) {
+                        for (int c = lo; c < hi; c++) {
+                            partials[c] = Reduction.rows(fs, aData, type, accTypes, base, sIn, inner, rd, rs, c
+                                    * size, Math.min(n, (c + 1) * size));
+                        }
+                    }
+                });
+                for (int c = 1; c < chunks; c++) {
+                    for (int k = 0; k < fs.length; k++) {
+                        fs[k].combine(partials[c][k], 0, PyMultiarray.typeToNElements(accTypes[k]),
+                                partials[0][k], 0, inner, accTypes[k]);
+                    }
+                }
+                Reduction.store(partials[0], accTypes, results, item, inner);
+            }
+        }
+    }
+
+    /**
+     * Reduce each segment <code>[bounds[i], bounds[i + 1])</code> of axis
+     * <code>axis</code> of <code>a</code> into item i along the same axis of
+     * <code>r</code>, a contiguous array of
+     * <code>f.resultType(a._typecode)</code> with <code>bounds.length -
+     * 1</code> items along that axis. All segments are reduced in one sweep,
+     * in parallel across segments unless a is an object array. Empty
+     * segments are left untouched.
+     */
+    static void segments(final BinaryFunction f, final PyMultiarray a, final int axis, final int[] bounds,
+            final PyMultiarray r) {
+        final int nd = a.dimensions.length, nSeg = bounds.length - 1;
+        final char type = a._typecode, accType = f.accumulatorType(type);
+        final int sa = a.strides[axis], e = PyMultiarray.typeToNElements(r._typecode);
+        final int[] bd = Arrays.copyOf(a.dimensions, axis), bs = Arrays.copyOf(a.strides, axis);
+        final int[][] after = Reduction.coalesce(Arrays.copyOfRange(a.dimensions, axis + 1, nd),
+                Arrays.copyOfRange(a.strides, axis + 1, nd), nd - axis - 1);
+        final int outer = Reduction.product(bd), inner = Reduction.product(after[0]);
+        if (outer == 0 || inner == 0) { return; }
+        final long cost = (long) outer * inner * a.dimensions[axis];
+        if (accType != '\0' && after[0].length == 1 && inner >= Reduction.MIN_INNER
+                && Math.abs(after[1][0]) < Math.abs(sa)) {
+            // Rows of the trailing axes are combined a segment at a time.
+            final int sIn = after[1][0];
+            final BinaryFunction[] fs = { f };
+            final char[] accTypes = { accType };
+            final PyMultiarray[] results = { r };
+            Parallel.forRange(type, outer * nSeg, cost, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    for (int t = lo; t < hi; t++) {
+                        final int o = t / nSeg, seg = t % nSeg;
+                        if (bounds[seg] >= bounds[seg + 1]) {
+                            continue;
+                        }
+                        final Object[] v = Reduction.rows(fs, a.data, type, accTypes,
+                                new Walk(bd, bs, a.start, o).offset, sIn, inner, new int[] { a.dimensions[axis] },
+                                new int[] { sa }, bounds[seg], bounds[seg + 1]);
+                        Reduction.store(v, accTypes, results, t * inner, inner);
+                    }
+                }
+            });
+            return;
+        }
+        // Otherwise one run per segment and element of the other axes.
+        final int[] od = new int[nd - 1], os = new int[nd - 1];
+        for (int i = 0, k = 0; i < nd; i++) {
+            if (i != axis) {
+                od[k] = a.dimensions[i];
+                os[k++] = a.strides[i];
+            }
+        }
+        final int lines = outer * inner;
+        final Object aData = a.data, rData = r.data;
+        if (lines >= Parallel.parallelism()) {
+            Parallel.forRange(type, lines, cost, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    final Walk w = new Walk(od, os, a.start, lo);
+                    for (int line = lo; line < hi; line++, w.next()) {
+                        final int item = (line / inner) * nSeg * inner + line % inner;
+                        for (int seg = 0; seg < nSeg; seg++) {
+                            final int n = bounds[seg + 1] - bounds[seg];
+                            if (n > 0) {
+                                f.reduce(aData, w.offset + bounds[seg] * sa, n, sa, rData, r.start
+                                        + (item + seg * inner) * e, type);
+                            }
+                        }
+                    }
+                }
+            });
+            return;
+        }
+        final Walk w = new Walk(od, os, a.start, 0);
+        for (int line = 0; line < lines; line++, w.next()) {
+            final int offset = w.offset, item = (line / inner) * nSeg * inner + line % inner;
+            Parallel.forRange(type, nSeg, cost / lines, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    for (int seg = lo; seg < hi; seg++) {
+                        final int n = bounds[seg + 1] - bounds[seg];
+                        if (n > 0) {
+                            f.reduce(aData, offset + bounds[seg] * sa, n, sa, rData, r.start
+                                    + (item + seg * inner) * e, type);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Combine rows <code>[lo, hi)</code> of the reduced axes, each
+     * <code>width</code> items of stride <code>sIn</code> from
+     * <code>base</code>, into a new accumulator of <code>accTypes[k]</code>
+     * for every function.
+     */
+    static Object[] rows(final BinaryFunction[] fs, final Object aData, final char type, final char[] accTypes,
+            final int base, final int sIn, final int width, final int[] rd, final int[] rs, final int lo,
+            final int hi) {
+        final int nf = fs.length, e = PyMultiarray.typeToNElements(type);
+        final int[] accSteps = new int[nf];
+        final boolean[] copy = new boolean[nf];
+        for (int k = 0; k < nf; k++) {
+            accSteps[k] = PyMultiarray.typeToNElements(accTypes[k]);
+            copy[k] = accTypes[k] == type && fs[k].copiesFirst();
+        }
+        final Object[][] level = new Object[33][], spare = new Object[33][];
+        int nSpare = 0;
+        final Walk w = new Walk(rd, rs, base, lo);
+        for (int b = lo; b < hi; b += Reduction.BLOCK) {
+            final int end = Math.min(hi, b + Reduction.BLOCK);
+            Object[] v = (nSpare > 0) ? spare[--nSpare] : null;
+            if (v == null) {
+                v = new Object[nf];
+                for (int k = 0; k < nf; k++) {
+                    v[k] = PyMultiarray.zeros(new int[] { width }, accTypes[k]).data;
+                }
+            }
+            for (int k = 0; k < nf; k++) {
+                if (copy[k]) {
+                    Reduction.load(aData, w.offset, sIn, v[k], width, e);
+                } else {
+                    Reduction.fill(v[k], accTypes[k], width * accSteps[k],
+                            (fs[k].identity() == BinaryFunction.one) ? 1 : 0);
+                    fs[k].combine(aData, w.offset, sIn, v[k], 0, width, type);
+                }
+            }
+            w.next();
+            for (int row = b + 1; row < end; row++, w.next()) {
+                for (int k = 0; k < nf; k++) {
+                    fs[k].combine(aData, w.offset, sIn, v[k], 0, width, type);
+                }
+            }
+            int h = 0;
+            for (; level[h] != null; h++) {
+                for (int k = 0; k < nf; k++) {
+                    fs[k].combine(level[h][k], 0, accSteps[k], v[k], 0, width, accTypes[k]);
+                }
+                spare[nSpare++] = level[h];
+                level[h] = null;
+            }
+            level[h] = v;
+        }
+        Object[] v = null;
+        for (int h = 0; h < level.length; h++) {
+            if (level[h] == null) {
+                continue;
+            }
+            if (v == null) {
+                v = level[h];
+            } else {
+                for (int k = 0; k < nf; k++) {
+                    fs[k].combine(level[h][k], 0, accSteps[k], v[k], 0, width, accTypes[k]);
+                }
+            }
+        }
+        return v;
+    }
+
+    private static void load(final Object aData, final int offset, final int sIn, final Object v,
+            final int width, final int e) {
+        if (sIn == e) {
+            System.arraycopy(aData, offset, v, 0, width * e);
+            return;
+        }
+        for (int i = 0, p = offset; i < width; i++, p += sIn) {
+            System.arraycopy(aData, p, v, i * e, e);
+        }
+    }
+
+    // Accumulators that start from an identity are int or double.
+    private static void fill(final Object v, final char accType, final int n, final int value) {
+        if (accType == 'i') {
+            Arrays.fill((int[]) v, 0, n, value);
+        } else if (accType == 'D') {
+            final double[] vd = (double[]) v;
+            for (int i = 0; i < n; i += 2) {
+                vd[i] = value;
+                vd[i + 1] = 0;
+            }
+        } else {
+            Arrays.fill((double[]) v, 0, n, value);
+        }
+    }
+
+    /**
+     * Copy <code>width</code> accumulated items into every result, from
+     * item <code>item</code> on.
+     */
+    private static void store(final Object[] v, final char[] accTypes, final PyMultiarray[] results,
+            final int item, final int width) {
+        for (int k = 0; k < v.length; k++) {
+            final char rType = results[k]._typecode;
+            final int e = PyMultiarray.typeToNElements(rType), n = width * e;
+            final int rPos = results[k].start + item * e;
+            if (accTypes[k] == rType) {
+                System.arraycopy(v[k], 0, results[k].data, rPos, n);
+                continue;
+            }
+            // Float sums accumulated in double precision.
+            final double[] vd = (double[]) v[k];
+            final float[] rf = (float[]) results[k].data;
+            for (int i = 0; i < n; i++) {
+                rf[rPos + i] = (float) vd[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import java.util.Arrays;
+
+import org.python.core.Py;
+import org.python.core.PyObject;
+
+/**
+ * Single-pass kernels behind where, clip and nonzero.
+ *
+ * where and clip walk their operands broadcast together with
+ * {@link Broadcast}, and write each element of the result once, without
+ * building the comparison and index arrays the old versions went through.
+ * nonzero counts the true elements of each piece of the array in one
+ * pass, then fills their positions in a second, so that the result is
+ * allocated exactly once; the pieces are handled in parallel.
+ */
+final class Selection {
+
+    private Selection() {}
+
+    /**
+     * The elements of x where condition is true, and of y elsewhere. x and
+     * y broadcast against condition, and may not have more dimensions than
+     * it.
+     *
+     * @param oCondition Array whose nonzero elements pick x
+     * @param ox Elements taken where condition is true
+     * @param oy Elements taken where condition is false
+     * @return An array of the common type of x and y
+     */
+    static PyMultiarray where(final PyObject oCondition, final PyObject ox, final PyObject oy) {
+        PyMultiarray c = PyMultiarray.asarray(oCondition);
+        if (c._typecode != 'i') {
+            c = PyMultiarray.asarray(Umath.not_equal.__call__(c, Py.Zero), 'i');
+        }
+        final PyMultiarray x0 = PyMultiarray.asarray(ox), y0 = PyMultiarray.asarray(oy);
+        final int nd = c.dimensions.length;
+        if (x0.dimensions.length > nd || y0.dimensions.length > nd) { throw Py
+                .ValueError("x and y may not have more dimensions than the condition"); }
+        final char type = PyMultiarray.commonType(x0._typecode, y0._typecode);
+        final PyMultiarray x = PyMultiarray.asarray(x0, type), y = PyMultiarray.asarray(y0, type);
+        final int[] shape = Broadcast.shape(c, x, y);
+        final PyMultiarray result = PyMultiarray.empty(shape, type);
+        final Broadcast b = new Broadcast(shape, result, c, x, y);
+        final int e = PyMultiarray.typeToNElements(type);
+        final int[] s = b.step;
+        final int[] cond = (int[]) c.data;
+        b.forEach(e, new Broadcast.Line() {
+            @Override void run(final int[] at, final int index, final int n) {
+                Selection.where(cond, at[1], s[1], x.data, at[2], s[2], y.data, at[3], s[3], result.data, at[0], s[0],
+                        n, e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * a with elements below a_min raised to it and elements above a_max
+     * lowered to it; where a_min is above a_max, a_max wins. The three
+     * broadcast together.
+     *
+     * @param out Array to write the result into, or None for a new one;
+     *        it may be a itself
+     * @return out, or a new array of the common type of the operands
+     */
+    static PyMultiarray clip(final PyObject oa, final PyObject oMin, final PyObject oMax, final PyObject out) {
+        if (out != Py.None && !(out instanceof PyMultiarray)) { throw Py.TypeError("out must be an array"); }
+        PyMultiarray a = PyMultiarray.asarray(oa), lo = PyMultiarray.asarray(oMin), hi = PyMultiarray.asarray(oMax);
+        PyMultiarray result = (out == Py.None) ? null : (PyMultiarray) out;
+        final char type = (result != null) ? result._typecode : PyMultiarray.commonType(
+                PyMultiarray.commonType(a._typecode, lo._typecode), hi._typecode);
+        if ("1silfd".indexOf(type) < 0) { throw Py.ValueError("clip requires an integer or real array"); }
+        a = PyMultiarray.asarray(a, type);
+        lo = PyMultiarray.asarray(lo, type);
+        hi = PyMultiarray.asarray(hi, type);
+        final int[] shape = Broadcast.shape(a, lo, hi);
+        if (result == null) {
+            result = PyMultiarray.empty(shape, type);
+        } else {
+            if (!Arrays.equals(Broadcast.shape(result.dimensions, shape), result.dimensions)) { throw Py
+                    .ValueError("out does not have the shape of the result"); }
+            // Inputs sharing data with out are only safe where they are
+            // read exactly where they are written.
+            a = PyMultiarray.unaliased(a, result);
+            lo = PyMultiarray.unaliased(lo, result);
+            hi = PyMultiarray.unaliased(hi, result);
+        }
+        final Broadcast b = new Broadcast(result.dimensions, result, a, lo, hi);
+        final int[] s = b.step;
+        final Object dst = result.data, src = a.data, min = lo.data, max = hi.data;
+        b.forEach(1, new Broadcast.Line() {
+            @Override void run(final int[] at, final int index, final int n) {
+                Selection.clip(src, at[1], s[1], min, at[2], s[2], max, at[3], s[3], dst, at[0], s[0], n);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The indices of the nonzero elements of a 1-d array.
+     */
+    static PyMultiarray nonzero(final PyObject oa) {
+        final PyMultiarray a = PyMultiarray.asarray(oa);
+        if (a.dimensions.length != 1) { throw Py.ValueError("nonzero requires a 1-d array"); }
+        final int[] p = Selection.positions(a);
+        return new PyMultiarray(p, 'i', 0, new int[] { p.length }, new int[] { 1 });
+    }
+
+    /**
+     * The C-order positions of the nonzero elements of a. Each piece of a
+     * is counted, then the positions are filled in from the running total
+     * of the counts. Object arrays are done in one piece, since testing
+     * their elements runs Python code.
+     */
+    static int[] positions(final PyMultiarray a) {
+        final int n = PyMultiarray.shapeToNItems(a.dimensions);
+        final Broadcast b = new Broadcast(a.dimensions, a);
+        final int e = PyMultiarray.typeToNElements(a._typecode), step = b.step[0];
+        final Object src = a.data;
+        final int pieces = a._typecode != 'O' && Parallel.worthwhile(n) ? 4 * Parallel.parallelism() : 1;
+        final int[] counts = new int[pieces + 1];
+        Parallel.forRange(pieces, n, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                for (int q = lo; q < hi; q++) {
+                    final int[] count = new int[1];
+                    b.run(Selection.bound(q, pieces, n), Selection.bound(q + 1, pieces, n), new Broadcast.Line() {
+                        @Override void run(final int[] at, final int index, final int m) {
+                            count[0] += Selection.nonzero(src, at[0], step, m, e, null, 0, index);
+                        }
+                    });
+                    counts[q + 1] = count[0];
+                }
+            }
+        });
+        for (int q = 0; q < pieces; q++) {
+            counts[q + 1] += counts[q];
+        }
+        final int[] p = new int[counts[pieces]];
+        if (p.length == 0) { return p; }
+        Parallel.forRange(pieces, n, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                for (int q = lo; q < hi; q++) {
+                    final int[] o = { counts[q] };
+                    b.run(Selection.bound(q, pieces, n), Selection.bound(q + 1, pieces, n), new Broadcast.Line() {
+                        @Override void run(final int[] at, final int index, final int m) {
+                            o[0] += Selection.nonzero(src, at[0], step, m, e, p, o[0], index);
+                        }
+                    });
+                }
+            }
+        });
+        return p;
+    }
+
+    /**
+     * The first item of piece q of n items split into pieces.
+     */
+    private static int bound(final int q, final int pieces, final int n) {
+        return (int) ((long) q * n / pieces);
+    }
+
+    /**
+     * Write n elements, each e wide, to dst from x where c is nonzero and
+     * from y elsewhere.
+     */
+    private static void where(final int[] c, int ac, final int sc, final Object x, int ax, final int sx,
+            final Object y, int ay, final int sy, final Object dst, int ad, final int sd, final int n, final int e) {
+        if (dst instanceof double[]) {
+            final double[] d = (double[]) dst, xs = (double[]) x, ys = (double[]) y;
+            for (int i = 0; i < n; i++, ac += sc, ax += sx, ay += sy, ad += sd) {
+                final boolean pick = c[ac] != 0;
+                for (int j = 0; j < e; j++) {
+                    d[ad + j] = pick ? xs[ax + j] : ys[ay + j];
+                }
+            }
+        } else if (dst instanceof float[]) {
+            final float[] d = (float[]) dst, xs = (float[]) x, ys = (float[]) y;
+            for (int i = 0; i < n; i++, ac += sc, ax += sx, ay += sy, ad += sd) {
+                final boolean pick = c[ac] != 0;
+                for (int j = 0; j < e; j++) {
+                    d[ad + j] = pick ? xs[ax + j] : ys[ay + j];
+                }
+            }
+        } else if (dst instanceof int[]) {
+            final int[] d = (int[]) dst, xs = (int[]) x, ys = (int[]) y;
+            for (int i = 0; i < n; i++, ac += sc, ax += sx, ay += sy, ad += sd) {
+                d[ad] = (c[ac] != 0) ? xs[ax] : ys[ay];
+            }
+        } else if (dst instanceof long[]) {
+            final long[] d = (long[]) dst, xs = (long[]) x, ys = (long[]) y;
+            for (int i = 0; i < n; i++, ac += sc, ax += sx, ay += sy, ad += sd) {
+                d[ad] = (c[ac] != 0) ? xs[ax] : ys[ay];
+            }
+        } else if (dst instanceof short[]) {
+            final short[] d = (short[]) dst, xs = (short[]) x, ys = (short[]) y;
+            for (int i = 0; i < n; i++, ac += sc, ax += sx, ay += sy, ad += sd) {
+                d[ad] = (c[ac] != 0) ? xs[ax] : ys[ay];
+            }
+        } else if (dst instanceof byte[]) {
+            final byte[] d = (byte[]) dst, xs = (byte[]) x, ys = (byte[]) y;
+            for (int i = 0; i < n; i++, ac += sc, ax += sx, ay += sy, ad += sd) {
+                d[ad] = (c[ac] != 0) ? xs[ax] : ys[ay];
+            }
+        } else {
+            final Object[] d = (Object[]) dst, xs = (Object[]) x, ys = (Object[]) y;
+            for (int i = 0; i < n; i++, ac += sc, ax += sx, ay += sy, ad += sd) {
+                d[ad] = (c[ac] != 0) ? xs[ax] : ys[ay];
+            }
+        }
+    }
+
+    /**
+     * Write n elements of a, each clipped to the matching elements of lo and
+     * hi, to dst.
+     */
+    private static void clip(final Object a, int aa, final int sa, final Object lo, int al, final int sl,
+            final Object hi, int ah, final int sh, final Object dst, int ad, final int sd, final int n) {
+        if (dst instanceof double[]) {
+            final double[] d = (double[]) dst, s = (double[]) a, l = (double[]) lo, h = (double[]) hi;
+            for (int i = 0; i < n; i++, aa += sa, al += sl, ah += sh, ad += sd) {
+                final double v = (s[aa] < l[al]) ? l[al] : s[aa];
+                d[ad] = (v > h[ah]) ? h[ah] : v;
+            }
+        } else if (dst instanceof float[]) {
+            final float[] d = (float[]) dst, s = (float[]) a, l = (float[]) lo, h = (float[]) hi;
+            for (int i = 0; i < n; i++, aa += sa, al += sl, ah += sh, ad += sd) {
+                final float v = (s[aa] < l[al]) ? l[al] : s[aa];
+                d[ad] = (v > h[ah]) ? h[ah] : v;
+            }
+        } else if (dst instanceof int[]) {
+            final int[] d = (int[]) dst, s = (int[]) a, l = (int[]) lo, h = (int[]) hi;
+            for (int i = 0; i < n; i++, aa += sa, al += sl, ah += sh, ad += sd) {
+                final int v = (s[aa] < l[al]) ? l[al] : s[aa];
+                d[ad] = (v > h[ah]) ? h[ah] : v;
+            }
+        } else if (dst instanceof long[]) {
+            final long[] d = (long[]) dst, s = (long[]) a, l = (long[]) lo, h = (long[]) hi;
+            for (int i = 0; i < n; i++, aa += sa, al += sl, ah += sh, ad += sd) {
+                final long v = (s[aa] < l[al]) ? l[al] : s[aa];
+                d[ad] = (v > h[ah]) ? h[ah] : v;
+            }
+        } else if (dst instanceof short[]) {
+            final short[] d = (short[]) dst, s = (short[]) a, l = (short[]) lo, h = (short[]) hi;
+            for (int i = 0; i < n; i++, aa += sa, al += sl, ah += sh, ad += sd) {
+                final short v = (s[aa] < l[al]) ? l[al] : s[aa];
+                d[ad] = (v > h[ah]) ? h[ah] : v;
+            }
+        } else {
+            final byte[] d = (byte[]) dst, s = (byte[]) a, l = (byte[]) lo, h = (byte[]) hi;
+            for (int i = 0; i < n; i++, aa += sa, al += sl, ah += sh, ad += sd) {
+                final byte v = (s[aa] < l[al]) ? l[al] : s[aa];
+                d[ad] = (v > h[ah]) ? h[ah] : v;
+            }
+        }
+    }
+
+    /**
+     * Count the nonzero elements among n of src, each e wide; if dst is not
+     * null, also store their positions, numbered from index, into it from
+     * o on.
+     */
+    private static int nonzero(final Object src, int at, final int step, final int n, final int e, final int[] dst,
+            final int o, final int index) {
+        int k = o;
+        if (src instanceof double[]) {
+            final double[] s = (double[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                if (s[at] != 0 || (e == 2 && s[at + 1] != 0)) {
+                    if (dst != null) {
+                        dst[k] = index + i;
+                    }
+                    k++;
+                }
+            }
+        } else if (src instanceof float[]) {
+            final float[] s = (float[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                if (s[at] != 0 || (e == 2 && s[at + 1] != 0)) {
+                    if (dst != null) {
+                        dst[k] = index + i;
+                    }
+                    k++;
+                }
+            }
+        } else if (src instanceof int[]) {
+            final int[] s = (int[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                if (s[at] != 0) {
+                    if (dst != null) {
+                        dst[k] = index + i;
+                    }
+                    k++;
+                }
+            }
+        } else if (src instanceof long[]) {
+            final long[] s = (long[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                if (s[at] != 0) {
+                    if (dst != null) {
+                        dst[k] = index + i;
+                    }
+                    k++;
+                }
+            }
+        } else if (src instanceof short[]) {
+            final short[] s = (short[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                if (s[at] != 0) {
+                    if (dst != null) {
+                        dst[k] = index + i;
+                    }
+                    k++;
+                }
+            }
+        } else if (src instanceof byte[]) {
+            final byte[] s = (byte[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                if (s[at] != 0) {
+                    if (dst != null) {
+                        dst[k] = index + i;
+                    }
+                    k++;
+                }
+            }
+        } else {
+            final PyObject[] s = (PyObject[]) src;
+            for (int i = 0; i < n; i++, at += step) {
+                if (s[at].__nonzero__()) {
+                    if (dst != null) {
+                        dst[k] = index + i;
+                    }
+                    k++;
+                }
+            }
+        }
+        return k - o;
+    }
+}
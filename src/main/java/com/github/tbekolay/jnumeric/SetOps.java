@@ -0,0 +1,519 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import java.util.Arrays;
+
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.core.PyTuple;
+
+/**
+ * Kernels behind unique and the 1-d set operations.
+ *
+ * Elements are loaded as the sortable long keys used by {@link Sorting},
+ * so equal keys are equal values and key order is value order. Real
+ * arrays are sorted and swept for runs of equal keys. Integer arrays
+ * whose values span a short range are counted into a table indexed by
+ * value; others are first deduplicated through a hash table, so that only
+ * the distinct keys need sorting, unless most keys turn out to be
+ * distinct and sorting them all is cheaper. The set operations merge the
+ * sorted distinct keys of their operands.
+ */
+final class SetOps {
+
+    /**
+     * Slack allowed in the range of values counted into a table, and the
+     * least number of keys hashed before deciding whether hashing pays off.
+     */
+    private static final int SAMPLE = 8192;
+
+    private SetOps() {}
+
+    /**
+     * An open-addressing table numbering distinct long keys in the order
+     * they are first seen.
+     */
+    private static final class KeyTable {
+        private long[] slots;
+        private int[] ids;
+        private int mask, shift;
+        long[] keys;
+        int size;
+
+        KeyTable(final int expected) {
+            this.keys = new long[Math.max(16, expected)];
+            this.resize(Integer.highestOneBit(Math.max(16, expected)) << 2);
+        }
+
+        private int slot(final long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> this.shift);
+        }
+
+        /**
+         * The number of key, adding it if it is new.
+         */
+        int add(final long key) {
+            int s = this.slot(key);
+            while (this.ids[s] != 0) {
+                if (this.slots[s] == key) { return this.ids[s] - 1; }
+                s = (s + 1) & this.mask;
+            }
+            if (this.size == this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+            }
+            this.slots[s] = key;
+            this.ids[s] = this.size + 1;
+            this.keys[this.size] = key;
+            if (++this.size > (this.mask >> 1)) {
+                this.resize(2 * (this.mask + 1));
+            }
+            return this.size - 1;
+        }
+
+        /**
+         * The number of key, or -1 if it has not been added.
+         */
+        int find(final long key) {
+            int s = this.slot(key);
+            while (this.ids[s] != 0) {
+                if (this.slots[s] == key) { return this.ids[s] - 1; }
+                s = (s + 1) & this.mask;
+            }
+            return -1;
+        }
+
+        private void resize(final int capacity) {
+            this.slots = new long[capacity];
+            this.ids = new int[capacity];
+            this.mask = capacity - 1;
+            this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+            for (int i = 0; i < this.size; i++) {
+                int s = this.slot(this.keys[i]);
+                while (this.ids[s] != 0) {
+                    s = (s + 1) & this.mask;
+                }
+                this.slots[s] = this.keys[i];
+                this.ids[s] = i + 1;
+            }
+        }
+    }
+
+    /**
+     * The sorted distinct keys of an array, with the first index, count
+     * and inverse of each when asked for.
+     */
+    private static final class Runs {
+        long[] keys;
+        int n;
+        int[] first, counts, inverse;
+    }
+
+    /**
+     * The sorted unique elements of an array, flattened.
+     *
+     * @param o Input array, of any shape
+     * @param returnIndex Also return the index of the first occurrence of each
+     * @param returnInverse Also return the indices that rebuild the input
+     * @param returnCounts Also return the number of occurrences of each
+     * @return The unique elements, or a tuple of them and the requested int
+     *         arrays, in the order of the flags
+     */
+    static PyObject unique(final PyObject o, final boolean returnIndex, final boolean returnInverse,
+            final boolean returnCounts) {
+        final PyMultiarray a = SetOps.flat(o);
+        final Runs r = SetOps.runs(a, returnIndex, returnInverse, returnCounts);
+        final PyMultiarray values = SetOps.values(r.keys, r.n, a._typecode);
+        if (!(returnIndex || returnInverse || returnCounts)) { return values; }
+        final int count = 1 + (returnIndex ? 1 : 0) + (returnInverse ? 1 : 0) + (returnCounts ? 1 : 0);
+        final PyObject[] result = new PyObject[count];
+        int k = 0;
+        result[k++] = values;
+        if (returnIndex) {
+            result[k++] = SetOps.ints(r.first, r.n);
+        }
+        if (returnInverse) {
+            result[k++] = SetOps.ints(r.inverse, r.inverse.length);
+        }
+        if (returnCounts) {
+            result[k++] = SetOps.ints(r.counts, r.n);
+        }
+        return new PyTuple(result);
+    }
+
+    /**
+     * The sorted unique elements found in both a and b.
+     */
+    static PyObject intersect1d(final PyObject a, final PyObject b) {
+        final char type = SetOps.commonType(a, b);
+        final Runs x = SetOps.runs(SetOps.flat(a, type), false, false, false);
+        final Runs y = SetOps.runs(SetOps.flat(b, type), false, false, false);
+        final long[] out = new long[Math.min(x.n, y.n)];
+        int i = 0, j = 0, m = 0;
+        while (i < x.n && j < y.n) {
+            if (x.keys[i] < y.keys[j]) {
+                i++;
+            } else if (x.keys[i] > y.keys[j]) {
+                j++;
+            } else {
+                out[m++] = x.keys[i++];
+                j++;
+            }
+        }
+        return SetOps.values(out, m, type);
+    }
+
+    /**
+     * The sorted unique elements found in a, b or both.
+     */
+    static PyObject union1d(final PyObject a, final PyObject b) {
+        final char type = SetOps.commonType(a, b);
+        final Runs x = SetOps.runs(SetOps.flat(a, type), false, false, false);
+        final Runs y = SetOps.runs(SetOps.flat(b, type), false, false, false);
+        final long[] out = new long[x.n + y.n];
+        int i = 0, j = 0, m = 0;
+        while (i < x.n && j < y.n) {
+            if (x.keys[i] < y.keys[j]) {
+                out[m++] = x.keys[i++];
+            } else if (x.keys[i] > y.keys[j]) {
+                out[m++] = y.keys[j++];
+            } else {
+                out[m++] = x.keys[i++];
+                j++;
+            }
+        }
+        while (i < x.n) {
+            out[m++] = x.keys[i++];
+        }
+        while (j < y.n) {
+            out[m++] = y.keys[j++];
+        }
+        return SetOps.values(out, m, type);
+    }
+
+    /**
+     * The sorted unique elements of a that are not in b.
+     */
+    static PyObject setdiff1d(final PyObject a, final PyObject b) {
+        final char type = SetOps.commonType(a, b);
+        final Runs x = SetOps.runs(SetOps.flat(a, type), false, false, false);
+        final Runs y = SetOps.runs(SetOps.flat(b, type), false, false, false);
+        final long[] out = new long[x.n];
+        int j = 0, m = 0;
+        for (int i = 0; i < x.n; i++) {
+            while (j < y.n && y.keys[j] < x.keys[i]) {
+                j++;
+            }
+            if (j == y.n || y.keys[j] != x.keys[i]) {
+                out[m++] = x.keys[i];
+            }
+        }
+        return SetOps.values(out, m, type);
+    }
+
+    /**
+     * Whether each element of a, flattened, is found in b.
+     *
+     * @param oa Elements to look up, of any shape
+     * @param ob Elements to look for, of any shape
+     * @param invert Whether to answer "not found" instead
+     * @return 1-d int array of ones and zeros
+     */
+    static PyObject in1d(final PyObject oa, final PyObject ob, final boolean invert) {
+        final char type = SetOps.commonType(oa, ob);
+        final PyMultiarray a = SetOps.flat(oa, type), b = SetOps.flat(ob, type);
+        final long[] keys = SetOps.keys(a);
+        final int n = keys.length;
+        final int[] found = new int[n];
+        final int yes = invert ? 0 : 1, no = 1 - yes;
+        final long[] bKeys = SetOps.keys(b);
+        final long[] range = (bKeys.length == 0) ? null : SetOps.range(bKeys);
+        final long span = (range == null) ? -1 : range[1] - range[0];
+        if (SetOps.isIntegral(type) && span >= 0 && span < bKeys.length + SetOps.SAMPLE) {
+            final long min = range[0];
+            final boolean[] member = new boolean[(int) span + 1];
+            for (final long k : bKeys) {
+                member[(int) (k - min)] = true;
+            }
+            Parallel.forRange(n, n, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    for (int i = lo; i < hi; i++) {
+                        final long v = keys[i] - min;
+                        found[i] = (v >= 0 && v <= span && member[(int) v]) ? yes : no;
+                    }
+                }
+            });
+        } else if (SetOps.isIntegral(type)) {
+            final KeyTable table = new KeyTable(b.dimensions[0]);
+            for (final long k : bKeys) {
+                table.add(k);
+            }
+            // Only reads once filled, so the lookups can share it.
+            Parallel.forRange(n, n, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    for (int i = lo; i < hi; i++) {
+                        found[i] = (table.find(keys[i]) >= 0) ? yes : no;
+                    }
+                }
+            });
+        } else {
+            final Runs y = SetOps.runs(b, false, false, false);
+            Parallel.forRange(n, n, new Parallel.Range() {
+                @Override void run(final int lo, final int hi) {
+                    for (int i = lo; i < hi; i++) {
+                        final int at = Sorting.lowerBound(y.keys, 0, y.n, keys[i]);
+                        found[i] = (at < y.n && y.keys[at] == keys[i]) ? yes : no;
+                    }
+                }
+            });
+        }
+        return SetOps.ints(found, n);
+    }
+
+    /**
+     * The sorted distinct keys of a 1-d array, with whichever of the first
+     * indices, inverse and counts are asked for.
+     */
+    private static Runs runs(final PyMultiarray a, final boolean first, final boolean inverse, final boolean counts) {
+        final long[] keys = SetOps.keys(a);
+        final int n = keys.length;
+        if (SetOps.isIntegral(a._typecode) && n > 0) {
+            final long[] range = SetOps.range(keys);
+            final long span = range[1] - range[0];
+            if (span >= 0 && span < n + SetOps.SAMPLE) { return SetOps.dense(keys, range[0], (int) span + 1, first,
+                    inverse, counts); }
+            final Runs r = SetOps.hashed(keys, Sorting.keyBytes(a._typecode), first, inverse, counts);
+            if (r != null) { return r; }
+        }
+        final Runs r = new Runs();
+        int[] order = null;
+        if (first || inverse) {
+            order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+        }
+        Sorting.sortKeys(keys, order, n, Sorting.keyBytes(a._typecode));
+        r.first = first ? new int[n] : null;
+        r.counts = counts ? new int[n] : null;
+        r.inverse = inverse ? new int[n] : null;
+        // Distinct keys are packed into the front of keys as runs are found.
+        int m = 0;
+        for (int p = 0; p < n; m++) {
+            final long k = keys[p];
+            int q = p + 1;
+            while (q < n && keys[q] == k) {
+                q++;
+            }
+            if (first) {
+                r.first[m] = order[p];
+            }
+            if (counts) {
+                r.counts[m] = q - p;
+            }
+            if (inverse) {
+                for (int j = p; j < q; j++) {
+                    r.inverse[order[j]] = m;
+                }
+            }
+            keys[m] = k;
+            p = q;
+        }
+        r.keys = keys;
+        r.n = m;
+        return r;
+    }
+
+    /**
+     * runs() for integer keys spanning no more than <code>span</code>
+     * values from <code>min</code>, counted straight into a table indexed
+     * by value, which is then read in order.
+     */
+    private static Runs dense(final long[] keys, final long min, final int span, final boolean first,
+            final boolean inverse, final boolean counts) {
+        final int n = keys.length;
+        final int[] tally = new int[span];
+        final int[] firsts = first ? new int[span] : null;
+        for (int i = 0; i < n; i++) {
+            final int v = (int) (keys[i] - min);
+            if (first && tally[v] == 0) {
+                firsts[v] = i;
+            }
+            tally[v]++;
+        }
+        final int most = Math.min(n, span);
+        final Runs r = new Runs();
+        r.keys = new long[most];
+        r.first = first ? new int[most] : null;
+        r.counts = counts ? new int[most] : null;
+        int m = 0;
+        for (int v = 0; v < span; v++) {
+            if (tally[v] == 0) {
+                continue;
+            }
+            r.keys[m] = min + v;
+            if (first) {
+                r.first[m] = firsts[v];
+            }
+            if (counts) {
+                r.counts[m] = tally[v];
+            }
+            // The table now maps each value to its rank.
+            tally[v] = m++;
+        }
+        if (inverse) {
+            r.inverse = new int[n];
+            for (int i = 0; i < n; i++) {
+                r.inverse[i] = tally[(int) (keys[i] - min)];
+            }
+        }
+        r.n = m;
+        return r;
+    }
+
+    /**
+     * runs() for integer keys through a hash table, or null if the first
+     * sixteenth of the keys (at least SAMPLE) are mostly distinct and
+     * sorting them all is cheaper.
+     */
+    private static Runs hashed(final long[] keys, final int bytes, final boolean first, final boolean inverse,
+            final boolean counts) {
+        final int n = keys.length;
+        final int sample = Math.min(n, Math.max(SetOps.SAMPLE, n >> 4));
+        final KeyTable table = new KeyTable(SetOps.SAMPLE);
+        final int[] slot = inverse ? new int[n] : null;
+        int[] firsts = first ? new int[SetOps.SAMPLE] : null, tally = counts ? new int[SetOps.SAMPLE] : null;
+        for (int i = 0; i < n; i++) {
+            if (i == sample && table.size > sample / 2) { return null; }
+            final int seen = table.size;
+            final int id = table.add(keys[i]);
+            if (id == seen) {
+                if (first) {
+                    if (id == firsts.length) {
+                        firsts = Arrays.copyOf(firsts, 2 * id);
+                    }
+                    firsts[id] = i;
+                }
+                if (counts && id == tally.length) {
+                    tally = Arrays.copyOf(tally, 2 * id);
+                }
+            }
+            if (counts) {
+                tally[id]++;
+            }
+            if (inverse) {
+                slot[i] = id;
+            }
+        }
+        // Sort only the distinct keys, then renumber by rank.
+        final int m = table.size;
+        final long[] distinct = Arrays.copyOf(table.keys, m);
+        final int[] order = new int[m];
+        for (int j = 0; j < m; j++) {
+            order[j] = j;
+        }
+        Sorting.sortKeys(distinct, order, m, bytes);
+        final Runs r = new Runs();
+        r.keys = distinct;
+        r.n = m;
+        if (first) {
+            r.first = new int[m];
+            for (int j = 0; j < m; j++) {
+                r.first[j] = firsts[order[j]];
+            }
+        }
+        if (counts) {
+            r.counts = new int[m];
+            for (int j = 0; j < m; j++) {
+                r.counts[j] = tally[order[j]];
+            }
+        }
+        if (inverse) {
+            final int[] rank = new int[m];
+            for (int j = 0; j < m; j++) {
+                rank[order[j]] = j;
+            }
+            for (int i = 0; i < n; i++) {
+                slot[i] = rank[slot[i]];
+            }
+            r.inverse = slot;
+        }
+        return r;
+    }
+
+    /**
+     * The elements of a 1-d array as sortable keys, with -0.0 folded into
+     * 0.0 so that equal reals have equal keys.
+     */
+    private static long[] keys(final PyMultiarray a) {
+        final int n = a.dimensions[0];
+        final long[] keys = new long[n];
+        Sorting.loadKeys(a.data, a._typecode, a.start, a.strides[0], n, keys);
+        if (!SetOps.isIntegral(a._typecode)) {
+            for (int i = 0; i < n; i++) {
+                if (keys[i] == -1L) {
+                    keys[i] = 0L;
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * The smallest and largest of a non-empty array of keys.
+     */
+    private static long[] range(final long[] keys) {
+        long min = keys[0], max = keys[0];
+        for (final long k : keys) {
+            if (k < min) {
+                min = k;
+            } else if (k > max) {
+                max = k;
+            }
+        }
+        return new long[] { min, max };
+    }
+
+    private static boolean isIntegral(final char type) {
+        return type != 'f' && type != 'd';
+    }
+
+    private static char commonType(final PyObject a, final PyObject b) {
+        return PyMultiarray.commonType(PyMultiarray.asarray(a)._typecode, PyMultiarray.asarray(b)._typecode);
+    }
+
+    /**
+     * The elements of o as a 1-d array, a copy only if o has more than one
+     * dimension and is not contiguous.
+     */
+    private static PyMultiarray flat(final PyObject o) {
+        final PyMultiarray a = PyMultiarray.asarray(o);
+        if ("1silfd".indexOf(a._typecode) < 0) { throw Py
+                .ValueError("set operations require an integer or real array"); }
+        if (a.dimensions.length == 1) { return a; }
+        return PyMultiarray.reshape(PyMultiarray.ascontiguous(a), new int[] { -1 });
+    }
+
+    private static PyMultiarray flat(final PyObject o, final char type) {
+        return SetOps.flat(PyMultiarray.asarray(o, type));
+    }
+
+    private static PyMultiarray values(final long[] keys, final int n, final char type) {
+        final PyMultiarray a = PyMultiarray.zeros(new int[] { n }, type);
+        Sorting.storeKeys(a.data, type, 0, n, keys);
+        return a;
+    }
+
+    private static PyMultiarray ints(final int[] data, final int n) {
+        return new PyMultiarray((data.length == n) ? data : Arrays.copyOf(data, n), 'i', 0, new int[] { n },
+                new int[] { 1 });
+    }
+}
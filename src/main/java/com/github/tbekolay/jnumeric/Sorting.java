@@ -0,0 +1,1024 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.python.core.Py;
+
+/**
+ * Index sorts over primitive keys.
+ *
+ * Every real typecode is mapped onto a <code>long</code> whose signed order
+ * is the order of the original values (floating point values are ordered
+ * with the IEEE bit trick, so NaNs sort last). Keys and indices are then
+ * moved together, which keeps the inner loops free of boxing and
+ * indirection.
+ */
+final class Sorting {
+
+    /**
+     * Runs shorter than this are finished off with an insertion sort.
+     */
+    private static final int INSERTION_THRESHOLD = 24;
+
+    /**
+     * Sort kinds. AUTO picks one from the typecode and the row length.
+     */
+    static final int AUTO = 0, QUICKSORT = 1, MERGESORT = 2, RADIXSORT = 3;
+
+    /**
+     * Rows at least this long use the radix sort when the kind is AUTO,
+     * indexed by the number of bytes in the key.
+     */
+    private static final int[] RADIX_ARGSORT_THRESHOLD = { 0, 64, 64, 0, 1 << 10, 0, 0, 0, 1 << 14 };
+    private static final int[] RADIX_SORT_THRESHOLD = { 0, Integer.MAX_VALUE, Integer.MAX_VALUE,
+            0, 1 << 16, 0, 0, 0, 1 << 17 };
+
+    /**
+     * Digit width of the radix sort (six passes cover a 64-bit key).
+     */
+    private static final int RADIX_BITS = 11, RADIX_SIZE = 1 << Sorting.RADIX_BITS;
+
+    /**
+     * topk keeps a heap when the row is at least this many times longer
+     * than k.
+     */
+    private static final int HEAP_RATIO = 32;
+
+    private Sorting() {}
+
+    /**
+     * Parse the name of a sort kind; null means AUTO.
+     */
+    static int kind(final String kind) {
+        if (kind == null) { return Sorting.AUTO; }
+        if (kind.equals("quicksort")) { return Sorting.QUICKSORT; }
+        if (kind.equals("mergesort")) { return Sorting.MERGESORT; }
+        if (kind.equals("radix")) { return Sorting.RADIXSORT; }
+        throw Py.ValueError("kind must be 'quicksort', 'mergesort' or 'radix'");
+    }
+
+    /**
+     * The kind a row of <code>n</code> elements of type is sorted with,
+     * values or (if <code>index</code>) indices: AUTO is settled from the
+     * row alone, so that the result does not depend on the number of
+     * threads.
+     */
+    static int resolve(final int kind, final char type, final int n, final boolean index) {
+        if (kind != Sorting.AUTO) { return kind; }
+        final int[] threshold = index ? Sorting.RADIX_ARGSORT_THRESHOLD : Sorting.RADIX_SORT_THRESHOLD;
+        return (n >= threshold[Sorting.keyBytes(type)]) ? Sorting.RADIXSORT : Sorting.QUICKSORT;
+    }
+
+    /**
+     * Number of significant bytes in the sortable key of a typecode.
+     */
+    static int keyBytes(final char type) {
+        switch (type) {
+        case '1':
+            return 1;
+        case 's':
+            return 2;
+        case 'i':
+        case 'f':
+            return 4;
+        case 'l':
+        case 'd':
+            return 8;
+        default:
+            throw Py.ValueError("unsortable array type");
+        }
+    }
+
+    /**
+     * Per-thread scratch space, kept between calls. It is softly referenced
+     * so that large buffers can still be reclaimed.
+     */
+    private static final class Scratch {
+        long[] keys = new long[0], keys2 = new long[0];
+        int[] index = new int[0], index2 = new int[0];
+        final int[] counts = new int[6 * Sorting.RADIX_SIZE];
+
+        Scratch ensure(final int n) {
+            if (this.keys.length < n) {
+                this.keys = new long[n];
+                this.keys2 = new long[n];
+                this.index = new int[n];
+                this.index2 = new int[n];
+            }
+            return this;
+        }
+    }
+
+    private static final ThreadLocal<SoftReference<Scratch>> scratch = new ThreadLocal<SoftReference<Scratch>>();
+
+    private static Scratch scratch(final int n) {
+        final SoftReference<Scratch> ref = Sorting.scratch.get();
+        Scratch s = (ref == null) ? null : ref.get();
+        if (s == null) {
+            s = new Scratch();
+            Sorting.scratch.set(new SoftReference<Scratch>(s));
+        }
+        return s.ensure(n);
+    }
+
+    /**
+     * Sort <code>data[from:to]</code> in place.
+     */
+    static void sortRow(final Object data, final char type, final int from, final int to, int kind, final boolean parallel) {
+        final int n = to - from;
+        kind = Sorting.resolve(kind, type, n, false);
+        if (kind == Sorting.RADIXSORT) {
+            final Scratch s = Sorting.scratch(n);
+            Sorting.loadKeys(data, type, from, 1, n, s.keys);
+            Sorting.radixSort(s.keys, null, n, Sorting.keyBytes(type), s.keys2, null, s.counts);
+            Sorting.storeKeys(data, type, from, n, s.keys);
+            return;
+        }
+        // Sorting plain values, quicksort and mergesort give the same result.
+        switch (type) {
+        case '1':
+            if (parallel) {
+                Arrays.parallelSort((byte[]) data, from, to);
+            } else {
+                Arrays.sort((byte[]) data, from, to);
+            }
+            break;
+        case 's':
+            if (parallel) {
+                Arrays.parallelSort((short[]) data, from, to);
+            } else {
+                Arrays.sort((short[]) data, from, to);
+            }
+            break;
+        case 'i':
+            if (parallel) {
+                Arrays.parallelSort((int[]) data, from, to);
+            } else {
+                Arrays.sort((int[]) data, from, to);
+            }
+            break;
+        case 'l':
+            if (parallel) {
+                Arrays.parallelSort((long[]) data, from, to);
+            } else {
+                Arrays.sort((long[]) data, from, to);
+            }
+            break;
+        case 'f':
+            if (parallel) {
+                Arrays.parallelSort((float[]) data, from, to);
+            } else {
+                Arrays.sort((float[]) data, from, to);
+            }
+            break;
+        case 'd':
+            if (parallel) {
+                Arrays.parallelSort((double[]) data, from, to);
+            } else {
+                Arrays.sort((double[]) data, from, to);
+            }
+            break;
+        default:
+            throw Py.ValueError("unsortable array type");
+        }
+    }
+
+    /**
+     * Write the indices that sort a row of <code>n</code> elements
+     * (starting at <code>offset</code>, spaced by <code>stride</code>) into
+     * <code>out[outOffset:outOffset+n]</code>.
+     */
+    static void argSortRow(final Object data, final char type, final int offset, final int stride, final int n,
+            int kind, final int[] out, final int outOffset) {
+        final Scratch s = Sorting.scratch(n);
+        Sorting.loadKeys(data, type, offset, stride, n, s.keys);
+        for (int j = 0; j < n; j++) {
+            s.index[j] = j;
+        }
+        kind = Sorting.resolve(kind, type, n, true);
+        if (kind == Sorting.RADIXSORT) {
+            Sorting.radixSort(s.keys, s.index, n, Sorting.keyBytes(type), s.keys2, s.index2, s.counts);
+        } else {
+            Sorting.sort(s.keys, s.index, 0, n, kind == Sorting.MERGESORT, s.keys2, s.index2);
+        }
+        System.arraycopy(s.index, 0, out, outOffset, n);
+    }
+
+    /**
+     * Sort <code>keys[0:n]</code> of a type with <code>bytes</code>-byte
+     * keys, permuting <code>index</code> (if not null) the same way and
+     * keeping equal keys in their original order. Large arrays are sorted
+     * on the fork/join pool, others by radix sort or merge sort.
+     */
+    static void sortKeys(final long[] keys, final int[] index, final int n, final int bytes) {
+        if (index == null) {
+            if (Parallel.worthwhile(n)) {
+                Arrays.parallelSort(keys, 0, n);
+            } else if (n >= Sorting.RADIX_ARGSORT_THRESHOLD[bytes]) {
+                final Scratch s = Sorting.scratch(n);
+                Sorting.radixSort(keys, null, n, bytes, s.keys2, null, s.counts);
+            } else {
+                Arrays.sort(keys, 0, n);
+            }
+        } else if (Parallel.worthwhile(n)) {
+            Sorting.parallelSort(keys, index, n, true);
+        } else {
+            final Scratch s = Sorting.scratch(n);
+            if (n >= Sorting.RADIX_ARGSORT_THRESHOLD[bytes]) {
+                Sorting.radixSort(keys, index, n, bytes, s.keys2, s.index2, s.counts);
+            } else {
+                Sorting.sort(keys, index, 0, n, true, s.keys2, s.index2);
+            }
+        }
+    }
+
+    /**
+     * Map a double onto a long with the same ordering.
+     */
+    static long sortable(final double d) {
+        final long bits = Double.doubleToLongBits(d);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Map a float onto a long with the same ordering.
+     */
+    static long sortable(final float f) {
+        final int bits = Float.floatToIntBits(f);
+        return bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+    }
+
+    /**
+     * Load <code>n</code> elements of <code>data</code>, starting at
+     * <code>offset</code> and spaced by <code>stride</code>, into
+     * <code>keys</code> as sortable longs.
+     */
+    static void loadKeys(final Object data, final char type, final int offset, final int stride, final int n, final long[] keys) {
+        switch (type) {
+        case '1': {
+            final byte[] d = (byte[]) data;
+            for (int i = 0, j = offset; i < n; i++, j += stride) {
+                keys[i] = d[j];
+            }
+            break;
+        }
+        case 's': {
+            final short[] d = (short[]) data;
+            for (int i = 0, j = offset; i < n; i++, j += stride) {
+                keys[i] = d[j];
+            }
+            break;
+        }
+        case 'i': {
+            final int[] d = (int[]) data;
+            for (int i = 0, j = offset; i < n; i++, j += stride) {
+                keys[i] = d[j];
+            }
+            break;
+        }
+        case 'l': {
+            final long[] d = (long[]) data;
+            for (int i = 0, j = offset; i < n; i++, j += stride) {
+                keys[i] = d[j];
+            }
+            break;
+        }
+        case 'f': {
+            final float[] d = (float[]) data;
+            for (int i = 0, j = offset; i < n; i++, j += stride) {
+                keys[i] = Sorting.sortable(d[j]);
+            }
+            break;
+        }
+        case 'd': {
+            final double[] d = (double[]) data;
+            for (int i = 0, j = offset; i < n; i++, j += stride) {
+                keys[i] = Sorting.sortable(d[j]);
+            }
+            break;
+        }
+        default:
+            throw Py.ValueError("unsortable array type");
+        }
+    }
+
+    /**
+     * Partition a row of <code>n</code> elements (starting at
+     * <code>offset</code>, spaced by <code>stride</code>) so that each
+     * position in <code>kth</code> (sorted, in range) holds the element a
+     * full sort would put there, with no larger element before it and no
+     * smaller one after. The values, or if <code>arg</code> the indices,
+     * are written to <code>out</code> starting at <code>outOffset</code>.
+     */
+    static void partitionRow(final Object data, final char type, final int offset, final int stride, final int n,
+            final int[] kth, final boolean arg, final Object out, final int outOffset) {
+        final Scratch s = Sorting.scratch(n);
+        Sorting.loadKeys(data, type, offset, stride, n, s.keys);
+        for (int j = 0; j < n; j++) {
+            s.index[j] = j;
+        }
+        int lo = 0;
+        for (int i = 0; i < kth.length; i++) {
+            if (kth[i] >= lo) {
+                Sorting.select(s.keys, s.index, lo, n, kth[i]);
+                lo = kth[i] + 1;
+            }
+        }
+        if (arg) {
+            System.arraycopy(s.index, 0, out, outOffset, n);
+        } else {
+            Sorting.storeKeys(out, type, outOffset, n, s.keys);
+        }
+    }
+
+    /**
+     * Write the <code>k</code> largest (or smallest) elements of a row, best
+     * first, and their indices to <code>values</code> and
+     * <code>indices</code> starting at <code>outOffset</code>. Small
+     * <code>k</code> keeps a heap of the best elements seen so far;
+     * otherwise the row is partitioned around the k-th element. Either way
+     * only the <code>k</code> winners are sorted, and of equal elements the
+     * earlier ones win.
+     */
+    static void topKRow(final Object data, final char type, final int offset, final int stride, final int n,
+            final int k, final boolean largest, final Object values, final int[] indices, final int outOffset) {
+        final Scratch s = Sorting.scratch(n);
+        final long[] keys = s.keys;
+        final int[] index = s.index;
+        Sorting.loadKeys(data, type, offset, stride, n, keys);
+        if (!largest) {
+            // ~key reverses the order without overflow.
+            for (int j = 0; j < n; j++) {
+                keys[j] = ~keys[j];
+            }
+        }
+        final long[] best;
+        final int[] bestIndex;
+        final int base;
+        if ((long) k * Sorting.HEAP_RATIO <= n) {
+            best = s.keys2;
+            bestIndex = s.index2;
+            base = 0;
+            for (int j = 0; j < k; j++) {
+                best[j] = keys[j];
+                bestIndex[j] = j;
+            }
+            for (int j = k / 2 - 1; j >= 0; j--) {
+                Sorting.siftWorst(best, bestIndex, 0, j, k);
+            }
+            for (int j = k; j < n; j++) {
+                if (k > 0 && keys[j] > best[0]) {
+                    best[0] = keys[j];
+                    bestIndex[0] = j;
+                    Sorting.siftWorst(best, bestIndex, 0, 0, k);
+                }
+            }
+        } else {
+            for (int j = 0; j < n; j++) {
+                index[j] = j;
+            }
+            if (k > 0 && k < n) {
+                Sorting.select(keys, index, 0, n, n - k);
+                // Elements equal to the k-th may fall on either side of it;
+                // like the heap, keep the ones that come first in the row.
+                final long v = keys[n - k];
+                final int[] ties = s.index2;
+                int nTies = 0, kept = 0;
+                for (int j = 0; j < n; j++) {
+                    if (keys[j] == v) {
+                        ties[nTies++] = index[j];
+                        if (j >= n - k) {
+                            kept++;
+                        }
+                    }
+                }
+                if (nTies > kept) {
+                    Arrays.sort(ties, 0, nTies);
+                    for (int j = n - k, t = 0; j < n; j++) {
+                        if (keys[j] == v) {
+                            index[j] = ties[t++];
+                        }
+                    }
+                }
+            }
+            best = keys;
+            bestIndex = index;
+            base = n - k;
+            for (int j = k / 2 - 1; j >= 0; j--) {
+                Sorting.siftWorst(best, bestIndex, base, j, k);
+            }
+        }
+        // Heap sort the winners: popping the worst to the back leaves the
+        // best first, ties in index order.
+        for (int end = k - 1; end > 0; end--) {
+            Sorting.swap(best, bestIndex, base, base + end);
+            Sorting.siftWorst(best, bestIndex, base, 0, end);
+        }
+        if (!largest) {
+            for (int j = base; j < base + k; j++) {
+                best[j] = ~best[j];
+            }
+        }
+        System.arraycopy(bestIndex, base, indices, outOffset, k);
+        if (base != 0) {
+            System.arraycopy(best, base, best, 0, k);
+        }
+        Sorting.storeKeys(values, type, outOffset, k, best);
+    }
+
+    /**
+     * Keep a heap in <code>k[base:base+m]</code> whose root is the worst
+     * entry: the smallest key, and of equal keys the largest index.
+     */
+    private static void siftWorst(final long[] k, final int[] x, final int base, int i, final int m) {
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= m) {
+                return;
+            }
+            if (c + 1 < m && Sorting.worse(k[base + c + 1], x[base + c + 1], k[base + c], x[base + c])) {
+                c++;
+            }
+            if (!Sorting.worse(k[base + c], x[base + c], k[base + i], x[base + i])) {
+                return;
+            }
+            Sorting.swap(k, x, base + i, base + c);
+            i = c;
+        }
+    }
+
+    private static boolean worse(final long ka, final int xa, final long kb, final int xb) {
+        return ka < kb || (ka == kb && xa > xb);
+    }
+
+    /**
+     * Introselect: rearrange <code>k[lo:hi]</code> so that
+     * <code>k[kth]</code> is in its sorted position, falling back to an
+     * introsort of what is left if the partitions stay unbalanced.
+     */
+    static void select(final long[] k, final int[] x, int lo, int hi, final int kth) {
+        int depth = 2 * (32 - Integer.numberOfLeadingZeros(hi - lo));
+        while (hi - lo > Sorting.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                Sorting.introSort(k, x, lo, hi, 2 * (32 - Integer.numberOfLeadingZeros(hi - lo)));
+                return;
+            }
+            final int mid = (lo + hi) >>> 1;
+            if (k[mid] < k[lo]) {
+                Sorting.swap(k, x, mid, lo);
+            }
+            if (k[hi - 1] < k[lo]) {
+                Sorting.swap(k, x, hi - 1, lo);
+            }
+            if (k[hi - 1] < k[mid]) {
+                Sorting.swap(k, x, hi - 1, mid);
+            }
+            final long pivot = k[mid];
+            int i = lo, j = hi - 1;
+            while (i <= j) {
+                while (k[i] < pivot) {
+                    i++;
+                }
+                while (k[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    Sorting.swap(k, x, i++, j--);
+                }
+            }
+            if (kth <= j) {
+                hi = j + 1;
+            } else if (kth >= i) {
+                lo = i;
+            } else {
+                // Everything between j and i equals the pivot.
+                return;
+            }
+        }
+        Sorting.insertionSort(k, x, lo, hi);
+    }
+
+    private static boolean isIntegral(final char type) {
+        return type == '1' || type == 's' || type == 'i' || type == 'l';
+    }
+
+    /**
+     * The sortable key of <code>data[i]</code>. Integers are their own
+     * keys unless <code>asDouble</code>, in which case every type is
+     * compared as a double.
+     */
+    static long keyAt(final Object data, final char type, final int i, final boolean asDouble) {
+        switch (type) {
+        case '1': {
+            final byte x = ((byte[]) data)[i];
+            return asDouble ? Sorting.sortable((double) x) : x;
+        }
+        case 's': {
+            final short x = ((short[]) data)[i];
+            return asDouble ? Sorting.sortable((double) x) : x;
+        }
+        case 'i': {
+            final int x = ((int[]) data)[i];
+            return asDouble ? Sorting.sortable((double) x) : x;
+        }
+        case 'l': {
+            final long x = ((long[]) data)[i];
+            return asDouble ? Sorting.sortable((double) x) : x;
+        }
+        case 'f':
+            return Sorting.sortable((double) ((float[]) data)[i]);
+        case 'd':
+            return Sorting.sortable(((double[]) data)[i]);
+        default:
+            throw Py.ValueError("cannot search arrays of this type");
+        }
+    }
+
+    /**
+     * For each of the <code>m</code> values, write to <code>out</code> the
+     * first position in the sorted row (<code>n</code> elements starting at
+     * <code>start</code>, spaced by <code>stride</code>, visited in the order
+     * given by <code>order</code> if it is not null) where the value could be
+     * inserted; with <code>right</code>, the last such position. Values that
+     * are themselves sorted are found by galloping on from the previous
+     * answer; otherwise each one is bisected. Values are split across the
+     * pool when there are many.
+     */
+    static void searchSorted(final Object data, final char type, final int start, final int stride, final int n,
+            final int[] order, final Object values, final char valueType, final int valueStart, final int m,
+            final boolean right, final int[] out) {
+        final boolean asDouble = !(Sorting.isIntegral(type) && Sorting.isIntegral(valueType));
+        final long[] keys = new long[m];
+        boolean sorted = true;
+        for (int i = 0; i < m; i++) {
+            keys[i] = Sorting.keyAt(values, valueType, valueStart + i, asDouble);
+            if (i > 0 && keys[i] < keys[i - 1]) {
+                sorted = false;
+            }
+        }
+        final boolean gallop = sorted;
+        final long cost = (long) m * (32 - Integer.numberOfLeadingZeros(n));
+        Parallel.forRange(m, cost, new Parallel.Range() {
+            @Override void run(final int lo, final int hi) {
+                int pos = 0;
+                for (int i = lo; i < hi; i++) {
+                    final long key = keys[i];
+                    int low = (gallop && i > lo) ? pos : 0, high = n;
+                    if (gallop && i > lo) {
+                        // Probe pos, pos+1, pos+3, ... to bracket the answer.
+                        for (int step = 1;; step <<= 1) {
+                            if (step > n - pos) {
+                                break;
+                            }
+                            final int probe = pos + step - 1;
+                            if (!Sorting.before(data, type, start, stride, order, probe, key, right, asDouble)) {
+                                high = probe;
+                                break;
+                            }
+                            low = probe + 1;
+                        }
+                    }
+                    while (low < high) {
+                        final int mid = (low + high) >>> 1;
+                        if (Sorting.before(data, type, start, stride, order, mid, key, right, asDouble)) {
+                            low = mid + 1;
+                        } else {
+                            high = mid;
+                        }
+                    }
+                    out[i] = pos = low;
+                }
+            }
+        });
+    }
+
+    /**
+     * True if the element at sorted position <code>j</code> belongs before
+     * <code>key</code>.
+     */
+    private static boolean before(final Object data, final char type, final int start, final int stride,
+            final int[] order, final int j, final long key, final boolean right, final boolean asDouble) {
+        final long k = Sorting.keyAt(data, type, start + ((order == null) ? j : order[j]) * stride, asDouble);
+        return right ? k <= key : k < key;
+    }
+
+    /**
+     * Store sortable keys back into <code>data</code> as values.
+     */
+    static void storeKeys(final Object data, final char type, final int offset, final int n, final long[] keys) {
+        switch (type) {
+        case '1': {
+            final byte[] d = (byte[]) data;
+            for (int i = 0; i < n; i++) {
+                d[offset + i] = (byte) keys[i];
+            }
+            break;
+        }
+        case 's': {
+            final short[] d = (short[]) data;
+            for (int i = 0; i < n; i++) {
+                d[offset + i] = (short) keys[i];
+            }
+            break;
+        }
+        case 'i': {
+            final int[] d = (int[]) data;
+            for (int i = 0; i < n; i++) {
+                d[offset + i] = (int) keys[i];
+            }
+            break;
+        }
+        case 'l':
+            System.arraycopy(keys, 0, data, offset, n);
+            break;
+        case 'f': {
+            final float[] d = (float[]) data;
+            for (int i = 0; i < n; i++) {
+                final int bits = (int) keys[i];
+                d[offset + i] = Float.intBitsToFloat(bits ^ ((bits >> 31) & Integer.MAX_VALUE));
+            }
+            break;
+        }
+        case 'd': {
+            final double[] d = (double[]) data;
+            for (int i = 0; i < n; i++) {
+                final long bits = keys[i];
+                d[offset + i] = Double.longBitsToDouble(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+            }
+            break;
+        }
+        default:
+            throw Py.ValueError("unsortable array type");
+        }
+    }
+
+    /**
+     * Stable LSD radix sort of <code>keys[0:n]</code> over their low
+     * <code>bytes</code> bytes, RADIX_BITS per pass, permuting
+     * <code>index</code> (if not null) the same way. All histograms are
+     * built in a single pass, and passes where every key falls in one
+     * bucket are skipped.
+     */
+    static void radixSort(final long[] keys, final int[] index, final int n, final int bytes,
+            final long[] keyScratch, final int[] indexScratch, final int[] counts) {
+        if (n < 2) { return; }
+        final int bits = 8 * bytes;
+        final int passes = (bits + Sorting.RADIX_BITS - 1) / Sorting.RADIX_BITS;
+        final long flip = 1L << (bits - 1);
+        // Sign-extended bits above the key must not leak into the top digit.
+        final long width = (bits == 64) ? -1L : (1L << bits) - 1;
+        final int mask = Sorting.RADIX_SIZE - 1;
+        Arrays.fill(counts, 0, passes * Sorting.RADIX_SIZE, 0);
+        for (int i = 0; i < n; i++) {
+            final long u = (keys[i] ^ flip) & width;
+            for (int p = 0, base = 0; p < passes; p++, base += Sorting.RADIX_SIZE) {
+                counts[base + (int) ((u >>> (p * Sorting.RADIX_BITS)) & mask)]++;
+            }
+        }
+        long[] srcK = keys, dstK = keyScratch;
+        int[] srcX = index, dstX = indexScratch;
+        for (int p = 0; p < passes; p++) {
+            final int base = p * Sorting.RADIX_SIZE;
+            final int shift = p * Sorting.RADIX_BITS;
+            if (counts[base + (int) ((((srcK[0] ^ flip) & width) >>> shift) & mask)] == n) {
+                continue;
+            }
+            for (int j = 0, sum = 0; j < Sorting.RADIX_SIZE; j++) {
+                final int c = counts[base + j];
+                counts[base + j] = sum;
+                sum += c;
+            }
+            if (srcX == null) {
+                for (int i = 0; i < n; i++) {
+                    final long k = srcK[i];
+                    dstK[counts[base + (int) ((((k ^ flip) & width) >>> shift) & mask)]++] = k;
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    final long k = srcK[i];
+                    final int pos = counts[base + (int) ((((k ^ flip) & width) >>> shift) & mask)]++;
+                    dstK[pos] = k;
+                    dstX[pos] = srcX[i];
+                }
+            }
+            final long[] tk = srcK;
+            srcK = dstK;
+            dstK = tk;
+            final int[] tx = srcX;
+            srcX = dstX;
+            dstX = tx;
+        }
+        if (srcK != keys) {
+            System.arraycopy(srcK, 0, keys, 0, n);
+            if (index != null) {
+                System.arraycopy(srcX, 0, index, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Sort <code>keys[lo:hi]</code> and permute <code>index[lo:hi]</code>
+     * the same way. The stable sort is a merge sort and uses the same range
+     * of the two scratch arrays; the unstable sort is an introsort and
+     * ignores them.
+     */
+    static void sort(final long[] keys, final int[] index, final int lo, final int hi, final boolean stable,
+            final long[] keyScratch, final int[] indexScratch) {
+        if (stable) {
+            System.arraycopy(keys, lo, keyScratch, lo, hi - lo);
+            System.arraycopy(index, lo, indexScratch, lo, hi - lo);
+            Sorting.mergeSort(keyScratch, indexScratch, keys, index, lo, hi);
+        } else {
+            Sorting.introSort(keys, index, lo, hi, 2 * (32 - Integer.numberOfLeadingZeros(hi - lo)));
+        }
+    }
+
+    /**
+     * Sort <code>keys[0:n]</code> together with <code>index[0:n]</code> on
+     * the fork/join pool: pieces are sorted independently and then merged
+     * stably, with large merges split around a binary-searched pivot.
+     */
+    static void parallelSort(final long[] keys, final int[] index, final int n, final boolean stable) {
+        final long[] keyScratch = keys.clone();
+        final int[] indexScratch = index.clone();
+        final int grain = Math.max(Sorting.INSERTION_THRESHOLD, n / (4 * Parallel.parallelism()));
+        ForkJoinPool.commonPool().invoke(new SortTask(
+                keyScratch, indexScratch, keys, index, 0, n, grain, stable));
+    }
+
+    /**
+     * Sorts <code>src[lo:hi]</code> into <code>dst[lo:hi]</code>; both hold
+     * the same data on entry.
+     */
+    private static final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 3470954718815513262L;
+
+        private final long[] srcK, dstK;
+        private final int[] srcX, dstX;
+        private final int lo, hi, grain;
+        private final boolean stable;
+
+        SortTask(final long[] srcK, final int[] srcX, final long[] dstK, final int[] dstX,
+                final int lo, final int hi, final int grain, final boolean stable) {
+            this.srcK = srcK;
+            this.srcX = srcX;
+            this.dstK = dstK;
+            this.dstX = dstX;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+            this.stable = stable;
+        }
+
+        @Override protected void compute() {
+            if (this.hi - this.lo <= this.grain) {
+                Sorting.sort(this.dstK, this.dstX, this.lo, this.hi, this.stable, this.srcK, this.srcX);
+                return;
+            }
+            final int mid = (this.lo + this.hi) >>> 1;
+            ForkJoinTask.invokeAll(
+                    new SortTask(this.dstK, this.dstX, this.srcK, this.srcX, this.lo, mid, this.grain, this.stable),
+                    new SortTask(this.dstK, this.dstX, this.srcK, this.srcX, mid, this.hi, this.grain, this.stable));
+            new MergeTask(this.srcK, this.srcX, this.dstK, this.dstX,
+                    this.lo, mid, mid, this.hi, this.lo, this.grain).compute();
+        }
+    }
+
+    /**
+     * Stably merges <code>src[lo1:hi1]</code> and <code>src[lo2:hi2]</code>
+     * into <code>dst</code> starting at <code>out</code>.
+     */
+    private static final class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = -6190873350339414861L;
+
+        private final long[] srcK, dstK;
+        private final int[] srcX, dstX;
+        private final int lo1, hi1, lo2, hi2, out, grain;
+
+        MergeTask(final long[] srcK, final int[] srcX, final long[] dstK, final int[] dstX,
+                final int lo1, final int hi1, final int lo2, final int hi2, final int out, final int grain) {
+            this.srcK = srcK;
+            this.srcX = srcX;
+            this.dstK = dstK;
+            this.dstX = dstX;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.out = out;
+            this.grain = grain;
+        }
+
+        @Override protected void compute() {
+            final int n1 = this.hi1 - this.lo1, n2 = this.hi2 - this.lo2;
+            if (n1 + n2 <= this.grain) {
+                Sorting.merge(this.srcK, this.srcX, this.lo1, this.hi1, this.lo2, this.hi2,
+                        this.dstK, this.dstX, this.out);
+                return;
+            }
+            // Split the longer run at its middle and find where that key
+            // falls in the other run; ties stay on the side that keeps the
+            // left run first.
+            final int m1, m2;
+            if (n1 >= n2) {
+                m1 = (this.lo1 + this.hi1) >>> 1;
+                m2 = Sorting.lowerBound(this.srcK, this.lo2, this.hi2, this.srcK[m1]);
+            } else {
+                m2 = (this.lo2 + this.hi2) >>> 1;
+                m1 = Sorting.upperBound(this.srcK, this.lo1, this.hi1, this.srcK[m2]);
+            }
+            final int split = this.out + (m1 - this.lo1) + (m2 - this.lo2);
+            ForkJoinTask.invokeAll(
+                    new MergeTask(this.srcK, this.srcX, this.dstK, this.dstX,
+                            this.lo1, m1, this.lo2, m2, this.out, this.grain),
+                    new MergeTask(this.srcK, this.srcX, this.dstK, this.dstX,
+                            m1, this.hi1, m2, this.hi2, split, this.grain));
+        }
+    }
+
+    private static void merge(final long[] srcK, final int[] srcX, int p, final int hi1, int q, final int hi2,
+            final long[] dstK, final int[] dstX, int out) {
+        while (p < hi1 && q < hi2) {
+            if (srcK[p] <= srcK[q]) {
+                dstK[out] = srcK[p];
+                dstX[out++] = srcX[p++];
+            } else {
+                dstK[out] = srcK[q];
+                dstX[out++] = srcX[q++];
+            }
+        }
+        System.arraycopy(srcK, p, dstK, out, hi1 - p);
+        System.arraycopy(srcX, p, dstX, out, hi1 - p);
+        out += hi1 - p;
+        System.arraycopy(srcK, q, dstK, out, hi2 - q);
+        System.arraycopy(srcX, q, dstX, out, hi2 - q);
+    }
+
+    /**
+     * First position in <code>k[lo:hi]</code> whose key is not less than
+     * <code>key</code>.
+     */
+    static int lowerBound(final long[] k, int lo, int hi, final long key) {
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (k[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * First position in <code>k[lo:hi]</code> whose key is greater than
+     * <code>key</code>.
+     */
+    static int upperBound(final long[] k, int lo, int hi, final long key) {
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (k[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Sort <code>src[lo:hi]</code> into <code>dst[lo:hi]</code>. Both must
+     * hold the same data on entry; <code>src</code> is used as scratch.
+     */
+    private static void mergeSort(final long[] srcK, final int[] srcX, final long[] dstK, final int[] dstX, final int lo, final int hi) {
+        if (hi - lo < Sorting.INSERTION_THRESHOLD) {
+            Sorting.insertionSort(dstK, dstX, lo, hi);
+            return;
+        }
+        final int mid = (lo + hi) >>> 1;
+        Sorting.mergeSort(dstK, dstX, srcK, srcX, lo, mid);
+        Sorting.mergeSort(dstK, dstX, srcK, srcX, mid, hi);
+        if (srcK[mid - 1] <= srcK[mid]) {
+            System.arraycopy(srcK, lo, dstK, lo, hi - lo);
+            System.arraycopy(srcX, lo, dstX, lo, hi - lo);
+            return;
+        }
+        for (int i = lo, p = lo, q = mid; i < hi; i++) {
+            if (q >= hi || (p < mid && srcK[p] <= srcK[q])) {
+                dstK[i] = srcK[p];
+                dstX[i] = srcX[p++];
+            } else {
+                dstK[i] = srcK[q];
+                dstX[i] = srcX[q++];
+            }
+        }
+    }
+
+    private static void insertionSort(final long[] k, final int[] x, final int lo, final int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            final long key = k[i];
+            final int idx = x[i];
+            int j = i - 1;
+            while (j >= lo && k[j] > key) {
+                k[j + 1] = k[j];
+                x[j + 1] = x[j];
+                j--;
+            }
+            k[j + 1] = key;
+            x[j + 1] = idx;
+        }
+    }
+
+    private static void introSort(final long[] k, final int[] x, int lo, int hi, int depth) {
+        while (hi - lo > Sorting.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                Sorting.heapSort(k, x, lo, hi);
+                return;
+            }
+            // Median of three, which also guards both partition scans.
+            final int mid = (lo + hi) >>> 1;
+            if (k[mid] < k[lo]) {
+                Sorting.swap(k, x, mid, lo);
+            }
+            if (k[hi - 1] < k[lo]) {
+                Sorting.swap(k, x, hi - 1, lo);
+            }
+            if (k[hi - 1] < k[mid]) {
+                Sorting.swap(k, x, hi - 1, mid);
+            }
+            final long pivot = k[mid];
+            int i = lo, j = hi - 1;
+            while (i <= j) {
+                while (k[i] < pivot) {
+                    i++;
+                }
+                while (k[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    Sorting.swap(k, x, i++, j--);
+                }
+            }
+            // Recurse into the smaller half and loop on the larger one.
+            if (j - lo < hi - i) {
+                Sorting.introSort(k, x, lo, j + 1, depth);
+                lo = i;
+            } else {
+                Sorting.introSort(k, x, i, hi, depth);
+                hi = j + 1;
+            }
+        }
+        Sorting.insertionSort(k, x, lo, hi);
+    }
+
+    private static void heapSort(final long[] k, final int[] x, final int lo, final int hi) {
+        final int n = hi - lo;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            Sorting.siftDown(k, x, lo, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            Sorting.swap(k, x, lo, lo + end);
+            Sorting.siftDown(k, x, lo, 0, end);
+        }
+    }
+
+    private static void siftDown(final long[] k, final int[] x, final int lo, int i, final int n) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) {
+                return;
+            }
+            if (child + 1 < n && k[lo + child + 1] > k[lo + child]) {
+                child++;
+            }
+            if (k[lo + i] >= k[lo + child]) {
+                return;
+            }
+            Sorting.swap(k, x, lo + i, lo + child);
+            i = child;
+        }
+    }
+
+    private static void swap(final long[] k, final int[] x, final int i, final int j) {
+        final long tk = k[i];
+        k[i] = k[j];
+        k[j] = tk;
+        final int tx = x[i];
+        x[i] = x[j];
+        x[j] = tx;
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * JNumeric - a Jython port of Numerical Java
+ * Current Maintainer: Daniel Lemire, Ph.D.
+ * (c) 1998, 1999 Timothy Hochberg, tim.hochberg@ieee.org
+ *
+ * Free software under the Python license, see http://www.python.org
+ * Home page: http://jnumerical.sourceforge.net
+ *
+ */
+
+package com.github.tbekolay.jnumeric;
+
+import org.python.core.Py;
+
+/**
+ * Floating point summation kernels used by <code>add.reduce</code>.
+ *
+ * Float data is always accumulated in double precision. The pairwise sum
+ * has an error that grows with log(n) instead of n, and its leaves are
+ * summed into eight independent accumulators so the loop is not held up
+ * by the latency of a single chain of additions. The compensated (Kahan)
+ * sum is slower but its error does not grow with n at all.
+ */
+final class Summation {
+
+    /**
+     * Summation methods. SEQUENTIAL is the original running sum, kept in
+     * the precision of the array.
+     */
+    static final int PAIRWISE = 0, KAHAN = 1, SEQUENTIAL = 2;
+
+    /**
+     * Blocks no longer than this are summed directly (a multiple of the
+     * number of accumulators).
+     */
+    private static final int BLOCK = 128;
+
+    private static final BinaryUfunc kahan = new BinaryUfunc(BinaryUfunc.kahanAdd);
+    private static final BinaryUfunc sequential = new BinaryUfunc(BinaryUfunc.sequentialAdd);
+
+    private Summation() {}
+
+    /**
+     * Parse the name of a summation method; null means PAIRWISE.
+     */
+    static int method(final String method) {
+        if (method == null || method.equals("pairwise")) { return Summation.PAIRWISE; }
+        if (method.equals("kahan")) { return Summation.KAHAN; }
+        if (method.equals("sequential")) { return Summation.SEQUENTIAL; }
+        throw Py.ValueError("method must be 'pairwise', 'kahan' or 'sequential'");
+    }
+
+    /**
+     * The add ufunc that reduces with the given method.
+     */
+    static BinaryUfunc add(final int method) {
+        switch (method) {
+        case KAHAN:
+            return Summation.kahan;
+        case SEQUENTIAL:
+            return Summation.sequential;
+        default:
+            return Umath.add;
+        }
+    }
+
+    /**
+     * Sum <code>n</code> elements of <code>data</code> starting at
+     * <code>offset</code>, <code>stride</code> apart.
+     */
+    static double sum(final double[] data, final int offset, final int stride, final int n, final int method) {
+        return (method == Summation.KAHAN) ? Summation.kahan(data, offset, stride, n)
+                : Summation.pairwise(data, offset, stride, n);
+    }
+
+    static double sum(final float[] data, final int offset, final int stride, final int n, final int method) {
+        return (method == Summation.KAHAN) ? Summation.kahan(data, offset, stride, n)
+                : Summation.pairwise(data, offset, stride, n);
+    }
+
+    static double pairwise(final double[] data, final int offset, final int stride, final int n) {
+        if (n > Summation.BLOCK) {
+            final int half = (n >>> 1) & ~7;
+            return Summation.pairwise(data, offset, stride, half)
+                    + Summation.pairwise(data, offset + half * stride, stride, n - half);
+        }
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        int i = 0, p = offset;
+        for (; i + 8 <= n; i += 8, p += 8 * stride) {
+            s0 += data[p];
+            s1 += data[p + stride];
+            s2 += data[p + 2 * stride];
+            s3 += data[p + 3 * stride];
+            s4 += data[p + 4 * stride];
+            s5 += data[p + 5 * stride];
+            s6 += data[p + 6 * stride];
+            s7 += data[p + 7 * stride];
+        }
+        for (; i < n; i++, p += stride) {
+            s0 += data[p];
+        }
+        return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+    }
+
+    static double pairwise(final float[] data, final int offset, final int stride, final int n) {
+        if (n > Summation.BLOCK) {
+            final int half = (n >>> 1) & ~7;
+            return Summation.pairwise(data, offset, stride, half)
+                    + Summation.pairwise(data, offset + half * stride, stride, n - half);
+        }
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        int i = 0, p = offset;
+        for (; i + 8 <= n; i += 8, p += 8 * stride) {
+            s0 += data[p];
+            s1 += data[p + stride];
+            s2 += data[p + 2 * stride];
+            s3 += data[p + 3 * stride];
+            s4 += data[p + 4 * stride];
+            s5 += data[p + 5 * stride];
+            s6 += data[p + 6 * stride];
+            s7 += data[p + 7 * stride];
+        }
+        for (; i < n; i++, p += stride) {
+            s0 += data[p];
+        }
+        return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+    }
+
+    /**
+     * Neumaier's variant of Kahan summation, which also compensates when
+     * an addend is larger than the running sum. Falls back to the plain sum
+     * once it overflows, where the compensation would turn into a NaN.
+     */
+    static double kahan(final double[] data, final int offset, final int stride, final int n) {
+        double s = 0, c = 0;
+        for (int i = 0, p = offset; i < n; i++, p += stride) {
+            final double x = data[p], t = s + x;
+            if (Math.abs(s) >= Math.abs(x)) {
+                c += (s - t) + x;
+            } else {
+                c += (x - t) + s;
+            }
+            s = t;
+        }
+        return Double.isInfinite(s) || Double.isNaN(s) ? s : s + c;
+    }
+
+    static double kahan(final float[] data, final int offset, final int stride, final int n) {
+        double s = 0, c = 0;
+        for (int i = 0, p = offset; i < n; i++, p += stride) {
+            final double x = data[p], t = s + x;
+            if (Math.abs(s) >= Math.abs(x)) {
+                c += (s - t) + x;
+            } else {
+                c += (x - t) + s;
+            }
+            s = t;
+        }
+        return Double.isInfinite(s) || Double.isNaN(s) ? s : s + c;
+    }
+}
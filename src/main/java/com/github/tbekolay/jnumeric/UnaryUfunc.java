@@ -1,22 +1,21 @@
 package com.github.tbekolay.jnumeric;
 
-import java.lang.reflect.Array;
-
 import org.python.core.Py;
-import org.python.core.PyComplex;
 import org.python.core.PyObject;
 import org.python.core.PyString;
-import org.python.core.PyType;
 
-// TODO Get rid of dependance on umath
-// TODO Change format of calls to Complex(a, r) where result is stuff into r.
-//      this way two argument ufuncs could be made to work correctly also.
 // TODO Change __call__ signature to official JPython call signature.
 
 /**
  * Function that accepts one PyMultiarray.
+ *
+ * The argument is read a block at a time into a buffer of doubles (real
+ * and imaginary parts side by side for complex types), whatever its type
+ * and strides; the function overwrites the block with its results, which
+ * are then stored straight into the result array, again whatever its type
+ * and strides. No full copy of either array is made.
  */
-public class UnaryUfunc extends PyObject {
+public class UnaryUfunc extends KeywordFunction {
 
     private static final long serialVersionUID = 5249208075619641728L;
 
@@ -130,6 +129,11 @@ public class UnaryUfunc extends PyObject {
      */
     static final public UnaryFunction tanh = new Tanh();
 
+    /**
+     * Number of elements converted and computed at a time.
+     */
+    private static final int BLOCK = 1024;
+
     UnaryFunction function;
     
     /**
@@ -138,9 +142,9 @@ public class UnaryUfunc extends PyObject {
      * @param function The function to wrap
      */
     public UnaryUfunc(final UnaryFunction function) {
-        super(PyType.fromClass(UnaryFunction.class));
-        this.javaProxy = this;
         this.function = function;
+        this.argNames = new String[] { "a", "result" };
+        this.defaultArgs = new PyObject[] { null, Py.None };
     }
 
     @Override public PyObject __findattr_ex__(final String name) {
@@ -151,50 +155,76 @@ public class UnaryUfunc extends PyObject {
     }
 
     @Override public PyObject __call__(final PyObject o) {
-        // TODO rework to provide separate functions for all cases
-        // TODO have default behaviour of most functions call 'd' and 'D'
-        PyMultiarray result;
         final PyMultiarray a = PyMultiarray.asarray(o);
-        switch (a._typecode) {
-        case 'F':
-            result = this.function.ComplexFloat(PyMultiarray.array(a));
-            break;
-        case 'D':
-            result = this.function.ComplexDouble(PyMultiarray.array(a));
-            break;
-        case 'f':
-            result = this.function.Float(PyMultiarray.array(a));
-            break;
-        case '1':
-        case 's':
-        case 'i':
-        case 'l':
-        case 'd':
-            // while sensible, this is not what Numeric does!
-            // result =
-            // function.Double(PyMultiarray.array(a,'d')).astype(a._typecode);
-            result = this.function.Double(PyMultiarray.array(a, 'd'));
-            break;
-        default:
-            throw Py.ValueError("typecode must be in [1silfFdD]");
+        final char type = this.function.resultType(a._typecode);
+        PyMultiarray result;
+        if (a.overwritable && a._typecode == type) {
+            a.overwritable = false;
+            result = a;
+        } else {
+            result = PyMultiarray.empty(a.dimensions, type);
         }
+        this.apply(a, result);
+        result.isMask = this.function instanceof LogicalNot;
         return PyMultiarray.returnValue(result);
     }
 
+    @Override public PyObject _call(final PyObject args[]) {
+        if (args[1] == Py.None) { return this.__call__(args[0]); }
+        if (!(args[1] instanceof PyMultiarray)) { throw Py.ValueError("result must be an array"); }
+        return this.__call__(args[0], (PyMultiarray) args[1]);
+    }
 
     /**
      * Two argument unary functions are provided for compatibility with
-     * CNumeric. As implemented, they are no more efficient in memory usage
-     * or speed than one argument unary functions (and perhaps less so).
+     * CNumeric. The result is computed straight into result, which may be
+     * strided, of any type at least as wide as the result, or o itself.
      * 
-     * @param o Input array
+     * @param o Input array, which must broadcast to the shape of result
      * @param result Array to store the result
      * @return The result, which is the same as result
      */
     public PyObject __call__(final PyObject o, final PyMultiarray result) {
-        PyMultiarray.copyAToB(PyMultiarray.asarray(this.__call__(o)), result);
+        final PyMultiarray a = PyMultiarray.asarray(o);
+        this.function.resultType(a._typecode);
+        this.apply(PyMultiarray.unaliased(a, result), result);
         return result;
     }
+
+    /**
+     * Compute the function of each element of a into r.
+     */
+    private void apply(final PyMultiarray a, final PyMultiarray r) {
+        final boolean complexIn = a._typecode == 'F' || a._typecode == 'D';
+        final char type = this.function.resultType(a._typecode);
+        final int ea = complexIn ? 2 : 1, er = (type == 'F' || type == 'D') ? 2 : 1;
+        if ("1silfdFD".indexOf(r._typecode) < 0) { throw Py.ValueError("typecode must be in [1silfFdD]"); }
+        final int ed = PyMultiarray.typeToNElements(r._typecode);
+        if (er > ed) { throw Py
+                .ValueError("cannot store complex results in a real array"); }
+        if (PyMultiarray.commonType(r._typecode, type) != r._typecode) { throw Py
+                .ValueError("return array has incorrect type."); }
+        final Broadcast b = new Broadcast(r.dimensions, r, a);
+        final int[] s = b.step;
+        final UnaryFunction f = this.function;
+        // The functions cost several times a copy per element.
+        b.forEach(8, new Broadcast.Line() {
+            @Override void run(final int[] at, final int index, final int n) {
+                final double[] x = new double[Math.min(n, UnaryUfunc.BLOCK) * ea];
+                for (int i = 0; i < n; i += UnaryUfunc.BLOCK) {
+                    final int m = Math.min(UnaryUfunc.BLOCK, n - i);
+                    Broadcast.load(a.data, at[1] + i * s[1], s[1], m, ea, x);
+                    if (complexIn) {
+                        f.ComplexDouble(x, m);
+                    } else {
+                        f.Double(x, m);
+                    }
+                    Broadcast.store(x, m, er, r.data, ed, at[0] + i * s[0], s[0]);
+                }
+            }
+        });
+    }
+
 }
 
 class UnaryFunction {
@@ -202,33 +232,55 @@ class UnaryFunction {
         return "unary_function(a, [,r])\n";
     }
 
-    // Some constants that are useful when using complex numbers
-    static final PyMultiarray cp1 = PyMultiarray.array(new PyComplex(1, 0));
-    static final PyMultiarray cpj = PyMultiarray.array(new PyComplex(0, 1));
-    static final PyMultiarray cn1 = PyMultiarray.array(new PyComplex(-1, 0));
-    static final PyMultiarray cnj = PyMultiarray.array(new PyComplex(0, -1));
-    static final PyMultiarray c0 = PyMultiarray.array(new PyComplex(0, 0));
-    static final PyMultiarray cpj_2 = PyMultiarray.array(new PyComplex(0, 0.5));
-    static final PyMultiarray cp1_2 = PyMultiarray.array(new PyComplex(0.5, 0));
-    static final PyMultiarray cp2 = PyMultiarray.array(new PyComplex(2, 0));
+    /**
+     * The type of the result for an argument of the given type.
+     */
+    char resultType(final char type) {
+        switch (type) {
+        case 'f':
+        case 'F':
+        case 'D':
+            return type;
+        case '1':
+        case 's':
+        case 'i':
+        case 'l':
+        case 'd':
+            // while sensible, keeping integer types is not what Numeric does!
+            return 'd';
+        default:
+            throw Py.ValueError("typecode must be in [1silfFdD]");
+        }
+    }
 
-    // a is used as scratch space by these functions,
-    // so make sure to pass a copy!
-    PyMultiarray Double(final PyMultiarray a) {
+    // x holds n reals, or n complex numbers as real and imaginary parts side
+    // by side, and is overwritten with the results; functions with real
+    // results of complex arguments pack them into the first n places.
+    void Double(final double[] x, final int n) {
         throw Py.NotImplementedError("Double not implemented");
     }
 
-    PyMultiarray ComplexDouble(final PyMultiarray a) {
+    void ComplexDouble(final double[] x, final int n) {
         throw Py.NotImplementedError("ComplexDouble not implemented");
     }
 
-    // This should be overridden by functions concerned with efficiency / speed.
-    PyMultiarray Float(final PyMultiarray a) {
-        return this.ComplexDouble(a.astype('d')).astype('f');
+    // Complex helpers for the functions below; each stores its result in w.
+
+    static void sqrt(final double re, final double im, final double[] w) {
+        final double mag = Math.pow(re * re + im * im, 0.25), phi = Math.atan2(im, re) / 2.;
+        w[0] = mag * Math.cos(phi);
+        w[1] = mag * Math.sin(phi);
     }
 
-    PyMultiarray ComplexFloat(final PyMultiarray a) {
-        return this.ComplexDouble(a.astype('D')).astype('F');
+    static void log(final double re, final double im, final double[] w) {
+        w[0] = Math.log(re * re + im * im) / 2.;
+        w[1] = Math.atan2(im, re);
+    }
+
+    static void div(final double ar, final double ai, final double br, final double bi, final double[] w) {
+        final double den = br * br + bi * bi;
+        w[0] = (ar * br + ai * bi) / den;
+        w[1] = (ai * br - ar * bi) / den;
     }
 }
 
@@ -237,22 +289,21 @@ final class Arccos extends UnaryFunction {
         return "arccos(a [,r]) returns arccos(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.acos(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.acos(x[i]);
         }
-        return a;
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
+    @Override void ComplexDouble(final double[] x, final int n) {
         double re, re1, re2, re3, re4;
         double im, im1, im2, im3, im4;
         double mag, phi;
-        
-        for (int i = 0; i < Array.getLength(a.data); i += 2) {
+
+        for (int i = 0; i < 2 * n; i += 2) {
             // arccos(z) = -j*log(z + j*sqrt(1 - z**2)
-            re = Array.getDouble(a.data, i);
-            im = Array.getDouble(a.data, i + 1);
+            re = x[i];
+            im = x[i + 1];
             re1 = 1 + im * im - re * re;
             im1 = -2 * im * re;
             mag = Math.pow(re1 * re1 + im1 * im1, 0.25);
@@ -263,10 +314,9 @@ final class Arccos extends UnaryFunction {
             im3 = im + re2;
             re4 = Math.log(re3 * re3 + im3 * im3) / 2.;
             im4 = Math.atan2(im3, re3);
-            Array.setDouble(a.data, i, im4);
-            Array.setDouble(a.data, i + 1, -re4);
+            x[i] = im4;
+            x[i + 1] = -re4;
         }
-        return a;
     }
 }
 
@@ -275,20 +325,23 @@ final class Arccosh extends UnaryFunction {
         return "arccosh(a [,r]) returns arccosh(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            final double d = Array.getDouble(a.data, i);
-            Array.setDouble(a.data, i, Math.log(d + Math.sqrt(d * d - 1)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            final double d = x[i];
+            x[i] = Math.log(d + Math.sqrt(d * d - 1));
         }
-        return a;
     }
 
-    // TODO Rewrite without umath
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        return PyMultiarray.asarray(Umath.log.__call__(a
-                .__add__(UnaryFunction.cpj
-                        .__mul__(Umath.sqrt.__call__(UnaryFunction.cp1
-                                .__sub__(a.__mul__(a)))))));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        final double[] w = new double[2];
+        for (int i = 0; i < 2 * n; i += 2) {
+            // arccosh(z) = log(z + j*sqrt(1 - z**2))
+            final double re = x[i], im = x[i + 1];
+            UnaryFunction.sqrt(1 - re * re + im * im, -2 * re * im, w);
+            UnaryFunction.log(re - w[1], im + w[0], w);
+            x[i] = w[0];
+            x[i + 1] = w[1];
+        }
     }
 }
 
@@ -297,20 +350,22 @@ final class Arcsin extends UnaryFunction {
         return "arcsin(a [,r]) returns arcsin(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.asin(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.asin(x[i]);
         }
-        return a;
     }
 
-    // TODO Rewrite without umath
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        return PyMultiarray.asarray(UnaryFunction.cnj.__mul__(Umath.log
-                .__call__(UnaryFunction.cpj.__mul__(
-                        a).__add__(
-                        Umath.sqrt.__call__(UnaryFunction.cp1.__sub__(a
-                                .__mul__(a)))))));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        final double[] w = new double[2];
+        for (int i = 0; i < 2 * n; i += 2) {
+            // arcsin(z) = -j*log(j*z + sqrt(1 - z**2))
+            final double re = x[i], im = x[i + 1];
+            UnaryFunction.sqrt(1 - re * re + im * im, -2 * re * im, w);
+            UnaryFunction.log(w[0] - im, w[1] + re, w);
+            x[i] = w[1];
+            x[i + 1] = -w[0];
+        }
     }
 }
 
@@ -319,20 +374,23 @@ final class Arcsinh extends UnaryFunction {
         return "arcsinh(a [,r]) returns arcsinh(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            final double d = Array.getDouble(a.data, i);
-            Array.setDouble(a.data, i, -Math.log(Math.sqrt(1 + d * d) - d));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            final double d = x[i];
+            x[i] = -Math.log(Math.sqrt(1 + d * d) - d);
         }
-        return a;
     }
 
-    // TODO Rewrite without umath
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        return PyMultiarray.asarray(Umath.log.__call__(
-                Umath.sqrt.__call__(UnaryFunction.cp1.__add__(a.__mul__(a)))
-                        .__sub__(a))
-                .__neg__());
+    @Override void ComplexDouble(final double[] x, final int n) {
+        final double[] w = new double[2];
+        for (int i = 0; i < 2 * n; i += 2) {
+            // arcsinh(z) = -log(sqrt(1 + z**2) - z)
+            final double re = x[i], im = x[i + 1];
+            UnaryFunction.sqrt(1 + re * re - im * im, 2 * re * im, w);
+            UnaryFunction.log(w[0] - re, w[1] - im, w);
+            x[i] = -w[0];
+            x[i + 1] = -w[1];
+        }
     }
 }
 
@@ -341,18 +399,22 @@ final class Arctan extends UnaryFunction {
         return "arctan(a [,r]) returns arctan(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.atan(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.atan(x[i]);
         }
-        return a;
     }
 
-    // TODO Rewrite without umath
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        return PyMultiarray.asarray(UnaryFunction.cpj_2.__mul__(Umath.log
-                .__call__(UnaryFunction.cpj
-                        .__add__(a).__div__(UnaryFunction.cpj.__sub__(a)))));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        final double[] w = new double[2];
+        for (int i = 0; i < 2 * n; i += 2) {
+            // arctan(z) = j/2*log((j + z)/(j - z))
+            final double re = x[i], im = x[i + 1];
+            UnaryFunction.div(re, 1 + im, -re, 1 - im, w);
+            UnaryFunction.log(w[0], w[1], w);
+            x[i] = -0.5 * w[1];
+            x[i + 1] = 0.5 * w[0];
+        }
     }
 }
 
@@ -361,19 +423,23 @@ final class Arctanh extends UnaryFunction {
         return "arctanh(a [,r]) returns arctanh(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            final double d = Array.getDouble(a.data, i);
-            Array.setDouble(a.data, i, 0.5 * Math.log((1. + d) / (1. - d)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            final double d = x[i];
+            x[i] = 0.5 * Math.log((1. + d) / (1. - d));
         }
-        return a;
     }
 
-    // TODO Rewrite without umath
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        return PyMultiarray.asarray(UnaryFunction.cp1_2.__mul__(Umath.log
-                .__call__(UnaryFunction.cp1
-                        .__add__(a).__div__(UnaryFunction.cp1.__sub__(a)))));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        final double[] w = new double[2];
+        for (int i = 0; i < 2 * n; i += 2) {
+            // arctanh(z) = 1/2*log((1 + z)/(1 - z))
+            final double re = x[i], im = x[i + 1];
+            UnaryFunction.div(1 + re, im, 1 - re, -im, w);
+            UnaryFunction.log(w[0], w[1], w);
+            x[i] = 0.5 * w[0];
+            x[i + 1] = 0.5 * w[1];
+        }
     }
 }
 
@@ -382,11 +448,10 @@ final class Ceil extends UnaryFunction {
         return "ceil(a [,r]) returns ceil(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.ceil(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.ceil(x[i]);
         }
-        return a;
     }
 }
 
@@ -395,15 +460,12 @@ final class Conjugate extends UnaryFunction {
         return "conjugate(a [,r]) returns conjugate(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        return a;
-    }
+    @Override void Double(final double[] x, final int n) {}
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i += 2) {
-            Array.setDouble(a.data, i + 1, -Array.getDouble(a.data, i + 1));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < 2 * n; i += 2) {
+            x[i + 1] = -x[i + 1];
         }
-        return a;
     }
 }
 
@@ -412,23 +474,19 @@ final class Cos extends UnaryFunction {
         return "cos(a [,r]) returns cos(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.cos(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.cos(x[i]);
         }
-        return a;
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i += 2) {
-            final double re = Array.getDouble(a.data, i), im = Array.getDouble(
-                    a.data, i + 1);
-            final double eim = Math.exp(im), cosre = Math.cos(re), sinre = Math
-                    .sin(re);
-            Array.setDouble(a.data, i, 0.5 * cosre * (eim + 1. / eim));
-            Array.setDouble(a.data, i + 1, -0.5 * sinre * (eim - 1. / eim));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < 2 * n; i += 2) {
+            final double re = x[i], im = x[i + 1];
+            final double eim = Math.exp(im), cosre = Math.cos(re), sinre = Math.sin(re);
+            x[i] = 0.5 * cosre * (eim + 1. / eim);
+            x[i + 1] = -0.5 * sinre * (eim - 1. / eim);
         }
-        return a;
     }
 }
 
@@ -437,20 +495,20 @@ final class Cosh extends UnaryFunction {
         return "cosh(a [,r]) returns cosh(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            final double d = Array.getDouble(a.data, i);
-            final double ed = Math.exp(d);
-            Array.setDouble(a.data, i, 0.5 * ed + 0.5 / ed);
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            final double ed = Math.exp(x[i]);
+            x[i] = 0.5 * ed + 0.5 / ed;
         }
-        return a;
     }
 
-    // TODO Rewrite without umath
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        final PyObject ea = Umath.exp.__call__(a);
-        return PyMultiarray.asarray(UnaryFunction.cp1_2.__mul__(ea)
-                .__add__(UnaryFunction.cp1_2.__div__(ea)));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < 2 * n; i += 2) {
+            final double re = x[i], im = x[i + 1];
+            final double ere = Math.exp(re), cosim = Math.cos(im), sinim = Math.sin(im);
+            x[i] = 0.5 * cosim * (ere + 1. / ere);
+            x[i + 1] = 0.5 * sinim * (ere - 1. / ere);
+        }
     }
 }
 
@@ -459,23 +517,19 @@ final class Exp extends UnaryFunction {
         return "exp(a [,r]) returns exp(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.exp(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.exp(x[i]);
         }
-        return a;
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i += 2) {
-            final double re = Array.getDouble(a.data, i), im = Array.getDouble(
-                    a.data, i + 1);
-            final double ere = Math.exp(re), cosim = Math.cos(im), sinim = Math
-                    .sin(im);
-            Array.setDouble(a.data, i, ere * cosim);
-            Array.setDouble(a.data, i + 1, ere * sinim);
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < 2 * n; i += 2) {
+            final double re = x[i], im = x[i + 1];
+            final double ere = Math.exp(re), cosim = Math.cos(im), sinim = Math.sin(im);
+            x[i] = ere * cosim;
+            x[i + 1] = ere * sinim;
         }
-        return a;
     }
 }
 
@@ -484,11 +538,10 @@ final class Floor extends UnaryFunction {
         return "floor(a [,r]) returns floor(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.floor(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.floor(x[i]);
         }
-        return a;
     }
 }
 
@@ -497,12 +550,21 @@ final class Imaginary extends UnaryFunction {
         return "imaginary(a [,r]) returns imaginary(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        return PyMultiarray.zeros(a.dimensions, 'd');
+    @Override char resultType(final char type) {
+        final char t = super.resultType(type);
+        return (t == 'F') ? 'f' : (t == 'D') ? 'd' : t;
+    }
+
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = 0;
+        }
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        return a.getImag();
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = x[2 * i + 1];
+        }
     }
 }
 
@@ -511,21 +573,18 @@ final class Log extends UnaryFunction {
         return "log(a [,r]) returns log(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.log(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.log(x[i]);
         }
-        return a;
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i += 2) {
-            final double re = Array.getDouble(a.data, i), im = Array.getDouble(
-                    a.data, i + 1);
-            Array.setDouble(a.data, i, Math.log(im * im + re * re) / 2.);
-            Array.setDouble(a.data, i + 1, Math.atan2(im, re));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < 2 * n; i += 2) {
+            final double re = x[i], im = x[i + 1];
+            x[i] = Math.log(im * im + re * re) / 2.;
+            x[i + 1] = Math.atan2(im, re);
         }
-        return a;
     }
 }
 
@@ -536,23 +595,18 @@ final class Log10 extends UnaryFunction {
 
     final double log10 = Math.log(10);
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.log(Array.getDouble(a.data, i))
-                    / this.log10);
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.log(x[i]) / this.log10;
         }
-        return a;
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i += 2) {
-            final double re = Array.getDouble(a.data, i), im = Array.getDouble(
-                    a.data, i + 1);
-            Array.setDouble(a.data, i, Math.log(Math.sqrt(im * im + re * re))
-                    / this.log10);
-            Array.setDouble(a.data, i + 1, Math.atan2(im, re) / this.log10);
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < 2 * n; i += 2) {
+            final double re = x[i], im = x[i + 1];
+            x[i] = Math.log(Math.sqrt(im * im + re * re)) / this.log10;
+            x[i + 1] = Math.atan2(im, re) / this.log10;
         }
-        return a;
     }
 }
 
@@ -561,12 +615,21 @@ final class LogicalNot extends UnaryFunction {
         return "logical_not(a [,r]) returns the logical inverse of a and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        return PyMultiarray.asarray(a.__eq(Py.Zero));
+    @Override char resultType(final char type) {
+        super.resultType(type);
+        return 'i';
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        return PyMultiarray.asarray(a.__eq(Py.Zero));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = (x[i] == 0) ? 1 : 0;
+        }
+    }
+
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = (x[2 * i] == 0 && x[2 * i + 1] == 0) ? 1 : 0;
+        }
     }
 }
 
@@ -575,12 +638,17 @@ final class Real extends UnaryFunction {
         return "real(a [,r]) returns real(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        return a;
+    @Override char resultType(final char type) {
+        final char t = super.resultType(type);
+        return (t == 'F') ? 'f' : (t == 'D') ? 'd' : t;
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        return a.getReal();
+    @Override void Double(final double[] x, final int n) {}
+
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = x[2 * i];
+        }
     }
 }
 
@@ -589,23 +657,19 @@ final class Sin extends UnaryFunction {
         return "sin(a [,r]) returns sin(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.sin(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.sin(x[i]);
         }
-        return a;
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i += 2) {
-            final double re = Array.getDouble(a.data, i), im = Array.getDouble(
-                    a.data, i + 1);
-            final double eim = Math.exp(im), cosre = Math.cos(re), sinre = Math
-                    .sin(re);
-            Array.setDouble(a.data, i, 0.5 * sinre * (eim + 1. / eim));
-            Array.setDouble(a.data, i + 1, 0.5 * cosre * (eim - 1. / eim));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < 2 * n; i += 2) {
+            final double re = x[i], im = x[i + 1];
+            final double eim = Math.exp(im), cosre = Math.cos(re), sinre = Math.sin(re);
+            x[i] = 0.5 * sinre * (eim + 1. / eim);
+            x[i + 1] = 0.5 * cosre * (eim - 1. / eim);
         }
-        return a;
     }
 }
 
@@ -614,20 +678,20 @@ final class Sinh extends UnaryFunction {
         return "sinh(a [,r]) returns sinh(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            final double d = Array.getDouble(a.data, i);
-            final double ed = Math.exp(d);
-            Array.setDouble(a.data, i, 0.5 * ed - 0.5 / ed);
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            final double ed = Math.exp(x[i]);
+            x[i] = 0.5 * ed - 0.5 / ed;
         }
-        return a;
     }
 
-    // TODO Rewrite without umath
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        final PyObject ea = Umath.exp.__call__(a);
-        return PyMultiarray.asarray(UnaryFunction.cp1_2.__mul__(ea)
-                .__sub__(UnaryFunction.cp1_2.__div__(ea)));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        for (int i = 0; i < 2 * n; i += 2) {
+            final double re = x[i], im = x[i + 1];
+            final double ere = Math.exp(re), cosim = Math.cos(im), sinim = Math.sin(im);
+            x[i] = 0.5 * cosim * (ere - 1. / ere);
+            x[i + 1] = 0.5 * sinim * (ere + 1. / ere);
+        }
     }
 }
 
@@ -636,24 +700,19 @@ final class Sqrt extends UnaryFunction {
         return "sqrt(a [,r]) returns sqrt(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.sqrt(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.sqrt(x[i]);
         }
-        return a;
     }
 
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i += 2) {
-            final double re = Array.getDouble(a.data, i), im = Array.getDouble(
-                    a.data, i + 1);
-            final double mag = Math.pow(re * re + im * im, 0.25), phi = Math
-                    .atan2(
-                            im, re) / 2.;
-            Array.setDouble(a.data, i, mag * Math.cos(phi));
-            Array.setDouble(a.data, i + 1, mag * Math.sin(phi));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        final double[] w = new double[2];
+        for (int i = 0; i < 2 * n; i += 2) {
+            UnaryFunction.sqrt(x[i], x[i + 1], w);
+            x[i] = w[0];
+            x[i + 1] = w[1];
         }
-        return a;
     }
 }
 
@@ -662,19 +721,23 @@ final class Tan extends UnaryFunction {
         return "tan(a [,r]) returns tan(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            Array.setDouble(a.data, i, Math.tan(Array.getDouble(a.data, i)));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.tan(x[i]);
         }
-        return a;
     }
 
-    // TODO Rewrite without umath
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        final PyMultiarray sina = Umath.sin.function.ComplexDouble(PyMultiarray
-                .array(a));
-        return PyMultiarray.asarray(sina.__div__(Umath.cos.function
-                .ComplexDouble(a)));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        final double[] w = new double[2];
+        for (int i = 0; i < 2 * n; i += 2) {
+            // tan(z) = sin(z)/cos(z)
+            final double re = x[i], im = x[i + 1];
+            final double eim = Math.exp(im), cosre = Math.cos(re), sinre = Math.sin(re);
+            final double ch = 0.5 * (eim + 1. / eim), sh = 0.5 * (eim - 1. / eim);
+            UnaryFunction.div(sinre * ch, cosre * sh, cosre * ch, -sinre * sh, w);
+            x[i] = w[0];
+            x[i + 1] = w[1];
+        }
     }
 }
 
@@ -683,19 +746,22 @@ final class Tanh extends UnaryFunction {
         return "tanh(a [,r]) returns tanh(a) and stores the result in r if supplied.\n";
     }
 
-    @Override public PyMultiarray Double(final PyMultiarray a) {
-        for (int i = 0; i < Array.getLength(a.data); i++) {
-            final double d = Array.getDouble(a.data, i);
-            final double e2d = Math.exp(2 * d);
-            Array.setDouble(a.data, i, (e2d - 1) / (e2d + 1));
+    @Override void Double(final double[] x, final int n) {
+        for (int i = 0; i < n; i++) {
+            final double e2d = Math.exp(2 * x[i]);
+            x[i] = (e2d - 1) / (e2d + 1);
         }
-        return a;
     }
 
-    // TODO Rewrite without umath
-    @Override public PyMultiarray ComplexDouble(final PyMultiarray a) {
-        final PyObject e2a = Umath.exp.__call__(UnaryFunction.cp2.__mul__(a));
-        return PyMultiarray.asarray(e2a.__sub__(UnaryFunction.cp1).__div__(
-                e2a.__add__(UnaryFunction.cp1)));
+    @Override void ComplexDouble(final double[] x, final int n) {
+        final double[] w = new double[2];
+        for (int i = 0; i < 2 * n; i += 2) {
+            // tanh(z) = (exp(2z) - 1)/(exp(2z) + 1)
+            final double e2re = Math.exp(2 * x[i]), c = e2re * Math.cos(2 * x[i + 1]),
+                    s = e2re * Math.sin(2 * x[i + 1]);
+            UnaryFunction.div(c - 1, s, c + 1, s, w);
+            x[i] = w[0];
+            x[i + 1] = w[1];
+        }
     }
 }
@@ -1,6 +1,23 @@
 from com.github.tbekolay.jnumeric.JNumeric import *
+from java.lang import Thread
 import unittest
 
+
+class Tracked(object):
+    """A number that records the threads its arithmetic runs on."""
+    threads = set()
+
+    def __init__(self, v):
+        self.v = v
+
+    def __add__(self, other):
+        Tracked.threads.add(Thread.currentThread().getName())
+        if isinstance(other, Tracked):
+            other = other.v
+        return Tracked(self.v + other)
+    __radd__ = __add__
+
+
 class Abbrev_Test(unittest.TestCase):
     """The tests in this case are for functions which are really just
     abbreviations for combinations of other more elemental
@@ -37,9 +54,53 @@ class Abbrev_Test(unittest.TestCase):
                 self.mysum[c] += self.B[r][c]
         self.assertEqual(sum(self.B), self.mysum)
 
+    def test_sum_methods(self):
+        """Do the pairwise and kahan sums stay exact where the running sum drifts?"""
+        n = 100000
+        d = zeros(n, 'd') + 0.1
+        self.assertEqual(sum(d), 10000.0)
+        self.assertEqual(sum(d, 0, 'kahan'), 10000.0)
+        self.assertNotEqual(sum(d, 0, 'sequential'), 10000.0)
+        # float32 data is accumulated in double precision
+        f = array(d, 'f')
+        self.assertEqual(sum(f, method='kahan'), sum(f))
+        self.assertTrue(abs(sum(f) - 10000.0) < 1e-2)
+        self.assertTrue(abs(sum(f, 0, 'sequential') - 10000.0) > 1.0)
+        # every axis, including complex data
+        B = array(self.B, 'd')
+        for axis in range(2):
+            for m in ['pairwise', 'kahan']:
+                self.assertEqual(sum(B, axis, m), sum(B, axis, 'sequential'))
+        C = B + 1j * B
+        self.assertEqual(sum(C, 1), sum(B, 1) + 1j * sum(B, 1))
+        self.assertRaises(ValueError, sum, d, 0, 'fast')
+
 
     def test_cumsum(self):
         """Does cumsum() work correctly?"""
+        C = reshape(arange(60), (3, 4, 5))
+        for axis in range(3):
+            T = transpose(C, (2, 0, 1))
+            self.assertEqual(cumsum(T, axis), cumsum(array(T), axis))
+        self.assertEqual(cumsum(C, 2)[:, :, -1], sum(C, 2))
+        self.assertEqual(cumsum(C, -1)[1, 2], array([30, 61, 93, 126, 160]))
+        self.assertEqual(cumsum(C[::-1, :, ::2], 0)[-1], sum(C[:, :, ::2], 0))
+        # complex and object data give the same sums as the real parts
+        D = C + 2j * C
+        for axis in range(3):
+            s = cumsum(D, axis)
+            self.assertEqual(s.real, cumsum(C, axis))
+            self.assertEqual(s.imag, 2 * cumsum(C, axis))
+        O = array(ravel(C), 'O')
+        self.assertEqual(cumsum(O), cumsum(ravel(C)))
+        self.assertEqual(sum(O), 1770)
+        self.assertEqual(cumsum(array([[1, 2], [3, 4]], 'O'), 1), array([[1, 3], [3, 7]]))
+        # and run their Python code on the calling thread only
+        b = reshape(array([Tracked(1) for i in range(90000)], 'O'), (300, 300))
+        Tracked.threads.clear()
+        self.assertEqual(cumsum(b, 0)[-1, 7].v, 300)
+        self.assertEqual(cumsum(b, 1)[7, -1].v, 300)
+        self.assertEqual(Tracked.threads, set([Thread.currentThread().getName()]))
 
 
     def test_product(self):
@@ -54,6 +115,13 @@ class Abbrev_Test(unittest.TestCase):
         
     def test_cumproduct(self):
         """Does cumproduct() work correctly?"""
+        B = self.B % 3 + 1
+        self.assertEqual(cumproduct(B)[-1], product(B))
+        self.assertEqual(cumproduct(B, 1)[:, -1], product(B, 1))
+        self.assertEqual(cumproduct(array([1j, 1j, 2])), array([1j, -1, -2]))
+        self.assertEqual(cumproduct(array([[1j, 2], [1j, 3]], 'F'), 0)[1], array([-1, 6], 'F'))
+        self.assertEqual(cumproduct(array([2, 3, 4], 'O')), array([2, 6, 24]))
+        self.assertEqual(product(array(range(1, 21), 'O')), 2432902008176640000L)
 
 
     def test_alltrue(self):
@@ -73,6 +141,101 @@ class Abbrev_Test(unittest.TestCase):
         Z[len(Z) / 2] = 1 
         self.assertEqual(sometrue(Z), self.true) # Some true
 
+    def test_reduce_axes(self):
+        """Do reductions agree along every axis and on strided views?"""
+        C = reshape(arange(60.), (3, 4, 5))
+        for axis in range(3):
+            T = transpose(C, (2, 0, 1))
+            self.assertEqual(sum(T, axis), sum(array(T), axis))
+            self.assertEqual(product(T + 1, axis), product(array(T) + 1, axis))
+        self.assertEqual(sum(C[::-1, :, ::2], 1), sum(array(C[::-1, :, ::2]), 1))
+        # logical reductions of non-int data give ints
+        self.assertEqual(alltrue(array([1., 2., 3.])), self.true)
+        self.assertEqual(alltrue(array([[1., 0.], [2., 3.]]), 1), array([0, 1]))
+        self.assertEqual(sometrue(zeros(self.len, 'd')), self.false)
+        self.assertEqual(sometrue(array([[0., 0.], [0., 3.]])), array([0, 1]))
+
+    def test_reduce_multi(self):
+        """Do reductions over several axes, keepdims and out= work?"""
+        C = reshape(arange(60), (3, 4, 5))
+        self.assertEqual(sum(C, (0, 2)), sum(sum(C, 2), 0))
+        self.assertEqual(sum(C, (2, 0)), sum(sum(C, 2), 0))
+        self.assertEqual(sum(C, (-1, 1)), sum(sum(C, 2), 1))
+        self.assertEqual(sum(C, None), 1770)
+        self.assertEqual(sum(C[:, ::2, ::-1], (0, 2)), sum(sum(array(C[:, ::2, ::-1]), 2), 0))
+        self.assertEqual(product(C + 1, (0, 1)), product(product(C + 1, 1), 0))
+        self.assertEqual(alltrue(C, None), self.false)
+        self.assertEqual(sometrue(C, (0, 1, 2)), self.true)
+        self.assertEqual(shape(sum(C, (0, 2), keepdims=1)), (1, 4, 1))
+        self.assertEqual(shape(sum(C, None, keepdims=1)), (1, 1, 1))
+        # out= is filled in place, converting to its type
+        r = zeros((4,), 'd')
+        self.assert_(sum(C, (0, 2), out=r) is r)
+        self.assertEqual(r, sum(sum(C, 2), 0))
+        k = zeros((3, 1, 5), 'l')
+        sum(C, 1, keepdims=1, out=k)
+        self.assertEqual(k[:, 0, :], sum(C, 1))
+        # out= may share data with the input being reduced.
+        M = reshape(arange(1., 17.), (4, 4))
+        want = sum(M, 1)
+        sum(M, 1, out=M[3])
+        self.assertEqual(M[3], want)
+        self.assertRaises(ValueError, sum, C, 1, out=zeros((3, 4)))
+        self.assertRaises(ValueError, sum, C, (0, 0))
+        self.assertRaises(ValueError, sum, C, 3)
+        # empty axes reduce to the identity
+        self.assertEqual(sum(zeros((0, 3)), 0), zeros(3))
+        self.assertEqual(product(zeros((2, 0)), 1), ones(2))
+
+    def test_reduce_objects(self):
+        """Do object reductions run Python code on the calling thread only?"""
+        b = reshape(array([Tracked(i % 300) for i in range(90000)], 'O'), (300, 300))
+        Tracked.threads.clear()
+        self.assertEqual(sum(b, 1)[7].v, 44850)
+        self.assertEqual(sum(b[:2], 1)[1].v, 44850)
+        self.assertEqual(Tracked.threads, set([Thread.currentThread().getName()]))
+
+    def test_reduceat(self):
+        """Does reduceat() reduce each segment along any axis?"""
+        a = arange(10)
+        self.assertEqual(reduceat(add, a, [0, 3, 7]), array([3, 18, 24]))
+        self.assertEqual(reduceat(maximum, a, [0, 3, 7]), array([2, 6, 9]))
+        self.assertEqual(reduceat(multiply, a + 1, [0, 3, 7]), array([6, 840, 720]))
+        # an empty segment gives the identity
+        self.assertEqual(reduceat(add, a, [3, 3, 8]), array([0, 25, 17]))
+        B = reshape(arange(120.), (10, 12))
+        for axis in range(2):
+            r = reduceat(add, B, [0, 2, 5], axis)
+            for i, (lo, hi) in enumerate([(0, 2), (2, 5), (5, B.shape[axis])]):
+                if axis == 0:
+                    self.assertEqual(r[i], sum(B[lo:hi], 0))
+                else:
+                    self.assertEqual(r[:, i], sum(B[:, lo:hi], 1))
+        self.assertEqual(reduceat(add, transpose(B), [0, 4]), transpose(reduceat(add, B, [0, 4], 1)))
+        self.assertRaises(IndexError, reduceat, add, a, [0, 10])
+
+    def test_group_reduce(self):
+        """Does group_reduce() reduce the rows of each group in order?"""
+        v = array([1., 2., 3., 4., 5.])
+        g = array([2, 0, 2, 1, 0])
+        self.assertEqual(group_reduce(v, g), array([7., 4., 4.]))
+        self.assertEqual(group_reduce(v, g, maximum), array([5., 4., 3.]))
+        self.assertEqual(group_reduce(v, g, subtract), array([-7., -4., -4.]))
+        self.assertEqual(group_reduce(v, g, ngroups=5), array([7., 4., 4., 0., 0.]))
+        M = reshape(arange(10), (5, 2))
+        self.assertEqual(group_reduce(M, g), array([[10, 12], [6, 7], [4, 6]]))
+        ids = arange(100000) % 7
+        self.assertEqual(group_reduce(ones(100000), ids)[6], 14285.)
+        self.assertRaises(ValueError, group_reduce, v, g[:4])
+        self.assertRaises(ValueError, group_reduce, v, g - 1)
+        self.assertRaises(ValueError, group_reduce, v, g, add, 2)
+        # Object segments run Python code on the calling thread only.
+        b = array([Tracked(1) for i in range(90000)], 'O')
+        Tracked.threads.clear()
+        self.assertEqual(group_reduce(b, arange(90000) % 300)[5].v, 300)
+        self.assertEqual(reduceat(add, b, arange(0, 90000, 30))[2].v, 30)
+        self.assertEqual(Tracked.threads, set([Thread.currentThread().getName()]))
+
 
     def test_allclose(self):
         """Does allclose() work correctly?"""
@@ -18,7 +18,69 @@ class Arg_Test(unittest.TestCase):
     def test_Argmin(self):
         """Does argmin() work correctly?"""
         self.assertEqual(argmin(self.a), 0)
-    
+
+    def test_arg_axes(self):
+        """Do argmax() and argmin() return int indices along any axis?"""
+        b = reshape(array([3., 1., 4., 1., 5., 9., 2., 6., 5., 3., 5., 8.]), (3, 4))
+        self.assertEqual(argmax(b).typecode(), 'i')
+        self.assertEqual(argmax(b), array([2, 1, 3]))
+        self.assertEqual(argmin(b), array([1, 2, 1]))
+        self.assertEqual(argmax(b, 0), array([1, 1, 2, 2]))
+        self.assertEqual(argmin(transpose(b), 0), array([1, 2, 1]))
+        # ties go to the first occurrence, also across parallel chunks
+        c = zeros(300000, 'd')
+        c[123457] = 2.
+        c[200000] = 2.
+        self.assertEqual(argmax(c), 123457)
+        self.assertEqual(argmin(c), 0)
+
+    def test_arg_exact(self):
+        """Are large longs compared exactly, and NaNs handled?"""
+        big = array([2 ** 60 + 1, 2 ** 60 + 3, 2 ** 60 + 2], 'l')
+        self.assertEqual(argmax(big), 1)
+        self.assertEqual(argmin(big), 0)
+        nan = 1e400 - 1e400
+        d = array([1., nan, 3., nan, -1.])
+        self.assertEqual(argmax(d), 1)
+        self.assertEqual(argmin(d), 1)
+        self.assertEqual(nanargmax(d), 2)
+        self.assertEqual(nanargmin(d), 4)
+        self.assertEqual(nanargmax(array([nan, 2., 5.], 'f')), 2)
+        self.assertRaises(ValueError, nanargmin, array([nan, nan]))
+        self.assertRaises(ValueError, nanargmax, reshape(array([nan, 1., nan, nan]), (2, 2)))
+        # A run long enough to be reduced in chunks, with all-NaN chunks.
+        f = ones(100000) * nan
+        f[77777] = 2.
+        self.assertEqual(nanargmax(f), 77777)
+        f[77777] = nan
+        self.assertRaises(ValueError, nanargmin, f)
+        e = reshape(array([nan, 1., 2., 0., nan, 4.]), (2, 3))
+        self.assertEqual(nanargmax(e, 0), array([1, 0, 1]))
+        self.assertEqual(nanargmin(e), array([1, 0]))
+
+    def test_minmax(self):
+        """Does minmax() agree with separate minimum and maximum reductions?"""
+        C = reshape(arange(60.) % 17, (3, 4, 5))
+        lo, hi = minmax(C)
+        self.assertEqual(lo, 0.)
+        self.assertEqual(hi, 16.)
+        for axis in range(3):
+            S = sort(transpose(C, [i for i in range(3) if i != axis] + [axis]))
+            lo, hi = minmax(C, axis)
+            self.assertEqual(lo, S[:, :, 0])
+            self.assertEqual(hi, S[:, :, -1])
+        lo, hi = minmax(C[:, ::-1, ::2], (0, 2))
+        self.assertEqual(lo, array([0., 0., 5., 0.]))
+        self.assertEqual(hi, array([15., 16., 15., 10.]))
+        # long runs go block by block
+        x = arange(100000) % 977 - 300
+        self.assertEqual(minmax(x), (-300, 676))
+        self.assertEqual(minmax(array([[3, 1], [2, 5]], 'l'), 1), (array([1, 2]), array([3, 5])))
+        nan = 1e400 - 1e400
+        # NaNs compare as they do in minimum and maximum, unlike in argmax
+        self.assertEqual(minmax(array([nan, 1., 3.])), (1., 3.))
+        self.assertEqual(maximum(array([nan, 1.]), 2.), array([2., 2.]))
+        self.assertRaises(ValueError, minmax, zeros(0))
 
     
 if __name__ == "__main__":
@@ -51,6 +51,41 @@ class Create_Test(unittest.TestCase):
         """Does array() work correctly?
         It takes a list and turns it into an array."""
 
+    def test_astype(self):
+        """Does astype() convert between every pair of numeric types?"""
+        a = array([-2.75, 0.5, 3.25, 130.])
+        self.assertEqual(a.astype('i'), array([-2, 0, 3, 130]))
+        self.assertEqual(a.astype('1'), array([-2, 0, 3, -126], '1'))
+        self.assertEqual(a[::-2].astype('f'), array([130., 0.5], 'f'))
+        self.assertEqual(a.astype('D'), a + 0j)
+        self.assertEqual(a.astype('D').imag, zeros(4, 'd'))
+        c = array([1 + 2j, -3.5 - 1j])
+        self.assertEqual(c.astype('d'), array([1., -3.5]))
+        self.assertEqual(c.astype('F').astype('D'), c)
+        self.assertEqual(arange(5, typecode='l').astype('s')[::2], array([0, 2, 4], 's'))
+        self.assertEqual(arange(3).astype('O').astype('d'), array([0., 1., 2.]))
+        B = reshape(arange(12), (3, 4))
+        B[1:, 1:3] = array([[1.5, 2.5], [3.5, 4.5]])
+        self.assertEqual(B[1:, 1:3], array([[1, 2], [3, 4]]))
+        B[:, :] = B[::-1, :]
+        self.assertEqual(B[0], array([8, 3, 4, 11]))
+
+    def test_buffer_pool(self):
+        """Do pooled buffers come back cleared where zeros are wanted?"""
+        from com.github.tbekolay.jnumeric import BufferPool
+        BufferPool.enter()
+        try:
+            t = arange(6.) + 1
+            BufferPool.release(t)
+            self.assertEqual(zeros(6, 'd'), array([0.] * 6))
+            a = arange(6.)
+            self.assertEqual(a * 2 + 1, array([1., 3., 5., 7., 9., 11.]))
+            self.assertEqual(innerproduct([[1, 2], [3, 4]], [5, 6]), array([17, 39]))
+            self.assertEqual(sum(reshape(arange(6.), (2, 3))), array([3., 5., 7.]))
+        finally:
+            BufferPool.exit()
+        self.assertRaises(ValueError, BufferPool.exit)
+
     
 if __name__ == "__main__":
     suite = unittest.TestLoader().loadTestsFromTestCase(Create_Test)
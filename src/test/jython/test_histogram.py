@@ -0,0 +1,79 @@
+from com.github.tbekolay.jnumeric.JNumeric import *
+import unittest
+from java.lang import Thread
+
+
+class Tracked(object):
+    """A number that records the threads it is converted on."""
+    threads = set()
+    def __init__(self, v): self.v = v
+    def __float__(self):
+        Tracked.threads.add(Thread.currentThread().getName())
+        return float(self.v)
+
+
+class Histogram_Test(unittest.TestCase):
+    """Test bincount, histogram and digitize."""
+
+    def setUp(self):
+        """Hook function, called by all other tests,
+        before running themselves."""
+        self.x = array([0, 1, 1, 3, 2, 1, 7])
+
+    def test_bincount(self):
+        """Does bincount count each value, with weights and minlength?"""
+        self.assertEqual(bincount(self.x), array([1, 3, 1, 1, 0, 0, 0, 1]))
+        self.assertEqual(bincount(self.x, minlength=10)[7:], array([1, 0, 0]))
+        w = array([.5, 1., 1., 2., .25, 1., 3.])
+        self.assertEqual(bincount(self.x, w), array([.5, 3., .25, 2., 0., 0., 0., 3.]))
+        self.assertEqual(bincount(array(self.x, 'l')[::2]), array([1, 1, 1, 0, 0, 0, 0, 1]))
+        self.assertEqual(bincount(zeros(0, 'i'), minlength=2), array([0, 0]))
+        # many elements are counted in per-thread bins
+        big = arange(300000) % 5
+        self.assertEqual(bincount(big), zeros(5, 'i') + 60000)
+        self.assertRaises(ValueError, bincount, self.x - 1)
+        self.assertRaises(TypeError, bincount, array([1.5]))
+        self.assertRaises(TypeError, bincount, array([1., 2.], 'f'))
+        self.assertRaises(TypeError, bincount, array([1, 2], 'O'))
+        self.assertRaises(ValueError, bincount, self.x, w[:3])
+
+    def test_histogram(self):
+        """Does histogram bin values over equal and given edges?"""
+        a = array([1., 2., 2., 3., 4., 4., 4., 5.])
+        h, e = histogram(a, 4)
+        self.assertEqual(h, array([1, 2, 1, 4]))
+        self.assertEqual(e, array([1., 2., 3., 4., 5.]))
+        h, e = histogram(a, 2, (0., 4.))
+        self.assertEqual(h, array([1, 6]))
+        h, e = histogram(reshape(a, (2, 4)), [0, 2, 3, 10])
+        self.assertEqual(h, array([1, 2, 5]))
+        self.assertEqual(histogram(array([3., 3.]), 1)[1], array([2.5, 3.5]))
+        # values on computed edges go in the bin to their right
+        h, e = histogram(arange(11) * 0.1, 10)
+        self.assertEqual(h, ones(10, 'i') + array([0] * 9 + [1]))
+        h, e = histogram(arange(200000.) % 100, 10)
+        self.assertEqual(h, zeros(10, 'i') + 20000)
+        # object elements are converted on the calling thread only
+        o = array([Tracked(i % 100) for i in range(200000)], 'O')
+        Tracked.threads.clear()
+        h, e = histogram(o, 10, (0., 100.))
+        self.assertEqual(h, zeros(10, 'i') + 20000)
+        self.assertEqual(Tracked.threads, set([Thread.currentThread().getName()]))
+        self.assertRaises(ValueError, histogram, a, [3, 2, 1])
+        self.assertRaises(ValueError, histogram, a, 0)
+
+    def test_digitize(self):
+        """Does digitize agree with the bins on either side?"""
+        x = array([0.2, 6.4, 3.0, 1.6, 1.0])
+        bins = array([0.0, 1.0, 2.5, 4.0, 10.0])
+        self.assertEqual(digitize(x, bins), array([1, 4, 3, 2, 2]))
+        self.assertEqual(digitize(x, bins, right=1), array([1, 4, 3, 2, 1]))
+        self.assertEqual(digitize(x, bins[::-1]), array([4, 1, 2, 3, 3]))
+        self.assertEqual(digitize(x, bins[::-1], 1), array([4, 1, 2, 3, 4]))
+        self.assertEqual(digitize(-1., bins), 0)
+        self.assertRaises(ValueError, digitize, x, array([1., 3., 2.]))
+
+
+if __name__ == "__main__":
+    suite = unittest.TestLoader().loadTestsFromTestCase(Histogram_Test)
+    unittest.TextTestRunner(verbosity=2).run(suite)
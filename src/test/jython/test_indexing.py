@@ -0,0 +1,141 @@
+from com.github.tbekolay.jnumeric.JNumeric import *
+import unittest
+
+
+class Indexing_Test(unittest.TestCase):
+    """Test indexing with integer arrays and boolean masks."""
+
+    def setUp(self):
+        """Hook function, called by all other tests,
+        before running themselves."""
+        self.a = arange(10) * 2
+        self.B = reshape(arange(24), (2, 3, 4))
+
+    def test_integer_get(self):
+        """Do integer arrays pick elements and keep the index shape?"""
+        self.assertEqual(self.a[[3, -1, 0]], array([6, 18, 0]))
+        self.assertEqual(self.a[array([[1, 2], [3, 4]])], array([[2, 4], [6, 8]]))
+        B = self.B
+        self.assertEqual(B[[1, 0]], array([B[1], B[0]]))
+        self.assertEqual(B[:, :, [1, 3]], take(B, [1, 3], 2))
+        self.assertEqual(B[:, [0, 2], [1, 3]], array([[1, 11], [13, 23]]))
+        # Separated array entries put the picked axis first.
+        self.assertEqual(shape(B[0, :, [0, 1]]), (2, 3))
+        self.assertEqual(shape(B[..., [0]]), (2, 3, 1))
+        self.assertEqual(shape(B[[], :]), (0, 3, 4))
+        V = B[::-1, ::2]
+        self.assertEqual(V[:, [0, 1], 1], array([[13, 21], [1, 9]]))
+        self.assertEqual(arange(6.)[[5, 1]], array([5., 1.]))
+        self.assertRaises(IndexError, self.a.__getitem__, [10])
+        self.assertRaises(IndexError, self.a.__getitem__, array([1.5]))
+        # Long indices beyond the int range must not wrap into range.
+        big = array([(1L << 32) + 1], 'l')
+        self.assertRaises(IndexError, self.a.__getitem__, big)
+        self.assertRaises(IndexError, take, self.a, big)
+        self.assertEqual(take(self.a, big, mode='wrap'), array([self.a[int((2 ** 32 + 1) % 10)]]))
+        self.assertEqual(take(self.a, -big, mode='clip'), array([0]))
+
+    def test_mask_get(self):
+        """Do boolean masks select the true elements?"""
+        mask = [i % 3 == 0 for i in range(10)]
+        self.assertEqual(self.a[mask], array([0, 6, 12, 18]))
+        B = self.B
+        self.assertEqual(B[:, [True, False, True]], array([[B[0, 0], B[0, 2]], [B[1, 0], B[1, 2]]]))
+        full = [[[x % 5 == 0 for x in row] for row in plane] for plane in B.tolist()]
+        self.assertEqual(B[full], array([0, 5, 10, 15, 20]))
+        self.assertEqual(len(self.a[[False] * 10]), 0)
+        self.assertRaises(IndexError, self.a.__getitem__, [True, False])
+        # Comparisons and logical operations give masks too.
+        self.assertEqual(self.a[greater(self.a, 11)], array([12, 14, 16, 18]))
+        self.assertEqual(self.a[logical_not(less(self.a, 16))], array([16, 18]))
+        self.assertEqual(B[logical_and(greater(B, 3), less(B, 7))], array([4, 5, 6]))
+        self.assertEqual(B[0, :, equal(B[0, 0], 2)], array([[2, 6, 10]]))
+        # Other int arrays still pick by position.
+        self.assertEqual(self.a[greater(self.a, 11) + 0], array([0] * 6 + [2] * 4))
+
+    def test_set(self):
+        """Do integer arrays and masks assign, broadcasting the value?"""
+        a = self.a.copy()
+        a[[1, 2]] = 99
+        self.assertEqual(a[:4], array([0, 99, 99, 6]))
+        a[[0, 0, 5]] = [7, 8, 9]
+        self.assertEqual(a[0], 8)
+        self.assertEqual(a[5], 9)
+        a[[i > 6 for i in range(10)]] = -1
+        self.assertEqual(a[6:], array([12, -1, -1, -1]))
+        a[less(a, 0)] = 0
+        self.assertEqual(a[6:], array([12, 0, 0, 0]))
+        B = self.B.copy()
+        B[:, [0, 2]] = [1, 2, 3, 4]
+        self.assertEqual(B[1, 2], array([1, 2, 3, 4]))
+        self.assertEqual(B[1, 1], self.B[1, 1])
+        # Assigning an array its own reversed elements.
+        a = arange(5)
+        a[[0, 1, 2, 3, 4]] = a[::-1]
+        self.assertEqual(a, array([4, 3, 2, 1, 0]))
+
+    def test_take_modes(self):
+        """Does take handle indices of any shape, and each bounds mode?"""
+        B = self.B
+        self.assertEqual(take(B, [2, 0], 1), B[:, [2, 0]])
+        self.assertEqual(shape(take(B, [[0, 1]], 2)), (2, 3, 1, 2))
+        a = arange(5)
+        self.assertEqual(take(a, [-1, 7, 5], mode='wrap'), array([4, 2, 0]))
+        self.assertEqual(take(a, [-3, 9], mode='clip'), array([0, 4]))
+        self.assertEqual(take(a, [-1]), array([4]))
+        self.assertRaises(IndexError, take, a, [5])
+        self.assertRaises(ValueError, take, a, [0], mode='bounce')
+        self.assertEqual(choose([0, 3, -1], ([1, 2, 3], [7, 8, 9]), mode='clip'), array([1, 8, 3]))
+        self.assertEqual(choose([0, 3, -1], ([1, 2, 3], [7, 8, 9]), mode='wrap'), array([1, 8, 9]))
+        self.assertEqual(choose([0, 1, 2, 1], ([1, 2, 3, 4], 10, arange(4) * 100)), array([1, 10, 200, 10]))
+        self.assertRaises(ValueError, choose, [0, 2], ([1, 2], [3, 4]))
+
+    def test_put(self):
+        """Do put and put_along_axis scatter values in place?"""
+        b = zeros(6)
+        put(b, [0, 2, 4, 5], [1, 2])
+        self.assertEqual(b, array([1, 0, 2, 0, 1, 2]))
+        c = reshape(arange(12), (3, 4))
+        v = c[:, ::2]
+        put(v, [1, 5], -1)
+        self.assertEqual(c[:, 2], array([-1, 6, -1]))
+        put(b, [7, -8], 9, mode='wrap')
+        self.assertEqual(b, array([1, 9, 2, 0, 9, 2]))
+        self.assertRaises(IndexError, put, b, [6], 0)
+        d = array([[10, 30, 20], [60, 40, 50]])
+        order = argsort(d, 1)
+        self.assertEqual(take_along_axis(d, order, 1), sort(d, 1))
+        self.assertEqual(take_along_axis(d, order[:, :1], 1), array([[10], [40]]))
+        put_along_axis(d, order[:, :1], 0, 1)
+        self.assertEqual(d, array([[0, 30, 20], [60, 0, 50]]))
+        self.assertEqual(take_along_axis(d, [[1, 0, 1]], 0), array([[60, 30, 50]]))
+
+
+    def test_elements(self):
+        """Do single elements read and write as scalars?"""
+        B = self.B.astype('d')
+        self.assertEqual(B[1, 2, 3], 23.)
+        self.assertEqual(B[-1, -1, -1], 23.)
+        self.assertEqual(type(arange(3, typecode='l')[1]), type(1L))
+        self.assertEqual(array([1j, 2])[0], 1j)
+        B[0, 1, 2] = 7
+        self.assertEqual(B[0, 1], array([4., 5., 7., 7.]))
+        a = arange(4)
+        a[1] = 300
+        self.assertEqual(a[1], 300)
+        def set(i, v):
+            a[i] = v
+        self.assertRaises(ValueError, set, 2, 2.5)
+        self.assertRaises(ValueError, set, 2, [1])
+        self.assertRaises(IndexError, B.__getitem__, (2, 0, 0))
+        self.assertEqual(B.getDouble(1, 2, 3), 23.)
+        self.assertEqual(a.getLong(-3), 300)
+        a.setDouble(7.9, 0)
+        B.setLong(5, 1, 0, 0)
+        self.assertEqual(a[0], 7)
+        self.assertEqual(B[1, 0, 0], 5.)
+        self.assertRaises(IndexError, B.getDouble, 1, 2)
+
+if __name__ == "__main__":
+    suite = unittest.TestLoader().loadTestsFromTestCase(Indexing_Test)
+    unittest.TextTestRunner(verbosity=2).run(suite)
@@ -23,6 +23,98 @@ class Math_Test(unittest.TestCase):
         self.assertTrue(java.lang.Float.isNaN(log(-1.0))) 
         self.assertEqual(log(java.lang.Float.POSITIVE_INFINITY), java.lang.Float.POSITIVE_INFINITY)
 
+    def testInPlace(self):
+        """Do augmented assignments change the array itself?"""
+        a = arange(5)
+        b = a
+        a += 1
+        a *= [1, 2, 1, 2, 1]
+        self.assert_(a is b)
+        self.assertEqual(b, array([1, 4, 3, 8, 5]))
+        a -= 1
+        self.assertEqual(b, array([0, 3, 2, 7, 4]))
+        # Widening the type in place would lose data.
+        self.assertRaises(TypeError, a.__iadd__, 1.5)
+        self.assertRaises(TypeError, a.__imul__, array([1., 2., 1., 2., 1.]))
+        self.assertEqual(b, array([0, 3, 2, 7, 4]))
+        self.assertEqual(b.typecode(), 'i')
+        m = reshape(arange(12.), (3, 4))
+        m[:, 1] /= 2.
+        self.assertEqual(m[:, 1], array([0.5, 2.5, 4.5]))
+        m **= 2
+        self.assertEqual(m[2], array([64., 20.25, 100., 121.]))
+        c = array([1, 2, 3], '1')
+        c |= 4
+        c ^= 1
+        c &= 6
+        self.assertEqual(c, array([4, 6, 6], '1'))
+        self.assertEqual(c.typecode(), '1')
+        # Operands sharing data with the target are read before it is written.
+        x = arange(6)
+        x[1:] += x[:-1]
+        self.assertEqual(x, array([0, 1, 3, 5, 7, 9]))
+        y = arange(5.)
+        y += y[::-1]
+        self.assertEqual(y, 4 * ones(5))
+        self.assertRaises(ValueError, a.__iadd__, reshape(arange(10), (2, 5)))
+
+    def testResult(self):
+        """Do unary functions compute into a given result array?"""
+        a = arange(6.)
+        r = zeros(6, 'd')
+        self.assert_(sqrt(a * a, r) is r)
+        self.assertEqual(r, a)
+        m = zeros((2, 6), 'D')
+        exp(arange(3), m[:, ::2])
+        self.assertEqual(m[1, ::2], exp(arange(3)))
+        self.assertEqual(m[0, 1], 0)
+        floor(a / 4, a)
+        self.assertEqual(a, array([0., 0., 0., 0., 1., 1.]))
+        c = array([1 + 1j, 3 - 4j])
+        self.assertEqual(conjugate(c, zeros(2, 'D')), array([1 - 1j, 3 + 4j]))
+        self.assertEqual(real(c, zeros(2, 'd')), array([1, 3]))
+        self.assertRaises(ValueError, sqrt, c, zeros(2))
+        # A result array narrower than the result is refused, not truncated.
+        self.assertRaises(ValueError, sin, arange(3.), zeros(3, 'i'))
+        self.assertRaises(ValueError, exp, arange(3), zeros(3, 'f'))
+        self.assertRaises(ValueError, sqrt, c, zeros(2, 'F'))
+        self.assertEqual(cos(zeros(2), result=zeros(2, 'd')), ones(2))
+        self.assertEqual(sin(array([0.5, 2.], 'f')), array([sin(0.5), sin(2.)], 'f'))
+        self.assertEqual(logical_not(array([0j, 1j])), array([1, 0]))
+
+    def testBroadcast(self):
+        """Do binary operations broadcast, and mix types, on any layout?"""
+        a = arange(3000)
+        self.assertEqual(a + 0.5, a.astype('d') + 0.5)
+        self.assertEqual((a + 0.5)[2999], 2999.5)
+        self.assertEqual(a[::-2] * arange(1500.), a[::-2].astype('d') * arange(1500.))
+        self.assertEqual(a + 1j, a.astype('D') + 1j)
+        self.assertEqual(a[::3] > 4500.5, a[::3].astype('d') > 4500.5)
+        B = reshape(a, (1000, 3))
+        self.assertEqual((B[:, ::2] * array([1., 2.]))[999], array([2997., 5998.]))
+        self.assertEqual((B + arange(1000)[:, NewAxis])[10], array([40, 41, 42]))
+        r = zeros(3000, 'd')
+        self.assert_(add(a, 1.5, r) is r)
+        self.assertEqual(r[:3], array([1.5, 2.5, 3.5]))
+        self.assertEqual(array(3) + array(2.), 5.)
+        self.assertRaises(ValueError, add, arange(3), arange(4))
+        self.assertRaises(ValueError, add, a, 1.5, zeros(3000))
+        self.assertRaises(ZeroDivisionError, divide, a, 0)
+
+    def testScalars(self):
+        """Do 0-d arrays and numbers combine with the array types' rules?"""
+        self.assertEqual(array(3) + 2, 5)
+        self.assertEqual(type(array(3) + 2), type(5))
+        self.assertEqual(array(-7) / 2, -3)
+        self.assertEqual(array(2147483647) + 1, -2147483648)
+        self.assertEqual(array(2, 'l') * 3, 6L)
+        self.assertEqual(array(1, 'f') + 2.5, 3.5)
+        self.assertEqual(array(1j) + 2, 2 + 1j)
+        self.assertEqual(array([300], '1')[0], 44)
+        self.assertEqual(array(2, 'O') + 1, 3)
+        self.assertEqual(arange(3) * 1.5, array([0., 1.5, 3.]))
+        self.assertRaises(ValueError, array, 2.5, 'i')
+
 #    def testInverses(self):
 #        """Check that log(exp(x)) == x, asinh(sinh(z)) == z, etc."""
 #        x = random()
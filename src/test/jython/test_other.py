@@ -42,6 +42,28 @@ class Other_Test(unittest.TestCase):
 
     def test_fromstring(self):
         """Does fromstring() work correctly?"""
+        for t in '1silfFdD':
+            a = array([1, -2, 3], t)
+            self.assertEqual(fromstring(a.tostring(), t), a)
+            self.assertEqual(frombuffer(a.tobytes('little'), t, 'little'), a)
+        self.assertEqual(fromstring('\000\001\377\376', 's'), array([1, -2], 's'))
+        B = reshape(arange(12.), (3, 4))[::-1, 1::2]
+        self.assertEqual(fromstring(B.tostring(), 'd'), ravel(B))
+        self.assertEqual(B.byteswapped().byteswapped(), B)
+        self.assertEqual(fromstring(B.byteswapped().tostring(), 'd'),
+                         frombuffer(B.tobytes('little'), 'd'))
+        from java.nio import ByteBuffer, ByteOrder
+        buf = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN)
+        buf.position(4)
+        arange(4).tobytes(buf)
+        self.assertEqual(buf.position(), 20)
+        buf.position(4)
+        self.assertEqual(frombuffer(buf, 'i'), arange(4))
+        self.assertEqual(buf.position(), 4)
+        self.assertEqual(frombuffer(buf, 'i', 'big')[1], 1 << 24)
+        self.assertRaises(ValueError, fromstring, '\000\001\002', 's')
+        self.assertRaises(ValueError, frombuffer, '', 'i', 'middle')
+        self.assertRaises(ValueError, arange(6).tobytes, buf)
 
 
     def test_indices(self):
@@ -0,0 +1,88 @@
+from com.github.tbekolay.jnumeric.JNumeric import *
+import unittest
+
+
+class Random_Test(unittest.TestCase):
+
+    def setUp(self):
+        """Hook function, called by all other tests,
+        before running themselves."""
+        random.seed(1234)
+
+    def test_seed(self):
+        """Does seed() make draws reproducible?"""
+        a = random.uniform(size=10)
+        random.seed(1234)
+        self.assertEqual(a, random.uniform(size=10))
+
+    def test_size_and_out(self):
+        """Do the samplers honour size and out?"""
+        self.assertEqual(shape(random.normal(size=(3, 4))), (3, 4))
+        self.assertEqual(type(random.exponential()), type(1.0))
+        out = zeros((5, 2), 'f')
+        r = random.uniform(2, 3, out=out)
+        self.assert_(r is out)
+        s = sort(ravel(out))
+        self.assert_(s[0] >= 2 and s[-1] < 3)
+        self.assertRaises(ValueError, random.uniform, 0, 1, 4, zeros(5, 'd'))
+
+    def test_moments(self):
+        """Are the sample means close to the distribution means?"""
+        n = 20000
+        self.assertAlmostEqual(sum(random.uniform(-1, 3, n)) / n, 1.0, 1)
+        self.assertAlmostEqual(sum(random.exponential(2.0, n)) / n, 2.0, 1)
+        self.assertAlmostEqual(sum(random.gamma(0.5, 2.0, n)) / n, 1.0, 1)
+        self.assertAlmostEqual(sum(random.gamma(4.0, 1.0, n)) / n, 4.0, 1)
+        self.assertAlmostEqual(sum(random.beta(2.0, 6.0, n)) / n, 0.25, 1)
+        self.assertAlmostEqual(sum(random.poisson(3.0, n)) / float(n), 3.0, 1)
+        self.assertAlmostEqual(sum(random.poisson(100.0, n)) / float(n) / 100, 1.0, 1)
+        self.assertAlmostEqual(sum(random.binomial(10, 0.3, n)) / float(n), 3.0, 1)
+        self.assertAlmostEqual(sum(random.binomial(1000, 0.7, n)) / float(n) / 700, 1.0, 1)
+
+    def test_discrete_ranges(self):
+        """Do discrete samplers stay in range and return ints?"""
+        b = random.binomial(5, 0.5, 1000)
+        self.assertEqual(b.typecode(), 'i')
+        s = sort(b)
+        self.assert_(s[0] >= 0 and s[-1] <= 5)
+        self.assert_(sort(random.poisson(50, 1000))[0] >= 0)
+
+    def test_multinomial(self):
+        """Does multinomial() conserve the number of trials?"""
+        m = random.multinomial(20, [0.2, 0.3, 0.5], size=100)
+        self.assertEqual(shape(m), (100, 3))
+        self.assertEqual(sum(m, 1), 20 * ones(100))
+        # Only the first k-1 entries are checked; the last takes the rest.
+        m = random.multinomial(10, [0.5, 0.5, 7.0], size=20)
+        self.assertEqual(m[:, 2], zeros(20))
+        self.assertRaises(ValueError, random.multinomial, 10, [0.7, 0.6, 0.1])
+
+    def test_permutation_shuffle(self):
+        """Do permutation() and shuffle() keep the same elements?"""
+        p = random.permutation(50)
+        self.assertEqual(sort(p), arange(50))
+        a = arange(12.0)
+        random.shuffle(a)
+        self.assertEqual(sort(a), arange(12.0))
+        m = reshape(arange(12), (4, 3))
+        random.shuffle(m)
+        self.assertEqual(sort(m[:, 0]), arange(0, 12, 3))
+        self.assertEqual(m[:, 1] - m[:, 0], ones(4))
+
+    def test_choice(self):
+        """Does choice() draw from the population with and without replacement?"""
+        c = random.choice(10, size=10, replace=0)
+        self.assertEqual(sort(c), arange(10))
+        c = random.choice([1.5, 2.5], size=(2, 3))
+        self.assertEqual(shape(c), (2, 3))
+        c = random.choice(4, size=100, p=[0, 0, 1, 0])
+        self.assertEqual(c, 2 * ones(100))
+        c = random.choice(5, size=2, replace=0, p=[0, 1, 1, 0, 0])
+        self.assertEqual(sort(c), array([1, 2]))
+        self.assertRaises(ValueError, random.choice, 3, 4, 0)
+        self.assertRaises(ValueError, random.choice, 3, 4, 1, [0, 0, 0])
+
+
+if __name__ == "__main__":
+    suite = unittest.TestLoader().loadTestsFromTestCase(Random_Test)
+    unittest.TextTestRunner(verbosity=2).run(suite)
@@ -1,5 +1,15 @@
 from com.github.tbekolay.jnumeric.JNumeric import *
 import unittest
+from java.lang import Thread
+
+
+class Truth(object):
+    """A truth value that records the threads it is tested on."""
+    threads = set()
+    def __init__(self, v): self.v = v
+    def __nonzero__(self):
+        Truth.threads.add(Thread.currentThread().getName())
+        return self.v
 
 
 class Select_Test(unittest.TestCase):
@@ -61,6 +71,49 @@ class Select_Test(unittest.TestCase):
         else:
             self.fail("JNumeric doesn't handle symbolic relationships well in where().\n*** You may have fixed this problem. ***")
 
+    def test_where_broadcast(self):
+        """Does where() broadcast, and mix the types of x and y?"""
+        A = reshape(arange(6), (2, 3))
+        self.assertEqual(where(greater(A, 2), A, -1), array([[-1, -1, -1], [3, 4, 5]]))
+        self.assertEqual(where(greater(A, 2), 0.5, [1, 2, 3]), array([[1., 2., 3.], [.5, .5, .5]]))
+        self.assertEqual(where(array([0., 2.5, -0.0]), 1, 0), array([0, 1, 0]))
+        self.assertEqual(where(less(A[:, ::-1], 2), A, 10 * A), array([[0, 1, 2], [30, 40, 50]]))
+        self.assertEqual(where(greater(A, 3), array([1j, 2j, 3j]), 0), array([[0, 0, 0], [0, 2j, 3j]]))
+
+    def test_clip_out(self):
+        """Does clip() broadcast its bounds and write into out?"""
+        A = reshape(arange(6), (2, 3))
+        self.assertEqual(clip(A, [1, 2, 3], 4), array([[1, 2, 3], [3, 4, 4]]))
+        self.assertEqual(clip(A, 3, 1), ones((2, 3)))
+        B = A.copy()
+        r = clip(B, 1, 3, out=B)
+        self.assertEqual(B, array([[1, 1, 2], [3, 3, 3]]))
+        self.assert_(r is B)
+        c = arange(5.)
+        clip(c[::-1], 1, 3, out=c)
+        self.assertEqual(c, array([3., 3., 2., 1., 1.]))
+        self.assertRaises(ValueError, clip, A, 0, 1, zeros(3))
+
+    def test_compress_nonzero(self):
+        """Do compress() and nonzero() select along any axis, for any type?"""
+        A = reshape(arange(12), (3, 4))
+        self.assertEqual(compress([1, 0, 1, 1], A), A[:, [0, 2, 3]])
+        self.assertEqual(compress([0, 1], A, 0), A[1:2])
+        self.assertRaises(IndexError, compress, [0, 0, 0, 1], A, 0)
+        self.assertEqual(nonzero(array([0., 1.5, 0., -2.])), array([1, 3]))
+        self.assertEqual(nonzero(array([0j, 1j, 1])), array([1, 2]))
+        self.assertEqual(nonzero(arange(10)[::-3]), array([0, 1, 2]))
+        big = arange(100000) % 7
+        found = nonzero(big)
+        self.assertEqual(len(found), 100000 - 14286)
+        self.assertEqual(take(big, found), compress(big, big))
+        # object elements are tested on the calling thread only
+        o = array([Truth(i % 7 != 0) for i in range(100000)], 'O')
+        Truth.threads.clear()
+        self.assertEqual(nonzero(o), found)
+        self.assertEqual(len(compress(o, big)), len(found))
+        self.assertEqual(Truth.threads, set([Thread.currentThread().getName()]))
+
 
 if __name__ == "__main__":
     suite = unittest.TestLoader().loadTestsFromTestCase(Select_Test)
@@ -0,0 +1,92 @@
+from com.github.tbekolay.jnumeric.JNumeric import *
+import unittest
+
+
+class SetOps_Test(unittest.TestCase):
+    """Test unique and the 1-d set operations."""
+
+    def setUp(self):
+        """Hook function, called by all other tests,
+        before running themselves."""
+        self.a = array([5, 3, 5, 1, 3, 3, 9], 'i')
+        self.big = array([(i * 7919) % 1000 for i in range(20000)], 'l')
+
+    def test_unique(self):
+        """Does unique give the sorted values, indices, inverse and counts?"""
+        self.assertEqual(unique(self.a), array([1, 3, 5, 9]))
+        u, index, inverse, counts = unique(self.a, 1, 1, 1)
+        self.assertEqual(u, array([1, 3, 5, 9]))
+        self.assertEqual(index, array([3, 1, 0, 6]))
+        self.assertEqual(inverse, array([2, 1, 2, 0, 1, 1, 3]))
+        self.assertEqual(counts, array([1, 3, 2, 1]))
+        self.assertEqual(take(u, inverse), self.a)
+        u, counts = unique(reshape(arange(12) % 4, (3, 4)), return_counts=1)
+        self.assertEqual(counts, array([3, 3, 3, 3]))
+        self.assertEqual(len(unique(array([], 'd'))), 0)
+
+    def test_unique_paths(self):
+        """Do the hashed and sorted paths agree?"""
+        for typecode in ['1', 's', 'i', 'l', 'f', 'd']:
+            x = array(self.big % 100, typecode)
+            u, index, inverse, counts = unique(x, 1, 1, 1)
+            self.assertEqual(u, arange(100).astype(typecode))
+            self.assertEqual(take(u, inverse), x)
+            self.assertEqual(take(x, index), u)
+            self.assertEqual(sum(counts), 20000)
+        # Widely spread keys go through the hash table.
+        x = self.big * 1000003 - 7
+        u, index, inverse, counts = unique(x, 1, 1, 1)
+        self.assertEqual(u, arange(1000) * 1000003 - 7)
+        self.assertEqual(take(u, inverse), x)
+        self.assertEqual(take(x, index), u)
+        self.assertEqual(counts, zeros(1000, 'i') + 20)
+        # Mostly distinct keys go through the sort.
+        x = arange(30000, 0, -1)
+        u, index = unique(x, return_index=1)
+        self.assertEqual(u, arange(1, 30001))
+        self.assertEqual(index, arange(29999, -1, -1))
+
+    def test_reals(self):
+        """Are -0.0 and 0.0 one value, and do reals sort?"""
+        u = unique(array([0.5, -0.0, 0.0, -2.5, 0.5]))
+        self.assertEqual(len(u), 3)
+        self.assertEqual(u[0], -2.5)
+        self.assertEqual(u[2], 0.5)
+        self.assertRaises(ValueError, unique, array([1j, 2j]))
+
+    def test_set_operations(self):
+        """Do intersect1d, union1d and setdiff1d match Python sets?"""
+        b = array([9, 2, 2, 5, 7], 'i')
+        self.assertEqual(intersect1d(self.a, b), array([5, 9]))
+        self.assertEqual(union1d(self.a, b), array([1, 2, 3, 5, 7, 9]))
+        self.assertEqual(setdiff1d(self.a, b), array([1, 3]))
+        self.assertEqual(setdiff1d(b, self.a), array([2, 7]))
+        self.assertEqual(intersect1d(self.a, [3.0, 4.5]), array([3.0]))
+        x = self.big[:5000]
+        y = self.big[3000:] + 500
+        sx = {}
+        sy = {}
+        for v in x:
+            sx[int(v)] = 1
+        for v in y:
+            sy[int(v)] = 1
+        both = [v for v in sx.keys() if v in sy]
+        both.sort()
+        self.assertEqual(intersect1d(x, y), array(both))
+        self.assertEqual(len(union1d(x, y)), len(sx) + len(sy) - len(both))
+        self.assertEqual(len(setdiff1d(x, y)), len(sx) - len(both))
+
+    def test_in1d(self):
+        """Does in1d flag the elements found, for integers and reals?"""
+        self.assertEqual(in1d(self.a, [3, 9]), array([0, 1, 0, 0, 1, 1, 1]))
+        self.assertEqual(in1d(self.a, [3, 9], invert=1), array([1, 0, 1, 1, 0, 0, 0]))
+        self.assertEqual(in1d([0.5, 1.0, -0.0], [0.0, 0.5]), array([1, 0, 1]))
+        found = in1d(self.big, arange(0, 1000, 2))
+        self.assertEqual(found, 1 - self.big % 2)
+        found = in1d(self.big * 1000003, arange(0, 1000, 2) * 1000003)
+        self.assertEqual(found, 1 - self.big % 2)
+
+
+if __name__ == "__main__":
+    suite = unittest.TestLoader().loadTestsFromTestCase(SetOps_Test)
+    unittest.TextTestRunner(verbosity=2).run(suite)
@@ -29,16 +29,121 @@ class Sort_Test(unittest.TestCase):
             if i + 1 != len(b): self.assert_(sort_b[i] < sort_b[i + 1]) # Correct order
         
         
+    def test_sort_kind(self):
+        """Do the sort kinds agree, along any axis?"""
+        b = reshape(array([5, 3, 9, 1, 7, 2, 8, 6, 4, 0, 11, 10]), (2, 3, 2))
+        for kind in ('quicksort', 'mergesort', 'radix', None):
+            self.assertEqual(sort(b, 1, kind), transpose(sort(transpose(b, (0, 2, 1)), -1), (0, 2, 1)))
+            self.assertEqual(take(ravel(b), argsort(ravel(b), kind=kind)), sort(ravel(b)))
+        self.assertRaises(ValueError, sort, b, -1, 'bogus')
+
     def test_argsort(self):
         """Does argsort() work correctly?"""
         self.assertEqual(arange(len(self.a)), argsort(self.a))
 
+        # Every typecode sorts to the same order, along either axis.
+        b = array([[3, -1, 2, 7], [0, 5, -4, 1]])
+        for t in "1silfd":
+            self.assertEqual(argsort(b.astype(t)), array([[1, 2, 0, 3], [2, 0, 3, 1]]))
+            self.assertEqual(argsort(b.astype(t), 0), array([[1, 0, 1, 1], [0, 1, 0, 0]]))
+
+        # Negative floats, zeros and large values.
+        c = array([1.5, -0.0, -2.5, 1e300, -1e300, 0.25])
+        self.assertEqual(take(c, argsort(c)), sort(c))
+
+        # The mergesort kind keeps equal elements in order.
+        d = array([2, 1, 2, 1, 2, 1] * 10)
+        s = argsort(d, kind='mergesort')
+        self.assertEqual(s[:30], arange(1, 60, 2))
+        self.assertEqual(s[30:], arange(0, 60, 2))
+        self.assertEqual(take(d, argsort(d)), sort(d))
+
+    def test_radix(self):
+        """Does the radix sort order every typecode, and is argsort stable?"""
+        random.seed(3)
+        for t, lo, hi in (("1", -128, 127), ("s", -30000, 30000), ("i", -2 ** 31, 2 ** 31 - 1)):
+            b = random.uniform(lo, hi, 3000).astype(t)
+            s = sort(b, kind='radix')
+            self.assertEqual(s, sort(b, kind='quicksort'))
+            self.assertEqual(take(b, argsort(b, kind='radix')), s)
+        for t in "lfd":
+            b = random.normal(0, 1e6, 3000).astype(t)
+            s = sort(b, kind='radix')
+            self.assertEqual(s, sort(b, kind='quicksort'))
+            self.assertEqual(take(b, argsort(b, kind='radix')), s)
+        d = array([3, 1, 3, 1, 3, 1] * 500, 's')
+        s = argsort(d, kind='radix')
+        self.assertEqual(s[:1500], arange(1, 3000, 2))
+        self.assertEqual(s[1500:], arange(0, 3000, 2))
+        # Long rows use the radix sort by default, on any number of threads.
+        d = arange(200000) % 3
+        self.assertEqual(argsort(d), argsort(d, kind='mergesort'))
+        self.assertEqual(argsort(reshape(d, (2, -1))), argsort(reshape(d, (2, -1)), kind='mergesort'))
+
+    def test_partition(self):
+        """Does partition() put the kth elements in sorted position?"""
+        random.seed(7)
+        b = random.uniform(-10, 10, 500)
+        s = sort(b)
+        for k in (0, 17, 250, 499, -1):
+            p = partition(b, k)
+            self.assertEqual(p[k], s[k])
+            self.assert_(sort(p[:k])[-1:] <= p[k] if k > 0 else 1)
+            self.assertEqual(sort(p), s)
+            self.assertEqual(take(b, argpartition(b, k))[k], s[k])
+        p = partition(b, (10, 400))
+        self.assertEqual(p[10], s[10])
+        self.assertEqual(p[400], s[400])
+        m = reshape(arange(24)[::-1], (2, 3, 4))
+        self.assertEqual(partition(m, 1, 1)[:, 1, :], sort(m, 1)[:, 1, :])
+        self.assertRaises(ValueError, partition, b, 500)
+
+    def test_topk(self):
+        """Does topk() find the largest and smallest elements?"""
+        random.seed(8)
+        b = random.permutation(5000)
+        for k in (1, 10, 100, 1000, 5000):
+            values, idx = topk(b, k)
+            self.assertEqual(values, arange(4999, 4999 - k, -1))
+            self.assertEqual(take(b, idx), values)
+            values, idx = topk(b, k, largest=0)
+            self.assertEqual(values, arange(k))
+        d = array([1, 3, 3, 2, 3, 0])
+        values, idx = topk(d, 2)
+        self.assertEqual(idx, array([1, 2]))
+        m = reshape(array([5., 1., 4., 2., 8., 0.]), (2, 3))
+        values, idx = topk(m, 1, 0)
+        self.assertEqual(values, array([[5., 8., 4.]]))
+        self.assertEqual(idx, array([[0, 1, 0]]))
+
     def test_searchsorted(self):
         """Does searchsorted() work correctly?"""
         middle_index = len(self.a) / 2
         middle_element = self.a[middle_index]
         self.assertEqual(searchsorted(self.a, middle_element), middle_index)
 
+        # Both sides, including values off either end and repeated values.
+        b = array([1, 2, 2, 2, 5, 7])
+        v = array([0, 2, 3, 7, 9])
+        self.assertEqual(searchsorted(b, v), array([0, 1, 4, 5, 6]))
+        self.assertEqual(searchsorted(b, v, side='right'), array([0, 4, 4, 6, 6]))
+        self.assertEqual(searchsorted(b, [9, 3, 0, 7, 2]), array([6, 4, 0, 5, 1]))
+        self.assertEqual(searchsorted(b.astype('d'), [2.5, -1.0]), array([4, 0]))
+        self.assertEqual(searchsorted(b, [2.5, 6.9]), array([4, 5]))
+
+        # N-d values keep their shape.
+        self.assertEqual(searchsorted(b, [[0, 5], [6, 2]]), array([[0, 4], [5, 1]]))
+
+        # A sorter gives the order of an unsorted array.
+        c = array([7., 1., 5., 2.])
+        self.assertEqual(searchsorted(c, [3., 8.], sorter=argsort(c)), array([2, 4]))
+
+        # Many sorted and unsorted values agree with a plain bisection.
+        random.seed(11)
+        d = sort(random.uniform(size=3000))
+        w = random.uniform(-0.1, 1.1, 5000)
+        self.assertEqual(searchsorted(d, sort(w)), sort(searchsorted(d, w)))
+
 
 if __name__ == "__main__":
     suite = unittest.TestLoader().loadTestsFromTestCase(Sort_Test)
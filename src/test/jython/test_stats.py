@@ -0,0 +1,104 @@
+from com.github.tbekolay.jnumeric.JNumeric import *
+import unittest
+from java.lang import Thread
+
+
+def close(a, b, tol=1e-9):
+    return abs(a - b) <= tol * max(1.0, abs(b))
+
+
+class Tracked(object):
+    """A number that records the threads it is converted on."""
+    threads = set()
+    def __init__(self, v): self.v = v
+    def __float__(self):
+        Tracked.threads.add(Thread.currentThread().getName())
+        return float(self.v)
+
+
+class Stats_Test(unittest.TestCase):
+    """Test mean, var, std and the moments accumulator."""
+
+    def setUp(self):
+        """Hook function, called by all other tests,
+        before running themselves."""
+        self.x = [2., 4., 4., 4., 5., 5., 7., 9.]
+        self.C = reshape(arange(60.), (3, 4, 5))
+
+    def test_scalar(self):
+        """Do mean, var and std agree with the textbook values?"""
+        self.assertEqual(mean(self.x), 5.0)
+        self.assertEqual(var(self.x), 4.0)
+        self.assertEqual(std(self.x), 2.0)
+        self.assertTrue(close(var(self.x, ddof=1), 32.0 / 7))
+        # No degrees of freedom left gives inf, or nan without spread.
+        inf = 1e400
+        self.assertEqual(var(array([1., 2., 3.]), ddof=5), inf)
+        self.assertEqual(std(array([1., 2., 3.]), ddof=3), inf)
+        v = var(array([2., 2.]), ddof=2)
+        self.assertTrue(v != v)
+        self.assertEqual(mean(array([1, 2, 3, 4], 's')), 2.5)
+        # Object elements are converted on the calling thread only.
+        o = array([Tracked(i % 2) for i in range(90000)], 'O')
+        Tracked.threads.clear()
+        self.assertEqual(var(o), 0.25)
+        self.assertEqual(var(reshape(o, (300, 300)), 0)[4], 0.0)
+        self.assertEqual(var(reshape(o, (300, 300)), 1)[4], 0.25)
+        self.assertEqual(Tracked.threads, set([Thread.currentThread().getName()]))
+
+    def test_axes(self):
+        """Do the moments agree along every axis and on views?"""
+        C = self.C
+        for axis in [0, 1, 2, (0, 2), (1, 2), None]:
+            if axis is None:
+                n = 60
+            elif type(axis) is type(()):
+                n = 1
+                for ax in axis:
+                    n = n * C.shape[ax]
+            else:
+                n = C.shape[axis]
+            m = sum(C, axis) / n
+            self.assertEqual(mean(C, axis), m)
+            T = transpose(C, (2, 0, 1))
+            self.assertEqual(mean(T, 1), transpose(mean(C, 0)))
+        # var of a view matches var of its copy
+        V = C[::-1, :, ::2]
+        self.assertEqual(var(V, (0, 2)), var(array(V), (0, 2)))
+        self.assertEqual(shape(std(C, 1)), (3, 5))
+
+    def test_stability(self):
+        """Is the variance accurate around a large offset?"""
+        a = resize(array([1., 0.]), (100000,)) + 1e9
+        self.assertTrue(close(var(a), 0.25))
+        b = reshape(a[:99000], (1000, 99))
+        self.assertTrue(close(var(b, 0)[3], 0.25))
+        self.assertTrue(close(var(b, 1)[3], 50. * 49 / 99 ** 2))
+        # Float sums accumulate in double, even when split into chunks.
+        f = zeros(1 << 20, 'f')
+        f[0] = 16777216.
+        f[1] = 1.
+        f[-1] = -16777216.
+        self.assertEqual(sum(f), 1.)
+
+    def test_streaming(self):
+        """Does pushing chunks give the same moments as one pass?"""
+        data = reshape(arange(300.) ** 1.5, (100, 3))
+        m = moments()
+        for i in range(0, 100, 7):
+            m.push(data[i:i + 7])
+        self.assertEqual(m.count(), 100)
+        for j in range(3):
+            self.assertTrue(close(m.mean()[j], mean(data)[j]))
+            self.assertTrue(close(m.var(1)[j], var(data, 0, 1)[j]))
+            self.assertTrue(close(m.std()[j], std(data)[j]))
+        whole = moments(None).push(data)
+        halves = moments(None).push(data[:50]).merge(moments(None).push(data[50:]))
+        self.assertTrue(close(halves.var(), whole.var()))
+        self.assertRaises(ValueError, moments().mean)
+        self.assertRaises(ValueError, m.push, zeros((2, 4)))
+
+
+if __name__ == "__main__":
+    suite = unittest.TestLoader().loadTestsFromTestCase(Stats_Test)
+    unittest.TextTestRunner(verbosity=2).run(suite)